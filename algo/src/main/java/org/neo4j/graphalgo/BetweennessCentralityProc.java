@@ -19,12 +19,17 @@
 package org.neo4j.graphalgo;
 
 import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
 import org.neo4j.graphalgo.core.utils.*;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.HugeAtomicDoubleArray;
 import org.neo4j.graphalgo.core.write.AtomicDoubleArrayTranslator;
 import org.neo4j.graphalgo.core.write.DoubleArrayTranslator;
 import org.neo4j.graphalgo.core.write.Exporter;
+import org.neo4j.graphalgo.core.write.HugeAtomicDoubleArrayTranslator;
 import org.neo4j.graphalgo.impl.betweenness.*;
 import org.neo4j.graphalgo.results.BetweennessCentralityProcResult;
 import org.neo4j.graphdb.Direction;
@@ -108,13 +113,23 @@ public class BetweennessCentralityProc {
 
         final ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
 
+        final AllocationTracker tracker = AllocationTracker.create();
         final Graph graph = new GraphLoader(api, Pools.DEFAULT)
                 .init(log, label, relationship, configuration)
                 .withoutNodeProperties()
                 .withDirection(configuration.getDirection(DEFAULT_DIRECTION))
+                .withAllocationTracker(tracker)
                 .load(configuration.getGraphImpl());
 
         final int concurrency = configuration.getConcurrency();
+        if (graph instanceof HugeGraph) {
+            return new HugeParallelBetweennessCentrality((HugeGraph) graph, Pools.DEFAULT, concurrency, tracker)
+                    .withProgressLogger(ProgressLogger.wrap(log, "BetweennessCentrality"))
+                    .withTerminationFlag(TerminationFlag.wrap(transaction))
+                    .withDirection(configuration.getDirection(DEFAULT_DIRECTION))
+                    .compute()
+                    .resultStream();
+        }
         if (concurrency > 1) {
             final ParallelBetweennessCentrality algo =
                     new ParallelBetweennessCentrality(graph, Pools.DEFAULT, concurrency)
@@ -143,7 +158,8 @@ public class BetweennessCentralityProc {
 
         final ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
 
-        if (configuration.getConcurrency() > 1) {
+        // huge graphs are only supported by the parallel implementation
+        if (configuration.getConcurrency() > 1 || configuration.getGraphImpl() == HugeGraphFactory.class) {
             return computeBetweennessParallel(label, relationship, configuration);
         } else {
             return computeBetweenness(label, relationship, configuration);
@@ -278,6 +294,7 @@ public class BetweennessCentralityProc {
         final BetweennessCentralityProcResult.Builder builder =
                 BetweennessCentralityProcResult.builder();
 
+        final AllocationTracker tracker = AllocationTracker.create();
         Graph graph;
         try (ProgressTimer timer = builder.timeLoad()) {
             graph = new GraphLoader(api, Pools.DEFAULT)
@@ -286,12 +303,16 @@ public class BetweennessCentralityProc {
                     .withOptionalRelationshipType(relationship)
                     .withoutNodeProperties()
                     .withDirection(configuration.getDirection(Direction.OUTGOING))
+                    .withAllocationTracker(tracker)
                     .load(configuration.getGraphImpl());
         }
 
         builder.withNodeCount(graph.nodeCount());
 
         final TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
+        if (graph instanceof HugeGraph) {
+            return computeBetweennessHuge((HugeGraph) graph, builder, configuration, terminationFlag, tracker);
+        }
         final ParallelBetweennessCentrality bc =
                 new ParallelBetweennessCentrality(graph, Pools.DEFAULT, configuration.getConcurrency())
                         .withProgressLogger(ProgressLogger.wrap(log, "BetweennessCentrality(parallel)"))
@@ -322,6 +343,42 @@ public class BetweennessCentralityProc {
         return Stream.of(builder.build());
     }
 
+    private Stream<BetweennessCentralityProcResult> computeBetweennessHuge(
+            HugeGraph graph,
+            BetweennessCentralityProcResult.Builder builder,
+            ProcedureConfiguration configuration,
+            TerminationFlag terminationFlag,
+            AllocationTracker tracker) {
+
+        final HugeParallelBetweennessCentrality bc =
+                new HugeParallelBetweennessCentrality(graph, Pools.DEFAULT, configuration.getConcurrency(), tracker)
+                        .withProgressLogger(ProgressLogger.wrap(log, "BetweennessCentrality(huge)"))
+                        .withTerminationFlag(terminationFlag)
+                        .withDirection(configuration.getDirection(Direction.OUTGOING));
+
+        builder.timeEval(() -> {
+            bc.compute();
+            if (configuration.isStatsFlag()) {
+                computeStats(builder, bc.getCentrality(), graph.nodeCount());
+            }
+        });
+
+        graph.release();
+        if (configuration.isWriteFlag()) {
+            builder.timeWrite(() -> {
+                final String writeProperty = configuration.getWriteProperty(DEFAULT_TARGET_PROPERTY);
+                Exporter.of(api, graph)
+                        .withLog(log)
+                        .parallel(Pools.DEFAULT, configuration.getConcurrency(), terminationFlag)
+                        .build()
+                        .write(writeProperty, bc.getCentrality(), HugeAtomicDoubleArrayTranslator.INSTANCE);
+            });
+        }
+        bc.release();
+
+        return Stream.of(builder.build());
+    }
+
     private void computeStats(BetweennessCentralityProcResult.Builder builder, double[] centrality) {
         double min = Double.MAX_VALUE;
         double max = Double.MIN_VALUE;
@@ -360,6 +417,25 @@ public class BetweennessCentralityProc {
                 .withCentralitySum(sum);
     }
 
+    private void computeStats(BetweennessCentralityProcResult.Builder builder, HugeAtomicDoubleArray centrality, long nodeCount) {
+        double min = Double.MAX_VALUE;
+        double max = Double.MIN_VALUE;
+        double sum = 0.0;
+        for (long i = nodeCount - 1; i >= 0; i--) {
+            final double c = centrality.get(i);
+            if (c < min) {
+                min = c;
+            }
+            if (c > max) {
+                max = c;
+            }
+            sum += c;
+        }
+        builder.withCentralityMax(max)
+                .withCentralityMin(min)
+                .withCentralitySum(sum);
+    }
+
     private RABrandesBetweennessCentrality.SelectionStrategy strategy(ProcedureConfiguration configuration, Graph graph) {
 
         switch (configuration.getString("strategy", "random")) {
@@ -23,17 +23,26 @@ import org.neo4j.graphalgo.api.GraphFactory;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
 import org.neo4j.graphalgo.core.ProcedureConstants;
+import org.neo4j.graphalgo.core.huge.HugeGraphSnapshot;
+import org.neo4j.graphalgo.core.loadgraph.GraphRefresh;
 import org.neo4j.graphalgo.core.loadgraph.LoadGraphFactory;
+import org.neo4j.graphalgo.core.neo4jview.GraphView;
+import org.neo4j.graphalgo.core.utils.AlgoDirectory;
 import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.core.utils.ProgressTimer;
 import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
 import org.neo4j.graphdb.Direction;
+import org.neo4j.helpers.Exceptions;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 public final class LoadGraphProc {
@@ -50,9 +59,12 @@ public final class LoadGraphProc {
     @Procedure(name = "algo.graph.load")
     @Description("CALL algo.graph.load(" +
             "name:String, label:String, relationship:String" +
-            "{direction:'OUT/IN/BOTH', undirected:true/false, sorted:true/false, nodeProperty:'value', nodeWeight:'weight', relationshipWeight: 'weight', graph:'heavy/huge/cypher'}) " +
+            "{direction:'OUT/IN/BOTH', undirected:true/false, sorted:true/false, nodeProperty:'value', nodeWeight:'weight', relationshipWeight: 'weight', graph:'heavy/huge/cypher', source:'path', refresh:true/false, compactAfter:10000, positionalWeights:true/false}) " +
             "YIELD nodes, relationships, loadMillis, computeMillis, writeMillis, write, nodeProperty, nodeWeight, relationshipWeight - " +
-            "load named graph")
+            "load named graph, from the snapshot at the source path within algo.directory if given. A refreshed graph follows the committed changes, " +
+            "huge graphs keep them in an overlay which is compacted by loading the graph again after compactAfter changes. " +
+            "Huge graphs with positional weights store the weights alongside the adjacency, which is required to save weighted graphs " +
+            "and always the case for refreshed graphs")
     public Stream<LoadGraphStats> load(
             @Name(value = "name", defaultValue = "") String name,
             @Name(value = "label", defaultValue = "") String label,
@@ -79,6 +91,7 @@ public final class LoadGraphProc {
         stats.nodeWeight = nodeWeight;
         stats.nodeProperty = nodeProperty;
         stats.relationshipWeight = relationshipWeight;
+        stats.refresh = configuration.get("refresh", false);
 
         if (LoadGraphFactory.check(name)) {
             // return already loaded
@@ -86,48 +99,143 @@ public final class LoadGraphProc {
             return Stream.of(stats);
         }
 
+        final String source = configuration.getString("source", null);
+        if (stats.refresh && (source != null || "cypher".equals(stats.graph))) {
+            throw new IllegalArgumentException("Only graphs loaded by label and relationship type can be refreshed");
+        }
+        if (source != null) {
+            try (ProgressTimer timer = ProgressTimer.start()) {
+                AllocationTracker tracker = new AllocationTracker();
+                Graph graph = HugeGraphSnapshot.read(AlgoDirectory.resolve(dbAPI, source), tracker);
+                stats.graph = "huge";
+                stats.nodes = graph.nodeCount();
+                stats.loadMillis = timer.stop().getDuration();
+                stats.bytes = tracker.tracked();
+                LoadGraphFactory.set(name, graph, stats.bytes);
+            } catch (IOException e) {
+                throw Exceptions.launderedException(e);
+            }
+            return Stream.of(stats);
+        }
+
         try (ProgressTimer timer = ProgressTimer.start()) {
             Class<? extends GraphFactory> graphImpl = configuration.getGraphImpl();
+            AllocationTracker tracker = new AllocationTracker();
 
-            Graph graph = new GraphLoader(dbAPI, Pools.DEFAULT)
+            Function<AllocationTracker, Graph> loader = allocationTracker -> new GraphLoader(dbAPI, Pools.DEFAULT)
                     .init(log, configuration.getNodeLabelOrQuery(),
                             configuration.getRelationshipOrQuery(), configuration)
                     .withName(name)
-                    .withAllocationTracker(new AllocationTracker())
+                    .withAllocationTracker(allocationTracker)
                     .withOptionalNodeProperty(nodeProperty, 0.0d)
                     .withOptionalNodeWeightsFromProperty(nodeWeight, 1.0d)
                     .withOptionalRelationshipWeightsFromProperty(relationshipWeight, 1.0d)
+                    // the overlay of refreshed graphs keeps the weights per direction as well
+                    .withPositionalRelationshipWeights(stats.refresh || configuration.get("positionalWeights", false))
                     .withDirection(direction)
                     .withSort(stats.sorted)
                     .asUndirected(stats.undirected)
                     .withLabelAsProperty(true)
                     .load(graphImpl);
+            Graph graph = loader.apply(tracker);
             stats.nodes=graph.nodeCount();
             stats.loadMillis = timer.stop().getDuration();
-            LoadGraphFactory.set(name, graph);
+            stats.bytes = tracker.tracked() > 0L
+                    ? tracker.tracked()
+                    : estimateFootprint(graph, direction, relationshipWeight != null);
+            GraphRefresh refresh = null;
+            if (stats.refresh) {
+                refresh = new GraphRefresh(
+                        dbAPI,
+                        configuration.getNodeLabelOrQuery(),
+                        configuration.getRelationshipOrQuery(),
+                        relationshipWeight,
+                        1.0d,
+                        direction,
+                        stats.undirected,
+                        configuration.get("compactAfter", Math.max(10_000L, graph.nodeCount() / 10)),
+                        () -> loader.apply(new AllocationTracker()));
+            }
+            LoadGraphFactory.set(name, graph, stats.bytes, refresh);
         }
 
         return Stream.of(stats);
     }
 
+    /**
+     * rough footprint of graphs which do not report their allocations to the tracker,
+     * an int per relationship and a long and an int per node
+     */
+    private static long estimateFootprint(Graph graph, Direction direction, boolean weighted) {
+        if (graph instanceof GraphView) {
+            return 0L;
+        }
+        long[] relationships = {0L};
+        graph.forEachNode(node -> {
+            relationships[0] += graph.degree(node, direction);
+            return true;
+        });
+        long bytesPerRelationship = Integer.BYTES + (weighted ? Long.BYTES + Double.BYTES : 0);
+        return graph.nodeCount() * (Long.BYTES + Integer.BYTES) + relationships[0] * bytesPerRelationship;
+    }
+
     public static class LoadGraphStats {
         public String name, graph, direction;
         public boolean undirected;
         public boolean sorted;
-        public long nodes, loadMillis;
+        public long nodes, loadMillis, bytes;
         public boolean alreadyLoaded;
+        public boolean refresh;
         public String nodeWeight, relationshipWeight, nodeProperty, loadNodes, loadRelationships;
     }
 
+    @Procedure(name = "algo.graph.save")
+    @Description("CALL algo.graph.save(name:String, path:String) " +
+            "YIELD name, path, nodes, bytes, writeMillis - " +
+            "write a loaded huge graph into a snapshot, which can be loaded with the source option of algo.graph.load. " +
+            "The path is relative to the algo.directory of the server configuration")
+    public Stream<SaveGraphStats> save(
+            @Name("name") String name,
+            @Name("path") String path) {
+        Path file = AlgoDirectory.resolve(dbAPI, path);
+        if (Files.exists(file) && !HugeGraphSnapshot.isSnapshot(file)) {
+            throw new IllegalArgumentException("The file " + path + " exists and is not a graph snapshot");
+        }
+        LoadGraphFactory.Lease lease = LoadGraphFactory.acquireCompacted(name);
+        if (lease == null) {
+            throw new IllegalArgumentException("Graph " + name + " is not loaded");
+        }
+        SaveGraphStats stats = new SaveGraphStats();
+        stats.name = name;
+        stats.path = path;
+        try (LoadGraphFactory.Lease ignored = lease;
+             ProgressTimer timer = ProgressTimer.start()) {
+            Graph graph = lease.graph();
+            stats.nodes = graph.nodeCount();
+            stats.bytes = HugeGraphSnapshot.write(graph, file);
+            stats.writeMillis = timer.stop().getDuration();
+        } catch (IOException e) {
+            throw Exceptions.launderedException(e);
+        }
+        return Stream.of(stats);
+    }
+
+    public static class SaveGraphStats {
+        public String name, path;
+        public long nodes, bytes, writeMillis;
+    }
+
     @Procedure(name = "algo.graph.remove")
     @Description("CALL algo.graph.remove(name:String")
     public Stream<GraphInfo> remove(@Name("name") String name) {
         GraphInfo info = new GraphInfo(name);
 
-        Graph graph = LoadGraphFactory.get(name);
-        if (graph != null) {
-            info.type = graph.getType();
-            info.nodes = graph.nodeCount();
+        LoadGraphFactory.Lease lease = LoadGraphFactory.acquire(name);
+        if (lease != null) {
+            try (LoadGraphFactory.Lease ignored = lease) {
+                info.type = lease.graph().getType();
+                info.nodes = lease.graph().nodeCount();
+            }
             info.exists = LoadGraphFactory.remove(name);
             info.removed = true;
         }
@@ -138,21 +246,54 @@ public final class LoadGraphProc {
     @Description("CALL algo.graph.info(name:String")
     public Stream<GraphInfo> info(@Name("name") String name) {
         GraphInfo info = new GraphInfo(name);
-        Graph graph = LoadGraphFactory.get(name);
-        if (graph != null) {
-            info.type = graph.getType();
-            info.nodes = graph.nodeCount();
-            info.exists = true;
+        LoadGraphFactory.Lease lease = LoadGraphFactory.acquire(name);
+        if (lease != null) {
+            try (LoadGraphFactory.Lease ignored = lease) {
+                info.type = lease.graph().getType();
+                info.nodes = lease.graph().nodeCount();
+                info.bytes = LoadGraphFactory.footprint(name);
+                info.exists = true;
+            }
         }
         return Stream.of(info);
     }
 
+    @Procedure(name = "algo.graph.budget")
+    @Description("CALL algo.graph.budget(bytes:Number, {policy:'lru/lfu', spillDirectory:'path'}) " +
+            "YIELD budget, used, policy, spillDirectory - " +
+            "limit the memory of all loaded graphs, least recently or frequently used graphs are evicted " +
+            "or, if they are huge graphs and a spill directory within algo.directory is given, written to disk")
+    public Stream<BudgetInfo> budget(
+            @Name(value = "bytes") Number bytes,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+        final ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
+        LoadGraphFactory.EvictionPolicy policy = LoadGraphFactory.EvictionPolicy.valueOf(
+                configuration.getString("policy", "lru").toUpperCase());
+        String spillDirectory = configuration.getString("spillDirectory", null);
+        LoadGraphFactory.configure(
+                bytes.longValue(),
+                policy,
+                spillDirectory == null ? null : AlgoDirectory.resolve(dbAPI, spillDirectory));
+
+        BudgetInfo info = new BudgetInfo();
+        info.budget = LoadGraphFactory.memoryBudget();
+        info.used = LoadGraphFactory.memoryUsage();
+        info.policy = policy.name().toLowerCase();
+        info.spillDirectory = spillDirectory;
+        return Stream.of(info);
+    }
+
+    public static class BudgetInfo {
+        public long budget, used;
+        public String policy, spillDirectory;
+    }
+
     public static class GraphInfo {
         public final String name;
         public String type;
         public boolean exists;
         public boolean removed;
-        public long nodes;
+        public long nodes, bytes;
 
         public GraphInfo(String name) {
             this.name = name;
@@ -22,17 +22,20 @@ import org.neo4j.graphalgo.api.*;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
 import org.neo4j.graphalgo.core.heavyweight.HeavyCypherGraphFactory;
-import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
 import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.core.utils.ProgressLogger;
 import org.neo4j.graphalgo.core.utils.ProgressTimer;
 import org.neo4j.graphalgo.core.utils.TerminationFlag;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
 import org.neo4j.graphalgo.core.write.Exporter;
 import org.neo4j.graphalgo.core.write.IntArrayTranslator;
+import org.neo4j.graphalgo.core.write.PagedLongArrayTranslator;
+import org.neo4j.graphalgo.core.write.PropertyTranslator;
+import org.neo4j.graphalgo.impl.louvain.HugeMultiLevelLouvain;
 import org.neo4j.graphalgo.impl.louvain.LouvainAlgorithm;
-import org.neo4j.graphalgo.impl.louvain.ParallelLouvain;
-import org.neo4j.graphalgo.impl.louvain.WeightedLouvain;
+import org.neo4j.graphalgo.impl.louvain.MultiLevelLouvain;
 import org.neo4j.graphalgo.results.LouvainResult;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.kernel.api.KernelTransaction;
@@ -52,7 +55,11 @@ public class LouvainProc {
 
     public static final String CONFIG_CLUSTER_PROPERTY = "writeProperty";
     public static final String DEFAULT_CLUSTER_PROPERTY = "community";
+    public static final String CONFIG_LEVELS = "levels";
+    public static final String CONFIG_INTERMEDIATE_COMMUNITIES = "includeIntermediateCommunities";
+    public static final String CONFIG_SEED = "seed";
     public static final int DEFAULT_ITERATIONS = 20;
+    public static final int DEFAULT_LEVELS = 10;
 
     @Context
     public GraphDatabaseAPI api;
@@ -65,8 +72,8 @@ public class LouvainProc {
 
     @Procedure(value = "algo.louvain", mode = Mode.WRITE)
     @Description("CALL algo.louvain(label:String, relationship:String, " +
-            "{weightProperty:'weight', defaultValue:1.0, write: true, writeProperty:'community', concurrency:4}) " +
-            "YIELD nodes, communityCount, iterations, loadMillis, computeMillis, writeMillis")
+            "{weightProperty:'weight', defaultValue:1.0, iterations:20, levels:10, seed:42, write: true, writeProperty:'community', concurrency:4, writeBatchSize:100000}) " +
+            "YIELD nodes, communityCount, iterations, levels, modularity, modularities, loadMillis, computeMillis, writeMillis, writeThroughput")
     public Stream<LouvainResult> louvain(
             @Name(value = "label", defaultValue = "") String label,
             @Name(value = "relationship", defaultValue = "") String relationship,
@@ -78,36 +85,70 @@ public class LouvainProc {
 
         LouvainResult.Builder builder = LouvainResult.builder();
 
-        final HeavyGraph graph;
+        final AllocationTracker tracker = AllocationTracker.create();
+        final Graph graph;
         try (ProgressTimer timer = builder.timeLoad()) {
-            graph = graph(configuration);
+            graph = graph(configuration, tracker);
         }
 
         builder.withNodeCount(graph.nodeCount());
 
-        final LouvainAlgorithm louvain = louvain(graph, configuration);
+        if (graph instanceof HugeGraph) {
+            return hugeLouvain((HugeGraph) graph, configuration, builder, tracker);
+        }
+
+        final MultiLevelLouvain louvain = louvain(graph, configuration);
+
+        // evaluation
+        try (ProgressTimer timer = builder.timeEval()) {
+            louvain.compute();
+            builder.withIterations(louvain.getIterations())
+                    .withCommunityCount(louvain.getCommunityCount())
+                    .withLevels(louvain.getLevels())
+                    .withModularities(louvain.getModularities());
+        }
+
+        if (configuration.isWriteFlag()) {
+            // write back
+            builder.timeWrite(() ->
+                    write(graph, louvain.getCommunityIds(), IntArrayTranslator.INSTANCE, configuration));
+        }
+
+        return Stream.of(builder.build());
+    }
+
+    private Stream<LouvainResult> hugeLouvain(
+            HugeGraph graph,
+            ProcedureConfiguration configuration,
+            LouvainResult.Builder builder,
+            AllocationTracker tracker) {
+
+        final HugeMultiLevelLouvain louvain = hugeLouvain(graph, configuration, tracker);
 
         // evaluation
         try (ProgressTimer timer = builder.timeEval()) {
             louvain.compute();
             builder.withIterations(louvain.getIterations())
-                    .withCommunityCount(louvain.getCommunityCount());
+                    .withCommunityCount(louvain.getCommunityCount())
+                    .withLevels(louvain.getLevels())
+                    .withModularities(louvain.getModularities());
         }
 
         if (configuration.isWriteFlag()) {
             // write back
             builder.timeWrite(() ->
-                    write(graph, louvain.getCommunityIds(), configuration));
+                    write(graph, louvain.getCommunityIds(), PagedLongArrayTranslator.INSTANCE, configuration));
         }
+        louvain.release();
 
         return Stream.of(builder.build());
     }
 
     @Procedure(value = "algo.louvain.stream")
     @Description("CALL algo.louvain.stream(label:String, relationship:String, " +
-            "{weightProperty:'propertyName', defaultValue:1.0, concurrency:4) " +
-            "YIELD nodeId, community - yields a setId to each node id")
-    public Stream<WeightedLouvain.Result> louvainStream(
+            "{weightProperty:'propertyName', defaultValue:1.0, iterations:20, levels:10, seed:42, includeIntermediateCommunities:false, concurrency:4) " +
+            "YIELD nodeId, community, communities - yields a setId to each node id")
+    public Stream<LouvainAlgorithm.Result> louvainStream(
             @Name(value = "label", defaultValue = "") String label,
             @Name(value = "relationship", defaultValue = "") String relationship,
             @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
@@ -116,59 +157,98 @@ public class LouvainProc {
                 .overrideNodeLabelOrQuery(label)
                 .overrideRelationshipTypeOrQuery(relationship);
 
-        // evaluation
-        return louvain(graph(configuration), configuration)
-                .compute()
-                .resultStream();
+        final AllocationTracker tracker = AllocationTracker.create();
+        final Graph graph = graph(configuration, tracker);
 
+        // evaluation
+        if (graph instanceof HugeGraph) {
+            final HugeMultiLevelLouvain louvain = hugeLouvain((HugeGraph) graph, configuration, tracker)
+                    .compute();
+            if (configuration.get(CONFIG_INTERMEDIATE_COMMUNITIES, false)) {
+                return louvain.hierarchyStream();
+            }
+            return louvain.resultStream();
+        }
+        final MultiLevelLouvain louvain = louvain(graph, configuration)
+                .compute();
+        if (configuration.get(CONFIG_INTERMEDIATE_COMMUNITIES, false)) {
+            return louvain.hierarchyStream();
+        }
+        return louvain.resultStream();
     }
 
-    public HeavyGraph graph(ProcedureConfiguration config) {
+    public Graph graph(ProcedureConfiguration config, AllocationTracker tracker) {
 
         Class<? extends GraphFactory> graphImpl = config.getGraphImpl(
                 HeavyGraphFactory.class,
-                HeavyCypherGraphFactory.class);
+                HeavyCypherGraphFactory.class,
+                HugeGraphFactory.class);
 
         final GraphLoader loader = new GraphLoader(api, Pools.DEFAULT)
                 .init(log, config.getNodeLabelOrQuery(),config.getRelationshipOrQuery(),config)
-                .withDirection(Direction.BOTH);
+                .withDirection(Direction.BOTH)
+                .withAllocationTracker(tracker);
 
         if (config.hasWeightProperty()) {
-            return (HeavyGraph) loader
+            return loader
                     .withOptionalRelationshipWeightsFromProperty(
                             config.getWeightProperty(),
                             config.getWeightPropertyDefaultValue(1.0))
                     .load(graphImpl);
         }
 
-        return (HeavyGraph) loader
+        return loader
                 .withoutRelationshipWeights()
                 .withoutNodeWeights()
                 .withoutNodeProperties()
                 .load(graphImpl);
     }
 
-    public LouvainAlgorithm louvain(HeavyGraph graph, ProcedureConfiguration config) {
-        if (config.hasWeightProperty()) {
-            return new WeightedLouvain(graph, graph, graph, Pools.DEFAULT, config.getConcurrency(), config.getIterations(DEFAULT_ITERATIONS))
-                    .withProgressLogger(ProgressLogger.wrap(log, "WeightedLouvain"))
-                    .withTerminationFlag(TerminationFlag.wrap(transaction));
+    public MultiLevelLouvain louvain(Graph graph, ProcedureConfiguration config) {
+        final MultiLevelLouvain louvain = new MultiLevelLouvain(
+                graph,
+                config.hasWeightProperty(),
+                Pools.DEFAULT,
+                config.getConcurrency(),
+                config.getIterations(DEFAULT_ITERATIONS),
+                config.getInt(CONFIG_LEVELS, DEFAULT_LEVELS));
+        if (config.containsKeys(CONFIG_SEED)) {
+            // a seed makes the result independent of the concurrency
+            louvain.withSeed(config.getNumber(CONFIG_SEED, MultiLevelLouvain.DEFAULT_SEED).longValue());
+        }
+        return louvain
+                .withProgressLogger(ProgressLogger.wrap(log, "Louvain"))
+                .withTerminationFlag(TerminationFlag.wrap(transaction));
+    }
+
+    public HugeMultiLevelLouvain hugeLouvain(HugeGraph graph, ProcedureConfiguration config, AllocationTracker tracker) {
+        final HugeMultiLevelLouvain louvain = new HugeMultiLevelLouvain(
+                graph,
+                config.hasWeightProperty(),
+                Pools.DEFAULT,
+                config.getConcurrency(),
+                config.getIterations(DEFAULT_ITERATIONS),
+                config.getInt(CONFIG_LEVELS, DEFAULT_LEVELS),
+                tracker);
+        if (config.containsKeys(CONFIG_SEED)) {
+            louvain.withSeed(config.getNumber(CONFIG_SEED, MultiLevelLouvain.DEFAULT_SEED).longValue());
         }
-        return new ParallelLouvain(graph, graph, graph, Pools.DEFAULT, config.getConcurrency(), config.getIterations(DEFAULT_ITERATIONS))
+        return louvain
                 .withProgressLogger(ProgressLogger.wrap(log, "Louvain"))
                 .withTerminationFlag(TerminationFlag.wrap(transaction));
     }
 
-    private void write(Graph graph, int[] communities, ProcedureConfiguration configuration) {
+    private <T> void write(Graph graph, T communities, PropertyTranslator<T> translator, ProcedureConfiguration configuration) {
         log.debug("Writing results");
         Exporter.of(api, graph)
                 .withLog(log)
                 .parallel(Pools.DEFAULT, configuration.getConcurrency(), TerminationFlag.wrap(transaction))
+                .withBatchSize(configuration.getWriteBatchSize())
                 .build()
                 .write(
                         configuration.get(CONFIG_CLUSTER_PROPERTY, DEFAULT_CLUSTER_PROPERTY),
                         communities,
-                        IntArrayTranslator.INSTANCE
+                        translator
                 );
     }
 }
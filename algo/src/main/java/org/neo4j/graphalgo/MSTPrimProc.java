@@ -18,30 +18,31 @@
  */
 package org.neo4j.graphalgo;
 
-import org.neo4j.graphalgo.api.IdMapping;
-import org.neo4j.graphalgo.api.RelationshipConsumer;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
-import org.neo4j.graphalgo.core.neo4jview.DirectIdMapping;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
 import org.neo4j.graphalgo.core.sources.BothRelationshipAdapter;
 import org.neo4j.graphalgo.core.sources.BufferedWeightMap;
 import org.neo4j.graphalgo.core.sources.LazyIdMapper;
+import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.core.utils.ProgressLogger;
 import org.neo4j.graphalgo.core.utils.ProgressTimer;
 import org.neo4j.graphalgo.core.utils.TerminationFlag;
 import org.neo4j.graphalgo.core.utils.container.RelationshipContainer;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
 import org.neo4j.graphalgo.core.write.Exporter;
+import org.neo4j.graphalgo.impl.HugeMSTPrim;
 import org.neo4j.graphalgo.impl.MSTPrim;
 import org.neo4j.graphalgo.results.MSTPrimResult;
 import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Node;
-import org.neo4j.helpers.Exceptions;
-import org.neo4j.kernel.api.DataWriteOperations;
 import org.neo4j.kernel.api.KernelTransaction;
-import org.neo4j.kernel.api.exceptions.KernelException;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
+import java.util.Arrays;
 import java.util.Map;
 import java.util.stream.Stream;
 
@@ -73,6 +74,10 @@ public class MSTPrimProc {
 
         ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
 
+        if (configuration.getGraphImpl() == HugeGraphFactory.class) {
+            return hugeMst(startNode, weightProperty, configuration);
+        }
+
         LazyIdMapper idMapper = LazyIdMapper.importer(api)
                 .withWeightsFromProperty(weightProperty, 1.0)
                 .withOptionalLabel(configuration.getNodeLabelOrQuery())
@@ -127,31 +132,77 @@ public class MSTPrimProc {
             weightMap = null;
             relationshipContainer = null;
             builder.timeWrite(() -> {
-                Exporter.of(new DirectIdMapping(1), api)
+                final int[] parents = new int[Math.toIntExact(idMapper.nodeCount())];
+                Arrays.fill(parents, -1);
+                minimumSpanningTree.forEachBFS((source, target, relationId) -> {
+                    parents[target] = source;
+                    return true;
+                });
+                Exporter.of(idMapper, api)
                         .withLog(log)
+                        .parallel(Pools.DEFAULT, configuration.getConcurrency(), TerminationFlag.wrap(transaction))
+                        .withBatchSize(configuration.getWriteBatchSize())
                         .build()
-                        .writeRelationships(
+                        .writeForest(
                                 configuration.get(CONFIG_WRITE_RELATIONSHIP, CONFIG_WRITE_RELATIONSHIP_DEFAULT),
-                                (ops, typeId) -> minimumSpanningTree.forEachBFS(writeBack((int) typeId, idMapper, ops))
-                        );
+                                node -> parents[(int) node],
+                                AllocationTracker.EMPTY);
             });
         }
 
         return Stream.of(builder.build());
     }
 
-    private static RelationshipConsumer writeBack(int typeId, IdMapping mapping, DataWriteOperations ops) {
-        return (source, target, rid) -> {
-            try {
-                ops.relationshipCreate(
-                        typeId,
-                        mapping.toOriginalNodeId(source),
-                        mapping.toOriginalNodeId(target)
-                );
-            } catch (KernelException e) {
-                throw Exceptions.launderedException(e);
+    private Stream<MSTPrimResult> hugeMst(
+            Node startNode,
+            String weightProperty,
+            ProcedureConfiguration configuration) {
+
+        MSTPrimResult.Builder builder = MSTPrimResult.builder();
+
+        final AllocationTracker tracker = AllocationTracker.create();
+        final HugeGraph graph;
+        try (ProgressTimer timer = builder.timeLoad()) {
+            graph = (HugeGraph) new GraphLoader(api, Pools.DEFAULT)
+                    .withOptionalLabel(configuration.getNodeLabelOrQuery())
+                    .withOptionalRelationshipType(configuration.getRelationshipOrQuery())
+                    .withRelationshipWeightsFromProperty(weightProperty, 1.0)
+                    .withDirection(Direction.BOTH)
+                    .withAllocationTracker(tracker)
+                    .load(HugeGraphFactory.class);
+        }
+
+        final HugeMSTPrim mstPrim = new HugeMSTPrim(graph, tracker)
+                .withProgressLogger(ProgressLogger.wrap(log, "MST(Prim)"))
+                .withTerminationFlag(TerminationFlag.wrap(transaction));
+
+        builder.timeEval(() -> {
+            mstPrim.compute(graph.toHugeMappedNodeId(startNode.getId()));
+            if (configuration.isStatsFlag()) {
+                builder.withWeightMax(mstPrim.getMax())
+                        .withWeightMin(mstPrim.getMin())
+                        .withWeightSum(mstPrim.getSum())
+                        .withRelationshipCount(mstPrim.getCount());
             }
-            return true;
-        };
+        });
+
+        if (configuration.isWriteFlag()) {
+            // each parent writes the transitions to its children, split into batches across threads
+            builder.timeWrite(() -> {
+                Exporter.of(api, graph)
+                        .withLog(log)
+                        .parallel(Pools.DEFAULT, configuration.getConcurrency(), TerminationFlag.wrap(transaction))
+                        .withBatchSize(configuration.getWriteBatchSize())
+                        .build()
+                        .writeForest(
+                                configuration.get(CONFIG_WRITE_RELATIONSHIP, CONFIG_WRITE_RELATIONSHIP_DEFAULT),
+                                mstPrim::getParent,
+                                tracker);
+            });
+        }
+        mstPrim.release();
+        graph.release();
+
+        return Stream.of(builder.build());
     }
 }
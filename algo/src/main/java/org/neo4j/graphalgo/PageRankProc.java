@@ -21,18 +21,24 @@ package org.neo4j.graphalgo;
 import org.neo4j.graphalgo.api.Graph;
 import org.neo4j.graphalgo.api.GraphFactory;
 import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.api.NodeWeights;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.NodePropertyReader;
 import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.core.utils.ProgressTimer;
 import org.neo4j.graphalgo.core.utils.TerminationFlag;
 import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
 import org.neo4j.graphalgo.core.write.Exporter;
 import org.neo4j.graphalgo.impl.PageRankResult;
 import org.neo4j.graphalgo.impl.Algorithm;
 import org.neo4j.graphalgo.impl.PageRankAlgorithm;
+import org.neo4j.graphalgo.impl.PersonalizedPageRank;
 import org.neo4j.graphalgo.results.PageRankScore;
 import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Node;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.logging.Log;
@@ -42,7 +48,12 @@ import org.neo4j.procedure.Mode;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import java.util.stream.LongStream;
 import java.util.stream.Stream;
@@ -50,9 +61,15 @@ import java.util.stream.Stream;
 public final class PageRankProc {
 
     public static final String CONFIG_DAMPING = "dampingFactor";
+    public static final String CONFIG_SEED_PROPERTY = "seedProperty";
+    public static final String CONFIG_TOLERANCE = "tolerance";
+    public static final String CONFIG_TOP_K = "topK";
 
     public static final Double DEFAULT_DAMPING = 0.85;
     public static final Integer DEFAULT_ITERATIONS = 20;
+    public static final Double DEFAULT_TOLERANCE = 0.0;
+    public static final Double DEFAULT_PERSONALIZED_TOLERANCE = 1e-4;
+    public static final Integer DEFAULT_TOP_K = 10;
     public static final String DEFAULT_SCORE_PROPERTY = "pagerank";
 
     @Context
@@ -66,8 +83,9 @@ public final class PageRankProc {
 
     @Procedure(value = "algo.pageRank", mode = Mode.WRITE)
     @Description("CALL algo.pageRank(label:String, relationship:String, " +
-            "{iterations:5, dampingFactor:0.85, write: true, writeProperty:'pagerank', concurrency:4}) " +
-            "YIELD nodes, iterations, loadMillis, computeMillis, writeMillis, dampingFactor, write, writeProperty" +
+            "{iterations:5, dampingFactor:0.85, tolerance:0.0, write: true, writeProperty:'pagerank', seedProperty:'pagerank', concurrency:4, writeBatchSize:100000}) " +
+            "YIELD nodes, iterations, loadMillis, computeMillis, writeMillis, writeThroughput, dampingFactor, tolerance, residual, didConverge, " +
+            "write, writeProperty, iterationMillis, residuals, partitionSkew" +
             " - calculates page rank and potentially writes back")
     public Stream<PageRankScore.Stats> pageRank(
             @Name(value = "label", defaultValue = "") String label,
@@ -78,9 +96,17 @@ public final class PageRankProc {
 
         PageRankScore.Stats.Builder statsBuilder = new PageRankScore.Stats.Builder();
         AllocationTracker tracker = AllocationTracker.create();
-        final Graph graph = load(label, relationship, tracker, configuration.getGraphImpl(), statsBuilder, configuration);
+        final Class<? extends GraphFactory> graphFactory = configuration.getGraphImpl();
+        final String seedProperty = configuration.getString(CONFIG_SEED_PROPERTY).orElse(null);
+        final Graph graph;
+        final DoubleArray seeds;
+        try (ProgressTimer timer = statsBuilder.timeLoad()) {
+            graph = load(label, relationship, tracker, graphFactory, seedProperty, configuration);
+            seeds = seedProperty == null ? null : loadSeeds(graph, graphFactory, seedProperty, configuration, tracker);
+        }
+        statsBuilder.withNodes(graph.nodeCount());
         TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
-        PageRankResult scores = evaluate(graph, tracker, terminationFlag, configuration, statsBuilder);
+        PageRankResult scores = evaluate(graph, seeds, tracker, terminationFlag, configuration, statsBuilder);
 
         log.info("PageRank: overall memory usage: %s", tracker.getUsageString());
 
@@ -91,7 +117,7 @@ public final class PageRankProc {
 
     @Procedure(value = "algo.pageRank.stream", mode = Mode.READ)
     @Description("CALL algo.pageRank.stream(label:String, relationship:String, " +
-            "{iterations:20, dampingFactor:0.85, concurrency:4}) " +
+            "{iterations:20, dampingFactor:0.85, tolerance:0.0, seedProperty:'pagerank', concurrency:4}) " +
             "YIELD node, score - calculates page rank and streams results")
     public Stream<PageRankScore> pageRankStream(
             @Name(value = "label", defaultValue = "") String label,
@@ -102,10 +128,18 @@ public final class PageRankProc {
 
         PageRankScore.Stats.Builder statsBuilder = new PageRankScore.Stats.Builder();
         AllocationTracker tracker = AllocationTracker.create();
-        final Graph graph = load(label, relationship, tracker, configuration.getGraphImpl(), statsBuilder, configuration);
+        final Class<? extends GraphFactory> graphFactory = configuration.getGraphImpl();
+        final String seedProperty = configuration.getString(CONFIG_SEED_PROPERTY).orElse(null);
+        final Graph graph;
+        final DoubleArray seeds;
+        try (ProgressTimer timer = statsBuilder.timeLoad()) {
+            graph = load(label, relationship, tracker, graphFactory, seedProperty, configuration);
+            seeds = seedProperty == null ? null : loadSeeds(graph, graphFactory, seedProperty, configuration, tracker);
+        }
+        statsBuilder.withNodes(graph.nodeCount());
 
         TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
-        PageRankResult scores = evaluate(graph, tracker, terminationFlag, configuration, statsBuilder);
+        PageRankResult scores = evaluate(graph, seeds, tracker, terminationFlag, configuration, statsBuilder);
 
         log.info("PageRank: overall memory usage: %s", tracker.getUsageString());
 
@@ -133,28 +167,103 @@ public final class PageRankProc {
                 });
     }
 
+    @Procedure(value = "algo.pageRank.personalized.stream", mode = Mode.READ)
+    @Description("CALL algo.pageRank.personalized.stream(label:String, relationship:String, seedSets:List, " +
+            "{dampingFactor:0.85, tolerance:0.0001, topK:10, concurrency:4}) " +
+            "YIELD seedSet, nodeId, score - calculates personalized page rank for every set of seed nodes " +
+            "and streams the top nodes of each")
+    public Stream<PersonalizedPageRank.Result> personalizedPageRankStream(
+            @Name(value = "label", defaultValue = "") String label,
+            @Name(value = "relationship", defaultValue = "") String relationship,
+            @Name(value = "seedSets", defaultValue = "[]") List<Object> seedSets,
+            @Name(value = "config", defaultValue = "{}") Map<String, Object> config) {
+
+        ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
+
+        AllocationTracker tracker = AllocationTracker.create();
+        final Graph graph = load(label, relationship, tracker, configuration.getGraphImpl(), null, configuration);
+
+        double dampingFactor = configuration.get(CONFIG_DAMPING, DEFAULT_DAMPING);
+        double tolerance = configuration.getNumber(CONFIG_TOLERANCE, DEFAULT_PERSONALIZED_TOLERANCE).doubleValue();
+        int topK = configuration.getInt(CONFIG_TOP_K, DEFAULT_TOP_K);
+        final int concurrency = configuration.getConcurrency(Pools.getNoThreadsInDefaultPool());
+
+        PersonalizedPageRank algo = new PersonalizedPageRank(
+                graph,
+                Direction.OUTGOING,
+                dampingFactor,
+                tolerance,
+                topK,
+                Pools.DEFAULT,
+                concurrency)
+                .withLog(log)
+                .withTerminationFlag(TerminationFlag.wrap(transaction));
+
+        List<PersonalizedPageRank.Result> results = algo
+                .compute(mapSeedSets(graph, seedSets))
+                .resultStream()
+                .collect(Collectors.toList());
+
+        algo.release();
+        graph.release();
+        return results.stream();
+    }
+
+    /**
+     * Every element is either a single seed or a list of seeds,
+     * where seeds are given as nodes or node ids.
+     * Seeds that are not part of the graph are ignored.
+     */
+    private static List<int[]> mapSeedSets(Graph graph, List<Object> seedSets) {
+        List<int[]> mapped = new ArrayList<>(seedSets.size());
+        for (Object seedSet : seedSets) {
+            Collection<?> seeds = seedSet instanceof Collection
+                    ? (Collection<?>) seedSet
+                    : Collections.singletonList(seedSet);
+            mapped.add(seeds.stream()
+                    .mapToLong(PageRankProc::nodeId)
+                    .mapToInt(graph::toMappedNodeId)
+                    .filter(nodeId -> nodeId >= 0)
+                    .toArray());
+        }
+        return mapped;
+    }
+
+    private static long nodeId(Object seed) {
+        if (seed instanceof Node) {
+            return ((Node) seed).getId();
+        }
+        if (seed instanceof Number) {
+            return ((Number) seed).longValue();
+        }
+        throw new IllegalArgumentException("Expected a node or a node id as seed but got " + seed);
+    }
+
+    /**
+     * heavy graphs read the seed property as node weights while they are imported
+     */
     private Graph load(
             String label,
             String relationship,
             AllocationTracker tracker,
             Class<? extends GraphFactory> graphFactory,
-            PageRankScore.Stats.Builder statsBuilder, ProcedureConfiguration configuration) {
+            String seedProperty,
+            ProcedureConfiguration configuration) {
 
         GraphLoader graphLoader = new GraphLoader(api, Pools.DEFAULT)
                 .init(log, label, relationship, configuration)
                 .withAllocationTracker(tracker)
                 .withDirection(Direction.OUTGOING)
                 .withoutRelationshipWeights();
-
-        try (ProgressTimer timer = statsBuilder.timeLoad()) {
-            Graph graph = graphLoader.load(graphFactory);
-            statsBuilder.withNodes(graph.nodeCount());
-            return graph;
+        if (seedProperty != null && graphFactory == HeavyGraphFactory.class) {
+            graphLoader.withOptionalNodeWeightsFromProperty(seedProperty, Double.NaN);
         }
+        return graphLoader.load(graphFactory);
     }
 
     private PageRankResult evaluate(
             Graph graph,
+            DoubleArray seeds,
             AllocationTracker tracker,
             TerminationFlag terminationFlag,
             ProcedureConfiguration configuration,
@@ -162,6 +271,7 @@ public final class PageRankProc {
 
         double dampingFactor = configuration.get(CONFIG_DAMPING, DEFAULT_DAMPING);
         int iterations = configuration.getIterations(DEFAULT_ITERATIONS);
+        double tolerance = configuration.getNumber(CONFIG_TOLERANCE, DEFAULT_TOLERANCE).doubleValue();
         final int batchSize = configuration.getBatchSize();
         final int concurrency = configuration.getConcurrency(Pools.getNoThreadsInDefaultPool());
         log.debug("Computing page rank with damping of " + dampingFactor + " and " + iterations + " iterations.");
@@ -178,18 +288,72 @@ public final class PageRankProc {
                 .withLog(log)
                 .withTerminationFlag(terminationFlag);
 
-        statsBuilder.timeEval(() -> prAlgo.compute(iterations));
+        if (seeds != null) {
+            prAlgo.withSeeds(seeds::get);
+        }
+
+        statsBuilder.timeEval(() -> prAlgo.compute(iterations, tolerance));
 
+        List<PageRankAlgorithm.IterationStats> iterationStats = prAlgo.iterationStats();
+        double residual = iterationStats.isEmpty()
+                ? Double.NaN
+                : iterationStats.get(iterationStats.size() - 1).residual;
         statsBuilder
-                .withIterations(iterations)
-                .withDampingFactor(dampingFactor);
+                .withIterations(prAlgo.iterations())
+                .withDampingFactor(dampingFactor)
+                .withTolerance(tolerance)
+                .withResidual(residual)
+                .didConverge(tolerance > 0.0 && residual < tolerance)
+                .withIterationMillis(iterationStats.stream()
+                        .map(stats -> stats.nanos / 1_000_000.0)
+                        .collect(Collectors.toList()))
+                .withResiduals(iterationStats.stream()
+                        .map(stats -> stats.residual)
+                        .collect(Collectors.toList()))
+                .withPartitionSkew(iterationStats.stream()
+                        .map(stats -> stats.skew)
+                        .collect(Collectors.toList()));
 
         final PageRankResult pageRank = prAlgo.result();
         algo.release();
         graph.release();
+        if (seeds != null) {
+            tracker.remove(seeds.release());
+        }
         return pageRank;
     }
 
+    /**
+     * Reads the scores of a previous run from the given node property,
+     * nodes without the property start from the initial rank.
+     * Heavy graphs have loaded them as node weights, all others read them in parallel.
+     */
+    private DoubleArray loadSeeds(
+            Graph graph,
+            Class<? extends GraphFactory> graphFactory,
+            String property,
+            ProcedureConfiguration configuration,
+            AllocationTracker tracker) {
+        long nodeCount = graph.nodeCount();
+        if (graphFactory == HeavyGraphFactory.class && graph instanceof NodeWeights) {
+            NodeWeights weights = (NodeWeights) graph;
+            DoubleArray seeds = DoubleArray.newArray(nodeCount, tracker);
+            for (int i = 0; i < nodeCount; i++) {
+                seeds.set(i, weights.weightOf(i));
+            }
+            return seeds;
+        }
+        return new NodePropertyReader(
+                api,
+                nodeCount,
+                graph instanceof HugeGraph
+                        ? ((HugeGraph) graph)::toOriginalNodeId
+                        : node -> graph.toOriginalNodeId((int) node),
+                Pools.DEFAULT,
+                configuration.getConcurrency(Pools.getNoThreadsInDefaultPool()))
+                .read(property, Double.NaN, tracker);
+    }
+
     private void write(
             Graph graph,
             TerminationFlag terminationFlag,
@@ -204,6 +368,7 @@ public final class PageRankProc {
                         .of(api, graph)
                         .withLog(log)
                         .parallel(Pools.DEFAULT, configuration.getConcurrency(), terminationFlag)
+                        .withBatchSize(configuration.getWriteBatchSize())
                         .build();
                 result.export(propertyName, exporter);
             }
@@ -19,14 +19,18 @@
 package org.neo4j.graphalgo;
 
 import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
 import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.core.utils.ProgressLogger;
 import org.neo4j.graphalgo.core.utils.ProgressTimer;
 import org.neo4j.graphalgo.core.utils.TerminationFlag;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
 import org.neo4j.graphalgo.core.write.DoubleArrayTranslator;
 import org.neo4j.graphalgo.core.write.Exporter;
+import org.neo4j.graphalgo.core.write.HugeAtomicDoubleArrayTranslator;
+import org.neo4j.graphalgo.impl.HugeShortestPathDeltaStepping;
 import org.neo4j.graphalgo.impl.ShortestPathDeltaStepping;
 import org.neo4j.graphalgo.results.DeltaSteppingProcResult;
 import org.neo4j.graphdb.Direction;
@@ -37,7 +41,6 @@ import org.neo4j.logging.Log;
 import org.neo4j.procedure.*;
 
 import java.util.Map;
-import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 /**
@@ -82,20 +85,34 @@ public class ShortestPathDeltaSteppingProc {
 
         ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
 
+        final AllocationTracker tracker = AllocationTracker.create();
         final Graph graph = new GraphLoader(api, Pools.DEFAULT)
                 .init(log, configuration.getNodeLabelOrQuery(), configuration.getRelationshipOrQuery(), configuration)
                 .withRelationshipWeightsFromProperty(
                         propertyName,
                         configuration.getWeightPropertyDefaultValue(Double.MAX_VALUE))
                 .withDirection(Direction.OUTGOING)
+                .withAllocationTracker(tracker)
                 .load(configuration.getGraphImpl());
 
+        final TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
+        if (graph instanceof HugeGraph) {
+            final HugeShortestPathDeltaStepping algo = new HugeShortestPathDeltaStepping((HugeGraph) graph, delta, tracker)
+                    .withProgressLogger(ProgressLogger.wrap(log, "ShortestPaths(DeltaStepping)"))
+                    .withTerminationFlag(terminationFlag)
+                    .withExecutorService(Pools.DEFAULT)
+                    .withConcurrency(configuration.getConcurrency())
+                    .compute(startNode.getId());
+            graph.release();
+            return algo.resultStream();
+        }
+
         final ShortestPathDeltaStepping algo = new ShortestPathDeltaStepping(graph, delta)
                 .withProgressLogger(ProgressLogger.wrap(log, "ShortestPaths(DeltaStepping)"))
-                .withTerminationFlag(TerminationFlag.wrap(transaction))
-                .withExecutorService(Executors.newFixedThreadPool(
-                        configuration.getConcurrency()
-                )).compute(startNode.getId());
+                .withTerminationFlag(terminationFlag)
+                .withExecutorService(Pools.DEFAULT)
+                .withConcurrency(configuration.getConcurrency())
+                .compute(startNode.getId());
 
         graph.release();
         return algo.resultStream();
@@ -115,6 +132,7 @@ public class ShortestPathDeltaSteppingProc {
         final ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
         final DeltaSteppingProcResult.Builder builder = DeltaSteppingProcResult.builder();
 
+        final AllocationTracker tracker = AllocationTracker.create();
         final Graph graph;
         try (ProgressTimer timer = builder.timeLoad()) {
             graph = new GraphLoader(api, Pools.DEFAULT)
@@ -123,14 +141,45 @@ public class ShortestPathDeltaSteppingProc {
                             propertyName,
                             configuration.getWeightPropertyDefaultValue(Double.MAX_VALUE))
                     .withDirection(Direction.OUTGOING)
+                    .withAllocationTracker(tracker)
                     .load(configuration.getGraphImpl());
         }
 
         final TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
+        if (graph instanceof HugeGraph) {
+            final HugeShortestPathDeltaStepping algorithm = new HugeShortestPathDeltaStepping((HugeGraph) graph, delta, tracker)
+                    .withProgressLogger(ProgressLogger.wrap(log, "ShortestPaths(DeltaStepping)"))
+                    .withTerminationFlag(terminationFlag)
+                    .withExecutorService(Pools.DEFAULT)
+                    .withConcurrency(configuration.getConcurrency());
+
+            builder.timeEval(() -> algorithm.compute(startNode.getId()));
+
+            if (configuration.isWriteFlag()) {
+                graph.release();
+                builder.timeWrite(() -> Exporter
+                        .of(api, graph)
+                        .withLog(log)
+                        .parallel(Pools.DEFAULT, configuration.getConcurrency(), terminationFlag)
+                        .build()
+                        .write(
+                                configuration.get(WRITE_PROPERTY, DEFAULT_TARGET_PROPERTY),
+                                algorithm.getShortestPaths(),
+                                HugeAtomicDoubleArrayTranslator.INSTANCE
+                        ));
+            }
+            algorithm.release();
+
+            return Stream.of(builder
+                    .withNodeCount(graph.nodeCount())
+                    .build());
+        }
+
         final ShortestPathDeltaStepping algorithm = new ShortestPathDeltaStepping(graph, delta)
                 .withProgressLogger(ProgressLogger.wrap(log, "ShortestPaths(DeltaStepping)"))
                 .withTerminationFlag(terminationFlag)
-                .withExecutorService(Pools.DEFAULT);
+                .withExecutorService(Pools.DEFAULT)
+                .withConcurrency(configuration.getConcurrency());
 
         builder.timeEval(() -> algorithm.compute(startNode.getId()));
 
@@ -22,6 +22,7 @@ import com.carrotsearch.hppc.IntSet;
 import com.carrotsearch.hppc.ObjectArrayList;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
 import org.neo4j.graphalgo.core.neo4jview.DirectIdMapping;
@@ -29,8 +30,11 @@ import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.core.utils.ProgressLogger;
 import org.neo4j.graphalgo.core.utils.ProgressTimer;
 import org.neo4j.graphalgo.core.utils.TerminationFlag;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
 import org.neo4j.graphalgo.core.write.Exporter;
 import org.neo4j.graphalgo.core.write.OptionalIntArrayTranslator;
+import org.neo4j.graphalgo.core.write.PagedLongArrayTranslator;
 import org.neo4j.graphalgo.impl.*;
 import org.neo4j.graphalgo.impl.multistepscc.MultistepSCC;
 import org.neo4j.graphalgo.results.SCCResult;
@@ -234,15 +238,20 @@ public class StronglyConnectedComponentsProc {
 
         SCCResult.Builder builder = SCCResult.builder();
 
+        final AllocationTracker tracker = AllocationTracker.create();
         ProgressTimer loadTimer = builder.timeLoad();
         Graph graph = new GraphLoader(api, Pools.DEFAULT)
                 .init(log, label, relationship, configuration)
                 .withoutRelationshipWeights()
                 .withDirection(Direction.OUTGOING)
+                .withAllocationTracker(tracker)
                 .load(configuration.getGraphImpl());
         loadTimer.stop();
 
         final TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
+        if (graph instanceof HugeGraph) {
+            return hugeIterativeTarjan((HugeGraph) graph, configuration, builder, terminationFlag, tracker);
+        }
         SCCIterativeTarjan tarjan = new SCCIterativeTarjan(graph)
                 .withProgressLogger(ProgressLogger.wrap(log, "SCC(IterativeTarjan)"))
                 .withTerminationFlag(terminationFlag);
@@ -272,6 +281,42 @@ public class StronglyConnectedComponentsProc {
         return Stream.of(builder.build());
     }
 
+    private Stream<SCCResult> hugeIterativeTarjan(
+            HugeGraph graph,
+            ProcedureConfiguration configuration,
+            SCCResult.Builder builder,
+            TerminationFlag terminationFlag,
+            AllocationTracker tracker) {
+
+        HugeSCCIterativeTarjan tarjan = new HugeSCCIterativeTarjan(graph, tracker)
+                .withProgressLogger(ProgressLogger.wrap(log, "SCC(IterativeTarjan)"))
+                .withTerminationFlag(terminationFlag);
+
+        builder.timeEval(tarjan::compute);
+
+        builder.withSetCount(tarjan.getSetCount())
+                .withMinSetSize(tarjan.getMinSetSize())
+                .withMaxSetSize(tarjan.getMaxSetSize());
+
+        if (configuration.isWriteFlag()) {
+            final LongArray connectedComponents = tarjan.getConnectedComponents();
+            graph.release();
+            builder.timeWrite(() -> Exporter
+                    .of(api, graph)
+                    .withLog(log)
+                    .parallel(Pools.DEFAULT, configuration.getConcurrency(), terminationFlag)
+                    .build()
+                    .write(
+                            configuration.get(CONFIG_WRITE_PROPERTY, CONFIG_CLUSTER),
+                            connectedComponents,
+                            PagedLongArrayTranslator.INSTANCE
+                    ));
+        }
+        tarjan.release();
+
+        return Stream.of(builder.build());
+    }
+
     // algo.scc.iterative.stream
     @Procedure(value = "algo.scc.iterative.stream", mode = Mode.WRITE)
     @Description("CALL algo.scc.iterative.stream(label:String, relationship:String, config:Map<String, Object>) YIELD " +
@@ -283,12 +328,22 @@ public class StronglyConnectedComponentsProc {
 
         ProcedureConfiguration configuration = ProcedureConfiguration.create(config);
 
+        final AllocationTracker tracker = AllocationTracker.create();
         Graph graph = new GraphLoader(api, Pools.DEFAULT)
                 .init(log, label, relationship, configuration)
                 .withoutRelationshipWeights()
                 .withDirection(Direction.OUTGOING)
+                .withAllocationTracker(tracker)
                 .load(configuration.getGraphImpl());
 
+        if (graph instanceof HugeGraph) {
+            final HugeSCCIterativeTarjan compute = new HugeSCCIterativeTarjan((HugeGraph) graph, tracker)
+                    .withProgressLogger(ProgressLogger.wrap(log, "SCC(IterativeTarjan)"))
+                    .withTerminationFlag(TerminationFlag.wrap(transaction))
+                    .compute();
+            return compute.resultStream();
+        }
+
         final SCCIterativeTarjan compute = new SCCIterativeTarjan(graph)
                 .withProgressLogger(ProgressLogger.wrap(log, "SCC(IterativeTarjan)"))
                 .withTerminationFlag(TerminationFlag.wrap(transaction))
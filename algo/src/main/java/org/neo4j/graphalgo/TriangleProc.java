@@ -19,13 +19,18 @@
 package org.neo4j.graphalgo;
 
 import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.ProcedureConfiguration;
 import org.neo4j.graphalgo.core.utils.*;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
 import org.neo4j.graphalgo.core.write.AtomicDoubleArrayTranslator;
 import org.neo4j.graphalgo.core.write.AtomicIntArrayTranslator;
 import org.neo4j.graphalgo.core.write.DoubleArrayTranslator;
 import org.neo4j.graphalgo.core.write.Exporter;
+import org.neo4j.graphalgo.core.write.PagedAtomicIntArrayTranslator;
+import org.neo4j.graphalgo.core.write.PagedDoubleArrayTranslator;
 import org.neo4j.graphalgo.impl.*;
 import org.neo4j.graphalgo.results.AbstractResultBuilder;
 import org.neo4j.kernel.api.KernelTransaction;
@@ -76,6 +81,13 @@ public class TriangleProc {
                 .withDirection(TriangleCount.D)
                 .load(configuration.getGraphImpl());
 
+        if (graph instanceof HugeGraph) {
+            return new HugeTriangleStream((HugeGraph) graph, Pools.DEFAULT, configuration.getConcurrency())
+                    .withProgressLogger(ProgressLogger.wrap(log, "triangleStream"))
+                    .withTerminationFlag(TerminationFlag.wrap(transaction))
+                    .resultStream();
+        }
+
         final TriangleStream triangleStream = new TriangleStream(graph, Pools.DEFAULT, configuration.getConcurrency())
                 .withProgressLogger(ProgressLogger.wrap(log, "triangleStream"))
                 .withTerminationFlag(TerminationFlag.wrap(transaction));
@@ -95,6 +107,7 @@ public class TriangleProc {
                 .overrideNodeLabelOrQuery(label)
                 .overrideRelationshipTypeOrQuery(relationship);
 
+        final AllocationTracker tracker = AllocationTracker.create();
         final Graph graph = new GraphLoader(api, Pools.DEFAULT)
                 .withOptionalLabel(configuration.getNodeLabelOrQuery())
                 .withOptionalRelationshipType(configuration.getRelationshipOrQuery())
@@ -103,8 +116,17 @@ public class TriangleProc {
                 .withSort(true)
                 .init(log, label, relationship, configuration)
                 .withDirection(TriangleCount.D)
+                .withAllocationTracker(tracker)
                 .load(configuration.getGraphImpl());
 
+        if (graph instanceof HugeGraph) {
+            return new HugeTriangleCount((HugeGraph) graph, Pools.DEFAULT, configuration.getConcurrency(), tracker)
+                    .withProgressLogger(ProgressLogger.wrap(log, "triangleCount"))
+                    .withTerminationFlag(TerminationFlag.wrap(transaction))
+                    .compute()
+                    .resultStream();
+        }
+
         final TriangleCountExp2 triangleCount = new TriangleCountExp2(graph, Pools.DEFAULT, configuration.getConcurrency())
                 .withProgressLogger(ProgressLogger.wrap(log, "triangleCount"))
                 .withTerminationFlag(TerminationFlag.wrap(transaction))
@@ -126,6 +148,7 @@ public class TriangleProc {
                 .overrideNodeLabelOrQuery(label)
                 .overrideRelationshipTypeOrQuery(relationship);
 
+        final AllocationTracker tracker = AllocationTracker.create();
         final Graph graph = new GraphLoader(api, Pools.DEFAULT)
                 .withOptionalLabel(configuration.getNodeLabelOrQuery())
                 .withOptionalRelationshipType(configuration.getRelationshipOrQuery())
@@ -134,8 +157,19 @@ public class TriangleProc {
                 .withSort(true)
                 .init(log, label, relationship, configuration)
                 .withDirection(TriangleCount.D)
+                .withAllocationTracker(tracker)
                 .load(configuration.getGraphImpl());
 
+        // the fork join implementation is int-only, huge graphs are counted by the queue based one
+        if (graph instanceof HugeGraph) {
+            return new HugeTriangleCount((HugeGraph) graph, Pools.DEFAULT, configuration.getConcurrency(), tracker)
+                    .withProgressLogger(ProgressLogger.wrap(log, "triangleCount"))
+                    .withTerminationFlag(TerminationFlag.wrap(transaction))
+                    .compute()
+                    .resultStream()
+                    .map(r -> new TriangleCountExp3.Result(r.nodeId, r.triangles, r.coefficient));
+        }
+
         final TriangleCountExp3 triangleCount = new TriangleCountExp3(graph,
                 ForkJoinPool.commonPool(),
                 configuration.getNumber("threshold", 10_000).intValue())
@@ -165,6 +199,7 @@ public class TriangleProc {
                 .overrideRelationshipTypeOrQuery(relationship);
         final TriangleCountResultBuilder builder = new TriangleCountResultBuilder();
 
+        final AllocationTracker tracker = AllocationTracker.create();
         try (ProgressTimer timer = builder.timeLoad()) {
             graph = new GraphLoader(api, Pools.DEFAULT)
                     .withOptionalLabel(configuration.getNodeLabelOrQuery())
@@ -174,10 +209,14 @@ public class TriangleProc {
                     .withSort(true)
                     .init(log, label, relationship, configuration)
                     .withDirection(TriangleCountExp2.D)
+                    .withAllocationTracker(tracker)
                     .load(configuration.getGraphImpl());
         };
 
         final TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
+        if (graph instanceof HugeGraph) {
+            return hugeTriangleCount((HugeGraph) graph, configuration, builder, terminationFlag, tracker);
+        }
         try (ProgressTimer timer = builder.timeEval()) {
             triangleCount = new TriangleCountExp2(graph, Pools.DEFAULT, configuration.getConcurrency())
                     .withProgressLogger(ProgressLogger.wrap(log, "triangleCount"))
@@ -219,6 +258,57 @@ public class TriangleProc {
         return Stream.of(builder.build());
     }
 
+    private Stream<Result> hugeTriangleCount(
+            HugeGraph graph,
+            ProcedureConfiguration configuration,
+            TriangleCountResultBuilder builder,
+            TerminationFlag terminationFlag,
+            AllocationTracker tracker) {
+
+        final HugeTriangleCount triangleCount;
+        final DoubleArray clusteringCoefficients;
+        try (ProgressTimer timer = builder.timeEval()) {
+            triangleCount = new HugeTriangleCount(graph, Pools.DEFAULT, configuration.getConcurrency(), tracker)
+                    .withProgressLogger(ProgressLogger.wrap(log, "triangleCount"))
+                    .withTerminationFlag(terminationFlag)
+                    .compute();
+            clusteringCoefficients = triangleCount.getClusteringCoefficients();
+        }
+
+        if (configuration.isWriteFlag()) {
+            try (ProgressTimer timer = builder.timeWrite()) {
+                final Optional<String> coefficientProperty = configuration.getString(COEFFICIENT_WRITE_PROPERTY_VALUE);
+                final Exporter exporter = Exporter.of(api, graph)
+                        .withLog(log)
+                        .parallel(Pools.DEFAULT, configuration.getConcurrency(), terminationFlag)
+                        .build();
+                if (coefficientProperty.isPresent()) {
+                    exporter.write(
+                            configuration.getWriteProperty(DEFAULT_WRITE_PROPERTY_VALUE),
+                            triangleCount.getTriangles(),
+                            PagedAtomicIntArrayTranslator.INSTANCE,
+                            coefficientProperty.get(),
+                            clusteringCoefficients,
+                            PagedDoubleArrayTranslator.INSTANCE
+                    );
+                } else {
+                    exporter.write(
+                            configuration.getWriteProperty(DEFAULT_WRITE_PROPERTY_VALUE),
+                            triangleCount.getTriangles(),
+                            PagedAtomicIntArrayTranslator.INSTANCE
+                    );
+                }
+            }
+        }
+
+        builder.withNodeCount(graph.nodeCount())
+                .withTriangleCount(triangleCount.getTriangleCount())
+                .withAverageClusteringCoefficient(triangleCount.getAverageClusteringCoefficient());
+        triangleCount.release();
+
+        return Stream.of(builder.build());
+    }
+
     @Procedure(value = "algo.triangleCount.forkJoin", mode = Mode.WRITE)
     @Description("CALL algo.triangleCount.forkJoin(label, relationship, " +
             "{concurrency:4, write:true, writeProperty:'triangles', clusteringCoefficientProperty:'coefficient'}) " +
@@ -237,6 +327,7 @@ public class TriangleProc {
                 .overrideRelationshipTypeOrQuery(relationship);
         final TriangleCountResultBuilder builder = new TriangleCountResultBuilder();
 
+        final AllocationTracker tracker = AllocationTracker.create();
         try (ProgressTimer timer = builder.timeLoad()) {
             graph = new GraphLoader(api, Pools.DEFAULT)
                     .withOptionalLabel(configuration.getNodeLabelOrQuery())
@@ -246,10 +337,15 @@ public class TriangleProc {
                     .withSort(true)
                     .init(log, label, relationship, configuration)
                     .withDirection(TriangleCountExp2.D)
+                    .withAllocationTracker(tracker)
                     .load(configuration.getGraphImpl());
         };
 
         final TerminationFlag terminationFlag = TerminationFlag.wrap(transaction);
+        // the fork join implementation is int-only, huge graphs are counted by the queue based one
+        if (graph instanceof HugeGraph) {
+            return hugeTriangleCount((HugeGraph) graph, configuration, builder, terminationFlag, tracker);
+        }
         try (ProgressTimer timer = builder.timeEval()) {
             triangleCount = new TriangleCountExp3(graph,
                     ForkJoinPool.commonPool(),
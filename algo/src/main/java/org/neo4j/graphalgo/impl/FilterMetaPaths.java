@@ -1,69 +1,112 @@
 package org.neo4j.graphalgo.impl;
 
+import org.neo4j.graphalgo.impl.metapath.MetaPathIndex;
+
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
-import java.util.regex.Pattern;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class FilterMetaPaths extends Algorithm<FilterMetaPaths> {
 
+    public static final String DEFAULT_INDEX_FILE = "Precomputed_MetaPaths.bin";
+
+    // mapped indexes by file, shared by all calls
+    private static final ConcurrentHashMap<Path, MappedIndex> INDEXES = new ConcurrentHashMap<>();
+
+    private final String indexFile;
     private PrintStream out;
 
     public FilterMetaPaths() throws FileNotFoundException {
+        this(DEFAULT_INDEX_FILE);
+    }
+
+    public FilterMetaPaths(String indexFile) throws FileNotFoundException {
+        this.indexFile = indexFile;
         this.out = new PrintStream(new FileOutputStream("Filtered_MetaPaths.txt"));//ends up in root/tests //or in dockerhome
     }
 
-    public Result filter(String startLabel, String endLabel)//TODO: write test for filter
+    /**
+     * serves all meta-paths between start and end label from the (startLabel, endLabel)
+     * directory of the memory-mapped {@link MetaPathIndex}
+     *
+     * @throws IllegalArgumentException if a label is not a label id
+     */
+    public Result filter(String startLabel, String endLabel)
     {
-        LinkedHashMap<String, Long> metaPathDict = new LinkedHashMap<>();
-        try(BufferedReader br = new BufferedReader(new FileReader("Precomputed_MetaPaths.txt"))) {
-            String line = br.readLine();
-
-            while (line != null) {
-                String[] parts = line.split(Pattern.quote("\t"));
-                metaPathDict.put(parts[0], Long.parseLong(parts[1]));
-                line = br.readLine();
-            }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
+        short start = labelId("startLabel", startLabel);
+        short end = labelId("endLabel", endLabel);
+        HashMap<String, Long> filteredMetaPathsDict = new HashMap<>();
+        final MetaPathIndex index;
+        try {
+            index = index(Paths.get(indexFile));
         } catch (IOException e) {
-            e.printStackTrace();
+            throw new RuntimeException(e);
         }
 
-        HashMap<String, Long> filteredMetaPathsDict = new HashMap<>();
-        Object[] arrayMetaPaths =  metaPathDict.keySet().toArray();
-        int filterIndex = Arrays.binarySearch(arrayMetaPaths, startLabel + " | " + endLabel,
-                (a, b) -> metaPathCompare(a.toString(), b.toString()));//TODO: write test for sort
-
-        if(filterIndex < 0) filterIndex = -filterIndex-1;
-        while(filterIndex >= 0 && metaPathCompare(startLabel + " | " + endLabel, arrayMetaPaths[filterIndex].toString()) == 0)
-        {
-            filterIndex--;
-        }
-        filterIndex++;
-
-        while(filterIndex < arrayMetaPaths.length && metaPathCompare(startLabel + " | " + endLabel, arrayMetaPaths[filterIndex].toString()) == 0)
-        {
-            String metaPath = arrayMetaPaths[filterIndex].toString();
-            filteredMetaPathsDict.put(metaPath, metaPathDict.get(metaPath));
-            out.println(metaPath + "\t" + metaPathDict.get(metaPath));
-            filterIndex++;
-        }
+        index.forEach(start, end, (metaPath, count) -> {
+            String key = metaPath.toString();
+            filteredMetaPathsDict.put(key, count);
+            out.println(key + "\t" + count);
+            return true;
+        });
 
         return new Result(filteredMetaPathsDict);
     }
 
-    private int metaPathCompare(String a, String b) {
-        String[] partsA = a.split(Pattern.quote(" | "));
-        String[] partsB = b.split(Pattern.quote(" | "));
-        boolean firstLabelEqual = Integer.parseInt(partsA[0]) == Integer.parseInt(partsB[0]);
-        boolean lastLabelEqual = Integer.parseInt(partsA[partsA.length - 1]) == Integer.parseInt(partsB[partsB.length - 1]);
-        boolean firstLabelSmaller = Integer.parseInt(partsA[0]) < Integer.parseInt(partsB[0]);
-        boolean lastLabelSmaller = Integer.parseInt(partsA[partsA.length - 1]) < Integer.parseInt(partsB[partsB.length - 1]);
+    private static short labelId(String name, String label) {
+        if (label != null) {
+            try {
+                short id = Short.parseShort(label.trim());
+                if (id >= 0) {
+                    return id;
+                }
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        throw new IllegalArgumentException(
+                name + " must be a label id between 0 and " + Short.MAX_VALUE + ", but was '" + label + "'");
+    }
 
-        return  firstLabelSmaller || (firstLabelEqual && lastLabelSmaller) ? -1 :
-                firstLabelEqual && lastLabelEqual ? 0 : 1;
+    /**
+     * maps the index only once and keeps it as long as the file is not replaced
+     */
+    private static MetaPathIndex index(Path file) throws IOException {
+        final Path key = file.toAbsolutePath().normalize();
+        final BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        final MappedIndex mapped = INDEXES.get(key);
+        if (mapped != null && mapped.isCurrent(attributes)) {
+            return mapped.index;
+        }
+        final MappedIndex current = new MappedIndex(MetaPathIndex.open(key), attributes);
+        INDEXES.put(key, current);
+        return current.index;
+    }
+
+    private static final class MappedIndex {
+        private final MetaPathIndex index;
+        private final Object fileKey;
+        private final FileTime lastModified;
+        private final long size;
+
+        private MappedIndex(MetaPathIndex index, BasicFileAttributes attributes) {
+            this.index = index;
+            this.fileKey = attributes.fileKey();
+            this.lastModified = attributes.lastModifiedTime();
+            this.size = attributes.size();
+        }
+
+        private boolean isCurrent(BasicFileAttributes attributes) {
+            return Objects.equals(fileKey, attributes.fileKey())
+                    && lastModified.equals(attributes.lastModifiedTime())
+                    && size == attributes.size();
+        }
     }
 
     @Override
@@ -0,0 +1,232 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import com.carrotsearch.hppc.BitSet;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphdb.Direction;
+
+/**
+ * Sequential Single-Source minimum weight spanning tree algorithm (PRIM)
+ * for {@link HugeGraph}s, see {@link MSTPrim}.
+ * <p>
+ * Instead of queueing every transition this implementation keeps at most one
+ * entry per node in an indexed binary min-heap (eager Prim) and decreases its
+ * cost when a cheaper transition is found. Heap, costs and the resulting
+ * tree (parent of each node) are paged arrays addressed by long ids.
+ * <p>
+ * The algorithm also computes the minimum, maximum and sum of all
+ * weights in the MST.
+ */
+public class HugeMSTPrim extends Algorithm<HugeMSTPrim> {
+
+    private static final long NO_PARENT = -1L;
+
+    private HugeGraph graph;
+    private final AllocationTracker tracker;
+    private final long nodeCount;
+
+    // parent of each node in the tree, NO_PARENT for the root and unreached nodes
+    private LongArray parents;
+    // cost of the cheapest known transition into each node
+    private DoubleArray costs;
+    // the heap holds node ids, positions maps node ids to their heap index + 1
+    private LongArray heap;
+    private LongArray positions;
+    private long heapSize;
+
+    private long startNodeId;
+    private double sum;
+    private double min;
+    private double max;
+    private long count;
+
+    public HugeMSTPrim(HugeGraph graph, AllocationTracker tracker) {
+        this.graph = graph;
+        this.tracker = tracker;
+        this.nodeCount = graph.nodeCount();
+        this.parents = LongArray.newArray(nodeCount, tracker);
+        this.costs = DoubleArray.newArray(nodeCount, tracker);
+        this.heap = LongArray.newArray(nodeCount, tracker);
+        this.positions = LongArray.newArray(nodeCount, tracker);
+    }
+
+    /**
+     * compute the minimum weight spanning tree starting at node startNode
+     *
+     * @param startNode the node to start the evaluation from
+     * @return itself for method chaining
+     */
+    public HugeMSTPrim compute(long startNode) {
+        final BitSet visited = new BitSet(nodeCount);
+        startNodeId = startNode;
+        parents.fill(NO_PARENT);
+        positions.fill(0L);
+        heapSize = 0;
+        sum = 0.0;
+        min = Double.MAX_VALUE;
+        max = Double.MIN_VALUE;
+        count = 0;
+        costs.set(startNode, 0.0);
+        insert(startNode);
+        while (heapSize > 0 && running()) {
+            // retrieve the node with the cheapest transition
+            final long nodeId = pop();
+            visited.set(nodeId);
+            if (nodeId != startNode) {
+                aggregate(costs.get(nodeId));
+            }
+            // update candidates
+            graph.forEachRelationship(nodeId, Direction.BOTH, (sourceNodeId, targetNodeId, weight) -> {
+                if (visited.get(targetNodeId)) {
+                    return true;
+                }
+                if (positions.get(targetNodeId) == 0L) {
+                    parents.set(targetNodeId, sourceNodeId);
+                    costs.set(targetNodeId, weight);
+                    insert(targetNodeId);
+                } else if (weight < costs.get(targetNodeId)) {
+                    parents.set(targetNodeId, sourceNodeId);
+                    costs.set(targetNodeId, weight);
+                    siftUp(positions.get(targetNodeId) - 1);
+                }
+                return true;
+            });
+        }
+        return this;
+    }
+
+    /**
+     * @return the parent of the node in the tree or -1 for the root and unreached nodes
+     */
+    public long getParent(long nodeId) {
+        return parents.get(nodeId);
+    }
+
+    public long getStartNodeId() {
+        return startNodeId;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public HugeMSTPrim me() {
+        return this;
+    }
+
+    @Override
+    public HugeMSTPrim release() {
+        tracker.remove(parents.release());
+        tracker.remove(costs.release());
+        tracker.remove(heap.release());
+        tracker.remove(positions.release());
+        graph = null;
+        parents = null;
+        costs = null;
+        heap = null;
+        positions = null;
+        return this;
+    }
+
+    private void aggregate(double weight) {
+        if (weight < min) {
+            min = weight;
+        }
+        if (weight > max) {
+            max = weight;
+        }
+        count++;
+        sum += weight;
+    }
+
+    private void insert(long nodeId) {
+        final long index = heapSize++;
+        place(index, nodeId);
+        siftUp(index);
+    }
+
+    private long pop() {
+        final long top = heap.get(0);
+        positions.set(top, 0L);
+        final long last = heap.get(--heapSize);
+        if (heapSize > 0) {
+            place(0, last);
+            siftDown(0);
+        }
+        return top;
+    }
+
+    private void siftUp(long index) {
+        final long nodeId = heap.get(index);
+        final double cost = costs.get(nodeId);
+        while (index > 0) {
+            final long parentIndex = (index - 1) >>> 1;
+            final long parent = heap.get(parentIndex);
+            if (costs.get(parent) <= cost) {
+                break;
+            }
+            place(index, parent);
+            index = parentIndex;
+        }
+        place(index, nodeId);
+    }
+
+    private void siftDown(long index) {
+        final long nodeId = heap.get(index);
+        final double cost = costs.get(nodeId);
+        for (;;) {
+            long child = (index << 1) + 1;
+            if (child >= heapSize) {
+                break;
+            }
+            if (child + 1 < heapSize && costs.get(heap.get(child + 1)) < costs.get(heap.get(child))) {
+                child++;
+            }
+            final long childNode = heap.get(child);
+            if (cost <= costs.get(childNode)) {
+                break;
+            }
+            place(index, childNode);
+            index = child;
+        }
+        place(index, nodeId);
+    }
+
+    private void place(long index, long nodeId) {
+        heap.set(index, nodeId);
+        positions.set(nodeId, index + 1);
+    }
+}
@@ -36,9 +36,11 @@ import org.neo4j.logging.Log;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.function.LongToDoubleFunction;
 
 import static org.neo4j.graphalgo.core.utils.ArrayUtil.binaryLookup;
 import static org.neo4j.graphalgo.core.utils.paged.AllocationTracker.humanReadable;
@@ -97,6 +99,9 @@ import static org.neo4j.graphalgo.core.utils.paged.MemoryUsage.sizeOfObjectArray
  * Smaller partitions are merged down until we have at most {@code concurrency} partitions,
  * in order to batch partitions and keep the number of threads in use predictable/configurable.
  * <p>
+ * Like {@link PageRank}, only residuals are pushed to the neighbours, which allows to warm-start
+ * from seeded scores and to stop once the residuals of an iteration fall below a tolerance.
+ * <p>
  * [1]: <a href="http://delab.csd.auth.gr/~dimitris/courses/ir_spring06/page_rank_computing/01531136.pdf">An Efficient Partition-Based Parallel PageRank Algorithm</a><br>
  * [2]: <a href="https://www.cs.purdue.edu/homes/dgleich/publications/gleich2004-parallel.pdf">Fast Parallel PageRank: A Linear System Approach</a>
  */
@@ -114,6 +119,7 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
 
     private Log log;
     private ComputeSteps computeSteps;
+    private LongToDoubleFunction seeds;
 
     /**
      * Forces sequential use. If you want parallelism, prefer
@@ -169,12 +175,36 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
      */
     @Override
     public HugePageRank compute(int iterations) {
-        assert iterations >= 1;
+        return compute(iterations, 0.0);
+    }
+
+    /**
+     * compute pageRank for at most n iterations or until the residuals sum up to less than the tolerance
+     */
+    @Override
+    public HugePageRank compute(int maxIterations, double tolerance) {
+        assert maxIterations >= 1;
         initializeSteps();
-        computeSteps.run(iterations);
+        computeSteps.run(maxIterations, tolerance, seeds);
         return this;
     }
 
+    @Override
+    public HugePageRank withSeeds(LongToDoubleFunction seeds) {
+        this.seeds = seeds;
+        return this;
+    }
+
+    @Override
+    public int iterations() {
+        return computeSteps != null ? computeSteps.iterations : 0;
+    }
+
+    @Override
+    public List<IterationStats> iterationStats() {
+        return computeSteps != null ? computeSteps.stats : Collections.emptyList();
+    }
+
     @Override
     public PageRankResult result() {
         return computeSteps.getPageRank();
@@ -294,7 +324,7 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
         for (ComputeStep computeStep : computeSteps) {
             computeStep.setStarts(startArray, lengthArray);
         }
-        return new ComputeSteps(tracker, computeSteps, concurrency, pool);
+        return new ComputeSteps(tracker, computeSteps, nodeCount, concurrency, pool);
     }
 
     private static int findIdealConcurrency(
@@ -456,13 +486,18 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
         private final ExecutorService pool;
         private int[][][] scores;
         private final int concurrency;
+        private final long nodeCount;
+        private int iterations;
+        private final List<IterationStats> stats = new ArrayList<>();
 
         private ComputeSteps(
                 AllocationTracker tracker,
                 List<ComputeStep> steps,
+                long nodeCount,
                 int concurrency,
                 ExecutorService pool) {
             this.concurrency = concurrency;
+            this.nodeCount = nodeCount;
             assert !steps.isEmpty();
             this.steps = steps;
             this.pool = pool;
@@ -487,12 +522,19 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
             }
         }
 
-        private void run(int iterations) {
-            final int operations = (iterations << 1) + 1;
+        private void run(int maxIterations, double tolerance, LongToDoubleFunction seeds) {
+            // residuals below the threshold are kept back, together they stay below the tolerance
+            double threshold = tolerance > 0.0 && nodeCount > 0L ? tolerance / nodeCount : 0.0;
+            for (ComputeStep step : steps) {
+                step.configure(seeds, threshold);
+            }
+            final int operations = (maxIterations << 1) + 1;
             int op = 0;
             ParallelUtil.runWithConcurrency(concurrency, steps, pool);
             getProgressLogger().logProgress(++op, operations, tracker);
-            for (int i = 0; i < iterations && running(); i++) {
+            stats.clear();
+            for (iterations = 0; iterations < maxIterations && running(); ) {
+                long start = System.nanoTime();
                 // calculate scores
                 ParallelUtil.runWithConcurrency(concurrency, steps, pool);
                 getProgressLogger().logProgress(++op, operations, tracker);
@@ -500,7 +542,32 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
                 // sync scores
                 ParallelUtil.runWithConcurrency(concurrency, steps, pool);
                 getProgressLogger().logProgress(++op, operations, tracker);
+                ++iterations;
+                double residual = residual();
+                stats.add(IterationStats.of(System.nanoTime() - start, residual, partitionNanos()));
+                if (tolerance > 0.0 && residual < tolerance) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * L1 norm of the rank changes of the last iteration, summed up from every step
+         */
+        private double residual() {
+            double residual = 0.0;
+            for (ComputeStep step : steps) {
+                residual += step.residual;
+            }
+            return residual;
+        }
+
+        private long[] partitionNanos() {
+            long[] nanos = new long[steps.size()];
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] = steps.get(i).calculationNanos;
             }
+            return nanos;
         }
 
         private void synchronizeScores() {
@@ -549,6 +616,13 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
         private final double alpha;
         private final double dampingFactor;
 
+        private LongToDoubleFunction seeds;
+        private double threshold;
+        // the first iteration after seeding replaces the scores instead of adding to them
+        private boolean seeded;
+        private double residual;
+        private long calculationNanos;
+
         private double[] pageRank;
         private double[] deltas;
         private int[][] nextScores;
@@ -583,10 +657,17 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
             this.lengths = lengths;
         }
 
+        void configure(LongToDoubleFunction seeds, double threshold) {
+            this.seeds = seeds;
+            this.threshold = threshold;
+        }
+
         @Override
         public void run() {
             if (state == S_CALC) {
+                long start = System.nanoTime();
                 singleIteration();
+                calculationNanos = System.nanoTime() - start;
                 state = S_SYNC;
             } else if (state == S_SYNC) {
                 combineScores();
@@ -607,7 +688,15 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
 
             tracker.add(sizeOfDoubleArray(partitionSize) << 1);
             double[] partitionRank = new double[partitionSize];
-            Arrays.fill(partitionRank, alpha);
+            if (seeds == null) {
+                Arrays.fill(partitionRank, alpha);
+            } else {
+                for (int i = 0; i < partitionSize; i++) {
+                    double seed = seeds.applyAsDouble(startNode + i);
+                    partitionRank[i] = Double.isNaN(seed) ? alpha : seed;
+                }
+                seeded = true;
+            }
 
             this.pageRank = partitionRank;
             this.deltas = Arrays.copyOf(partitionRank, partitionSize);
@@ -616,15 +705,17 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
         private void singleIteration() {
             long startNode = this.startNode;
             long endNode = this.endNode;
+            double threshold = this.threshold;
             HugeRelationshipIterator rels = this.relationshipIterator;
             for (long nodeId = startNode; nodeId < endNode; ++nodeId) {
                 double delta = deltas[(int) (nodeId - startNode)];
-                if (delta > 0) {
+                if (delta != 0.0 && Math.abs(delta) >= threshold) {
                     int degree = degrees.degree(nodeId, Direction.OUTGOING);
                     if (degree > 0) {
                         srcRankDelta = (int) (100_000 * (delta / degree));
                         rels.forEachRelationship(nodeId, Direction.OUTGOING, this);
                     }
+                    deltas[(int) (nodeId - startNode)] = 0.0;
                 }
             }
         }
@@ -651,6 +742,10 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
             int scoreDim = prevScores.length;
             int[][] prevScores = this.prevScores;
 
+            double[] pageRank = this.pageRank;
+            double[] deltas = this.deltas;
+            double residual = 0.0;
+
             int length = prevScores[0].length;
             for (int i = 0; i < length; i++) {
                 int sum = 0;
@@ -660,9 +755,16 @@ public class HugePageRank extends Algorithm<HugePageRank> implements PageRankAlg
                     scores[i] = 0;
                 }
                 double delta = dampingFactor * (sum / 100_000.0);
+                if (seeded) {
+                    // residual of the seeded score in the current graph
+                    delta += alpha - pageRank[i];
+                }
                 pageRank[i] += delta;
-                deltas[i] = delta;
+                deltas[i] += delta;
+                residual += Math.abs(delta);
             }
+            this.seeded = false;
+            this.residual = residual;
         }
 
     }
@@ -0,0 +1,212 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import com.carrotsearch.hppc.BitSet;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.HugeLongStack;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphalgo.results.SCCStreamResult;
+import org.neo4j.graphdb.Direction;
+
+import java.util.function.LongPredicate;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * non recursive sequential strongly connected components algorithm
+ * for {@link HugeGraph}s, see {@link SCCIterativeTarjan}.
+ * <p>
+ * index, components and all stacks are paged and addressed by long ids.
+ */
+public class HugeSCCIterativeTarjan extends Algorithm<HugeSCCIterativeTarjan> {
+
+    private enum Action {
+        VISIT(0),
+        VISITEDGE(1),
+        POSTVISIT(2);
+
+        public final int code;
+
+        Action(int code) {
+            this.code = code;
+        }
+
+    }
+
+    private HugeGraph graph;
+    private final AllocationTracker tracker;
+
+    private final long nodeCount;
+    private LongArray index;
+    private BitSet visited;
+    private LongArray connectedComponents;
+    private HugeLongStack stack;
+    private HugeLongStack boundaries;
+    private HugeLongStack todo;
+    private long setCount;
+
+    private long minSetSize;
+    private long maxSetSize;
+
+    public HugeSCCIterativeTarjan(HugeGraph graph, AllocationTracker tracker) {
+        this.graph = graph;
+        this.tracker = tracker;
+        nodeCount = graph.nodeCount();
+        index = LongArray.newArray(nodeCount, tracker);
+        stack = HugeLongStack.newStack(nodeCount, tracker);
+        boundaries = HugeLongStack.newStack(nodeCount, tracker);
+        connectedComponents = LongArray.newArray(nodeCount, tracker);
+        visited = new BitSet(nodeCount);
+        todo = HugeLongStack.newStack(nodeCount, tracker);
+    }
+
+    public HugeSCCIterativeTarjan compute() {
+        setCount = 0;
+        minSetSize = Long.MAX_VALUE;
+        maxSetSize = 0;
+        index.fill(-1);
+        connectedComponents.fill(-1);
+        visited.clear();
+        todo.clear();
+        boundaries.clear();
+        stack.clear();
+        graph.forEachNode((LongPredicate) this::compute);
+        return this;
+    }
+
+    @Override
+    public HugeSCCIterativeTarjan me() {
+        return this;
+    }
+
+    @Override
+    public HugeSCCIterativeTarjan release() {
+        tracker.remove(index.release());
+        tracker.remove(connectedComponents.release());
+        tracker.remove(stack.release());
+        tracker.remove(boundaries.release());
+        tracker.remove(todo.release());
+        graph = null;
+        index = null;
+        visited = null;
+        connectedComponents = null;
+        stack = null;
+        boundaries = null;
+        todo = null;
+        return this;
+    }
+
+    public LongArray getConnectedComponents() {
+        return connectedComponents;
+    }
+
+    public Stream<SCCStreamResult> resultStream() {
+        return LongStream.range(0, nodeCount)
+                .filter(i -> connectedComponents.get(i) != -1)
+                .mapToObj(i -> new SCCStreamResult(graph.toOriginalNodeId(i), connectedComponents.get(i)));
+    }
+
+    public long getSetCount() {
+        return setCount;
+    }
+
+    public long getMinSetSize() {
+        return minSetSize;
+    }
+
+    public long getMaxSetSize() {
+        return maxSetSize;
+    }
+
+    private boolean compute(long nodeId) {
+        if (!running()) {
+            return false;
+        }
+        if (index.get(nodeId) != -1) {
+            return true;
+        }
+        push(Action.VISIT, nodeId);
+        while (!todo.isEmpty()) {
+            final long action = todo.pop();
+            final long node = todo.pop();
+            if (action == Action.VISIT.code) {
+                visit(node);
+            } else if (action == Action.VISITEDGE.code) {
+                visitEdge(node);
+            } else {
+                postVisit(node);
+            }
+        }
+        getProgressLogger().logProgress((double) nodeId / (nodeCount - 1));
+        return true;
+    }
+
+    private void visitEdge(long nodeId) {
+        if (index.get(nodeId) == -1) {
+            push(Action.VISIT, nodeId);
+        } else if (!visited.get(nodeId)) {
+            while (index.get(nodeId) < boundaries.peek()) {
+                boundaries.pop();
+            }
+        }
+    }
+
+    private void postVisit(long nodeId) {
+        if (boundaries.peek() == index.get(nodeId)) {
+            boundaries.pop();
+            long elementCount = 0;
+            long element;
+            do {
+                element = stack.pop();
+                connectedComponents.set(element, nodeId);
+                visited.set(element);
+                elementCount++;
+            } while (element != nodeId);
+            minSetSize = Math.min(minSetSize, elementCount);
+            maxSetSize = Math.max(maxSetSize, elementCount);
+            setCount++;
+        }
+
+    }
+
+    private void visit(long nodeId) {
+        final long stackSize = stack.stackSize();
+        index.set(nodeId, stackSize);
+        stack.push(nodeId);
+        boundaries.push(stackSize);
+        push(Action.POSTVISIT, nodeId);
+        graph.forEachRelationship(nodeId, Direction.OUTGOING, (sourceNodeId, targetNodeId) -> {
+            push(Action.VISITEDGE, targetNodeId);
+            return true;
+        });
+    }
+
+    /**
+     * pushes an action and a nodeId on the stack
+     *
+     * @param action
+     * @param value
+     */
+    private void push(Action action, long value) {
+        todo.push(value);
+        todo.push(action.code);
+    }
+}
@@ -0,0 +1,373 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.api.HugeWeightedRelationshipConsumer;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.HugeAtomicDoubleArray;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphalgo.impl.ShortestPathDeltaStepping.DeltaSteppingResult;
+import org.neo4j.graphdb.Direction;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Delta-Stepping for {@link HugeGraph}s, see {@link ShortestPathDeltaStepping}.
+ * <p>
+ * Node ids are longs and the distances are kept as doubles in a paged array,
+ * so they are neither scaled nor limited to the int range.
+ * Nodes which are not reachable from the start node have a distance of {@link Double#POSITIVE_INFINITY}.
+ */
+public final class HugeShortestPathDeltaStepping extends Algorithm<HugeShortestPathDeltaStepping> {
+
+    // smallest number of nodes for which another thread is used
+    private static final int MIN_BATCH_SIZE = 64;
+
+    private HugeGraph graph;
+    private final AllocationTracker tracker;
+    private final double delta;
+    private final long nodeCount;
+
+    private HugeAtomicDoubleArray distance;
+    // bucket index in which a node is queued or -1
+    private LongArray queued;
+    // bucket index in which a node has last been removed from its bucket or -1
+    private LongArray settled;
+    // node lists of the non empty buckets, these may contain nodes which moved to a lower bucket
+    private LongObjectHashMap<LongArrayList> buckets;
+    // emptied node lists for reuse
+    private ArrayDeque<LongArrayList> pool;
+    // nodes of the current bucket to relax in the current round
+    private LongArrayList frontier;
+    // all nodes removed from the current bucket, their heavy edges are relaxed once the bucket is empty
+    private LongArrayList removed;
+    // one task per thread, each relaxes a chunk of nodes
+    private RelaxTask[] tasks;
+    private List<RelaxTask> activeTasks;
+    private Collection<Future<?>> futures;
+
+    private ExecutorService executorService;
+    private int concurrency = Pools.DEFAULT_CONCURRENCY;
+
+    public HugeShortestPathDeltaStepping(HugeGraph graph, double delta, AllocationTracker tracker) {
+        if (delta <= 0.0) {
+            throw new IllegalArgumentException("delta must be > 0");
+        }
+        this.graph = graph;
+        this.delta = delta;
+        this.tracker = tracker;
+        nodeCount = graph.nodeCount();
+        distance = HugeAtomicDoubleArray.newArray(nodeCount, tracker);
+        queued = LongArray.newArray(nodeCount, tracker);
+        settled = LongArray.newArray(nodeCount, tracker);
+        buckets = new LongObjectHashMap<>();
+        pool = new ArrayDeque<>();
+        frontier = new LongArrayList();
+        removed = new LongArrayList();
+        activeTasks = new ArrayList<>();
+        futures = new ArrayDeque<>(128);
+    }
+
+    /**
+     * Set Executor-service to enable concurrent evaluation.
+     *
+     * @param executorService the executor service or null do disable concurrent eval.
+     * @return itself for method chaining
+     */
+    public HugeShortestPathDeltaStepping withExecutorService(ExecutorService executorService) {
+        this.executorService = executorService;
+        return this;
+    }
+
+    /**
+     * set the maximum number of threads relaxing edges at once
+     *
+     * @param concurrency the number of threads
+     * @return itself for method chaining
+     */
+    public HugeShortestPathDeltaStepping withConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be >= 1");
+        }
+        this.concurrency = concurrency;
+        this.tasks = null;
+        return this;
+    }
+
+    /**
+     * compute the shortest path
+     *
+     * @param startNode UNmapped (original) neo4j nodeId as starting point
+     * @return itself for method chaining
+     */
+    public HugeShortestPathDeltaStepping compute(long startNode) {
+        distance.fill(Double.POSITIVE_INFINITY);
+        queued.fill(-1L);
+        settled.fill(-1L);
+        for (ObjectCursor<LongArrayList> cursor : buckets.values()) {
+            recycle(cursor.value);
+        }
+        buckets.clear();
+        if (tasks == null) {
+            tasks = createTasks();
+        }
+
+        final long startNodeId = graph.toHugeMappedNodeId(startNode);
+        distance.set(startNodeId, 0.0);
+        enqueue(startNodeId, 0L);
+
+        while (!buckets.isEmpty() && running()) {
+            removed.clear();
+            final long phase = nextNonEmptyBucket();
+
+            // relax light edges until no node is reinserted into the current bucket
+            while (takeBucket(phase)) {
+                final long[] nodes = frontier.buffer;
+                for (int i = 0; i < frontier.elementsCount; i++) {
+                    final long node = nodes[i];
+                    if (settled.get(node) != phase) {
+                        settled.set(node, phase);
+                        removed.add(node);
+                    }
+                }
+                relax(frontier, true);
+            }
+            relax(removed, false);
+        }
+        return this;
+    }
+
+    private RelaxTask[] createTasks() {
+        final RelaxTask[] tasks = new RelaxTask[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            // the copies keep their own cursors
+            tasks[i] = new RelaxTask(i == 0 ? graph : (HugeGraph) graph.concurrentCopy());
+        }
+        return tasks;
+    }
+
+    private long nextNonEmptyBucket() {
+        long min = Long.MAX_VALUE;
+        for (LongCursor cursor : buckets.keys()) {
+            min = Math.min(min, cursor.value);
+        }
+        return min;
+    }
+
+    /**
+     * moves all nodes which are still queued in the bucket into the frontier
+     *
+     * @return true if the frontier contains any node
+     */
+    private boolean takeBucket(long bucket) {
+        frontier.clear();
+        final LongArrayList nodes = buckets.remove(bucket);
+        if (nodes == null) {
+            return false;
+        }
+        final long[] buffer = nodes.buffer;
+        for (int i = 0; i < nodes.elementsCount; i++) {
+            final long node = buffer[i];
+            if (queued.get(node) == bucket) {
+                queued.set(node, -1L);
+                frontier.add(node);
+            }
+        }
+        recycle(nodes);
+        return !frontier.isEmpty();
+    }
+
+    private void enqueue(long nodeId, long bucket) {
+        if (queued.get(nodeId) == bucket) {
+            return;
+        }
+        queued.set(nodeId, bucket);
+        LongArrayList nodes = buckets.get(bucket);
+        if (nodes == null) {
+            nodes = pool.isEmpty() ? new LongArrayList() : pool.pop();
+            buckets.put(bucket, nodes);
+        }
+        nodes.add(nodeId);
+    }
+
+    private void recycle(LongArrayList nodes) {
+        nodes.elementsCount = 0;
+        pool.push(nodes);
+    }
+
+    /**
+     * relaxes either the light or the heavy edges of all nodes in parallel
+     * and assigns all nodes with a lowered distance to their new bucket
+     */
+    private void relax(LongArrayList nodes, boolean light) {
+        final int nodeCount = nodes.elementsCount;
+        if (nodeCount == 0) {
+            return;
+        }
+        final int threads = executorService == null
+                ? 1
+                : Math.min(tasks.length, ParallelUtil.threadSize(MIN_BATCH_SIZE, nodeCount));
+        final int batchSize = ParallelUtil.threadSize(threads, nodeCount);
+        activeTasks.clear();
+        for (int i = 0, start = 0; start < nodeCount; i++, start += batchSize) {
+            final RelaxTask task = tasks[i];
+            task.init(nodes.buffer, start, Math.min(nodeCount, start + batchSize), light);
+            activeTasks.add(task);
+        }
+        ParallelUtil.run(activeTasks, executorService, futures);
+
+        for (RelaxTask task : activeTasks) {
+            final long[] requests = task.requests.buffer;
+            for (int i = 0; i < task.requests.elementsCount; i++) {
+                final long node = requests[i];
+                enqueue(node, (long) (distance.get(node) / delta));
+            }
+            task.requests.elementsCount = 0;
+        }
+    }
+
+    /**
+     * lowers the distance of a node unless another thread has already stored a smaller one
+     *
+     * @return true if the cost has been stored
+     */
+    private boolean cas(long nodeId, double cost) {
+        while (true) {
+            final double oldC = distance.get(nodeId);
+            if (cost >= oldC) {
+                return false;
+            }
+            if (distance.cas(nodeId, oldC, cost)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @param nodeId the mapped node-id
+     * @return the overall distance from source to nodeId
+     */
+    public double distance(long nodeId) {
+        return distance.get(nodeId);
+    }
+
+    /**
+     * @return mapped-id to costSum array
+     */
+    public HugeAtomicDoubleArray getShortestPaths() {
+        return distance;
+    }
+
+    /**
+     * stream the results
+     *
+     * @return Stream of results containing neo4j-NodeId and Sum of Costs of the shortest path
+     */
+    public Stream<DeltaSteppingResult> resultStream() {
+        return LongStream.range(0, nodeCount)
+                .mapToObj(node ->
+                        new DeltaSteppingResult(graph.toOriginalNodeId(node), distance.get(node)));
+    }
+
+    @Override
+    public HugeShortestPathDeltaStepping me() {
+        return this;
+    }
+
+    @Override
+    public HugeShortestPathDeltaStepping release() {
+        tracker.remove(distance.release());
+        tracker.remove(queued.release());
+        tracker.remove(settled.release());
+        distance = null;
+        queued = null;
+        settled = null;
+        buckets = null;
+        pool = null;
+        graph = null;
+        frontier = null;
+        removed = null;
+        tasks = null;
+        activeTasks = null;
+        futures = null;
+        return this;
+    }
+
+    /**
+     * relaxes the light or heavy edges of a chunk of nodes and
+     * collects the nodes whose distance has been lowered
+     */
+    private final class RelaxTask implements Runnable, HugeWeightedRelationshipConsumer {
+
+        private final HugeGraph graph;
+        // nodes with a lowered distance
+        private final LongArrayList requests = new LongArrayList();
+        private long[] nodes;
+        private int from;
+        private int to;
+        private boolean light;
+        private double sourceDistance;
+
+        private RelaxTask(HugeGraph graph) {
+            this.graph = graph;
+        }
+
+        private void init(long[] nodes, int from, int to, boolean light) {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        public void run() {
+            for (int i = from; i < to; i++) {
+                final long node = nodes[i];
+                sourceDistance = distance.get(node);
+                graph.forEachRelationship(node, Direction.OUTGOING, this);
+            }
+        }
+
+        @Override
+        public boolean accept(long sourceNodeId, long targetNodeId, double cost) {
+            if ((cost <= delta) == light) { // determine if light or heavy edge
+                final double newCost = sourceDistance + cost;
+                // relationships without weight default to Double.MAX_VALUE and are not traversed
+                if (newCost < Double.MAX_VALUE && cas(targetNodeId, newCost)) {
+                    requests.add(targetNodeId);
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import com.carrotsearch.hppc.LongStack;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.ProgressLogger;
+import org.neo4j.graphalgo.core.utils.TerminationFlag;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.AtomicIntArray;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.graphdb.Direction;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * TriangleCount for {@link HugeGraph}s, see {@link TriangleCountExp2}.
+ * <p>
+ * Node ids are longs, the per node triangle counts and clustering
+ * coefficients are kept in paged arrays.
+ */
+public class HugeTriangleCount extends Algorithm<HugeTriangleCount> {
+
+    public static final Direction D = Direction.BOTH;
+
+    private HugeGraph graph;
+    private ExecutorService executorService;
+    private final AllocationTracker tracker;
+    private final int concurrency;
+    private final long nodeCount;
+    private final AtomicLong visitedNodes;
+    private final LongAdder triangleCount;
+    private AtomicIntArray triangles;
+    private DoubleArray clusteringCoefficients;
+    private double averageClusteringCoefficient;
+
+    private final AtomicLong queue;
+
+    public HugeTriangleCount(HugeGraph graph, ExecutorService executorService, int concurrency, AllocationTracker tracker) {
+        this.graph = graph;
+        this.executorService = executorService;
+        this.concurrency = concurrency;
+        this.tracker = tracker;
+        nodeCount = graph.nodeCount();
+        triangles = AtomicIntArray.newArray(nodeCount, tracker);
+        triangleCount = new LongAdder();
+        visitedNodes = new AtomicLong();
+        queue = new AtomicLong();
+    }
+
+    public Stream<TriangleCountExp2.Result> resultStream() {
+        return LongStream.range(0, nodeCount)
+                .mapToObj(i -> new TriangleCountExp2.Result(
+                        graph.toOriginalNodeId(i),
+                        triangles.get(i),
+                        calculateCoefficient(triangles.get(i), graph.degree(i, D))));
+    }
+
+    public long getTriangleCount() {
+        return triangleCount.longValue();
+    }
+
+    public AtomicIntArray getTriangles() {
+        return triangles;
+    }
+
+    @Override
+    public HugeTriangleCount me() {
+        return this;
+    }
+
+    @Override
+    public HugeTriangleCount release() {
+        tracker.remove(triangles.release());
+        if (clusteringCoefficients != null) {
+            tracker.remove(clusteringCoefficients.release());
+        }
+        graph = null;
+        executorService = null;
+        triangles = null;
+        clusteringCoefficients = null;
+        return this;
+    }
+
+    public HugeTriangleCount compute() {
+        queue.set(0);
+        visitedNodes.set(0);
+        triangleCount.reset();
+        averageClusteringCoefficient = 0.0;
+        final ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            // each task iterates over its own copy of the graph
+            tasks.add(new Task((HugeGraph) graph.concurrentCopy()));
+        }
+        ParallelUtil.run(tasks, executorService);
+        return this;
+    }
+
+    public DoubleArray getClusteringCoefficients() {
+        if (clusteringCoefficients == null) {
+            clusteringCoefficients = DoubleArray.newArray(nodeCount, tracker);
+        }
+        double sum = 0;
+        for (long i = 0; i < nodeCount; i++) {
+            final double c = calculateCoefficient(triangles.get(i), graph.degree(i, D));
+            clusteringCoefficients.set(i, c);
+            sum += c;
+        }
+        averageClusteringCoefficient = sum / nodeCount;
+        return clusteringCoefficients;
+    }
+
+    public double getAverageClusteringCoefficient() {
+        return averageClusteringCoefficient;
+    }
+
+    private void exportTriangle(long u, long v, long w) {
+        triangleCount.increment();
+        triangles.add(u, 1);
+        triangles.add(v, 1);
+        triangles.add(w, 1);
+    }
+
+    private double calculateCoefficient(int triangles, int degree) {
+        if (triangles == 0) {
+            return 0.0;
+        }
+        return (2d * triangles) / ((double) degree * (degree - 1));
+    }
+
+    private class Task implements Runnable {
+
+        private final HugeGraph graph;
+
+        private Task(HugeGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public void run() {
+            final LongStack nodes = new LongStack();
+            final TerminationFlag flag = getTerminationFlag();
+            final ProgressLogger progressLogger = getProgressLogger();
+            final long[] head = new long[1];
+            while ((head[0] = queue.getAndIncrement()) < nodeCount) {
+                graph.forEachRelationship(head[0], D, (s, t) -> {
+                    if (t > s) {
+                        nodes.push(t);
+                    }
+                    return flag.running();
+                });
+                while (!nodes.isEmpty()) {
+                    final long node = nodes.pop();
+                    graph.forEachRelationship(node, D, (s, t) -> {
+                        if (t > s && graph.exists(t, head[0], D)) {
+                            exportTriangle(head[0], s, t);
+                        }
+                        return flag.running();
+                    });
+                }
+                progressLogger.logProgress((double) visitedNodes.incrementAndGet() / nodeCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import com.carrotsearch.hppc.LongStack;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.ProgressLogger;
+import org.neo4j.graphalgo.core.utils.TerminationFlag;
+import org.neo4j.graphdb.Direction;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.Spliterators;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * TriangleStream for {@link HugeGraph}s, see {@link TriangleStream}.
+ * <p>
+ * Node ids are longs and every task iterates over its own copy of the graph.
+ */
+public class HugeTriangleStream extends Algorithm<HugeTriangleStream> {
+
+    public static final Direction D = Direction.BOTH;
+    private HugeGraph graph;
+    private ExecutorService executorService;
+    private final AtomicLong queue;
+    private final int concurrency;
+    private final long nodeCount;
+    private AtomicLong visitedNodes;
+    private AtomicInteger runningThreads;
+    private BlockingQueue<TriangleStream.Result> resultQueue;
+
+    public HugeTriangleStream(HugeGraph graph, ExecutorService executorService, int concurrency) {
+        this.graph = graph;
+        this.executorService = executorService;
+        this.concurrency = concurrency;
+        nodeCount = graph.nodeCount();
+        this.resultQueue = new LinkedBlockingQueue<>();
+        runningThreads = new AtomicInteger();
+        visitedNodes = new AtomicLong();
+        queue = new AtomicLong();
+    }
+
+    @Override
+    public HugeTriangleStream me() {
+        return this;
+    }
+
+    @Override
+    public HugeTriangleStream release() {
+        visitedNodes = null;
+        runningThreads = null;
+        resultQueue = null;
+        graph = null;
+        executorService = null;
+        return this;
+    }
+
+    public Stream<TriangleStream.Result> resultStream() {
+        submitTasks();
+        final TerminationFlag flag = getTerminationFlag();
+        final Iterator<TriangleStream.Result> it = new Iterator<TriangleStream.Result>() {
+
+            @Override
+            public boolean hasNext() {
+                return flag.running() && (runningThreads.get() > 0 || !resultQueue.isEmpty());
+            }
+
+            @Override
+            public TriangleStream.Result next() {
+                TriangleStream.Result result = null;
+                try {
+                    while (hasNext() && result == null) {
+                        result = resultQueue.poll(1, TimeUnit.SECONDS);
+                    }
+                    return result;
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(it, 0), false)
+                .filter(Objects::nonNull);
+    }
+
+    private void submitTasks() {
+        queue.set(0);
+        runningThreads.set(0);
+        final ArrayList<Task> tasks = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            // each task iterates over its own copy of the graph
+            tasks.add(new Task((HugeGraph) graph.concurrentCopy()));
+        }
+        ParallelUtil.runWithConcurrency(concurrency, tasks, getTerminationFlag(), executorService);
+    }
+
+    private class Task implements Runnable {
+
+        private final HugeGraph graph;
+
+        private Task(HugeGraph graph) {
+            this.graph = graph;
+        }
+
+        @Override
+        public void run() {
+            final LongStack nodes = new LongStack();
+            final TerminationFlag flag = getTerminationFlag();
+            final ProgressLogger progressLogger = getProgressLogger();
+            final long[] k = {0L};
+            while ((k[0] = queue.getAndIncrement()) < nodeCount) {
+                graph.forEachRelationship(k[0], D, (s, t) -> {
+                    if (t > s) {
+                        nodes.add(t);
+                    }
+                    return flag.running();
+                });
+                while (!nodes.isEmpty()) {
+                    final long node = nodes.pop();
+                    graph.forEachRelationship(node, D, (s, t) -> {
+                        if (t > s && graph.exists(t, k[0], D)) {
+                            try {
+                                resultQueue.put(new TriangleStream.Result(
+                                        graph.toOriginalNodeId(k[0]),
+                                        graph.toOriginalNodeId(s),
+                                        graph.toOriginalNodeId(t)));
+                            } catch (InterruptedException e) {
+                                throw new RuntimeException(e);
+                            }
+                        }
+                        return flag.running();
+                    });
+                }
+                progressLogger.logProgress((double) visitedNodes.incrementAndGet() / nodeCount);
+            }
+        }
+    }
+}
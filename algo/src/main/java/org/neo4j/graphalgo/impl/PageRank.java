@@ -38,6 +38,7 @@ import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.function.LongToDoubleFunction;
 
 import static org.neo4j.graphalgo.core.utils.ArrayUtil.binaryLookup;
 
@@ -90,12 +91,22 @@ import static org.neo4j.graphalgo.core.utils.ArrayUtil.binaryLookup;
  * Smaller partitions are merged down until we have at most {@code concurrency} partitions,
  * in order to batch partitions and keep the number of threads in use predictable/configurable.
  * <p>
+ * <p>
+ * Every iteration only pushes the rank that a node gained in the previous iteration, its residual,
+ * to its neighbours. This allows to warm-start from the scores of an earlier run, see
+ * {@link #withSeeds(LongToDoubleFunction)}. The first iteration then pushes the full seeded scores
+ * to compute the residuals of the current graph, all further iterations only push from nodes whose
+ * residual exceeds {@code tolerance / nodeCount}, the residuals of all other nodes are kept until
+ * they grow large enough (Gauss-Southwell). With a {@code tolerance}, the computation stops once
+ * the residuals of an iteration sum up to less than the tolerance.
+ * <p>
  * [1]: <a href="http://delab.csd.auth.gr/~dimitris/courses/ir_spring06/page_rank_computing/01531136.pdf">An Efficient Partition-Based Parallel PageRank Algorithm</a><br>
  * [2]: <a href="https://www.cs.purdue.edu/homes/dgleich/publications/gleich2004-parallel.pdf">Fast Parallel PageRank: A Linear System Approach</a>
  */
 public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
 
     private final ComputeSteps computeSteps;
+    private LongToDoubleFunction seeds;
 
     /**
      * Forces sequential use. If you want parallelism, prefer
@@ -146,6 +157,7 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
 
         computeSteps = createComputeSteps(
                 concurrency,
+                idMapping.nodeCount(),
                 dampingFactor,
                 relationshipIterator,
                 degrees,
@@ -158,11 +170,35 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
      */
     @Override
     public PageRank compute(int iterations) {
-        assert iterations >= 1;
-        computeSteps.run(iterations);
+        return compute(iterations, 0.0);
+    }
+
+    /**
+     * compute pageRank for at most n iterations or until the residuals sum up to less than the tolerance
+     */
+    @Override
+    public PageRank compute(int maxIterations, double tolerance) {
+        assert maxIterations >= 1;
+        computeSteps.run(maxIterations, tolerance, seeds);
         return this;
     }
 
+    @Override
+    public PageRank withSeeds(LongToDoubleFunction seeds) {
+        this.seeds = seeds;
+        return this;
+    }
+
+    @Override
+    public int iterations() {
+        return computeSteps.iterations;
+    }
+
+    @Override
+    public List<IterationStats> iterationStats() {
+        return computeSteps.stats;
+    }
+
     @Override
     public PageRankResult result() {
         return computeSteps.getPageRank();
@@ -219,6 +255,7 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
 
     private ComputeSteps createComputeSteps(
             int concurrency,
+            long nodeCount,
             double dampingFactor,
             RelationshipIterator relationshipIterator,
             Degrees degrees,
@@ -264,7 +301,7 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
         for (ComputeStep computeStep : computeSteps) {
             computeStep.setStarts(startArray, lengthArray);
         }
-        return new ComputeSteps(concurrency, computeSteps, pool);
+        return new ComputeSteps(concurrency, nodeCount, computeSteps, pool);
     }
 
     @Override
@@ -310,16 +347,21 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
 
     private final class ComputeSteps {
         private final int concurrency;
+        private final long nodeCount;
         private List<ComputeStep> steps;
         private final ExecutorService pool;
         private int[][][] scores;
+        private int iterations;
+        private final List<IterationStats> stats = new ArrayList<>();
 
         private ComputeSteps(
                 int concurrency,
+                long nodeCount,
                 List<ComputeStep> steps,
                 ExecutorService pool) {
             assert !steps.isEmpty();
             this.concurrency = concurrency;
+            this.nodeCount = nodeCount;
             this.steps = steps;
             this.pool = pool;
             int stepSize = steps.size();
@@ -341,16 +383,48 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
             return new PartitionedPrimitiveDoubleArrayResult(results, firstStep.starts);
         }
 
-        private void run(int iterations) {
+        private void run(int maxIterations, double tolerance, LongToDoubleFunction seeds) {
+            // residuals below the threshold are kept back, together they stay below the tolerance
+            double threshold = tolerance > 0.0 && nodeCount > 0L ? tolerance / nodeCount : 0.0;
+            for (ComputeStep step : steps) {
+                step.configure(seeds, threshold);
+            }
             // initialize data structures
             ParallelUtil.runWithConcurrency(concurrency, steps, pool);
-            for (int i = 0; i < iterations && running(); i++) {
+            stats.clear();
+            for (iterations = 0; iterations < maxIterations && running(); ) {
+                long start = System.nanoTime();
                 // calculate scores
                 ParallelUtil.runWithConcurrency(concurrency, steps, pool);
                 synchronizeScores();
                 // sync scores
                 ParallelUtil.runWithConcurrency(concurrency, steps, pool);
+                ++iterations;
+                double residual = residual();
+                stats.add(IterationStats.of(System.nanoTime() - start, residual, partitionNanos()));
+                if (tolerance > 0.0 && residual < tolerance) {
+                    break;
+                }
+            }
+        }
+
+        /**
+         * L1 norm of the rank changes of the last iteration, summed up from every step
+         */
+        private double residual() {
+            double residual = 0.0;
+            for (ComputeStep step : steps) {
+                residual += step.residual;
+            }
+            return residual;
+        }
+
+        private long[] partitionNanos() {
+            long[] nanos = new long[steps.size()];
+            for (int i = 0; i < nanos.length; i++) {
+                nanos[i] = steps.get(i).calculationNanos;
             }
+            return nanos;
         }
 
         private void synchronizeScores() {
@@ -395,6 +469,13 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
         private final double alpha;
         private final double dampingFactor;
 
+        private LongToDoubleFunction seeds;
+        private double threshold;
+        // the first iteration after seeding replaces the scores instead of adding to them
+        private boolean seeded;
+        private double residual;
+        private long calculationNanos;
+
         private double[] pageRank;
         private double[] deltas;
         private int[][] nextScores;
@@ -427,10 +508,17 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
             this.lengths = lengths;
         }
 
+        void configure(LongToDoubleFunction seeds, double threshold) {
+            this.seeds = seeds;
+            this.threshold = threshold;
+        }
+
         @Override
         public void run() {
             if (state == S_CALC) {
+                long start = System.nanoTime();
                 singleIteration();
+                calculationNanos = System.nanoTime() - start;
                 state = S_SYNC;
             } else if (state == S_SYNC) {
                 synchronizeScores(combineScores());
@@ -446,7 +534,15 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
             Arrays.setAll(nextScores, i -> new int[lengths[i]]);
 
             double[] partitionRank = new double[partitionSize];
-            Arrays.fill(partitionRank, alpha);
+            if (seeds == null) {
+                Arrays.fill(partitionRank, alpha);
+            } else {
+                for (int i = 0; i < partitionSize; i++) {
+                    double seed = seeds.applyAsDouble(startNode + i);
+                    partitionRank[i] = Double.isNaN(seed) ? alpha : seed;
+                }
+                seeded = true;
+            }
 
             this.pageRank = partitionRank;
             this.deltas = Arrays.copyOf(partitionRank, partitionSize);
@@ -455,15 +551,17 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
         private void singleIteration() {
             int startNode = this.startNode;
             int endNode = this.endNode;
+            double threshold = this.threshold;
             RelationshipIterator rels = this.relationshipIterator;
             for (int nodeId = startNode; nodeId < endNode; ++nodeId) {
                 double delta = deltas[nodeId - startNode];
-                if (delta > 0) {
+                if (delta != 0.0 && Math.abs(delta) >= threshold) {
                     int degree = degrees.degree(nodeId, Direction.OUTGOING);
                     if (degree > 0) {
                         srcRankDelta = (int) (100_000 * (delta / degree));
                         rels.forEachRelationship(nodeId, Direction.OUTGOING, this);
                     }
+                    deltas[nodeId - startNode] = 0.0;
                 }
             }
         }
@@ -505,15 +603,24 @@ public class PageRank extends Algorithm<PageRank> implements PageRankAlgorithm {
         private void synchronizeScores(int[] allScores) {
             double dampingFactor = this.dampingFactor;
             double[] pageRank = this.pageRank;
+            double[] deltas = this.deltas;
+            double residual = 0.0;
 
             int length = allScores.length;
             for (int i = 0; i < length; i++) {
                 int sum = allScores[i];
                 double delta = dampingFactor * (sum / 100_000.0);
+                if (seeded) {
+                    // residual of the seeded score in the current graph
+                    delta += alpha - pageRank[i];
+                }
                 pageRank[i] += delta;
-                deltas[i] = delta;
+                deltas[i] += delta;
+                residual += Math.abs(delta);
                 allScores[i] = 0;
             }
+            this.seeded = false;
+            this.residual = residual;
         }
 
     }
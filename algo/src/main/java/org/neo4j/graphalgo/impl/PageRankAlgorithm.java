@@ -22,12 +22,77 @@ import org.neo4j.graphalgo.api.Graph;
 import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
+import java.util.function.LongToDoubleFunction;
 
 public interface PageRankAlgorithm {
 
     PageRankAlgorithm compute(int iterations);
 
+    /**
+     * Computes at most {@code maxIterations} iterations and stops early once the
+     * scores of all nodes changed by less than {@code tolerance} in total.
+     * A tolerance of {@code 0} always runs all iterations.
+     */
+    PageRankAlgorithm compute(int maxIterations, double tolerance);
+
+    /**
+     * Starts the next computation from the given scores instead of the uniform
+     * initial rank. The function is called with the mapped node id and may
+     * return {@code NaN} for nodes without a previous score, for example nodes
+     * that have been added since.
+     */
+    PageRankAlgorithm withSeeds(LongToDoubleFunction seeds);
+
+    /**
+     * Starts the next computation from the scores of a previous result on the same graph.
+     */
+    default PageRankAlgorithm withSeeds(PageRankResult previous) {
+        return withSeeds(previous::score);
+    }
+
+    /**
+     * @return the number of iterations that the last computation actually ran
+     */
+    int iterations();
+
+    /**
+     * @return statistics for every iteration of the last computation
+     */
+    List<IterationStats> iterationStats();
+
+    /**
+     * Statistics of a single iteration.
+     */
+    final class IterationStats {
+        /** time spent for computing and synchronizing the scores */
+        public final long nanos;
+        /** sum of the absolute score changes of all nodes */
+        public final double residual;
+        /** slowest partition compared to the average partition, {@code 1.0} if perfectly balanced */
+        public final double skew;
+
+        IterationStats(long nanos, double residual, double skew) {
+            this.nanos = nanos;
+            this.residual = residual;
+            this.skew = skew;
+        }
+
+        /**
+         * Creates the stats from the compute time of every partition.
+         */
+        static IterationStats of(long nanos, double residual, long[] partitionNanos) {
+            long max = 0L, sum = 0L;
+            for (long partition : partitionNanos) {
+                max = Math.max(max, partition);
+                sum += partition;
+            }
+            double skew = sum > 0L ? max * (double) partitionNanos.length / sum : 1.0;
+            return new IterationStats(nanos, residual, skew);
+        }
+    }
+
     PageRankResult result();
 
     Algorithm<?> algorithm();
@@ -0,0 +1,371 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import com.carrotsearch.hppc.IntArrayDeque;
+import com.carrotsearch.hppc.IntHashSet;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import org.neo4j.graphalgo.api.Degrees;
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.api.IdMapping;
+import org.neo4j.graphalgo.api.RelationshipIterator;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.queue.IntMinPriorityQueue;
+import org.neo4j.graphdb.Direction;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Personalized PageRank for many seed sets at once, computed with the
+ * forward push (local push) algorithm as described in [1].
+ * <p>
+ * Every seed set starts with a residual of {@code 1 / |seeds|} on each of its seeds.
+ * A node whose residual exceeds {@code tolerance * degree} keeps {@code 1 - dampingFactor}
+ * of it as its score and pushes the rest evenly to its neighbours. Only nodes that received
+ * enough residual are ever visited, so the work depends on the neighbourhood of the seeds
+ * and not on the size of the graph. Once no node exceeds the threshold, every score is
+ * off by at most {@code tolerance * degree}. Residuals of nodes without relationships are
+ * not pushed any further, the scores of a seed set therefore sum up to at most {@code 1}.
+ * <p>
+ * Similar to {@link org.neo4j.graphalgo.impl.msbfs.MultiSourceBFS}, up to {@code 64} seed
+ * sets are pushed together. Every node stores the scores and residuals of all seed sets of
+ * a batch next to each other and the seed sets that have to be pushed from a node are packed
+ * into a {@code long}, so that the relationships of a node are traversed only once for all of them.
+ * Batches are independent of each other and run in parallel, each of them traverses its own
+ * concurrent copy of a huge graph.
+ * <p>
+ * [1]: <a href="https://www.math.ucsd.edu/~fan/wp/localpartition.pdf">Local Graph Partitioning using PageRank Vectors</a>
+ */
+public final class PersonalizedPageRank extends Algorithm<PersonalizedPageRank> {
+
+    // how many seed sets can be pushed simultaneously
+    static final int OMEGA = 64;
+
+    private IdMapping idMapping;
+    private RelationshipIterator relationshipIterator;
+    private Degrees degrees;
+    private final Direction direction;
+    private final double dampingFactor;
+    private final double tolerance;
+    private final int topK;
+    private final ExecutorService executor;
+    private final int concurrency;
+
+    private TopNodes[] results;
+    private final AtomicInteger finishedSeedSets = new AtomicInteger();
+
+    public PersonalizedPageRank(
+            Graph graph,
+            Direction direction,
+            double dampingFactor,
+            double tolerance,
+            int topK,
+            ExecutorService executor,
+            int concurrency) {
+        this(graph, graph, graph, direction, dampingFactor, tolerance, topK, executor, concurrency);
+    }
+
+    public PersonalizedPageRank(
+            IdMapping idMapping,
+            RelationshipIterator relationshipIterator,
+            Degrees degrees,
+            Direction direction,
+            double dampingFactor,
+            double tolerance,
+            int topK,
+            ExecutorService executor,
+            int concurrency) {
+        this.idMapping = idMapping;
+        this.relationshipIterator = relationshipIterator;
+        this.degrees = degrees;
+        this.direction = direction;
+        this.dampingFactor = dampingFactor;
+        this.tolerance = tolerance;
+        this.topK = topK;
+        this.executor = executor;
+        this.concurrency = concurrency;
+    }
+
+    /**
+     * compute the top scores for every seed set
+     *
+     * @param seedSets the mapped node ids of every seed set
+     */
+    public PersonalizedPageRank compute(List<int[]> seedSets) {
+        results = new TopNodes[seedSets.size()];
+        finishedSeedSets.set(0);
+        List<Batch> batches = new ArrayList<>();
+        for (int offset = 0; offset < seedSets.size(); offset += OMEGA) {
+            int end = Math.min(offset + OMEGA, seedSets.size());
+            batches.add(new Batch(seedSets.subList(offset, end), offset, seedSets.size()));
+        }
+        ExecutorService executor = ParallelUtil.canRunInParallel(this.executor)
+                ? this.executor : null;
+        ParallelUtil.runWithConcurrency(
+                concurrency,
+                batches,
+                1,
+                TimeUnit.MILLISECONDS,
+                getTerminationFlag(),
+                executor);
+        return this;
+    }
+
+    /**
+     * @return the top nodes of every seed set, ordered by seed set and descending score
+     */
+    public Stream<Result> resultStream() {
+        return IntStream.range(0, results.length)
+                .filter(seedSet -> results[seedSet] != null)
+                .boxed()
+                .flatMap(seedSet -> results[seedSet].stream(seedSet, idMapping));
+    }
+
+    /**
+     * @return the mapped ids of the top nodes of the given seed set, ordered by descending score
+     */
+    public int[] topNodes(int seedSet) {
+        return results[seedSet].nodes;
+    }
+
+    /**
+     * @return the scores of the top nodes of the given seed set, aligned with {@link #topNodes(int)}
+     */
+    public double[] topScores(int seedSet) {
+        return results[seedSet].scores;
+    }
+
+    @Override
+    public PersonalizedPageRank me() {
+        return this;
+    }
+
+    @Override
+    public PersonalizedPageRank release() {
+        idMapping = null;
+        relationshipIterator = null;
+        degrees = null;
+        results = null;
+        return this;
+    }
+
+    /**
+     * Pushes the residuals of up to {@link #OMEGA} seed sets.
+     */
+    private final class Batch implements Runnable {
+        private final List<int[]> seedSets;
+        private final RelationshipIterator relationships;
+        private final int offset;
+        private final int lanes;
+        private final int totalSeedSets;
+        private final double alpha;
+
+        // scores and residuals of all seed sets per visited node
+        private final IntObjectHashMap<double[]> scores;
+        private final IntObjectHashMap<double[]> residuals;
+        private final IntArrayDeque frontier;
+        private final IntHashSet inFrontier;
+        private final double[] pushed;
+
+        private Batch(List<int[]> seedSets, int offset, int totalSeedSets) {
+            this.seedSets = seedSets;
+            this.relationships = concurrentCopy(relationshipIterator);
+            this.offset = offset;
+            this.lanes = seedSets.size();
+            this.totalSeedSets = totalSeedSets;
+            this.alpha = 1.0 - dampingFactor;
+            this.scores = new IntObjectHashMap<>();
+            this.residuals = new IntObjectHashMap<>();
+            this.frontier = new IntArrayDeque();
+            this.inFrontier = new IntHashSet();
+            this.pushed = new double[lanes];
+        }
+
+        @Override
+        public void run() {
+            for (int lane = 0; lane < lanes; lane++) {
+                int[] seeds = seedSets.get(lane);
+                for (int seed : seeds) {
+                    residual(seed)[lane] += 1.0 / seeds.length;
+                    enqueue(seed);
+                }
+            }
+            while (!frontier.isEmpty() && running()) {
+                push(frontier.removeFirst());
+            }
+            collectTopNodes();
+            getProgressLogger().logProgress(finishedSeedSets.addAndGet(lanes), totalSeedSets);
+        }
+
+        private void push(int nodeId) {
+            inFrontier.remove(nodeId);
+            int degree = degrees.degree(nodeId, direction);
+            double[] residual = residuals.get(nodeId);
+            long active = activeLanes(residual, degree);
+            if (active == 0L) {
+                return;
+            }
+            double[] score = score(nodeId);
+            for (long lanes = active; lanes != 0L; lanes &= lanes - 1L) {
+                int lane = Long.numberOfTrailingZeros(lanes);
+                score[lane] += alpha * residual[lane];
+                pushed[lane] = degree > 0 ? dampingFactor * residual[lane] / degree : 0.0;
+                residual[lane] = 0.0;
+            }
+            if (degree > 0) {
+                relationships.forEachRelationship(nodeId, direction, (sourceNodeId, targetNodeId, relationId) -> {
+                    double[] targetResidual = residual(targetNodeId);
+                    for (long lanes = active; lanes != 0L; lanes &= lanes - 1L) {
+                        int lane = Long.numberOfTrailingZeros(lanes);
+                        targetResidual[lane] += pushed[lane];
+                    }
+                    enqueue(targetNodeId);
+                    return true;
+                });
+            }
+        }
+
+        /**
+         * seed sets whose residual on the node is large enough to be pushed
+         */
+        private long activeLanes(double[] residual, int degree) {
+            double threshold = tolerance * degree;
+            long active = 0L;
+            for (int lane = 0; lane < lanes; lane++) {
+                if (residual[lane] > threshold) {
+                    active |= 1L << lane;
+                }
+            }
+            return active;
+        }
+
+        private void enqueue(int nodeId) {
+            if (inFrontier.add(nodeId)) {
+                frontier.addLast(nodeId);
+            }
+        }
+
+        private double[] residual(int nodeId) {
+            return lanesOf(residuals, nodeId);
+        }
+
+        private double[] score(int nodeId) {
+            return lanesOf(scores, nodeId);
+        }
+
+        private double[] lanesOf(IntObjectHashMap<double[]> map, int nodeId) {
+            double[] values = map.get(nodeId);
+            if (values == null) {
+                values = new double[lanes];
+                map.put(nodeId, values);
+            }
+            return values;
+        }
+
+        private void collectTopNodes() {
+            IntMinPriorityQueue[] queues = new IntMinPriorityQueue[lanes];
+            for (int lane = 0; lane < lanes; lane++) {
+                queues[lane] = new IntMinPriorityQueue(topK + 1);
+            }
+            for (IntObjectCursor<double[]> cursor : scores) {
+                double[] score = cursor.value;
+                for (int lane = 0; lane < lanes; lane++) {
+                    if (score[lane] > 0.0) {
+                        IntMinPriorityQueue queue = queues[lane];
+                        queue.add(cursor.key, score[lane]);
+                        if (queue.size() > topK) {
+                            queue.pop();
+                        }
+                    }
+                }
+            }
+            for (int lane = 0; lane < lanes; lane++) {
+                results[offset + lane] = TopNodes.of(queues[lane]);
+                queues[lane].release();
+            }
+        }
+    }
+
+    private static RelationshipIterator concurrentCopy(RelationshipIterator relationshipIterator) {
+        if (relationshipIterator instanceof HugeGraph) {
+            // huge graphs keep a cursor per instance
+            final Object copy = ((HugeGraph) relationshipIterator).concurrentCopy();
+            if (copy instanceof RelationshipIterator) {
+                return (RelationshipIterator) copy;
+            }
+        }
+        return relationshipIterator;
+    }
+
+    private static final class TopNodes {
+        private final int[] nodes;
+        private final double[] scores;
+
+        private TopNodes(int[] nodes, double[] scores) {
+            this.nodes = nodes;
+            this.scores = scores;
+        }
+
+        private static TopNodes of(IntMinPriorityQueue queue) {
+            int size = queue.size();
+            int[] nodes = new int[size];
+            double[] scores = new double[size];
+            // the queue pops the smallest score first
+            for (int i = size - 1; i >= 0; i--) {
+                scores[i] = queue.topCost();
+                nodes[i] = queue.pop();
+            }
+            return new TopNodes(nodes, scores);
+        }
+
+        private Stream<Result> stream(int seedSet, IdMapping idMapping) {
+            return IntStream.range(0, nodes.length)
+                    .mapToObj(i -> new Result(
+                            seedSet,
+                            idMapping.toOriginalNodeId(nodes[i]),
+                            scores[i]));
+        }
+    }
+
+    /**
+     * Result class used for streaming
+     */
+    public static final class Result {
+
+        public final long seedSet;
+
+        public final long nodeId;
+
+        public final double score;
+
+        public Result(long seedSet, long nodeId, double score) {
+            this.seedSet = seedSet;
+            this.nodeId = nodeId;
+            this.score = score;
+        }
+    }
+}
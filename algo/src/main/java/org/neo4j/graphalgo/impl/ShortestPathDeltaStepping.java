@@ -18,9 +18,15 @@
  */
 package org.neo4j.graphalgo.impl;
 
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntCursor;
+import com.carrotsearch.hppc.cursors.ObjectCursor;
 import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.api.WeightedRelationshipConsumer;
 import org.neo4j.graphalgo.core.utils.ParallelUtil;
-import org.neo4j.graphalgo.core.utils.container.Buckets;
+import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphdb.Direction;
 
 import java.util.*;
@@ -38,6 +44,12 @@ import java.util.stream.Stream;
  * nodes in the graph. It can be tweaked using the delta-parameter which controls
  * the grade of concurrency.<br>
  * <p>
+ * The nodes of the current bucket are split into one chunk per thread. Each thread relaxes
+ * the edges of its chunk inline and collects the nodes whose distance it has lowered in its
+ * own request buffer. Light edges are relaxed repeatedly until the bucket stays empty, the
+ * heavy edges of all nodes removed from the bucket are relaxed once afterwards. Besides the
+ * buffers, which are reused, no objects are created per node or edge.<br>
+ * <p>
  * More information in:<br>
  * <p>
  * <a href="https://arxiv.org/pdf/1604.02113v1.pdf">https://arxiv.org/pdf/1604.02113v1.pdf</a><br>
@@ -49,13 +61,27 @@ import java.util.stream.Stream;
  */
 public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaStepping> {
 
+    // smallest number of nodes for which another thread is used
+    private static final int MIN_BATCH_SIZE = 64;
+
     // distance array
     private AtomicIntegerArray distance;
-    // bucket impl
-    private Buckets buckets;
+    // bucket index in which a node is queued or -1
+    private int[] queued;
+    // bucket index in which a node has last been removed from its bucket or -1
+    private int[] settled;
+    // node lists of the non empty buckets, these may contain nodes which moved to a lower bucket
+    private IntObjectHashMap<IntArrayList> buckets;
+    // emptied node lists for reuse
+    private ArrayDeque<IntArrayList> pool;
     private Graph graph;
-    // collections of runnables containing either heavy edge relax-operations or light edge relax-ops.
-    private Collection<Runnable> light, heavy;
+    // nodes of the current bucket to relax in the current round
+    private IntArrayList frontier;
+    // all nodes removed from the current bucket, their heavy edges are relaxed once the bucket is empty
+    private IntArrayList removed;
+    // one task per thread, each relaxes a chunk of nodes
+    private RelaxTask[] tasks;
+    private List<RelaxTask> activeTasks;
     // list of futures of light and heavy edge relax-operations
     private Collection<Future<?>> futures;
 
@@ -66,6 +92,7 @@ public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaSteppi
     private int iDelta;
 
     private ExecutorService executorService;
+    private int concurrency = Pools.DEFAULT_CONCURRENCY;
 
     // multiplier used to scale an double to int
     private double multiplier = 100_000d; // double type is intended
@@ -73,12 +100,16 @@ public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaSteppi
     public ShortestPathDeltaStepping(Graph graph, double delta) {
         this.graph = graph;
         this.delta = delta;
-        this.iDelta = (int) (multiplier * delta);
+        this.iDelta = scaledDelta();
         nodeCount = Math.toIntExact(graph.nodeCount());
         distance = new AtomicIntegerArray(nodeCount);
-        buckets = new Buckets(nodeCount);
-        heavy = new ArrayDeque<>(1024);
-        light = new ArrayDeque<>(1024);
+        queued = new int[nodeCount];
+        settled = new int[nodeCount];
+        buckets = new IntObjectHashMap<>();
+        pool = new ArrayDeque<>();
+        frontier = new IntArrayList();
+        removed = new IntArrayList();
+        activeTasks = new ArrayList<>();
         futures = new ArrayDeque<>(128);
     }
 
@@ -93,6 +124,21 @@ public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaSteppi
         return this;
     }
 
+    /**
+     * set the maximum number of threads relaxing edges at once
+     *
+     * @param concurrency the number of threads
+     * @return itself for method chaining
+     */
+    public ShortestPathDeltaStepping withConcurrency(int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be >= 1");
+        }
+        this.concurrency = concurrency;
+        this.tasks = null;
+        return this;
+    }
+
     /**
      * set the multiplier used to scale up double weights to integers
      *
@@ -104,10 +150,14 @@ public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaSteppi
             throw new IllegalArgumentException("multiplier must be >= 1");
         }
         this.multiplier = multiplier;
-        this.iDelta = (int) (multiplier * delta);
+        this.iDelta = scaledDelta();
         return this;
     }
 
+    private int scaledDelta() {
+        return Math.max(1, (int) (multiplier * delta));
+    }
+
     /**
      * compute the shortest path
      *
@@ -120,40 +170,140 @@ public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaSteppi
         for (int i = 0; i < nodeCount; i++) {
             distance.set(i, Integer.MAX_VALUE);
         }
-        buckets.reset();
+        Arrays.fill(queued, -1);
+        Arrays.fill(settled, -1);
+        for (ObjectCursor<IntArrayList> cursor : buckets.values()) {
+            recycle(cursor.value);
+        }
+        buckets.clear();
+        if (tasks == null) {
+            tasks = createTasks();
+        }
 
         // basically assign start node to bucket 0
-        relax(graph.toMappedNodeId(startNode), 0);
+        final int startNodeId = graph.toMappedNodeId(startNode);
+        distance.set(startNodeId, 0);
+        enqueue(startNodeId, 0);
 
         // as long as the bucket contains any value
         while (!buckets.isEmpty() && running()) {
-            // reset temporary arrays
-            light.clear();
-            heavy.clear();
+            removed.clear();
 
             // get next bucket index
-            final int phase = buckets.nextNonEmptyBucket();
-
-            // for each node in bucket
-            buckets.forEachInBucket(phase, node -> {
-                // relax each outgoing light edge
-                graph.forEachRelationship(node, Direction.OUTGOING, (sourceNodeId, targetNodeId, relationId, cost) -> {
-                    final int iCost = (int) (cost * multiplier + distance.get(sourceNodeId));
-                    if (cost <= delta) { // determine if light or heavy edge
-                        light.add(() -> relax(targetNodeId, iCost));
-                    } else {
-                        heavy.add(() -> relax(targetNodeId, iCost));
+            final int phase = nextNonEmptyBucket();
+
+            // relax light edges until no node is reinserted into the current bucket
+            while (takeBucket(phase)) {
+                final int[] nodes = frontier.buffer;
+                for (int i = 0; i < frontier.elementsCount; i++) {
+                    final int node = nodes[i];
+                    if (settled[node] != phase) {
+                        settled[node] = phase;
+                        removed.add(node);
                     }
-                    return true;
-                });
-                return true;
-            });
-            ParallelUtil.run(light, executorService, futures);
-            ParallelUtil.run(heavy, executorService, futures);
+                }
+                relax(frontier, true);
+            }
+            relax(removed, false);
         }
         return this;
     }
 
+    private RelaxTask[] createTasks() {
+        final RelaxTask[] tasks = new RelaxTask[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            // huge graphs keep a cursor per instance
+            final Graph copy = i > 0 && graph instanceof HugeGraph
+                    ? (Graph) ((HugeGraph) graph).concurrentCopy()
+                    : graph;
+            tasks[i] = new RelaxTask(copy);
+        }
+        return tasks;
+    }
+
+    /**
+     * find smallest non empty bucket index
+     */
+    private int nextNonEmptyBucket() {
+        int min = Integer.MAX_VALUE;
+        for (IntCursor cursor : buckets.keys()) {
+            min = Math.min(min, cursor.value);
+        }
+        return min;
+    }
+
+    /**
+     * moves all nodes which are still queued in the bucket into the frontier
+     *
+     * @return true if the frontier contains any node
+     */
+    private boolean takeBucket(int bucket) {
+        frontier.clear();
+        final IntArrayList nodes = buckets.remove(bucket);
+        if (nodes == null) {
+            return false;
+        }
+        final int[] buffer = nodes.buffer;
+        for (int i = 0; i < nodes.elementsCount; i++) {
+            final int node = buffer[i];
+            if (queued[node] == bucket) {
+                queued[node] = -1;
+                frontier.add(node);
+            }
+        }
+        recycle(nodes);
+        return !frontier.isEmpty();
+    }
+
+    private void enqueue(int nodeId, int bucket) {
+        if (queued[nodeId] == bucket) {
+            return;
+        }
+        queued[nodeId] = bucket;
+        IntArrayList nodes = buckets.get(bucket);
+        if (nodes == null) {
+            nodes = pool.isEmpty() ? new IntArrayList() : pool.pop();
+            buckets.put(bucket, nodes);
+        }
+        nodes.add(nodeId);
+    }
+
+    private void recycle(IntArrayList nodes) {
+        nodes.elementsCount = 0;
+        pool.push(nodes);
+    }
+
+    /**
+     * relaxes either the light or the heavy edges of all nodes in parallel
+     * and assigns all nodes with a lowered distance to their new bucket
+     */
+    private void relax(IntArrayList nodes, boolean light) {
+        final int nodeCount = nodes.elementsCount;
+        if (nodeCount == 0) {
+            return;
+        }
+        final int threads = executorService == null
+                ? 1
+                : Math.min(tasks.length, ParallelUtil.threadSize(MIN_BATCH_SIZE, nodeCount));
+        final int batchSize = ParallelUtil.threadSize(threads, nodeCount);
+        activeTasks.clear();
+        for (int i = 0, start = 0; start < nodeCount; i++, start += batchSize) {
+            final RelaxTask task = tasks[i];
+            task.init(nodes.buffer, start, Math.min(nodeCount, start + batchSize), light);
+            activeTasks.add(task);
+        }
+        ParallelUtil.run(activeTasks, executorService, futures);
+
+        for (RelaxTask task : activeTasks) {
+            final int[] requests = task.requests.buffer;
+            for (int i = 0; i < task.requests.elementsCount; i++) {
+                final int node = requests[i];
+                enqueue(node, distance.get(node) / iDelta);
+            }
+            task.requests.elementsCount = 0;
+        }
+    }
+
     /**
      * get downscaled sum of distance
      *
@@ -173,36 +323,20 @@ public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaSteppi
      *
      * @param nodeId
      * @param cost
+     * @return true if the cost has been stored
      */
-    private void cas(int nodeId, int cost) {
-        boolean stored = false;
-        while (!stored) {
+    private boolean cas(int nodeId, int cost) {
+        while (true) {
             int oldC = distance.get(nodeId);
-            if (cost < oldC) {
-                stored = distance.compareAndSet(nodeId, oldC, cost);
-            } else {
-                break;
+            if (cost >= oldC) {
+                return false;
+            }
+            if (distance.compareAndSet(nodeId, oldC, cost)) {
+                return true;
             }
         }
     }
 
-    /**
-     * relax() sets the summed cost in {@link ShortestPathDeltaStepping#distance}
-     * if they are smaller then the current cost - like dijkstra. If so it also
-     * calculates the next bucket index for the node and assigns it.
-     *
-     * @param nodeId node id
-     * @param cost   the summed cost
-     */
-    private void relax(int nodeId, int cost) {
-        if (cost >= distance.get(nodeId)) {
-            return;
-        }
-        int bucketIndex = (cost / iDelta); // calculate bucket index
-        buckets.set(nodeId, bucketIndex);
-        cas(nodeId, cost);
-    }
-
     /**
      * scale down integer representation to double[]
      *
@@ -235,14 +369,66 @@ public class ShortestPathDeltaStepping extends Algorithm<ShortestPathDeltaSteppi
     @Override
     public ShortestPathDeltaStepping release() {
         distance = null;
+        queued = null;
+        settled = null;
         buckets = null;
+        pool = null;
         graph = null;
-        light = null;
-        heavy = null;
+        frontier = null;
+        removed = null;
+        tasks = null;
+        activeTasks = null;
         futures = null;
         return null;
     }
 
+    /**
+     * relaxes the light or heavy edges of a chunk of nodes and
+     * collects the nodes whose distance has been lowered
+     */
+    private final class RelaxTask implements Runnable, WeightedRelationshipConsumer {
+
+        private final Graph graph;
+        // nodes with a lowered distance
+        private final IntArrayList requests = new IntArrayList();
+        private int[] nodes;
+        private int from;
+        private int to;
+        private boolean light;
+        private int sourceDistance;
+
+        private RelaxTask(Graph graph) {
+            this.graph = graph;
+        }
+
+        private void init(int[] nodes, int from, int to, boolean light) {
+            this.nodes = nodes;
+            this.from = from;
+            this.to = to;
+            this.light = light;
+        }
+
+        @Override
+        public void run() {
+            for (int i = from; i < to; i++) {
+                final int node = nodes[i];
+                sourceDistance = distance.get(node);
+                graph.forEachRelationship(node, Direction.OUTGOING, this);
+            }
+        }
+
+        @Override
+        public boolean accept(int sourceNodeId, int targetNodeId, long relationId, double cost) {
+            if ((cost <= delta) == light) { // determine if light or heavy edge
+                final int iCost = (int) (cost * multiplier + sourceDistance);
+                if (cas(targetNodeId, iCost)) {
+                    requests.add(targetNodeId);
+                }
+            }
+            return true;
+        }
+    }
+
     /**
      * Basic result DTO
      */
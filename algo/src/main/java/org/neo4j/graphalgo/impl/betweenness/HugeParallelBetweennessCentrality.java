@@ -0,0 +1,233 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.betweenness;
+
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.graphalgo.core.utils.paged.HugeAtomicDoubleArray;
+import org.neo4j.graphalgo.core.utils.paged.IntArray;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphalgo.impl.Algorithm;
+import org.neo4j.graphdb.Direction;
+
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Parallel Betweenness Centrality for {@link HugeGraph}s,
+ * see {@link ParallelBetweennessCentrality}.
+ * <p>
+ * Uses the successor formulation of Brandes' algorithm (like
+ * {@link BetweennessCentralitySuccessorBrandes}) so that no path lists
+ * have to be kept. All per source state lives in paged arrays and only
+ * the nodes visited by the last BFS are reset.
+ */
+public class HugeParallelBetweennessCentrality extends Algorithm<HugeParallelBetweennessCentrality> {
+
+    private HugeGraph graph;
+    private final AtomicLong nodeQueue = new AtomicLong();
+    private HugeAtomicDoubleArray centrality;
+    private final long nodeCount;
+    private final ExecutorService executorService;
+    private final int concurrency;
+    private final AllocationTracker tracker;
+    private Direction direction = Direction.OUTGOING;
+    private double divisor = 1.0;
+
+    public HugeParallelBetweennessCentrality(
+            HugeGraph graph,
+            ExecutorService executorService,
+            int concurrency,
+            AllocationTracker tracker) {
+        this.graph = graph;
+        this.nodeCount = graph.nodeCount();
+        this.executorService = executorService;
+        this.concurrency = concurrency;
+        this.tracker = tracker;
+        this.centrality = HugeAtomicDoubleArray.newArray(nodeCount, tracker);
+    }
+
+    public HugeParallelBetweennessCentrality withDirection(Direction direction) {
+        this.direction = direction;
+        this.divisor = direction == Direction.BOTH ? 2.0 : 1.0;
+        return this;
+    }
+
+    public HugeParallelBetweennessCentrality compute() {
+        nodeQueue.set(0);
+        final ArrayList<BCTask> tasks = new ArrayList<>();
+        for (int i = 0; i < concurrency; i++) {
+            tasks.add(new BCTask((HugeGraph) graph.concurrentCopy()));
+        }
+        try {
+            ParallelUtil.run(tasks, executorService);
+        } finally {
+            for (BCTask task : tasks) {
+                task.release();
+            }
+        }
+        return this;
+    }
+
+    public HugeAtomicDoubleArray getCentrality() {
+        return centrality;
+    }
+
+    public Stream<BetweennessCentrality.Result> resultStream() {
+        return LongStream.range(0, nodeCount)
+                .mapToObj(nodeId ->
+                        new BetweennessCentrality.Result(
+                                graph.toOriginalNodeId(nodeId),
+                                centrality.get(nodeId)));
+    }
+
+    @Override
+    public HugeParallelBetweennessCentrality me() {
+        return this;
+    }
+
+    @Override
+    public HugeParallelBetweennessCentrality release() {
+        if (centrality != null) {
+            tracker.remove(centrality.release());
+        }
+        graph = null;
+        centrality = null;
+        return this;
+    }
+
+    /**
+     * a BCTask takes one start node from the nodeQueue as long as
+     * it is lower than nodeCount and adds its dependencies to the centrality
+     */
+    private final class BCTask implements Runnable {
+
+        private final HugeGraph graph;
+        // bfs order, doubles as the queue (forward) and the stack (backward)
+        private LongArray order;
+        private IntArray distance;
+        private LongArray sigma;
+        private DoubleArray delta;
+        private long orderSize;
+
+        private BCTask(HugeGraph graph) {
+            this.graph = graph;
+            this.order = LongArray.newArray(nodeCount, tracker);
+            this.distance = IntArray.newArray(nodeCount, tracker);
+            this.sigma = LongArray.newArray(nodeCount, tracker);
+            this.delta = DoubleArray.newArray(nodeCount, tracker);
+            this.distance.fill(-1);
+        }
+
+        @Override
+        public void run() {
+            for (;;) {
+                final long startNodeId = nodeQueue.getAndIncrement();
+                if (startNodeId >= nodeCount || !running()) {
+                    return;
+                }
+                getProgressLogger().logProgress((double) startNodeId / (nodeCount - 1));
+                forward(startNodeId);
+                backward(startNodeId);
+                reset();
+            }
+        }
+
+        /**
+         * bfs from the start node, counting shortest paths
+         */
+        private void forward(long startNodeId) {
+            sigma.set(startNodeId, 1L);
+            distance.set(startNodeId, 0);
+            order.set(0, startNodeId);
+            orderSize = 1;
+            for (long head = 0; head < orderSize; head++) {
+                final long node = order.get(head);
+                final int nextDistance = distance.get(node) + 1;
+                final long nodeSigma = sigma.get(node);
+                graph.forEachRelationship(node, direction, (source, target) -> {
+                    int targetDistance = distance.get(target);
+                    if (targetDistance < 0) {
+                        distance.set(target, nextDistance);
+                        order.set(orderSize++, target);
+                        targetDistance = nextDistance;
+                    }
+                    if (targetDistance == nextDistance) {
+                        sigma.addTo(target, nodeSigma);
+                    }
+                    return true;
+                });
+            }
+        }
+
+        /**
+         * accumulate dependencies in reverse bfs order using the
+         * successors of each node instead of stored predecessors
+         */
+        private void backward(long startNodeId) {
+            for (long i = orderSize - 1; i >= 0; i--) {
+                final long node = order.get(i);
+                final int nextDistance = distance.get(node) + 1;
+                final double nodeSigma = (double) sigma.get(node);
+                final double[] dependency = {0.0};
+                graph.forEachRelationship(node, direction, (source, target) -> {
+                    if (distance.get(target) == nextDistance) {
+                        dependency[0] += nodeSigma / (double) sigma.get(target) * (delta.get(target) + 1.0);
+                    }
+                    return true;
+                });
+                delta.set(node, dependency[0]);
+                if (node != startNodeId) {
+                    centrality.add(node, dependency[0] / divisor);
+                }
+            }
+        }
+
+        /**
+         * reset the state of all nodes visited by the last bfs
+         */
+        private void reset() {
+            for (long i = 0; i < orderSize; i++) {
+                final long node = order.get(i);
+                distance.set(node, -1);
+                sigma.set(node, 0L);
+                delta.set(node, 0.0);
+            }
+            orderSize = 0;
+        }
+
+        private void release() {
+            if (order != null) {
+                tracker.remove(order.release());
+                tracker.remove(distance.release());
+                tracker.remove(sigma.release());
+                tracker.remove(delta.release());
+                order = null;
+                distance = null;
+                sigma = null;
+                delta = null;
+            }
+        }
+    }
+}
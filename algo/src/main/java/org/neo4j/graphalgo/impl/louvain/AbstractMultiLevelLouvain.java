@@ -0,0 +1,798 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.louvain;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphalgo.impl.Algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+
+/**
+ * Multi level modularity based community detection as described in [1].
+ * <p>
+ * Every level runs the local moving phase: all nodes are visited in order and each node is moved
+ * to the neighbouring community with the highest modularity gain, until no node moves anymore.
+ * The weights from a node into each of its neighbouring communities are summed up in a single
+ * pass over its relationships into a sparse accumulator that is reused for every node,
+ * so that evaluating all moves of a node takes {@code O(degree)}.
+ * <p>
+ * With a concurrency above {@code 1}, or once a seed has been set with {@link #withSeed(long)},
+ * the local moving phase runs in synchronous rounds instead.
+ * All threads propose the best community for their nodes based on the communities of the previous
+ * round, and the proposals are committed in node order once all threads are done. To keep conflicting
+ * moves from oscillating, only a pseudo random half of the nodes (derived from the seed) may move
+ * in each round, and a node that is alone in its community does not move into another singleton
+ * community with a higher id. The result of the rounds does not depend on the number of threads,
+ * not even on whether they run on a single one, and is the same for every run with the same seed.
+ * <p>
+ * Afterwards the communities are aggregated into a compact graph of super nodes (phase 2),
+ * where relationships between the same communities are merged and relationships within a community
+ * become a self loop. This graph is the input of the next level. Only the first level reads the
+ * given graph, all further levels work on the aggregated graphs.
+ * The algorithm stops once a level does not merge any communities or after {@code maxLevels} levels.
+ * <p>
+ * The community of every node on every level is kept as a dendrogram, the final communities
+ * are those of the last level.
+ * <p>
+ * Node and community ids are longs. How they are stored and how the accumulators find the position
+ * of a community is left to the implementations, {@link MultiLevelLouvain} keeps them in {@code int}
+ * indexed arrays and {@link HugeMultiLevelLouvain} in paged arrays and hash maps.
+ * Both make the same decisions in the same order and return the same communities.
+ * <p>
+ * [1]: <a href="https://arxiv.org/abs/0803.0476">Fast unfolding of communities in large networks</a>
+ */
+public abstract class AbstractMultiLevelLouvain<ME extends AbstractMultiLevelLouvain<ME>> extends Algorithm<ME> {
+
+    public static final long DEFAULT_SEED = 42L;
+
+    final boolean weighted;
+    final long nodeCount;
+    final AllocationTracker tracker;
+    private final ExecutorService executorService;
+    private final int concurrency;
+    private final int maxIterations;
+    private final int maxLevels;
+    private long seed = DEFAULT_SEED;
+    private boolean seeded;
+
+    private Ids communities;
+    private List<Ids> dendrogram;
+    private DoubleArrayList modularities;
+    private int iterations;
+
+    // sparse accumulators, one per thread, reused for every node on every level
+    private NeighborCommunities[] neighborCommunities;
+
+    AbstractMultiLevelLouvain(
+            long nodeCount,
+            boolean weighted,
+            ExecutorService executorService,
+            int concurrency,
+            int maxIterations,
+            int maxLevels,
+            AllocationTracker tracker) {
+        this.nodeCount = nodeCount;
+        this.weighted = weighted;
+        this.executorService = executorService;
+        this.concurrency = concurrency;
+        this.maxIterations = maxIterations;
+        this.maxLevels = maxLevels;
+        this.tracker = tracker;
+    }
+
+    /**
+     * @return storage for {@code size} ids
+     */
+    abstract Ids newIds(long size);
+
+    /**
+     * @return an empty accumulator
+     */
+    abstract NeighborCommunities newNeighborCommunities();
+
+    /**
+     * @return the graph of the first level
+     */
+    abstract LevelGraph inputGraph();
+
+    abstract long toOriginalNodeId(long node);
+
+    /**
+     * seed for the selection of the nodes that may move in each round of the parallel local moving phase,
+     * once a seed is set the rounds are used for every concurrency, so that the result only depends on the seed
+     */
+    public ME withSeed(long seed) {
+        this.seed = seed;
+        this.seeded = true;
+        return me();
+    }
+
+    public ME compute() {
+        iterations = 0;
+        dendrogram = new ArrayList<>();
+        modularities = new DoubleArrayList();
+        neighborCommunities = new NeighborCommunities[Math.max(1, concurrency)];
+        for (int i = 0; i < neighborCommunities.length; i++) {
+            neighborCommunities[i] = newNeighborCommunities();
+        }
+
+        final Ids assignment = identity(nodeCount);
+
+        LevelGraph level = inputGraph();
+        for (int depth = 0; depth < maxLevels && running(); depth++) {
+            final long levelNodeCount = level.nodeCount();
+            final DoubleArray degrees = weightedDegrees(level);
+            double m2 = 0.0; // 2m
+            for (long node = 0; node < levelNodeCount; node++) {
+                m2 += degrees.get(node);
+            }
+            if (m2 <= 0.0) {
+                tracker.remove(degrees.release());
+                break;
+            }
+            final Ids levelCommunities = identity(levelNodeCount);
+            final long communityCount = concurrency > 1 || seeded
+                    ? parallelLocalMoving(level, degrees, m2, levelCommunities)
+                    : localMoving(level, degrees, m2, levelCommunities);
+            tracker.remove(degrees.release());
+            if (communityCount == levelNodeCount) {
+                tracker.remove(levelCommunities.release());
+                break;
+            }
+            final Ids communities = newIds(nodeCount);
+            for (long node = 0; node < nodeCount; node++) {
+                final long community = levelCommunities.get(assignment.get(node));
+                assignment.set(node, community);
+                communities.set(node, community);
+            }
+            dendrogram.add(communities);
+            final CoarseGraph coarse = aggregate(level, levelCommunities, communityCount);
+            tracker.remove(levelCommunities.release());
+            modularities.add(coarse.modularity(m2));
+            level.release();
+            level = coarse;
+            getProgressLogger().logProgress(depth + 1, maxLevels);
+        }
+        level.release();
+        neighborCommunities = null;
+
+        if (dendrogram.isEmpty()) {
+            communities = assignment;
+        } else {
+            tracker.remove(assignment.release());
+            communities = dendrogram.get(dendrogram.size() - 1);
+        }
+        getProgressLogger().logDone();
+        return me();
+    }
+
+    private Ids identity(long size) {
+        final Ids ids = newIds(size);
+        for (long i = 0; i < size; i++) {
+            ids.set(i, i);
+        }
+        return ids;
+    }
+
+    private DoubleArray weightedDegrees(LevelGraph level) {
+        final long levelNodeCount = level.nodeCount();
+        final DoubleArray degrees = DoubleArray.newArray(levelNodeCount, tracker);
+        final long batchSize = ParallelUtil.threadSize(Math.max(1, concurrency), levelNodeCount);
+        final List<Runnable> tasks = new ArrayList<>();
+        for (long start = 0; start < levelNodeCount; start += batchSize) {
+            final long from = start;
+            final long to = Math.min(levelNodeCount, start + batchSize);
+            final LevelGraph copy = level.concurrentCopy();
+            tasks.add(() -> {
+                final double[] sum = {0.0};
+                for (long node = from; node < to; node++) {
+                    sum[0] = 0.0;
+                    copy.forEachNeighbor(node, (target, weight) -> sum[0] += weight);
+                    degrees.set(node, sum[0]);
+                }
+            });
+        }
+        final ExecutorService executor = ParallelUtil.canRunInParallel(executorService)
+                ? executorService : null;
+        ParallelUtil.runWithConcurrency(concurrency, tasks, 1, TimeUnit.MILLISECONDS, getTerminationFlag(), executor);
+        return degrees;
+    }
+
+    private DoubleArray copyOf(DoubleArray array, long size) {
+        final DoubleArray copy = DoubleArray.newArray(size, tracker);
+        for (long i = 0; i < size; i++) {
+            copy.set(i, array.get(i));
+        }
+        return copy;
+    }
+
+    /**
+     * phase 1: moves nodes to the neighbouring community with the highest gain
+     *
+     * @return the number of communities, which are renumbered from {@code 0} in {@code communities}
+     */
+    private long localMoving(LevelGraph level, DoubleArray degrees, double m2, Ids communities) {
+        final long levelNodeCount = level.nodeCount();
+        final DoubleArray sTot = copyOf(degrees, levelNodeCount);
+        final NeighborCommunities neighbors = this.neighborCommunities[0];
+        neighbors.communities = communities;
+
+        for (int iteration = 0; iteration < maxIterations && running(); iteration++) {
+            ++iterations;
+            boolean changes = false;
+            for (long node = 0; node < levelNodeCount; node++) {
+                final double kI = degrees.get(node);
+                if (kI == 0.0) {
+                    continue;
+                }
+                final long sourceCommunity = communities.get(node);
+                neighbors.node = node;
+                level.forEachNeighbor(node, neighbors);
+
+                // remove the node from its community
+                sTot.set(sourceCommunity, sTot.get(sourceCommunity) - kI);
+                long bestCommunity = sourceCommunity;
+                double bestGain = neighbors.weightTo(sourceCommunity) - sTot.get(sourceCommunity) * kI / m2;
+                for (int i = 0; i < neighbors.size; i++) {
+                    final long community = neighbors.keys[i];
+                    final double gain = neighbors.weights[i] - sTot.get(community) * kI / m2;
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        bestCommunity = community;
+                    }
+                }
+                sTot.set(bestCommunity, sTot.get(bestCommunity) + kI);
+                if (bestCommunity != sourceCommunity) {
+                    communities.set(node, bestCommunity);
+                    changes = true;
+                }
+                neighbors.reset();
+            }
+            if (!changes) {
+                break;
+            }
+        }
+        tracker.remove(sTot.release());
+        return renumber(communities, levelNodeCount);
+    }
+
+    /**
+     * phase 1 in synchronous rounds of proposing moves in parallel and committing them afterwards
+     *
+     * @return the number of communities, which are renumbered from {@code 0} in {@code communities}
+     */
+    private long parallelLocalMoving(LevelGraph level, DoubleArray degrees, double m2, Ids communities) {
+        final long levelNodeCount = level.nodeCount();
+        final DoubleArray sTot = copyOf(degrees, levelNodeCount);
+        final Ids sizes = newIds(levelNodeCount);
+        sizes.fill(1L);
+        final Ids proposals = newIds(levelNodeCount);
+
+        final long batchSize = ParallelUtil.threadSize(neighborCommunities.length, levelNodeCount);
+        final List<ProposeTask> tasks = new ArrayList<>();
+        int i = 0;
+        for (long start = 0; start < levelNodeCount; start += batchSize, i++) {
+            final NeighborCommunities neighbors = neighborCommunities[i];
+            neighbors.communities = communities;
+            tasks.add(new ProposeTask(
+                    level.concurrentCopy(),
+                    neighbors,
+                    start,
+                    Math.min(levelNodeCount, start + batchSize),
+                    degrees,
+                    m2,
+                    communities,
+                    sTot,
+                    sizes,
+                    proposals));
+        }
+        final ExecutorService executor = ParallelUtil.canRunInParallel(executorService)
+                ? executorService : null;
+
+        for (int round = 0; round < maxIterations && running(); round++) {
+            ++iterations;
+            for (ProposeTask task : tasks) {
+                task.round = round;
+            }
+            ParallelUtil.runWithConcurrency(concurrency, tasks, 1, TimeUnit.MILLISECONDS, getTerminationFlag(), executor);
+
+            // commit in node order, which keeps sTot independent of the scheduling
+            long proposed = 0;
+            for (ProposeTask task : tasks) {
+                proposed += task.proposed;
+                final long[] moves = task.moves.buffer;
+                for (int m = 0; m < task.moves.elementsCount; m++) {
+                    final long node = moves[m];
+                    final long sourceCommunity = communities.get(node);
+                    final long targetCommunity = proposals.get(node);
+                    final double degree = degrees.get(node);
+                    sTot.set(sourceCommunity, sTot.get(sourceCommunity) - degree);
+                    sTot.set(targetCommunity, sTot.get(targetCommunity) + degree);
+                    sizes.set(sourceCommunity, sizes.get(sourceCommunity) - 1L);
+                    sizes.set(targetCommunity, sizes.get(targetCommunity) + 1L);
+                    communities.set(node, targetCommunity);
+                }
+            }
+            if (proposed == 0) {
+                break;
+            }
+        }
+        tracker.remove(sTot.release());
+        tracker.remove(sizes.release());
+        tracker.remove(proposals.release());
+        return renumber(communities, levelNodeCount);
+    }
+
+    /**
+     * proposes the best community for a batch of nodes, based on the communities of the previous round
+     */
+    private final class ProposeTask implements Runnable {
+        private final LevelGraph level;
+        private final NeighborCommunities neighbors;
+        private final long from;
+        private final long to;
+        private final DoubleArray degrees;
+        private final double m2;
+        private final Ids communities;
+        private final DoubleArray sTot;
+        private final Ids sizes;
+        private final Ids proposals;
+        private final LongArrayList moves = new LongArrayList();
+        private int round;
+        private long proposed;
+
+        private ProposeTask(
+                LevelGraph level,
+                NeighborCommunities neighbors,
+                long from,
+                long to,
+                DoubleArray degrees,
+                double m2,
+                Ids communities,
+                DoubleArray sTot,
+                Ids sizes,
+                Ids proposals) {
+            this.level = level;
+            this.neighbors = neighbors;
+            this.from = from;
+            this.to = to;
+            this.degrees = degrees;
+            this.m2 = m2;
+            this.communities = communities;
+            this.sTot = sTot;
+            this.sizes = sizes;
+            this.proposals = proposals;
+        }
+
+        @Override
+        public void run() {
+            moves.clear();
+            proposed = 0;
+            for (long node = from; node < to; node++) {
+                final double kI = degrees.get(node);
+                if (kI == 0.0) {
+                    continue;
+                }
+                final long sourceCommunity = communities.get(node);
+                neighbors.node = node;
+                level.forEachNeighbor(node, neighbors);
+
+                long bestCommunity = sourceCommunity;
+                double bestGain = neighbors.weightTo(sourceCommunity) - (sTot.get(sourceCommunity) - kI) * kI / m2;
+                for (int i = 0; i < neighbors.size; i++) {
+                    final long community = neighbors.keys[i];
+                    final double gain = neighbors.weights[i] - sTot.get(community) * kI / m2;
+                    if (gain > bestGain) {
+                        bestGain = gain;
+                        bestCommunity = community;
+                    }
+                }
+                neighbors.reset();
+
+                if (bestCommunity == sourceCommunity
+                        || (sizes.get(sourceCommunity) == 1L && sizes.get(bestCommunity) == 1L && bestCommunity > sourceCommunity)) {
+                    continue;
+                }
+                ++proposed;
+                if (mayMove(seed, round, node)) {
+                    proposals.set(node, bestCommunity);
+                    moves.add(node);
+                }
+            }
+        }
+    }
+
+    /**
+     * decides whether a node may move in a round, every node may move in about half of the rounds
+     */
+    private static boolean mayMove(long seed, int round, long node) {
+        // splitmix64 finalizer
+        long z = seed + round * 0x9E3779B97F4A7C15L + node * 0xD1B54A32D192ED03L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return z < 0;
+    }
+
+    /**
+     * renumbers the communities consecutively in order of their first member
+     */
+    private long renumber(Ids communities, long length) {
+        final Ids ids = newIds(length);
+        ids.fill(-1L);
+        long next = 0;
+        for (long node = 0; node < length; node++) {
+            final long community = communities.get(node);
+            long id = ids.get(community);
+            if (id == -1L) {
+                id = next++;
+                ids.set(community, id);
+            }
+            communities.set(node, id);
+        }
+        tracker.remove(ids.release());
+        return next;
+    }
+
+    /**
+     * phase 2: builds the graph of communities
+     */
+    private CoarseGraph aggregate(LevelGraph level, Ids communities, long communityCount) {
+        final long levelNodeCount = level.nodeCount();
+        // group the nodes by community
+        final Ids starts = newIds(communityCount + 1);
+        for (long node = 0; node < levelNodeCount; node++) {
+            final long community = communities.get(node);
+            starts.set(community + 1, starts.get(community + 1) + 1L);
+        }
+        for (long i = 0; i < communityCount; i++) {
+            starts.set(i + 1, starts.get(i + 1) + starts.get(i));
+        }
+        final Ids members = newIds(levelNodeCount);
+        final Ids next = newIds(communityCount);
+        for (long community = 0; community < communityCount; community++) {
+            next.set(community, starts.get(community));
+        }
+        for (long node = 0; node < levelNodeCount; node++) {
+            final long community = communities.get(node);
+            final long position = next.get(community);
+            next.set(community, position + 1);
+            members.set(position, node);
+        }
+        tracker.remove(next.release());
+
+        final NeighborCommunities neighbors = this.neighborCommunities[0];
+        neighbors.communities = communities;
+        neighbors.node = -1L;
+
+        // count the relationships of every community first to allocate them at once
+        final LongArray offsets = LongArray.newArray(communityCount + 1, tracker);
+        for (long community = 0; community < communityCount; community++) {
+            final long end = starts.get(community + 1);
+            for (long i = starts.get(community); i < end; i++) {
+                level.forEachNeighbor(members.get(i), neighbors);
+            }
+            offsets.set(community + 1, offsets.get(community) + neighbors.size);
+            neighbors.reset();
+        }
+
+        final Ids targets = newIds(offsets.get(communityCount));
+        final DoubleArray weights = DoubleArray.newArray(offsets.get(communityCount), tracker);
+        final DoubleArray selfLoops = DoubleArray.newArray(communityCount, tracker);
+        final DoubleArray degrees = DoubleArray.newArray(communityCount, tracker);
+        for (long community = 0; community < communityCount; community++) {
+            final long end = starts.get(community + 1);
+            for (long i = starts.get(community); i < end; i++) {
+                level.forEachNeighbor(members.get(i), neighbors);
+            }
+            long offset = offsets.get(community);
+            double degree = 0.0;
+            for (int i = 0; i < neighbors.size; i++, offset++) {
+                final long target = neighbors.keys[i];
+                final double weight = neighbors.weights[i];
+                targets.set(offset, target);
+                weights.set(offset, weight);
+                degree += weight;
+                if (target == community) {
+                    selfLoops.set(community, weight);
+                }
+            }
+            degrees.set(community, degree);
+            neighbors.reset();
+        }
+        tracker.remove(starts.release());
+        tracker.remove(members.release());
+        return new CoarseGraph(communityCount, offsets, targets, weights, selfLoops, degrees, tracker);
+    }
+
+    public Stream<LouvainAlgorithm.Result> resultStream() {
+        return LongStream.range(0, nodeCount)
+                .mapToObj(i -> new LouvainAlgorithm.Result(toOriginalNodeId(i), communities.get(i)));
+    }
+
+    /**
+     * @return the communities of every level, from the first to the last
+     */
+    public Stream<LouvainAlgorithm.Result> hierarchyStream() {
+        return LongStream.range(0, nodeCount)
+                .mapToObj(i -> new LouvainAlgorithm.Result(toOriginalNodeId(i), communities.get(i), communitiesOf(i)));
+    }
+
+    private long[] communitiesOf(long node) {
+        final long[] communities = new long[dendrogram.size()];
+        for (int level = 0; level < communities.length; level++) {
+            communities[level] = dendrogram.get(level).get(node);
+        }
+        return communities;
+    }
+
+    /**
+     * @return the final community of every node
+     */
+    Ids communities() {
+        return communities;
+    }
+
+    /**
+     * @return the community of every node for every level
+     */
+    List<Ids> dendrogram() {
+        return dendrogram;
+    }
+
+    long communityCount() {
+        long max = -1L;
+        for (long node = 0; node < nodeCount; node++) {
+            max = Math.max(max, communities.get(node));
+        }
+        return max + 1L;
+    }
+
+    /**
+     * @return total number of local moving iterations over all levels
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * @return the number of levels that merged communities
+     */
+    public int getLevels() {
+        return dendrogram.size();
+    }
+
+    /**
+     * @return the modularity after every level
+     */
+    public double[] getModularities() {
+        return modularities.toArray();
+    }
+
+    /**
+     * @return the modularity of the final communities
+     */
+    public double getModularity() {
+        return modularities.isEmpty() ? 0.0 : modularities.get(modularities.size() - 1);
+    }
+
+    @Override
+    public ME me() {
+        //noinspection unchecked
+        return (ME) this;
+    }
+
+    /**
+     * releases all levels of the dendrogram but the final communities
+     */
+    @Override
+    public ME release() {
+        if (dendrogram != null) {
+            for (Ids levelCommunities : dendrogram) {
+                if (levelCommunities != communities) {
+                    tracker.remove(levelCommunities.release());
+                }
+            }
+        }
+        dendrogram = null;
+        return me();
+    }
+
+    /**
+     * ids that are indexed by ids, e.g. the community of every node
+     */
+    interface Ids {
+
+        long get(long index);
+
+        void set(long index, long value);
+
+        void fill(long value);
+
+        /**
+         * @return the number of released bytes
+         */
+        long release();
+    }
+
+    interface NeighborConsumer {
+        void accept(long target, double weight);
+    }
+
+    /**
+     * weighted and undirected view of a single level
+     */
+    interface LevelGraph {
+
+        long nodeCount();
+
+        void forEachNeighbor(long node, NeighborConsumer consumer);
+
+        /**
+         * a copy that can be used concurrently to this graph
+         */
+        LevelGraph concurrentCopy();
+
+        void release();
+    }
+
+    /**
+     * compact graph of the communities of the previous level
+     */
+    private static final class CoarseGraph implements LevelGraph {
+        private final long nodeCount;
+        private final AllocationTracker tracker;
+        private LongArray offsets;
+        private Ids targets;
+        private DoubleArray weights;
+        private DoubleArray selfLoops;
+        private DoubleArray degrees;
+
+        private CoarseGraph(
+                long nodeCount,
+                LongArray offsets,
+                Ids targets,
+                DoubleArray weights,
+                DoubleArray selfLoops,
+                DoubleArray degrees,
+                AllocationTracker tracker) {
+            this.nodeCount = nodeCount;
+            this.offsets = offsets;
+            this.targets = targets;
+            this.weights = weights;
+            this.selfLoops = selfLoops;
+            this.degrees = degrees;
+            this.tracker = tracker;
+        }
+
+        @Override
+        public long nodeCount() {
+            return nodeCount;
+        }
+
+        @Override
+        public void forEachNeighbor(long node, NeighborConsumer consumer) {
+            final long end = offsets.get(node + 1);
+            for (long i = offsets.get(node); i < end; i++) {
+                consumer.accept(targets.get(i), weights.get(i));
+            }
+        }
+
+        @Override
+        public LevelGraph concurrentCopy() {
+            return this;
+        }
+
+        /**
+         * modularity of the partition that this graph has been aggregated from
+         */
+        double modularity(double m2) {
+            double modularity = 0.0;
+            for (long community = 0; community < nodeCount; community++) {
+                final double tot = degrees.get(community) / m2;
+                modularity += selfLoops.get(community) / m2 - tot * tot;
+            }
+            return modularity;
+        }
+
+        @Override
+        public void release() {
+            tracker.remove(offsets.release());
+            tracker.remove(targets.release());
+            tracker.remove(weights.release());
+            tracker.remove(selfLoops.release());
+            tracker.remove(degrees.release());
+            offsets = null;
+            targets = null;
+            weights = null;
+            selfLoops = null;
+            degrees = null;
+        }
+    }
+
+    /**
+     * Sums up the weights from a node into every neighbouring community.
+     * Only the communities that have actually been touched are reset afterwards,
+     * implementations decide how the position of a community is looked up.
+     */
+    abstract static class NeighborCommunities implements NeighborConsumer {
+        // grown on demand, there is one accumulator per thread
+        private long[] keys = new long[16];
+        private double[] weights = new double[16];
+        private int size;
+
+        private Ids communities;
+        // node whose self loops are ignored, -1 to keep all
+        private long node;
+
+        /**
+         * @return the position of the community in keys/weights or {@code -1}
+         */
+        abstract int positionOf(long community);
+
+        abstract void setPosition(long community, int position);
+
+        abstract void removePosition(long community);
+
+        @Override
+        public void accept(long target, double weight) {
+            if (target == node) {
+                return;
+            }
+            final long community = communities.get(target);
+            final int position = positionOf(community);
+            if (position == -1) {
+                if (size == keys.length) {
+                    final int length = size + (size >> 1) + 16;
+                    keys = Arrays.copyOf(keys, length);
+                    weights = Arrays.copyOf(weights, length);
+                }
+                setPosition(community, size);
+                keys[size] = community;
+                weights[size] = weight;
+                ++size;
+            } else {
+                weights[position] += weight;
+            }
+        }
+
+        double weightTo(long community) {
+            final int position = positionOf(community);
+            return position == -1 ? 0.0 : weights[position];
+        }
+
+        void reset() {
+            for (int i = 0; i < size; i++) {
+                removePosition(keys[i]);
+            }
+            size = 0;
+        }
+    }
+}
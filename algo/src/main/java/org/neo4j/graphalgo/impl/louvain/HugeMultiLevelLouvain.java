@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.louvain;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphdb.Direction;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Multi level Louvain for {@link HugeGraph}s, see {@link AbstractMultiLevelLouvain}.
+ * <p>
+ * Node and community ids are stored as longs, so the graph may have more than {@link Integer#MAX_VALUE} nodes.
+ * Communities, degrees, the aggregated graphs and the dendrogram are kept in paged arrays.
+ * The sparse accumulators map communities to their position in a hash map instead of an array
+ * over all communities, so that every thread only needs memory in the order of the largest degree.
+ */
+public final class HugeMultiLevelLouvain extends AbstractMultiLevelLouvain<HugeMultiLevelLouvain> {
+
+    private HugeGraph graph;
+
+    /**
+     * @param weighted       whether to read relationship weights from the graph or count every relationship as {@code 1.0}
+     * @param maxIterations  maximum number of local moving iterations per level
+     * @param maxLevels      maximum number of levels
+     */
+    public HugeMultiLevelLouvain(
+            HugeGraph graph,
+            boolean weighted,
+            ExecutorService executorService,
+            int concurrency,
+            int maxIterations,
+            int maxLevels,
+            AllocationTracker tracker) {
+        super(graph.nodeCount(), weighted, executorService, concurrency, maxIterations, maxLevels, tracker);
+        this.graph = graph;
+    }
+
+    @Override
+    Ids newIds(long size) {
+        return new PagedIds(LongArray.newArray(size, tracker));
+    }
+
+    @Override
+    NeighborCommunities newNeighborCommunities() {
+        return new HashedNeighborCommunities();
+    }
+
+    @Override
+    LevelGraph inputGraph() {
+        return new InputGraph(graph, weighted);
+    }
+
+    @Override
+    long toOriginalNodeId(long node) {
+        return graph.toOriginalNodeId(node);
+    }
+
+    public LongArray getCommunityIds() {
+        return ((PagedIds) communities()).array;
+    }
+
+    public long getCommunityCount() {
+        return communityCount();
+    }
+
+    /**
+     * @return the community of every node for every level
+     */
+    public LongArray[] getDendrogram() {
+        final List<Ids> dendrogram = dendrogram();
+        final LongArray[] levels = new LongArray[dendrogram.size()];
+        for (int level = 0; level < levels.length; level++) {
+            levels[level] = ((PagedIds) dendrogram.get(level)).array;
+        }
+        return levels;
+    }
+
+    /**
+     * releases the graph and all levels of the dendrogram but the final communities
+     */
+    @Override
+    public HugeMultiLevelLouvain release() {
+        graph = null;
+        return super.release();
+    }
+
+    private static final class PagedIds implements Ids {
+        private final LongArray array;
+
+        private PagedIds(LongArray array) {
+            this.array = array;
+        }
+
+        @Override
+        public long get(long index) {
+            return array.get(index);
+        }
+
+        @Override
+        public void set(long index, long value) {
+            array.set(index, value);
+        }
+
+        @Override
+        public void fill(long value) {
+            array.fill(value);
+        }
+
+        @Override
+        public long release() {
+            return array.release();
+        }
+    }
+
+    /**
+     * the graph of the first level, all relationships have to be loaded in both directions
+     */
+    private static final class InputGraph implements LevelGraph {
+        private final HugeGraph graph;
+        private final boolean weighted;
+
+        private InputGraph(HugeGraph graph, boolean weighted) {
+            this.graph = graph;
+            this.weighted = weighted;
+        }
+
+        @Override
+        public long nodeCount() {
+            return graph.nodeCount();
+        }
+
+        @Override
+        public void forEachNeighbor(long node, NeighborConsumer consumer) {
+            if (weighted) {
+                graph.forEachRelationship(node, Direction.BOTH, (sourceNodeId, targetNodeId, weight) -> {
+                    consumer.accept(targetNodeId, weight);
+                    return true;
+                });
+            } else {
+                graph.forEachRelationship(node, Direction.BOTH, (sourceNodeId, targetNodeId) -> {
+                    consumer.accept(targetNodeId, 1.0);
+                    return true;
+                });
+            }
+        }
+
+        @Override
+        public LevelGraph concurrentCopy() {
+            // huge graphs keep a cursor per instance
+            return new InputGraph((HugeGraph) graph.concurrentCopy(), weighted);
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    /**
+     * finds the position of a community in a hash map that only holds the communities of the current node
+     */
+    private static final class HashedNeighborCommunities extends NeighborCommunities {
+        private final LongIntHashMap positions = new LongIntHashMap();
+
+        @Override
+        int positionOf(long community) {
+            return positions.getOrDefault(community, -1);
+        }
+
+        @Override
+        void setPosition(long community, int position) {
+            positions.put(community, position);
+        }
+
+        @Override
+        void removePosition(long community) {
+            positions.remove(community);
+        }
+    }
+}
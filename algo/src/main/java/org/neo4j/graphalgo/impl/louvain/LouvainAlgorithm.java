@@ -18,6 +18,9 @@
  */
 package org.neo4j.graphalgo.impl.louvain;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
 import java.util.stream.Stream;
 
 /**
@@ -39,10 +42,19 @@ public interface LouvainAlgorithm {
 
         public final long nodeId;
         public final long community;
+        // communities on every level, only provided by hierarchical algorithms
+        public final List<Long> communities;
 
-        public Result(long nodeId, int community) {
+        public Result(long nodeId, long community) {
+            this(nodeId, community, null);
+        }
+
+        public Result(long nodeId, long community, long[] communities) {
             this.nodeId = nodeId;
             this.community = community;
+            this.communities = communities != null
+                    ? LongStream.of(communities).boxed().collect(Collectors.toList())
+                    : null;
         }
 
         @Override
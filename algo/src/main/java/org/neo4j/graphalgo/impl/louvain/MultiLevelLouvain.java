@@ -0,0 +1,268 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl.louvain;
+
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.IntArray;
+import org.neo4j.graphdb.Direction;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Multi level Louvain, see {@link AbstractMultiLevelLouvain}.
+ * <p>
+ * Only the first level reads the given graph, which can be a {@code HeavyGraph} or a {@code HugeGraph}
+ * loaded with {@link Direction#BOTH}.
+ * Communities and the dendrogram are kept in {@code int} arrays and the sparse accumulators find the
+ * position of a community in an array over all nodes, so the input graph must not have more than
+ * {@link Integer#MAX_VALUE} nodes, even if it is a {@code HugeGraph}.
+ * {@link HugeMultiLevelLouvain} computes the same communities with long ids and paged state.
+ */
+public final class MultiLevelLouvain extends AbstractMultiLevelLouvain<MultiLevelLouvain> implements LouvainAlgorithm {
+
+    private static final AllocationTracker TRACKER = AllocationTracker.EMPTY;
+
+    private Graph graph;
+    private int[] communityIds;
+
+    /**
+     * @param weighted       whether to read relationship weights from the graph or count every relationship as {@code 1.0}
+     * @param maxIterations  maximum number of local moving iterations per level
+     * @param maxLevels      maximum number of levels
+     */
+    public MultiLevelLouvain(
+            Graph graph,
+            boolean weighted,
+            ExecutorService executorService,
+            int concurrency,
+            int maxIterations,
+            int maxLevels) {
+        super(graph.nodeCount(), weighted, executorService, concurrency, maxIterations, maxLevels, TRACKER);
+        if (graph.nodeCount() > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException(
+                    "Louvain supports at most " + Integer.MAX_VALUE + " nodes, the graph has " + graph.nodeCount()
+                            + ", use HugeMultiLevelLouvain instead");
+        }
+        this.graph = graph;
+    }
+
+    @Override
+    public MultiLevelLouvain compute() {
+        super.compute();
+        communityIds = toArray(communities());
+        return this;
+    }
+
+    @Override
+    Ids newIds(long size) {
+        // only the relationships of an aggregated graph may exceed the range of an array
+        if (size > Integer.MAX_VALUE) {
+            return new PagedIds(IntArray.newArray(size, TRACKER));
+        }
+        return new ArrayIds(new int[(int) size]);
+    }
+
+    @Override
+    NeighborCommunities newNeighborCommunities() {
+        return new DenseNeighborCommunities((int) nodeCount);
+    }
+
+    @Override
+    LevelGraph inputGraph() {
+        return new InputGraph(graph, weighted);
+    }
+
+    @Override
+    long toOriginalNodeId(long node) {
+        return graph.toOriginalNodeId((int) node);
+    }
+
+    private static int[] toArray(Ids ids) {
+        // node indexed ids always fit into an array
+        return ((ArrayIds) ids).array;
+    }
+
+    @Override
+    public int[] getCommunityIds() {
+        return communityIds;
+    }
+
+    @Override
+    public int getCommunityCount() {
+        int max = -1;
+        for (int community : communityIds) {
+            max = Math.max(max, community);
+        }
+        return max + 1;
+    }
+
+    /**
+     * @return the community of every node for every level
+     */
+    public int[][] getDendrogram() {
+        final List<Ids> dendrogram = dendrogram();
+        final int[][] levels = new int[dendrogram.size()][];
+        for (int level = 0; level < levels.length; level++) {
+            levels[level] = toArray(dendrogram.get(level));
+        }
+        return levels;
+    }
+
+    @Override
+    public MultiLevelLouvain release() {
+        graph = null;
+        return super.release();
+    }
+
+    private static final class ArrayIds implements Ids {
+        private final int[] array;
+
+        private ArrayIds(int[] array) {
+            this.array = array;
+        }
+
+        @Override
+        public long get(long index) {
+            return array[(int) index];
+        }
+
+        @Override
+        public void set(long index, long value) {
+            array[(int) index] = (int) value;
+        }
+
+        @Override
+        public void fill(long value) {
+            Arrays.fill(array, (int) value);
+        }
+
+        @Override
+        public long release() {
+            return 0L;
+        }
+    }
+
+    private static final class PagedIds implements Ids {
+        private final IntArray array;
+
+        private PagedIds(IntArray array) {
+            this.array = array;
+        }
+
+        @Override
+        public long get(long index) {
+            return array.get(index);
+        }
+
+        @Override
+        public void set(long index, long value) {
+            array.set(index, (int) value);
+        }
+
+        @Override
+        public void fill(long value) {
+            array.fill((int) value);
+        }
+
+        @Override
+        public long release() {
+            return array.release();
+        }
+    }
+
+    /**
+     * the graph of the first level, all relationships have to be loaded in both directions
+     */
+    private static final class InputGraph implements LevelGraph {
+        private final Graph graph;
+        private final boolean weighted;
+
+        private InputGraph(Graph graph, boolean weighted) {
+            this.graph = graph;
+            this.weighted = weighted;
+        }
+
+        @Override
+        public long nodeCount() {
+            return graph.nodeCount();
+        }
+
+        @Override
+        public void forEachNeighbor(long node, NeighborConsumer consumer) {
+            if (weighted) {
+                graph.forEachRelationship((int) node, Direction.BOTH, (sourceNodeId, targetNodeId, relationId, weight) -> {
+                    consumer.accept(targetNodeId, weight);
+                    return true;
+                });
+            } else {
+                graph.forEachRelationship((int) node, Direction.BOTH, (sourceNodeId, targetNodeId, relationId) -> {
+                    consumer.accept(targetNodeId, 1.0);
+                    return true;
+                });
+            }
+        }
+
+        @Override
+        public LevelGraph concurrentCopy() {
+            if (graph instanceof HugeGraph) {
+                // huge graphs keep a cursor per instance
+                final Object copy = ((HugeGraph) graph).concurrentCopy();
+                if (copy instanceof Graph) {
+                    return new InputGraph((Graph) copy, weighted);
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public void release() {
+        }
+    }
+
+    /**
+     * finds the position of a community in an array over all nodes
+     */
+    private static final class DenseNeighborCommunities extends NeighborCommunities {
+        private final int[] positions;
+
+        private DenseNeighborCommunities(int capacity) {
+            positions = new int[capacity];
+            Arrays.fill(positions, -1);
+        }
+
+        @Override
+        int positionOf(long community) {
+            return positions[(int) community];
+        }
+
+        @Override
+        void setPosition(long community, int position) {
+            positions[(int) community] = position;
+        }
+
+        @Override
+        void removePosition(long community) {
+            positions[(int) community] = -1;
+        }
+    }
+}
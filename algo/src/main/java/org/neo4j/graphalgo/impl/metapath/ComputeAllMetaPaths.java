@@ -17,6 +17,8 @@ import java.util.*;
 
 public class ComputeAllMetaPaths extends MetaPathComputation {
 
+    private static final String DEBUG_FILE = "Precomputed_MetaPaths_Debug.txt";
+
     private HeavyGraph graph;
     private LabelMapping labelMapping;
     private int metaPathLength;
@@ -26,16 +28,39 @@ public class ComputeAllMetaPaths extends MetaPathComputation {
     private long startTime;
     ExecutorService executor;
 
+    public ComputeAllMetaPaths(HeavyGraph graph, LabelMapping labelMapping, int metaPathLength, ExecutorService executor) throws IOException {
+        this(graph, labelMapping, metaPathLength, System.out, executor);
+    }
+
     public ComputeAllMetaPaths(HeavyGraph graph, LabelMapping labelMapping, int metaPathLength, PrintStream out, ExecutorService executor) throws IOException {
+        this(graph, labelMapping, metaPathLength, out, null, executor);
+    }
+
+    /**
+     * @param debugOut receives the progress of the computation, null writes it to the debug file
+     * @param executor runs the computation, it is not shut down
+     */
+    public ComputeAllMetaPaths(HeavyGraph graph, LabelMapping labelMapping, int metaPathLength, PrintStream out, PrintStream debugOut, ExecutorService executor) {
         this.graph = graph;
         this.labelMapping = labelMapping;
         this.metaPathLength = metaPathLength;
         this.out = out;//ends up in root/tests //or in dockerhome
-        this.debugOut = new PrintStream(new FileOutputStream("Precomputed_MetaPaths_Debug.txt"));
+        this.debugOut = debugOut;
         this.executor = executor;
     }
 
     public Map<MetaPath, Long> compute() {
+        if (debugOut != null) {
+            return compute(debugOut);
+        }
+        try (PrintStream debugOut = new PrintStream(new FileOutputStream(DEBUG_FILE))) {
+            return compute(debugOut);
+        } catch (FileNotFoundException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Map<MetaPath, Long> compute(PrintStream debugOut) {
         debugOut.println("started computation");
         debugOut.println("length: " + metaPathLength);
         startTime = System.nanoTime();
@@ -43,7 +68,7 @@ public class ComputeAllMetaPaths extends MetaPathComputation {
         Map<MetaPath,Long> pathResults = computeMetaPaths();
 
         long endTime = System.nanoTime();
-        System.out.println("calculation took: " + String.valueOf(endTime - startTime));
+        out.println("calculation took: " + String.valueOf(endTime - startTime));
         debugOut.println("actual amount of metaPaths: " + printCount);
         debugOut.println("total time past: " + (endTime - startTime));
         debugOut.println("finished computation");
@@ -110,8 +135,6 @@ public class ComputeAllMetaPaths extends MetaPathComputation {
             futures.add(future);
         }
 
-        executor.shutdown();
-
         try {
             //executor.awaitTermination(100, TimeUnit.SECONDS);
             for (Future<ObjectLongMap<MetaPath>> future : futures) {
@@ -0,0 +1,208 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongSet;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import com.carrotsearch.hppc.cursors.LongCursor;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * Finds all meta-paths which connect any of the start nodes with any of the end nodes.
+ * <p>
+ * Instead of expanding every path from the start nodes for the whole length, a path of
+ * {@code k} relationships is split at its middle node. The start side is expanded for
+ * {@code ceil(k/2)} and the end side for {@code floor(k/2)} steps over the {@link TypedAdjacency},
+ * every frontier maps the reached nodes to the packed (see {@link PackedMetaPath}) meta-paths
+ * they are reached by. A meta-path connects both sets if a start side and an end side path
+ * meet in the same node, so the frontiers only grow to roughly the square root of a full
+ * forward expansion. Relationships are undirected, the end side paths are reversed when joined.
+ * <p>
+ * The paths of high degree nodes, whose expansion is the most expensive, are read from a
+ * {@link HighDegreeMetaPathIndex} if one is given, see {@link #setHighDegreeIndex(HighDegreeMetaPathIndex)}.
+ */
+public class ComputeAllMetaPathsBetweenInstances extends MetaPathComputation {
+
+    private final TypedAdjacency adjacency;
+    private final LabelMapping labelMapping;
+    private final PackedMetaPath codec;
+    private final int metaPathLength;
+    private HighDegreeMetaPathIndex highDegreeIndex;
+
+    public ComputeAllMetaPathsBetweenInstances(HeavyGraph graph, LabelMapping labelMapping, int metaPathLength) {
+        this(TypedAdjacency.of(graph, labelMapping), labelMapping, metaPathLength);
+    }
+
+    public ComputeAllMetaPathsBetweenInstances(TypedAdjacency adjacency, LabelMapping labelMapping, int metaPathLength) {
+        this.adjacency = adjacency;
+        this.labelMapping = labelMapping;
+        this.codec = new PackedMetaPath(labelMapping);
+        this.metaPathLength = metaPathLength;
+        if (metaPathLength > codec.maxLength()) {
+            throw new IllegalArgumentException("meta-path length " + metaPathLength + " exceeds the maximum of " + codec.maxLength() + " for this schema");
+        }
+    }
+
+    /**
+     * @return the meta-paths with at least one relationship and at most {@code metaPathLength} nodes
+     * from any start node to any end node, in the format of {@link ComputeAllMetaPaths.MetaPath#toString()}
+     */
+    public HashSet<String> compute(Collection<Integer> startNodes, Collection<Integer> endNodes) {
+        LongSet packed = computePacked(startNodes, endNodes);
+        HashSet<String> result = new HashSet<>(packed.size());
+        for (LongCursor cursor : packed) {
+            result.add(codec.decode(cursor.value).toString());
+        }
+        return result;
+    }
+
+    /**
+     * @return meta-paths encoded with {@link #codec()}
+     */
+    public LongSet computePacked(Collection<Integer> startNodes, Collection<Integer> endNodes) {
+        int maxRelationships = metaPathLength - 1;
+        List<IntObjectMap<LongSet>> forward = expand(startNodes, (maxRelationships + 1) / 2);
+        List<IntObjectMap<LongSet>> backward = expand(endNodes, maxRelationships / 2);
+
+        LongSet result = new LongHashSet();
+        for (int relationships = 1; relationships <= maxRelationships; relationships++) {
+            join(forward.get((relationships + 1) / 2), backward.get(relationships / 2), result);
+        }
+        return result;
+    }
+
+    public PackedMetaPath codec() {
+        return codec;
+    }
+
+    /**
+     * read the meta-paths of the nodes in the index instead of expanding them,
+     * the index must have been computed by {@link MetaPathPrecomputeHighDegreeNodes} for the same graph
+     */
+    public void setHighDegreeIndex(HighDegreeMetaPathIndex highDegreeIndex) {
+        if (highDegreeIndex != null && (highDegreeIndex.codec().labelBits() != codec.labelBits()
+                || highDegreeIndex.codec().typeBits() != codec.typeBits())) {
+            throw new IllegalArgumentException("the high degree index has been computed for a graph with different labels");
+        }
+        this.highDegreeIndex = highDegreeIndex;
+    }
+
+    /**
+     * frontiers of depth 0 to {@code depth}, mapping every reached node to the paths reaching it
+     */
+    private List<IntObjectMap<LongSet>> expand(Collection<Integer> nodes, int depth) {
+        List<IntObjectMap<LongSet>> frontiers = new ArrayList<>(depth + 1);
+        IntObjectMap<LongSet> frontier = new IntObjectHashMap<>(nodes.size());
+        List<Integer> precomputed = new ArrayList<>();
+        for (int node : nodes) {
+            if (isPrecomputed(node, depth)) {
+                precomputed.add(node);
+            } else {
+                paths(frontier, node).add(codec.start(labelMapping.getLabel(node)));
+            }
+        }
+        frontiers.add(frontier);
+
+        for (int d = 0; d < depth; d++) {
+            IntObjectMap<LongSet> next = new IntObjectHashMap<>();
+            for (IntObjectCursor<LongSet> cursor : frontier) {
+                int end = adjacency.end(cursor.key);
+                for (int i = adjacency.start(cursor.key); i < end; i++) {
+                    int key = adjacency.key(i);
+                    short type = TypedAdjacency.type(key);
+                    short label = TypedAdjacency.label(key);
+                    LongSet targetPaths = paths(next, adjacency.target(i));
+                    for (LongCursor path : cursor.value) {
+                        targetPaths.add(codec.extend(path.value, type, label));
+                    }
+                }
+            }
+            frontiers.add(next);
+            frontier = next;
+        }
+        // added after the expansion, the index already contains the paths of every depth
+        for (int node : precomputed) {
+            addPrecomputed(node, frontiers);
+        }
+        return frontiers;
+    }
+
+    private boolean isPrecomputed(int node, int depth) {
+        return highDegreeIndex != null
+                && highDegreeIndex.metaPathLength() > depth
+                && highDegreeIndex.contains(node);
+    }
+
+    /**
+     * add the paths of a node in the index to the frontiers of their depth
+     */
+    private void addPrecomputed(int node, List<IntObjectMap<LongSet>> frontiers) {
+        paths(frontiers.get(0), node).add(codec.start(labelMapping.getLabel(node)));
+        highDegreeIndex.forEach(node, (packedMetaPath, endNodes) -> {
+            int depth = codec.length(packedMetaPath) - 1;
+            if (depth < frontiers.size()) {
+                IntObjectMap<LongSet> frontier = frontiers.get(depth);
+                for (int end = endNodes.next(); end != -1; end = endNodes.next()) {
+                    paths(frontier, end).add(packedMetaPath);
+                }
+            }
+            return true;
+        });
+    }
+
+    /**
+     * combine every start side path with every end side path which reach the same middle node
+     */
+    private void join(IntObjectMap<LongSet> forward, IntObjectMap<LongSet> backward, LongSet result) {
+        // probe the larger frontier with the nodes of the smaller one
+        boolean forwardSmaller = forward.size() <= backward.size();
+        IntObjectMap<LongSet> smaller = forwardSmaller ? forward : backward;
+        IntObjectMap<LongSet> larger = forwardSmaller ? backward : forward;
+        for (IntObjectCursor<LongSet> cursor : smaller) {
+            LongSet matches = larger.get(cursor.key);
+            if (matches == null) {
+                continue;
+            }
+            LongSet prefixes = forwardSmaller ? cursor.value : matches;
+            LongSet suffixes = forwardSmaller ? matches : cursor.value;
+            for (LongCursor suffix : suffixes) {
+                // the end side path runs from an end node to the middle node
+                ComputeAllMetaPaths.MetaPath reversed = codec.decode(suffix.value);
+                short[] ids = reversed.path;
+                for (LongCursor prefix : prefixes) {
+                    long path = prefix.value;
+                    for (int i = reversed.length - 2; i > 0; i -= 2) {
+                        path = codec.extend(path, ids[i], ids[i - 1]);
+                    }
+                    result.add(path);
+                }
+            }
+        }
+    }
+
+    private static LongSet paths(IntObjectMap<LongSet> frontier, int node) {
+        LongSet paths = frontier.get(node);
+        if (paths == null) {
+            paths = new LongHashSet();
+            frontier.put(node, paths);
+        }
+        return paths;
+    }
+
+    @Override
+    public ComputeAllMetaPathsBetweenInstances me() {
+        return this;
+    }
+
+    @Override
+    public ComputeAllMetaPathsBetweenInstances release() {
+        return null;
+    }
+}
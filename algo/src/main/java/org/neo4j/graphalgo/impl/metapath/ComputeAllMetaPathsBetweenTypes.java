@@ -1,18 +1,17 @@
 package org.neo4j.graphalgo.impl.metapath;
 
 import org.bouncycastle.crypto.OutputLengthException;
-import org.neo4j.graphdb.*;
-
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.impl.metapath.labels.Tokens;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.*;
-import java.util.concurrent.Semaphore;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
 import static java.lang.Math.max;
-import static java.lang.Math.toIntExact;
 
 @Deprecated
 public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
@@ -22,8 +21,7 @@ public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
     public GraphDatabaseAPI api;
     private HashMap<Integer, HashSet<AbstractMap.SimpleEntry<Integer, Integer>>> adjacentNodesDict = new HashMap<>(); //adjNodeID, adjEdgeID
     //private HashMap<Integer, Label> nodeIDLabelsDict = new HashMap<Integer, Label>();
-    private List<Node> nodes = null;
-    private List<Relationship> rels = null;
+    private SchemaStatistics statistics;
     private HashSet<String> duplicateFreeMetaPaths = new HashSet<>();
     private PrintStream out;
     int printCount = 0;
@@ -35,13 +33,11 @@ public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
     private Integer type2ID;
     private HashMap<Integer, String> idTypeMappingNodes = new HashMap<>();
     private HashMap<Integer, String> idTypeMappingEdges = new HashMap<>();
-    final int MAX_NOF_THREADS = 12; //TODO why not full utilization?
-    final Semaphore threadSemaphore = new Semaphore(MAX_NOF_THREADS);
     private HashSet<Integer> nodeLabelIDs = new HashSet<>();
     private HashMap<String, Double> twoMPWeightDict = new HashMap<>();
-    private HashMap<String, Integer> countSingleTwoMPDict = new HashMap<>();
+    private HashMap<String, Long> countSingleTwoMPDict = new HashMap<>();
     private HashMap<String, Double> metaPathWeightsDict = new HashMap<>();
-    private Integer countAllTwoMP;
+    private long countAllTwoMP;
 
     public ComputeAllMetaPathsBetweenTypes(int metaPathLength, String type1, String type2, GraphDatabaseAPI api) throws Exception {
         this.metaPathLength = metaPathLength;
@@ -56,21 +52,9 @@ public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
         debugOut.println("START");
         startTime = System.nanoTime();
         getMetaGraph();
-        estimatedCount = Math.pow(nodes.size(), metaPathLength + 1);
+        estimatedCount = Math.pow(nodeLabelIDs.size(), metaPathLength + 1);
         initializeDictionaries();
-        ArrayList<ComputeMetaPathFromNodeLabelThread> threads = new ArrayList<>();
-        int i = 0;
-
-        ComputeMetaPathFromNodeLabelThread thread = new ComputeMetaPathFromNodeLabelThread(this, "thread-" + i, type1ID, metaPathLength);
-        thread.start();
-        threads.add(thread);
-
-        try {
-            thread.join();
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-
+        computeMetaPathFromNodeLabel(type1ID, metaPathLength);
         computeMetaPathWeights(duplicateFreeMetaPaths);
         int numComputedMP = duplicateFreeMetaPaths.size();
         int numComputedWeights = metaPathWeightsDict.size();
@@ -82,48 +66,43 @@ public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
     }
 
     private void getMetaGraph() throws Exception {
-        org.neo4j.graphdb.Result result = null;
-        try (Transaction tx = api.beginTx()) {
-            result = api.execute("CALL apoc.meta.graph()");
-            tx.success();
+        Tokens labels = statistics().labels();
+        for (int i = 0; i < labels.size(); i++) {
+            nodeLabelIDs.add((int) labels.ids[i]);
+            this.idTypeMappingNodes.put((int) labels.ids[i], labels.names[i]);
         }
-        Map<String, Object> row = result.next();
-        nodes = (List<Node>) row.get("nodes");
-        rels = (List<Relationship>) row.get("relationships");
-        for (Node node : nodes) {
-            nodeLabelIDs.add(toIntExact(node.getId()));
-            String nodeType = node.getLabels().iterator().next().name();
-            this.idTypeMappingNodes.put(toIntExact(node.getId()), nodeType);
-            //debugOut.println(nodeType);
-            if (this.type1.equals(nodeType)) {
-                this.type1ID = toIntExact(node.getId());
-            }
-            if (this.type2.equals(nodeType)) {
-                this.type2ID = toIntExact(node.getId());
-            }
+        Tokens types = statistics().types();
+        for (int i = 0; i < types.size(); i++) {
+            this.idTypeMappingEdges.put((int) types.ids[i], types.names[i]);
         }
-        if (this.type1 == null || this.type2 == null) {
+        this.type1ID = (int) labels.id(type1);
+        this.type2ID = (int) labels.id(type2);
+        if (this.type1ID == -1 || this.type2ID == -1) {
             throw new Exception("None of the types found in meta-graph");
         }
     }
 
     private void initializeDictionaries() {
-        for (Node node : nodes) {
-            int nodeID = toIntExact(node.getId());
-
-            HashSet<AbstractMap.SimpleEntry<Integer, Integer>> adjNodesSet = new HashSet<>();
-            adjacentNodesDict.putIfAbsent(toIntExact(nodeID), adjNodesSet);
-            for (Relationship rel : rels) {
-                //debugOut.println(rel);
-                //debugOut.println(rel.getAllProperties());
-                try {
-                    int adjNodeID = toIntExact(rel.getOtherNodeId(node.getId()));
-                    int adjEdgeID = toIntExact(rel.getId());
-                    this.idTypeMappingEdges.put(toIntExact(adjEdgeID), rel.getType().name());
-                    adjacentNodesDict.get(nodeID).add(new AbstractMap.SimpleEntry<>(adjNodeID, adjEdgeID));
-                } catch (Exception e) {/*prevent duplicates*/}
-            }
+        for (int nodeID : nodeLabelIDs) {
+            adjacentNodesDict.putIfAbsent(nodeID, new HashSet<>());
+        }
+        // the statistics are symmetric, so every label is adjacent to all labels it shares a relationship with
+        statistics().forEach((startLabel, type, endLabel, count) ->
+                adjacentNodesDict.get((int) startLabel).add(new AbstractMap.SimpleEntry<>((int) endLabel, (int) type)));
+    }
+
+    /**
+     * (label, type, label) counts of the graph, loaded on first access
+     */
+    private SchemaStatistics statistics() {
+        if (statistics == null) {
+            statistics = SchemaStatistics.load(api, concurrency, Pools.DEFAULT);
         }
+        return statistics;
+    }
+
+    public void setStatistics(SchemaStatistics statistics) {
+        this.statistics = statistics;
     }
 
     public void computeMetaPathFromNodeLabel(int nodeID, int metaPathLength) { //TODO will it be faster if not node but nodeID with dicts?
@@ -133,51 +112,51 @@ public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
     }
 
     private void computeMetaPathFromNodeLabel(ArrayList<Integer> pCurrentMetaPath, int pCurrentInstance, int pMetaPathLength) {
-        Stack<ArrayList<Integer>> st_allMetaPaths = new Stack();
-        Stack<Integer> st_currentNode = new Stack();
-        Stack<Integer> st_metaPathLength = new Stack();
-        st_allMetaPaths.push(pCurrentMetaPath);
-        st_currentNode.push(pCurrentInstance);
-        st_metaPathLength.push(pMetaPathLength);
-
-        ArrayList<Integer> currentMetaPath;
-        int currentInstance;
-        int metaPathLength;
-
-        while (!st_allMetaPaths.empty() && !st_currentNode.empty() && !st_metaPathLength.empty()) {
-            currentMetaPath = st_allMetaPaths.pop();
-            currentInstance = st_currentNode.pop();
-            metaPathLength = st_metaPathLength.pop();
+        invoke(new ExpandTask(pCurrentMetaPath, pCurrentInstance, pMetaPathLength));
+    }
+
+    /**
+     * expands all meta-paths of the given prefix, every adjacent node label
+     * becomes a subtask which can be stolen by idle workers of the pool
+     */
+    private final class ExpandTask extends RecursiveAction {
+        private final ArrayList<Integer> currentMetaPath;
+        private final int currentInstance;
+        private final int metaPathLength;
+
+        private ExpandTask(ArrayList<Integer> currentMetaPath, int currentInstance, int metaPathLength) {
+            this.currentMetaPath = currentMetaPath;
+            this.currentInstance = currentInstance;
+            this.metaPathLength = metaPathLength;
+        }
 
+        @Override
+        protected void compute() {
             if (metaPathLength <= 0) {
-                continue;
+                return;
             }
 
-            HashSet<AbstractMap.SimpleEntry<Integer, Integer>> outgoingEdges = new HashSet<>();
-            outgoingEdges.addAll(adjacentNodesDict.get(currentInstance));
+            HashSet<AbstractMap.SimpleEntry<Integer, Integer>> outgoingEdges = adjacentNodesDict.get(currentInstance);
+            List<ExpandTask> subtasks = new ArrayList<>(outgoingEdges.size());
             for (AbstractMap.SimpleEntry<Integer, Integer> edge : outgoingEdges) {
                 ArrayList<Integer> newMetaPath = copyMetaPath(currentMetaPath);
                 int nodeID = edge.getKey();
                 int edgeID = edge.getValue();
                 newMetaPath.add(edgeID);
                 newMetaPath.add(nodeID);
+
                 if (nodeID == type2ID) {
+                    String joinedMetaPath = newMetaPath.stream().map(Object::toString).collect(Collectors.joining("|"));
                     synchronized (duplicateFreeMetaPaths) {
-                        // add new meta-path to threads
-                        String joinedMetaPath;
-                        joinedMetaPath = newMetaPath.stream().map(Object::toString).collect(Collectors.joining("|"));
                         duplicateFreeMetaPaths.add(joinedMetaPath);
                         out.println(joinedMetaPath);
                     }
                 }
-                st_allMetaPaths.push(newMetaPath);
-                st_currentNode.push(nodeID);
-                st_metaPathLength.push(metaPathLength - 1);
-                //debugOut.println("finished recursion of length: " + (metaPathLength - 1));
+
+                subtasks.add(new ExpandTask(newMetaPath, nodeID, metaPathLength - 1));
             }
+            forkAll(subtasks);
         }
-        // System.out.println("These are all our metapaths from node "+ pCurrentInstance);
-        //System.out.println(duplicateFreeMetaPaths);
     }
 
     private void addAndLogMetaPath(ArrayList<Integer> newMetaPath) {
@@ -218,57 +197,30 @@ public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
     }
 
     public void getTwoMPWeights() throws InterruptedException {
-        countAllTwoMP = 0;
-        ArrayList<ComputeTwoMPWeightsThread> threads = new ArrayList<>(MAX_NOF_THREADS);
-
-        List<HashSet<Integer>> labelIDSets = divideIntoThreadSetsInt(nodeLabelIDs);
-
-        int i = 0;
-        for (HashSet<Integer> labelIDSet : labelIDSets) {
-            threadSemaphore.acquire();
-            ComputeTwoMPWeightsThread thread = new ComputeTwoMPWeightsThread(this, "thread-" + i, labelIDSet);
-            thread.start();
-            threads.add(thread);
-            i++;
-            threadSemaphore.release();
-        }
-        try {
-            for (ComputeTwoMPWeightsThread thread : threads) {
-                thread.join();
-            }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
-        final int COUNT_ALL_TWO_MP = countAllTwoMP; //need to be final to be used in lambda expression
+        countAllTwoMP = 0L;
+        // the counts are plain lookups in the statistics, not worth to be parallelized
+        computeTwoMPWeights(nodeLabelIDs);
+        final long COUNT_ALL_TWO_MP = countAllTwoMP; //need to be final to be used in lambda expression
         countSingleTwoMPDict.forEach((twoMP, count) -> twoMPWeightDict.put(twoMP, (double) count / (COUNT_ALL_TWO_MP))); //not COUNT_ALL_TWO_MP * 2, because we already have the sum of twoMP and not the number of edges
     }
 
     public void computeTwoMPWeights(HashSet<Integer> labelIDSet) {
-        org.neo4j.graphdb.Result result = null;
-
         for (int nodeID1 : labelIDSet) {
-            String nodeLabel1 = idTypeMappingNodes.get(nodeID1);
-            HashSet<AbstractMap.SimpleEntry<Integer, Integer>> adjacentNodes = adjacentNodesDict.get(nodeID1);
-            for (AbstractMap.SimpleEntry<Integer, Integer> edgeNodePair : adjacentNodes) {
-                int nodeID2 = edgeNodePair.getKey();
-                String nodeLabel2 = idTypeMappingNodes.get(nodeID2);
-                int edgeID1 = edgeNodePair.getValue();
-                String edgeLabel1 = idTypeMappingEdges.get(edgeID1);
-                try (Transaction tx = api.beginTx()) {
-                    result = api.execute("MATCH (:`" + nodeLabel1 + "`)-[:`" + edgeLabel1 + "`]-(:`" + nodeLabel2 + "`) RETURN count(*)");
-                    tx.success();
-                }
-                Map<String, Object> row = result.next();
-                int countSingleTwoMP = toIntExact((long) row.get("count(*)"));
-                String twoMP = nodeID1 + "|" + edgeID1 + "|" + nodeID2;
+            computeTwoMPWeights(nodeID1);
+        }
+    }
 
-                synchronized (countSingleTwoMPDict) {
-                    countSingleTwoMPDict.put(twoMP, countSingleTwoMP);
-                }
-                synchronized (countAllTwoMP) {
-                    countAllTwoMP += countSingleTwoMP;
-                }
-            }
+    private void computeTwoMPWeights(int nodeID1) {
+        HashSet<AbstractMap.SimpleEntry<Integer, Integer>> adjacentNodes = adjacentNodesDict.get(nodeID1);
+        for (AbstractMap.SimpleEntry<Integer, Integer> edgeNodePair : adjacentNodes) {
+            int nodeID2 = edgeNodePair.getKey();
+            int edgeID1 = edgeNodePair.getValue();
+            // the label and type ids are the ids of the statistics
+            long countSingleTwoMP = statistics().count((short) nodeID1, (short) edgeID1, (short) nodeID2);
+            String twoMP = nodeID1 + "|" + edgeID1 + "|" + nodeID2;
+
+            countSingleTwoMPDict.put(twoMP, countSingleTwoMP);
+            countAllTwoMP += countSingleTwoMP;
         }
     }
 
@@ -276,79 +228,38 @@ public class ComputeAllMetaPathsBetweenTypes extends MetaPathComputation {
     public void computeMetaPathWeights(HashSet<String> metaPaths) throws InterruptedException {
         long startTime = System.nanoTime();
         getTwoMPWeights();
-        ArrayList<ComputeWeightsThread> threads = new ArrayList<>(MAX_NOF_THREADS);
-
-        List<HashSet<String>> metaPathsThreadSets = divideIntoThreadSetsStr(metaPaths);
-
-        int i = 0;
-        for (HashSet<String> metaPathsSet : metaPathsThreadSets) {
-            threadSemaphore.acquire();
-            ComputeWeightsThread thread = new ComputeWeightsThread(this, "thread-" + i, metaPathsSet);
-            thread.start();
-            threads.add(thread);
-            i++;
-            threadSemaphore.release();
-        }
-        try {
-            for (ComputeWeightsThread thread : threads) {
-                thread.join();
-            }
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+        forEachParallel(metaPaths, this::computeWeight);
         long endTime = System.nanoTime();
         debugOut.println("Time for computation of weights: " + (endTime - startTime));
     }
 
     public void computeWeights(HashSet<String> metaPaths) {
         for (String metaPath : metaPaths) {
-            double metaPathWeight = 1;
-            int thirdDelimiterIndex = 0;
-            int thirdDelimiterIndexOld;
-            int lengthOfLastMPID = 0;
-            do { //TODO end of meta-path -> indexOf
-                thirdDelimiterIndexOld = thirdDelimiterIndex;
-                thirdDelimiterIndex = metaPath.indexOf("|", metaPath.indexOf("|", metaPath.indexOf("|", thirdDelimiterIndexOld - lengthOfLastMPID) + 1) + 1); //thirdDelimiterIndex - lengthOfLastMPID because last node in in next iteration first node, + 1 because we do not want the same delimiter again
-                if (thirdDelimiterIndex == -1) { //if indexOf returns -1 -> end of meta path
-                    String twoMP = metaPath.substring(max(thirdDelimiterIndexOld - lengthOfLastMPID, 0), metaPath.length());
-                    metaPathWeight *= twoMPWeightDict.get(twoMP);
-                    break;
-                }
-                String twoMP = metaPath.substring(max(thirdDelimiterIndexOld - lengthOfLastMPID, 0), thirdDelimiterIndex);
-                lengthOfLastMPID = (twoMP.length() - 1) - twoMP.lastIndexOf("|"); //- 1 because everything else is 0-indexed
-                metaPathWeight *= twoMPWeightDict.get(twoMP);
-            } while (true);
-            //TODO make synchronization more efficient? batches?
-            synchronized (metaPathWeightsDict) {
-                metaPathWeightsDict.put(metaPath, metaPathWeight);
-            }
-        }
-    }
-
-    private List<HashSet<String>> divideIntoThreadSetsStr(HashSet<String> set) {
-        List<HashSet<String>> threadSets = new ArrayList<>(MAX_NOF_THREADS);
-        for (int k = 0; k < MAX_NOF_THREADS; k++) {
-            threadSets.add(new HashSet<String>());
+            computeWeight(metaPath);
         }
-
-        int index = 0;
-        for (String element : set) {
-            threadSets.get(index++ % MAX_NOF_THREADS).add(element);
-        }
-        return threadSets;
     }
 
-    private List<HashSet<Integer>> divideIntoThreadSetsInt(HashSet<Integer> set) {
-        List<HashSet<Integer>> threadSets = new ArrayList<>(MAX_NOF_THREADS);
-        for (int k = 0; k < MAX_NOF_THREADS; k++) {
-            threadSets.add(new HashSet<Integer>());
-        }
-
-        int index = 0;
-        for (Integer element : set) {
-            threadSets.get(index++ % MAX_NOF_THREADS).add(element);
+    private void computeWeight(String metaPath) {
+        double metaPathWeight = 1;
+        int thirdDelimiterIndex = 0;
+        int thirdDelimiterIndexOld;
+        int lengthOfLastMPID = 0;
+        do { //TODO end of meta-path -> indexOf
+            thirdDelimiterIndexOld = thirdDelimiterIndex;
+            thirdDelimiterIndex = metaPath.indexOf("|", metaPath.indexOf("|", metaPath.indexOf("|", thirdDelimiterIndexOld - lengthOfLastMPID) + 1) + 1); //thirdDelimiterIndex - lengthOfLastMPID because last node in in next iteration first node, + 1 because we do not want the same delimiter again
+            if (thirdDelimiterIndex == -1) { //if indexOf returns -1 -> end of meta path
+                String twoMP = metaPath.substring(max(thirdDelimiterIndexOld - lengthOfLastMPID, 0), metaPath.length());
+                metaPathWeight *= twoMPWeightDict.get(twoMP);
+                break;
+            }
+            String twoMP = metaPath.substring(max(thirdDelimiterIndexOld - lengthOfLastMPID, 0), thirdDelimiterIndex);
+            lengthOfLastMPID = (twoMP.length() - 1) - twoMP.lastIndexOf("|"); //- 1 because everything else is 0-indexed
+            metaPathWeight *= twoMPWeightDict.get(twoMP);
+        } while (true);
+        //TODO make synchronization more efficient? batches?
+        synchronized (metaPathWeightsDict) {
+            metaPathWeightsDict.put(metaPath, metaPathWeight);
         }
-        return threadSets;
     }
 
     public void setIDTypeMappingNodes(HashMap<Integer, String> idTypeMappingNodes) {
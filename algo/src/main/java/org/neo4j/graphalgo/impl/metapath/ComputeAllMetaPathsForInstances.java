@@ -8,12 +8,18 @@ package org.neo4j.graphalgo.impl.metapath;
         import java.io.FileOutputStream;
         import java.io.PrintStream;
         import java.io.*;
+        import java.nio.file.Files;
+        import java.nio.file.Path;
+        import java.nio.file.Paths;
         import java.util.*;
-        import java.util.regex.Pattern;
+        import java.util.concurrent.RecursiveAction;
         import java.util.stream.Collectors;
 
         import static java.lang.Float.max;
 
+/**
+ * @deprecated use {@link ComputeAllMetaPathsBetweenInstances}
+ */
 @Deprecated
 public class ComputeAllMetaPathsForInstances extends MetaPathComputation {
 
@@ -30,7 +36,7 @@ public class ComputeAllMetaPathsForInstances extends MetaPathComputation {
     private HashMap<AbstractMap.SimpleEntry<Integer, Integer>, Integer> labelDictionary;
     private List<Integer> startNodes;
     private List<Integer> endNodes;
-    private HashMap<Integer, HashSet<AbstractMap.SimpleEntry<IntArrayList, IntArrayList>>> highDegreeIndex;
+    private HighDegreeMetaPathIndex highDegreeIndex;
 
     public ComputeAllMetaPathsForInstances(HeavyGraph graph, ArrayGraphInterface arrayGraphInterface, int metaPathLength, List<Integer> startNodes, List<Integer> endNodes) throws IOException {
         this.arrayGraphInterface = arrayGraphInterface;
@@ -43,11 +49,15 @@ public class ComputeAllMetaPathsForInstances extends MetaPathComputation {
         this.debugOut = new PrintStream(new FileOutputStream("Precomputed_MetaPaths_Instances_Debug.txt"));
         this.estimatedCount = Math.pow(arrayGraphInterface.getAllLabels().size(), metaPathLength + 1);
         this.labelDictionary = new HashMap<>();
-        this.highDegreeIndex = new HashMap<>();
         this.startNodes = startNodes;
         this.endNodes = endNodes;
+    }
 
-        readPrecomputedData();
+    /**
+     * read the meta-paths of the nodes in the index instead of expanding them
+     */
+    public void setHighDegreeIndex(HighDegreeMetaPathIndex highDegreeIndex) {
+        this.highDegreeIndex = highDegreeIndex;
     }
 
     public Result compute() {
@@ -70,45 +80,6 @@ public class ComputeAllMetaPathsForInstances extends MetaPathComputation {
         return duplicateFreeMetaPaths;
     }
 
-    private void readPrecomputedData() {
-        try(BufferedReader br = new BufferedReader(new FileReader("Precomputed_MetaPaths_HighDegree.txt"))) {
-            String line = br.readLine();
-
-            while (line != null) {
-                String[] parts = line.split(Pattern.quote(":"));
-                String[] partsForInstance = parts[1].split(Pattern.quote("-"));
-                HashSet<AbstractMap.SimpleEntry<IntArrayList, IntArrayList>> precomputedForInstance = new HashSet<>();
-                for (String part : partsForInstance) {
-                    String[] pair = part.split(Pattern.quote("="));
-
-                    String[] pathElements = pair[0].split(Pattern.quote("|"));
-                    IntArrayList pair0 = new IntArrayList();
-                    for (String pathElement : pathElements) {
-                        pair0.add(Integer.valueOf(pathElement));
-                    }
-                    String[] endElements = pair[1].split(Pattern.quote(","));
-                    IntArrayList pair1 = new IntArrayList();
-                    for (String endElement : endElements) {
-                        pair1.add(Integer.valueOf(endElement));
-                    }
-
-                    AbstractMap.SimpleEntry<IntArrayList, IntArrayList> resultPair = new AbstractMap.SimpleEntry<>(pair0, pair1);
-                    precomputedForInstance.add(resultPair);
-                }
-                IntArrayList endNodesForEmptyMetaPath = new IntArrayList();
-                endNodesForEmptyMetaPath.add(Integer.valueOf(parts[0]));
-            precomputedForInstance.add(new AbstractMap.SimpleEntry<>(new IntArrayList(), endNodesForEmptyMetaPath));
-
-                highDegreeIndex.put(Integer.valueOf(parts[0]), precomputedForInstance);
-                line = br.readLine();
-            }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
-    }
-
     private void initializeLabelDictAndInitialInstances() {
         currentLabelId = 0;
 
@@ -138,57 +109,60 @@ public class ComputeAllMetaPathsForInstances extends MetaPathComputation {
     }
 
     private void computeMetaPathsFromAllRelevantNodeLabels() {//TODO: rework for Instances
-        ArrayList<ComputeMetaPathFromNodeLabelThread> threads = new ArrayList<>();
-        int i = 0;
-        for (int nodeLabel : arrayGraphInterface.getAllLabels()) {
-            ComputeMetaPathFromNodeLabelThread thread = new ComputeMetaPathFromNodeLabelThread(this, "thread--" + i, nodeLabel, metaPathLength);
-            thread.start();
-            threads.add(thread);
-            i++;
-
-        }
-
-        for (ComputeMetaPathFromNodeLabelThread thread : threads) {
-            try {
-                thread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-            }
-        }
+        forEachParallel(arrayGraphInterface.getAllLabels(), nodeLabel -> computeMetaPathFromNodeLabel(nodeLabel, metaPathLength));
     }
 
     private void computeMetaPathFromNodeLabel(IntArrayList currentMetaPath, IntHashSet currentInstances, int metaPathLength) {
-        if (metaPathLength <= 0) {
-            return;
-        }
-
-        ArrayList<IntHashSet> nextInstances = allocateNextInstances();
-        fillNextInstances(currentInstances, nextInstances, currentMetaPath, metaPathLength);
+        invoke(new ExpandTask(currentMetaPath, currentInstances, metaPathLength));
+    }
 
-        currentInstances = null;//not sure if this helps or not
+    /**
+     * expands the meta-paths of one prefix, every (edge label, node label) pair with
+     * instances becomes a subtask which can be stolen by idle workers of the pool
+     */
+    private final class ExpandTask extends RecursiveAction {
+        private final IntArrayList currentMetaPath;
+        private final IntHashSet currentInstances;
+        private final int metaPathLength;
+
+        private ExpandTask(IntArrayList currentMetaPath, IntHashSet currentInstances, int metaPathLength) {
+            this.currentMetaPath = currentMetaPath;
+            this.currentInstances = currentInstances;
+            this.metaPathLength = metaPathLength;
+        }
 
-        for (int edgeLabel : arrayGraphInterface.getAllEdgeLabels()) {
-            for (int nodeLabel : arrayGraphInterface.getAllLabels()) {
-                int key = labelDictionary.get(new AbstractMap.SimpleEntry<>(edgeLabel, nodeLabel));
-                IntHashSet nextInstancesForLabel = nextInstances.get(key);
-                if (!nextInstancesForLabel.isEmpty()) {
-                    nextInstances.set(key, null);
+        @Override
+        protected void compute() {
+            if (metaPathLength <= 0) {
+                return;
+            }
 
-                    IntArrayList newMetaPath = copyMetaPath(currentMetaPath);
-                    newMetaPath.add(edgeLabel);
-                    newMetaPath.add(nodeLabel);
+            ArrayList<IntHashSet> nextInstances = allocateNextInstances();
+            fillNextInstances(currentInstances, nextInstances, currentMetaPath, metaPathLength);
 
-                    for (IntCursor node : nextInstancesForLabel) {
-                        if(endNodes.contains(node.value)) {
-                            addAndLogMetaPath(newMetaPath);
+            List<ExpandTask> subtasks = new ArrayList<>();
+            for (int edgeLabel : arrayGraphInterface.getAllEdgeLabels()) {
+                for (int nodeLabel : arrayGraphInterface.getAllLabels()) {
+                    int key = labelDictionary.get(new AbstractMap.SimpleEntry<>(edgeLabel, nodeLabel));
+                    IntHashSet nextInstancesForLabel = nextInstances.get(key);
+                    if (!nextInstancesForLabel.isEmpty()) {
+                        nextInstances.set(key, null);
+
+                        IntArrayList newMetaPath = copyMetaPath(currentMetaPath);
+                        newMetaPath.add(edgeLabel);
+                        newMetaPath.add(nodeLabel);
+
+                        for (IntCursor node : nextInstancesForLabel) {
+                            if(endNodes.contains(node.value)) {
+                                addAndLogMetaPath(newMetaPath);
+                            }
                         }
-                    }
 
-                    computeMetaPathFromNodeLabel(newMetaPath, nextInstancesForLabel, metaPathLength - 1);
-
-                    nextInstancesForLabel = null;
+                        subtasks.add(new ExpandTask(newMetaPath, nextInstancesForLabel, metaPathLength - 1));
+                    }
                 }
             }
+            forkAll(subtasks);
         }
     }
 
@@ -219,36 +193,47 @@ public class ComputeAllMetaPathsForInstances extends MetaPathComputation {
             for (int nodeId : arrayGraphInterface.getAdjacentNodes(instance.value)) { //TODO: check if getAdjacentNodes works
                 int label = arrayGraphInterface.getLabel(nodeId); //get the id of the label of the node
                 int edgeLabel = arrayGraphInterface.getEdgeLabel(instance.value, nodeId);
-                if (!highDegreeIndex.containsKey(nodeId)) {
+                if (highDegreeIndex == null || !highDegreeIndex.contains(nodeId)) {
                     int labelID = labelDictionary.get(new AbstractMap.SimpleEntry<>(edgeLabel, label));
                     nextInstances.get(labelID).add(nodeId); // add the node to the corresponding instances array
                 }
                 else
                 {
-                    for (AbstractMap.SimpleEntry<IntArrayList, IntArrayList> metaPathWithEnds : highDegreeIndex.get(nodeId)){
-                        boolean reachedEndNode = false;
-                        for (IntCursor end : metaPathWithEnds.getValue())
-                        {
-                            if (endNodes.contains(end.value)) {
-                                reachedEndNode = true;
-                                break;
-                            }
-                        }
-
-                        if(reachedEndNode && metaPathLength > metaPathWithEnds.getKey().size()/2)
-                        {
-                           IntArrayList newMetaPath = copyMetaPath(currentMetaPath);
+                    // the empty meta-path ends at the high degree node itself
+                    if (metaPathLength > 0 && endNodes.contains(nodeId)) {
+                        IntArrayList newMetaPath = copyMetaPath(currentMetaPath);
+                        newMetaPath.add(edgeLabel);
+                        newMetaPath.add(label);
+                        addAndLogMetaPath(newMetaPath);
+                    }
+                    highDegreeIndex.forEach(nodeId, (packedMetaPath, ends) -> {
+                        int steps = highDegreeIndex.codec().length(packedMetaPath) - 1;
+                        if (metaPathLength > steps && reachesEndNode(ends)) {
+                            ComputeAllMetaPaths.MetaPath precomputed = highDegreeIndex.codec().decode(packedMetaPath);
+                            IntArrayList newMetaPath = copyMetaPath(currentMetaPath);
                             newMetaPath.add(edgeLabel);
                             newMetaPath.add(label);
-                            newMetaPath.addAll(metaPathWithEnds.getKey());
+                            for (int i = 1; i < precomputed.length; i++) {
+                                newMetaPath.add(precomputed.path[i]);
+                            }
                             addAndLogMetaPath(newMetaPath);
                         }
-                    }
+                        return true;
+                    });
                 }
             }
         }
     }
 
+    private boolean reachesEndNode(HighDegreeMetaPathIndex.EndNodes ends) {
+        for (int end = ends.next(); end != -1; end = ends.next()) {
+            if (endNodes.contains(end)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private IntArrayList copyMetaPath(IntArrayList currentMetaPath) {
         IntArrayList newMetaPath = new IntArrayList();
         for (IntCursor label : currentMetaPath) {
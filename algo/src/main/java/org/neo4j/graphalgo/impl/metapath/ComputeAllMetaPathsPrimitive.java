@@ -0,0 +1,421 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import com.carrotsearch.hppc.AbstractIterator;
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.LongLongMap;
+import com.carrotsearch.hppc.cursors.LongLongCursor;
+import com.carrotsearch.hppc.procedures.LongLongProcedure;
+import org.apache.lucene.util.ArrayUtil;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.helpers.Exceptions;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Computes the same meta-path counts as {@link ComputeAllMetaPaths} without allocating
+ * during the expansion. Relationship types and neighbour labels are read positionally
+ * from a {@link TypedAdjacency}, meta-paths are packed into longs by {@link PackedMetaPath}
+ * and every worker reuses dense per-depth frontier buffers which are reset through the
+ * list of touched nodes.
+ * <p>
+ * Every meta-path is completed by exactly one start label task, so the counts need no merging.
+ * {@link #computeStream(int)} hands them over through a bounded queue as soon as they are
+ * found instead of collecting the whole result.
+ */
+public class ComputeAllMetaPathsPrimitive extends MetaPathComputation {
+
+    public static final int DEFAULT_QUEUE_SIZE = 10_000;
+
+    private static final long NO_KEY = Long.MAX_VALUE;
+    private static final CountedMetaPath END = new CountedMetaPath(-1L, -1L);
+
+    private final TypedAdjacency adjacency;
+    private final LabelMapping labelMapping;
+    private final PackedMetaPath codec;
+    private final int metaPathLength;
+    private final Queue<Buffers> buffers = new ConcurrentLinkedQueue<>();
+
+    public ComputeAllMetaPathsPrimitive(HeavyGraph graph, LabelMapping labelMapping, int metaPathLength, int concurrency) {
+        this(TypedAdjacency.of(graph, labelMapping), labelMapping, metaPathLength, concurrency);
+    }
+
+    public ComputeAllMetaPathsPrimitive(TypedAdjacency adjacency, LabelMapping labelMapping, int metaPathLength, int concurrency) {
+        this.adjacency = adjacency;
+        this.labelMapping = labelMapping;
+        this.codec = new PackedMetaPath(labelMapping);
+        this.metaPathLength = metaPathLength;
+        setConcurrency(concurrency);
+        if (metaPathLength > codec.maxLength()) {
+            throw new IllegalArgumentException("meta-path length " + metaPathLength + " exceeds the maximum of " + codec.maxLength() + " for this schema");
+        }
+    }
+
+    public Map<ComputeAllMetaPaths.MetaPath, Long> compute() {
+        LongLongMap packed = computePacked();
+        Map<ComputeAllMetaPaths.MetaPath, Long> result = new HashMap<>(packed.size());
+        for (LongLongCursor cursor : packed) {
+            result.put(codec.decode(cursor.key), cursor.value);
+        }
+        return result;
+    }
+
+    /**
+     * @return counts keyed by meta-paths encoded with {@link #codec()}
+     */
+    public LongLongMap computePacked() {
+        List<LongLongMap> metaPaths = new ArrayList<>();
+        List<StartLabelTask> tasks = startLabelTasks(() -> {
+            LongLongMap taskMetaPaths = new LongLongHashMap();
+            metaPaths.add(taskMetaPaths);
+            return taskMetaPaths::put;
+        });
+        forEachParallel(tasks, StartLabelTask::run);
+
+        LongLongMap result = new LongLongHashMap();
+        for (LongLongMap taskMetaPaths : metaPaths) {
+            result.putAll(taskMetaPaths);
+        }
+        return result;
+    }
+
+    /**
+     * Starts the computation in the background and returns the meta-paths while they are computed.
+     * At most {@code queueSize} results are buffered, the workers block until the stream has consumed
+     * them. Closing the stream stops the computation.
+     * <p>
+     * The workers run on the shared pool, which compensates for them while they wait for the
+     * stream to take results.
+     *
+     * @param queueSize number of results which may be buffered
+     * @return packed meta-paths and their counts, in no particular order
+     */
+    public Stream<CountedMetaPath> computeStream(int queueSize) {
+        ResultQueue queue = new ResultQueue(queueSize);
+        queue.start();
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(queue.iterator(), 0), false)
+                .onClose(queue::close);
+    }
+
+    /**
+     * one task per start label, each of them reports its meta-paths to its own consumer
+     */
+    private List<StartLabelTask> startLabelTasks(Supplier<LongLongProcedure> consumers) {
+        short[] labels = labelMapping.getAllNodeLabels();
+        int[][] nodesByLabel = nodesByLabel(labelMapping, labels);
+
+        List<StartLabelTask> tasks = new ArrayList<>(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            tasks.add(new StartLabelTask(labels[i], nodesByLabel[i], consumers.get()));
+        }
+        return tasks;
+    }
+
+    public PackedMetaPath codec() {
+        return codec;
+    }
+
+    /**
+     * the nodes of every label, nodes with several labels are contained in each of them
+     */
+    static int[][] nodesByLabel(LabelMapping labelMapping, short[] labels) {
+        int[] index = new int[labels.length == 0 ? 0 : maxId(labels) + 1];
+        for (int i = 0; i < labels.length; i++) {
+            index[labels[i]] = i;
+        }
+        int[] sizes = new int[labels.length];
+        labelMapping.forEachNode(cursor -> {
+            for (short label : cursor.value) {
+                sizes[index[label]]++;
+            }
+        });
+        int[][] nodes = new int[labels.length][];
+        for (int i = 0; i < labels.length; i++) {
+            nodes[i] = new int[sizes[i]];
+            sizes[i] = 0;
+        }
+        labelMapping.forEachNode(cursor -> {
+            for (short label : cursor.value) {
+                int i = index[label];
+                nodes[i][sizes[i]++] = cursor.key;
+            }
+        });
+        return nodes;
+    }
+
+    private static int maxId(short[] ids) {
+        int max = 0;
+        for (short id : ids) {
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+
+    /**
+     * Frontier buffers of a single worker. Depth d holds the nodes reached by the
+     * current meta-path prefix of length d + 1, their path counts and the read
+     * position within their adjacency.
+     */
+    static final class Buffers {
+        final long[] accumulator;
+        final int[][] nodes;
+        final long[][] counts;
+        final int[][] cursors;
+
+        Buffers(int nodeCount, int depth) {
+            this.accumulator = new long[nodeCount];
+            this.nodes = new int[depth][];
+            this.counts = new long[depth][];
+            this.cursors = new int[depth][];
+            for (int i = 0; i < depth; i++) {
+                nodes[i] = new int[16];
+                counts[i] = new long[16];
+                cursors[i] = new int[16];
+            }
+        }
+
+        void ensureCapacity(int depth, int size) {
+            if (nodes[depth].length < size) {
+                nodes[depth] = ArrayUtil.grow(nodes[depth], size);
+                counts[depth] = ArrayUtil.grow(counts[depth], size);
+                cursors[depth] = ArrayUtil.grow(cursors[depth], size);
+            }
+        }
+    }
+
+    /**
+     * a meta-path encoded with {@link #codec()} and the number of its instances
+     */
+    public static final class CountedMetaPath {
+        public final long packedMetaPath;
+        public final long count;
+
+        CountedMetaPath(long packedMetaPath, long count) {
+            this.packedMetaPath = packedMetaPath;
+            this.count = count;
+        }
+    }
+
+    /**
+     * Hands the results of the start label tasks over to the consuming thread. Workers take the
+     * next start label until all are done, the last of them signals the end of the computation,
+     * regularly or with an error, by {@link #END}. The workers never wait for each other.
+     */
+    private final class ResultQueue {
+
+        private final BlockingQueue<CountedMetaPath> queue;
+        private final AtomicInteger nextTask = new AtomicInteger();
+        private final AtomicInteger runningWorkers = new AtomicInteger();
+        private final AtomicReference<Throwable> error = new AtomicReference<>();
+        private List<StartLabelTask> tasks;
+        private volatile boolean closed;
+
+        ResultQueue(int queueSize) {
+            this.queue = new ArrayBlockingQueue<>(queueSize);
+        }
+
+        void start() {
+            LongLongProcedure consumer = (path, count) -> put(new CountedMetaPath(path, count));
+            tasks = startLabelTasks(() -> consumer);
+            int workers = Math.max(1, Math.min(concurrency, tasks.size()));
+            runningWorkers.set(workers);
+            for (int i = 0; i < workers; i++) {
+                Pools.FJ_POOL.execute(this::work);
+            }
+        }
+
+        private void work() {
+            try {
+                int task;
+                while (!closed && error.get() == null && (task = nextTask.getAndIncrement()) < tasks.size()) {
+                    tasks.get(task).run();
+                }
+            } catch (Throwable e) {
+                error.compareAndSet(null, e);
+            } finally {
+                if (runningWorkers.decrementAndGet() == 0) {
+                    try {
+                        put(END);
+                    } catch (CancellationException ignore) {
+                    }
+                }
+            }
+        }
+
+        /**
+         * blocks while the queue is full, gives up once the consumer has closed the stream
+         */
+        private void put(CountedMetaPath element) {
+            try {
+                // lets the pool start another worker while this one waits for the consumer
+                ForkJoinPool.managedBlock(new ForkJoinPool.ManagedBlocker() {
+                    private boolean added;
+
+                    @Override
+                    public boolean block() throws InterruptedException {
+                        if (!added && !(added = queue.offer(element, 100, TimeUnit.MILLISECONDS)) && closed) {
+                            throw new CancellationException("meta-path stream has been closed");
+                        }
+                        return added;
+                    }
+
+                    @Override
+                    public boolean isReleasable() {
+                        return added || (added = queue.offer(element));
+                    }
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("meta-path computation has been interrupted");
+            }
+        }
+
+        Iterator<CountedMetaPath> iterator() {
+            return new AbstractIterator<CountedMetaPath>() {
+                @Override
+                protected CountedMetaPath fetch() {
+                    final CountedMetaPath next;
+                    try {
+                        next = queue.take();
+                    } catch (InterruptedException e) {
+                        close();
+                        throw new RuntimeException(e);
+                    }
+                    if (next == END) {
+                        if (error.get() != null) {
+                            throw Exceptions.launderedException(error.get());
+                        }
+                        return done();
+                    }
+                    return next;
+                }
+            };
+        }
+
+        void close() {
+            closed = true;
+            queue.clear();
+        }
+    }
+
+    private final class StartLabelTask implements Runnable {
+
+        private final short label;
+        private final int[] startNodes;
+        private final LongLongProcedure metaPaths;
+        private Buffers local;
+
+        StartLabelTask(short label, int[] startNodes, LongLongProcedure metaPaths) {
+            this.label = label;
+            this.startNodes = startNodes;
+            this.metaPaths = metaPaths;
+        }
+
+        @Override
+        public void run() {
+            local = buffers.poll();
+            if (local == null) {
+                local = new Buffers(adjacency.nodeCount(), metaPathLength);
+            }
+            try {
+                int size = startNodes.length;
+                local.ensureCapacity(0, size);
+                System.arraycopy(startNodes, 0, local.nodes[0], 0, size);
+                Arrays.fill(local.counts[0], 0, size, 1L);
+                long path = codec.start(label);
+                metaPaths.apply(path, size);
+                expand(0, size, path);
+            } finally {
+                buffers.add(local);
+                local = null;
+            }
+        }
+
+        private void expand(int depth, int size, long path) {
+            if (depth + 1 >= metaPathLength) {
+                return;
+            }
+            final TypedAdjacency adjacency = ComputeAllMetaPathsPrimitive.this.adjacency;
+            final long[] accumulator = local.accumulator;
+            final int[] nodes = local.nodes[depth];
+            final long[] counts = local.counts[depth];
+            final int[] cursors = local.cursors[depth];
+
+            long key = NO_KEY;
+            for (int i = 0; i < size; i++) {
+                int start = adjacency.start(nodes[i]);
+                cursors[i] = start;
+                if (start < adjacency.end(nodes[i])) {
+                    key = Math.min(key, adjacency.key(start));
+                }
+            }
+
+            final int next = depth + 1;
+            while (key != NO_KEY) {
+                final int currentKey = (int) key;
+                key = NO_KEY;
+                int childSize = 0;
+                for (int i = 0; i < size; i++) {
+                    int cursor = cursors[i];
+                    final int end = adjacency.end(nodes[i]);
+                    final long count = counts[i];
+                    while (cursor < end && adjacency.key(cursor) == currentKey) {
+                        final int target = adjacency.target(cursor++);
+                        if (accumulator[target] == 0) {
+                            local.ensureCapacity(next, childSize + 1);
+                            local.nodes[next][childSize++] = target;
+                        }
+                        accumulator[target] += count;
+                    }
+                    cursors[i] = cursor;
+                    if (cursor < end) {
+                        key = Math.min(key, adjacency.key(cursor));
+                    }
+                }
+
+                final int[] childNodes = local.nodes[next];
+                final long[] childCounts = local.counts[next];
+                long total = 0;
+                for (int j = 0; j < childSize; j++) {
+                    final int target = childNodes[j];
+                    childCounts[j] = accumulator[target];
+                    total += accumulator[target];
+                    accumulator[target] = 0;
+                }
+
+                final long childPath = codec.extend(path, TypedAdjacency.type(currentKey), TypedAdjacency.label(currentKey));
+                metaPaths.apply(childPath, total);
+                expand(next, childSize, childPath);
+            }
+        }
+    }
+
+    @Override
+    public ComputeAllMetaPathsPrimitive me() {
+        return this;
+    }
+
+    @Override
+    public ComputeAllMetaPathsPrimitive release() {
+        return null;
+    }
+}
@@ -0,0 +1,198 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import com.carrotsearch.hppc.LongDoubleHashMap;
+import com.carrotsearch.hppc.LongDoubleMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.LongObjectMap;
+import com.carrotsearch.hppc.cursors.LongDoubleCursor;
+import com.carrotsearch.hppc.cursors.LongObjectCursor;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Estimates the meta-path counts of {@link ComputeAllMetaPathsPrimitive} from random walks
+ * instead of expanding every path.
+ * <p>
+ * For every start label a fixed budget of walks is sampled. A walk starts at a uniformly
+ * chosen node of the label and follows a uniformly chosen relationship in every step. The
+ * walk is weighted by the inverse of its probability, i.e. the number of start nodes times the
+ * degrees along the walk, and contributes that weight to the meta-path of each of its prefixes.
+ * The mean weight over all walks of a label is an unbiased estimate of the count and its sample
+ * variance gives a normal confidence interval. The runtime is linear in the number of walks and
+ * the meta-path length, independent of how many paths exist.
+ */
+public class ComputeAllMetaPathsSampled extends MetaPathComputation {
+
+    private final TypedAdjacency adjacency;
+    private final LabelMapping labelMapping;
+    private final PackedMetaPath codec;
+    private final int metaPathLength;
+    private final int samples;
+    private final long seed;
+
+    public ComputeAllMetaPathsSampled(HeavyGraph graph, LabelMapping labelMapping, int metaPathLength, int samples, long seed, int concurrency) {
+        this(TypedAdjacency.of(graph, labelMapping), labelMapping, metaPathLength, samples, seed, concurrency);
+    }
+
+    public ComputeAllMetaPathsSampled(TypedAdjacency adjacency, LabelMapping labelMapping, int metaPathLength, int samples, long seed, int concurrency) {
+        this.adjacency = adjacency;
+        this.labelMapping = labelMapping;
+        this.codec = new PackedMetaPath(labelMapping);
+        this.metaPathLength = metaPathLength;
+        this.samples = samples;
+        this.seed = seed;
+        setConcurrency(concurrency);
+        if (samples < 2) {
+            throw new IllegalArgumentException("at least 2 samples per label are needed to estimate the error, got " + samples);
+        }
+        if (metaPathLength > codec.maxLength()) {
+            throw new IllegalArgumentException("meta-path length " + metaPathLength + " exceeds the maximum of " + codec.maxLength() + " for this schema");
+        }
+    }
+
+    /**
+     * @param confidence probability that the true count lies within the bounds of an estimate, e.g. 0.95
+     */
+    public Map<ComputeAllMetaPaths.MetaPath, Estimate> compute(double confidence) {
+        LongObjectMap<Estimate> packed = computePacked(confidence);
+        Map<ComputeAllMetaPaths.MetaPath, Estimate> result = new HashMap<>(packed.size());
+        for (LongObjectCursor<Estimate> cursor : packed) {
+            result.put(codec.decode(cursor.key), cursor.value);
+        }
+        return result;
+    }
+
+    /**
+     * @return estimates keyed by meta-paths encoded with {@link #codec()}
+     */
+    public LongObjectMap<Estimate> computePacked(double confidence) {
+        double z = zScore(confidence);
+        short[] labels = labelMapping.getAllNodeLabels();
+        int[][] nodesByLabel = ComputeAllMetaPathsPrimitive.nodesByLabel(labelMapping, labels);
+
+        List<StartLabelTask> tasks = new ArrayList<>(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            tasks.add(new StartLabelTask(labels[i], nodesByLabel[i]));
+        }
+        forEachParallel(tasks, StartLabelTask::run);
+
+        LongObjectMap<Estimate> result = new LongObjectHashMap<>();
+        for (StartLabelTask task : tasks) {
+            for (LongDoubleCursor cursor : task.sums) {
+                result.put(cursor.key, new Estimate(cursor.value, task.squares.get(cursor.key), samples, z));
+            }
+        }
+        return result;
+    }
+
+    public PackedMetaPath codec() {
+        return codec;
+    }
+
+    /**
+     * two-sided quantile of the standard normal distribution for the given confidence,
+     * using the rational approximation of P. J. Acklam (relative error below 1.2e-9)
+     */
+    public static double zScore(double confidence) {
+        if (!(confidence > 0.0 && confidence < 1.0)) {
+            throw new IllegalArgumentException("confidence must be between 0 and 1, got " + confidence);
+        }
+        double p = (1.0 + confidence) / 2.0;
+        if (p <= 0.97575) {
+            double q = p - 0.5;
+            double r = q * q;
+            return (((((-3.969683028665376e+01 * r + 2.209460984245205e+02) * r - 2.759285104469687e+02) * r
+                    + 1.383577518672690e+02) * r - 3.066479806614716e+01) * r + 2.506628277459239e+00) * q
+                    / (((((-5.447609879822406e+01 * r + 1.615858368580409e+02) * r - 1.556989798598866e+02) * r
+                    + 6.680131188771972e+01) * r - 1.328068155288572e+01) * r + 1.0);
+        }
+        double q = Math.sqrt(-2.0 * Math.log(1.0 - p));
+        return -(((((-7.784894002430293e-03 * q - 3.223964580411365e-01) * q - 2.400758277161838e+00) * q
+                - 2.549732539343734e+00) * q + 4.374664141464968e+00) * q + 2.938163982698783e+00)
+                / ((((7.784695709041462e-03 * q + 3.224671290700398e-01) * q + 2.445134137142996e+00) * q
+                + 3.754408661907416e+00) * q + 1.0);
+    }
+
+    /**
+     * estimated number of instances of a meta-path with its confidence interval
+     */
+    public static final class Estimate {
+        public final double count;
+        public final double standardError;
+        public final double lowerBound;
+        public final double upperBound;
+
+        Estimate(double sum, double squares, int samples, double z) {
+            this.count = sum / samples;
+            double variance = Math.max(0.0, (squares - sum * count) / (samples - 1));
+            this.standardError = Math.sqrt(variance / samples);
+            this.lowerBound = Math.max(0.0, count - z * standardError);
+            this.upperBound = count + z * standardError;
+        }
+    }
+
+    private final class StartLabelTask implements Runnable {
+
+        private final short label;
+        private final int[] startNodes;
+        private final LongDoubleMap sums = new LongDoubleHashMap();
+        private final LongDoubleMap squares = new LongDoubleHashMap();
+
+        StartLabelTask(short label, int[] startNodes) {
+            this.label = label;
+            this.startNodes = startNodes;
+        }
+
+        @Override
+        public void run() {
+            final long start = codec.start(label);
+            if (startNodes.length == 0) {
+                sums.put(start, 0.0);
+                return;
+            }
+            final TypedAdjacency adjacency = ComputeAllMetaPathsSampled.this.adjacency;
+            // one independent stream per label keeps the result reproducible regardless of the scheduling
+            final Random random = new Random(seed ^ (label * 0x9E3779B97F4A7C15L));
+            for (int i = 0; i < samples; i++) {
+                int node = startNodes[random.nextInt(startNodes.length)];
+                double weight = startNodes.length;
+                long path = start;
+                add(path, weight);
+                for (int depth = 1; depth < metaPathLength; depth++) {
+                    int offset = adjacency.start(node);
+                    int degree = adjacency.end(node) - offset;
+                    if (degree == 0) {
+                        break;
+                    }
+                    offset += random.nextInt(degree);
+                    int key = adjacency.key(offset);
+                    node = adjacency.target(offset);
+                    weight *= degree;
+                    path = codec.extend(path, TypedAdjacency.type(key), TypedAdjacency.label(key));
+                    add(path, weight);
+                }
+            }
+        }
+
+        private void add(long path, double weight) {
+            sums.addTo(path, weight);
+            squares.addTo(path, weight * weight);
+        }
+    }
+
+    @Override
+    public ComputeAllMetaPathsSampled me() {
+        return this;
+    }
+
+    @Override
+    public ComputeAllMetaPathsSampled release() {
+        return null;
+    }
+}
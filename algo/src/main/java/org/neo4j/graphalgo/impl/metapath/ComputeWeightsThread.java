@@ -1,19 +0,0 @@
-package org.neo4j.graphalgo.impl.metapath;
-
-import java.util.HashSet;
-
-public class ComputeWeightsThread extends Thread {
-    MetaPathComputation parent;
-    String threadName;
-    HashSet<String> metaPathSet;
-
-    ComputeWeightsThread(MetaPathComputation parent, String threadName, HashSet<String> metaPathSet) {
-        this.parent = parent;
-        this.threadName = threadName;
-        this.metaPathSet = metaPathSet;
-    }
-
-    public void run() {
-        parent.computeWeights(metaPathSet);
-    }
-}
@@ -7,7 +7,6 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.function.Consumer;
 
 public class GraphReducer extends MetaPathComputation {
     public Log log;
@@ -41,29 +40,18 @@ public class GraphReducer extends MetaPathComputation {
     }
 
     public void compute() {
-        LinkedList<Thread> threads = new LinkedList<>();
         for (String goodEdgeType : goodEdgeLabels) {
             findRelationType(goodEdgeType);
         }
 
+        // deletions stay on the calling thread, concurrent write transactions
+        // would contend for the locks of the shared start and end nodes
         for (long relId : getTypeRelIds()) {
-            Thread thread = new DeleteRelationshipsThread(this::deleteRelationship, relId);
-            threads.add(thread);
-            thread.run();
+            deleteRelationship(relId);
         }
 
         for (long nodeId : getTypeNodeIds()) {
-            Thread thread = new DeleteNodesThread(this::deleteNode, nodeId);
-            threads.add(thread);
-            thread.run();
-        }
-
-        for (Thread thread : threads) {
-            try {
-                thread.join();
-            } catch (Exception e) {
-                log.error(e.getLocalizedMessage());
-            }
+            deleteNode(nodeId);
         }
     }
 
@@ -170,33 +158,4 @@ public class GraphReducer extends MetaPathComputation {
     public GraphReducer release() {
         return null;
     }
-
-    class DeleteNodesThread extends Thread {
-        private Consumer<Long> deleteNode;
-        private long nodeToDelete;
-
-        DeleteNodesThread(Consumer<Long> deleteNode, long nodeToDelete) {
-            this.deleteNode = deleteNode;
-            this.nodeToDelete = nodeToDelete;
-        }
-
-        public void run() {
-            this.deleteNode.accept(nodeToDelete);
-        }
-    }
-
-    class DeleteRelationshipsThread extends Thread {
-        private Consumer<Long> deleteRelationship;
-        private long relationshipToDelete;
-
-        DeleteRelationshipsThread(Consumer<Long> deleteRelationship, long relationshipToDelete) {
-            this.deleteRelationship = deleteRelationship;
-            this.relationshipToDelete = relationshipToDelete;
-        }
-
-        public void run() {
-            this.deleteRelationship.accept(relationshipToDelete);
-        }
-    }
-
 }
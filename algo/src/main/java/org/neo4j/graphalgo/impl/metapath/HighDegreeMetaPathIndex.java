@@ -0,0 +1,281 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import org.neo4j.graphalgo.core.utils.paged.VarLongEncoding;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of the meta-paths of high degree nodes as written by {@link HighDegreeMetaPathIndexWriter}.
+ * The file is memory-mapped, meta-paths and end nodes are served directly from the mapping.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * header:    int magic | int version | int labelBits | int typeBits | int metaPathLength | int nodeCount | int pathCount
+ * nodes:     nodeCount x (int nodeId | int index of first path)
+ * paths:     pathCount x (long packed meta-path | long offset of end nodes)
+ * end nodes: int degree | degree x vlong
+ * </pre>
+ * Nodes are sorted by their id, the paths of a node are stored consecutively and sorted by their
+ * packed id (see {@link PackedMetaPath}). The packed paths start with the label of the high degree node,
+ * the index contains all meta-paths of the node with up to metaPathLength node labels.
+ * End nodes of each path are sorted and delta encoded as vlongs like the adjacency of the huge graph,
+ * see {@link VarLongEncoding}.
+ * <p>
+ * Files larger than 2 GB are mapped in chunks. The chunks overlap by the size of the largest
+ * field, so that every int, long and vlong can be read from the chunk it starts in.
+ */
+public final class HighDegreeMetaPathIndex {
+
+    /**
+     * name of the index file within the {@link org.neo4j.graphalgo.core.utils.AlgoDirectory}
+     */
+    public static final String DEFAULT_INDEX_FILE = "Precomputed_MetaPaths_HighDegree.bin";
+    public static final int MAGIC = 0x4D504844;
+    public static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 28;
+    static final int NODE_ENTRY_SIZE = 8;
+    static final int PATH_ENTRY_SIZE = 16;
+
+    private static final int CHUNK_SHIFT = 30;
+    // the largest field, a long or a vlong
+    private static final long CHUNK_OVERLAP = VarLongEncoding.MAX_ENCODED_SIZE;
+
+    private final ByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final PackedMetaPath codec;
+    private final int metaPathLength;
+    private final int nodeCount;
+    private final int pathCount;
+    private final long pathsOffset;
+
+    private HighDegreeMetaPathIndex(ByteBuffer[] chunks, int chunkShift, long size) throws IOException {
+        this.chunks = chunks;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1L;
+        if (size < HEADER_SIZE || getInt(0) != MAGIC) {
+            throw new IOException("not a high degree meta-path index");
+        }
+        int version = getInt(4);
+        if (version != VERSION) {
+            throw new IOException("unsupported high degree meta-path index version " + version + ", expected " + VERSION);
+        }
+        this.codec = new PackedMetaPath(getInt(8), getInt(12));
+        this.metaPathLength = getInt(16);
+        this.nodeCount = getInt(20);
+        this.pathCount = getInt(24);
+        this.pathsOffset = HEADER_SIZE + (long) nodeCount * NODE_ENTRY_SIZE;
+    }
+
+    /**
+     * map the index file into memory
+     */
+    public static HighDegreeMetaPathIndex open(Path file) throws IOException {
+        return open(file, CHUNK_SHIFT);
+    }
+
+    /**
+     * map the index file in chunks of {@code 1 << chunkShift} bytes, {@link #open(Path)} uses chunks of 1 GB
+     */
+    public static HighDegreeMetaPathIndex open(Path file, int chunkShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = 1L << chunkShift;
+            int chunkCount = (int) Math.max(1L, (size + chunkSize - 1L) >>> chunkShift);
+            ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = i * chunkSize;
+                long length = Math.min(size - start, chunkSize + CHUNK_OVERLAP);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0L, length));
+            }
+            return new HighDegreeMetaPathIndex(chunks, chunkShift, size);
+        }
+    }
+
+    /**
+     * check whether the file starts with the index header
+     */
+    public static boolean isIndex(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) {
+                    return false;
+                }
+            }
+            return magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * the layout used to pack the meta-paths of this index
+     */
+    public PackedMetaPath codec() {
+        return codec;
+    }
+
+    /**
+     * the maximum number of node labels of the meta-paths, every shorter meta-path of a node is contained as well
+     */
+    public int metaPathLength() {
+        return metaPathLength;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int pathCount() {
+        return pathCount;
+    }
+
+    /**
+     * id of the n-th high degree node, in ascending order
+     */
+    public int nodeId(int index) {
+        return getInt(HEADER_SIZE + (long) index * NODE_ENTRY_SIZE);
+    }
+
+    public boolean contains(int nodeId) {
+        return findNode(nodeId) >= 0;
+    }
+
+    /**
+     * number of meta-paths starting at the node or 0 if it is not a high degree node
+     */
+    public int pathCount(int nodeId) {
+        int index = findNode(nodeId);
+        return index < 0 ? 0 : lastPath(index) - firstPath(index);
+    }
+
+    /**
+     * visit all meta-paths starting at the given high degree node
+     */
+    public void forEach(int nodeId, Visitor visitor) {
+        int index = findNode(nodeId);
+        if (index < 0) {
+            return;
+        }
+        EndNodes endNodes = new EndNodes(this);
+        int end = lastPath(index);
+        for (int path = firstPath(index); path < end; path++) {
+            long entryOffset = pathsOffset + (long) path * PATH_ENTRY_SIZE;
+            endNodes.moveTo(getLong(entryOffset + 8));
+            if (!visitor.visit(getLong(entryOffset), endNodes)) {
+                return;
+            }
+        }
+    }
+
+    private int firstPath(int index) {
+        return getInt(HEADER_SIZE + (long) index * NODE_ENTRY_SIZE + 4);
+    }
+
+    private int lastPath(int index) {
+        return index + 1 < nodeCount ? firstPath(index + 1) : pathCount;
+    }
+
+    private int findNode(int nodeId) {
+        int low = 0;
+        int high = nodeCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midId = nodeId(mid);
+            if (midId < nodeId) {
+                low = mid + 1;
+            } else if (midId > nodeId) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int getInt(long position) {
+        return chunk(position).getInt((int) (position & chunkMask));
+    }
+
+    private long getLong(long position) {
+        return chunk(position).getLong((int) (position & chunkMask));
+    }
+
+    private ByteBuffer chunk(long position) {
+        return chunks[(int) (position >>> chunkShift)];
+    }
+
+    /**
+     * callback for index iteration. returning false stops the iteration
+     */
+    public interface Visitor {
+        boolean visit(long packedMetaPath, EndNodes endNodes);
+    }
+
+    /**
+     * Cursor over the sorted end nodes of a single meta-path. The cursor is reused
+     * between callbacks and must not be stored.
+     */
+    public static final class EndNodes {
+
+        private final HighDegreeMetaPathIndex index;
+        private long start;
+        private long offset;
+        private int degree;
+        private int remaining;
+        private long delta;
+
+        private EndNodes(HighDegreeMetaPathIndex index) {
+            this.index = index;
+        }
+
+        private void moveTo(long offset) {
+            this.start = offset + 4;
+            this.degree = index.getInt(offset);
+            reset();
+        }
+
+        /**
+         * restart the iteration at the first end node
+         */
+        public void reset() {
+            this.offset = start;
+            this.remaining = degree;
+            this.delta = 0L;
+        }
+
+        public int size() {
+            return degree;
+        }
+
+        /**
+         * the next end node or -1 if all end nodes have been visited
+         */
+        public int next() {
+            if (remaining == 0) {
+                return -1;
+            }
+            remaining--;
+            // the overlap of the chunks contains the whole vlong
+            ByteBuffer chunk = index.chunk(offset);
+            int position = (int) (offset & index.chunkMask);
+            int first = position;
+            long i = 0L;
+            int j = 0;
+            byte b;
+            do {
+                b = chunk.get(position++);
+                i = VarLongEncoding.decodeByte(i, b, j++);
+            } while (VarLongEncoding.hasNextByte(b));
+            offset += position - first;
+            delta += i;
+            return (int) delta;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import com.carrotsearch.hppc.LongObjectMap;
+import org.neo4j.graphalgo.core.utils.paged.VarLongEncoding;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex.HEADER_SIZE;
+import static org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex.MAGIC;
+import static org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex.NODE_ENTRY_SIZE;
+import static org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex.PATH_ENTRY_SIZE;
+import static org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex.VERSION;
+
+/**
+ * Collects the meta-paths of high degree nodes and writes them in the format read by
+ * {@link HighDegreeMetaPathIndex}. Every node is encoded as soon as it is added, so only
+ * the compact encoding of finished nodes is kept until the index is written.
+ * Nodes may be added concurrently.
+ */
+public final class HighDegreeMetaPathIndexWriter {
+
+    private final PackedMetaPath codec;
+    private final int metaPathLength;
+    private final List<NodeBlock> blocks = new ArrayList<>();
+
+    /**
+     * @param metaPathLength the maximum number of node labels of the meta-paths which are added
+     */
+    public HighDegreeMetaPathIndexWriter(PackedMetaPath codec, int metaPathLength) {
+        this.codec = codec;
+        this.metaPathLength = metaPathLength;
+    }
+
+    /**
+     * add all meta-paths of a high degree node, keyed by their packed id.
+     * The end nodes of every meta-path must be sorted in ascending order without duplicates.
+     */
+    public void add(int nodeId, LongObjectMap<int[]> metaPaths) {
+        long[] paths = metaPaths.keys().toArray();
+        Arrays.sort(paths);
+        int[] endOffsets = new int[paths.length];
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int i = 0; i < paths.length; i++) {
+            endOffsets[i] = bytes.size();
+            int[] endNodes = metaPaths.get(paths[i]);
+            writeInt(bytes, endNodes.length);
+            long previous = 0L;
+            for (int endNode : endNodes) {
+                writeVLong(bytes, endNode - previous);
+                previous = endNode;
+            }
+        }
+        NodeBlock block = new NodeBlock(nodeId, paths, endOffsets, bytes.toByteArray());
+        synchronized (blocks) {
+            blocks.add(block);
+        }
+    }
+
+    public void write(Path file) throws IOException {
+        NodeBlock[] nodes;
+        synchronized (blocks) {
+            nodes = blocks.toArray(new NodeBlock[blocks.size()]);
+        }
+        Arrays.sort(nodes, Comparator.comparingInt(n -> n.nodeId));
+
+        int pathCount = 0;
+        for (NodeBlock node : nodes) {
+            pathCount += node.paths.length;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(codec.labelBits());
+            out.writeInt(codec.typeBits());
+            out.writeInt(metaPathLength);
+            out.writeInt(nodes.length);
+            out.writeInt(pathCount);
+
+            int firstPath = 0;
+            for (NodeBlock node : nodes) {
+                out.writeInt(node.nodeId);
+                out.writeInt(firstPath);
+                firstPath += node.paths.length;
+            }
+
+            long endNodesOffset = HEADER_SIZE + (long) nodes.length * NODE_ENTRY_SIZE + (long) pathCount * PATH_ENTRY_SIZE;
+            for (NodeBlock node : nodes) {
+                for (int i = 0; i < node.paths.length; i++) {
+                    out.writeLong(node.paths[i]);
+                    out.writeLong(endNodesOffset + node.endOffsets[i]);
+                }
+                endNodesOffset += node.endNodes.length;
+            }
+
+            for (NodeBlock node : nodes) {
+                out.write(node.endNodes);
+            }
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int i) {
+        out.write(i >>> 24);
+        out.write(i >>> 16);
+        out.write(i >>> 8);
+        out.write(i);
+    }
+
+    private static void writeVLong(ByteArrayOutputStream out, long i) {
+        int size = VarLongEncoding.encodedSize(i);
+        for (int j = 0; j < size; j++) {
+            out.write(VarLongEncoding.encodedByte(i, j));
+        }
+    }
+
+    private static final class NodeBlock {
+        private final int nodeId;
+        private final long[] paths;
+        private final int[] endOffsets;
+        private final byte[] endNodes;
+
+        private NodeBlock(int nodeId, long[] paths, int[] endOffsets, byte[] endNodes) {
+            this.nodeId = nodeId;
+            this.paths = paths;
+            this.endOffsets = endOffsets;
+            this.endNodes = endNodes;
+        }
+    }
+}
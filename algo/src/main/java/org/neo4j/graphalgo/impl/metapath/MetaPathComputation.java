@@ -1,9 +1,33 @@
 package org.neo4j.graphalgo.impl.metapath;
 
+import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.impl.Algorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Consumer;
 
+/**
+ * Base of the meta-path computations. A computation runs on a fork join pool with a parallelism
+ * of {@code concurrency}, that is the shared {@link Pools#FJ_POOL} if its parallelism matches and
+ * otherwise a pool of its own, which is shut down once the computation is done.
+ * Work is split recursively into small tasks which idle workers can steal, but a subtask is
+ * only forked while the current worker has few queued tasks that nobody has stolen yet,
+ * see {@link ForkJoinTask#getSurplusQueuedTaskCount()}, otherwise it runs in the current thread.
+ */
 public class MetaPathComputation extends Algorithm<MetaPathComputation> {
+
+    // a worker with more unstolen tasks than this runs further subtasks itself
+    private static final int SURPLUS_THRESHOLD = 3;
+
+    protected int concurrency = Pools.DEFAULT_CONCURRENCY;
+
     public void computeMetaPathFromNodeLabel(int startNodeLabel, int pMetaPathLength) {
         //override this
     }
@@ -20,6 +44,120 @@ public class MetaPathComputation extends Algorithm<MetaPathComputation> {
         //override this
     }
 
+    /**
+     * parallelism of the pool that runs this computation
+     */
+    public void setConcurrency(int concurrency) {
+        if (concurrency > 0) {
+            this.concurrency = concurrency;
+        }
+    }
+
+    /**
+     * run the task on a pool of the computation's concurrency, or in the current thread if it
+     * already is a worker (e.g. a subtree of a running computation)
+     */
+    protected <T> T invoke(ForkJoinTask<T> task) {
+        return invoke(concurrency, task);
+    }
+
+    /**
+     * run the subtasks of a running task, see {@link #forkAllSubtasks(Collection)}
+     */
+    protected void forkAll(Collection<? extends ForkJoinTask<?>> subtasks) {
+        forkAllSubtasks(subtasks);
+    }
+
+    /**
+     * apply the action to every element, the elements are split recursively down to
+     * single elements so that idle workers can take over parts of a skewed split
+     */
+    protected <T> void forEachParallel(Collection<T> elements, Consumer<T> action) {
+        forEachParallel(concurrency, elements, action);
+    }
+
+    /**
+     * {@link #forEachParallel(Collection, Consumer)} for computations that are no {@code MetaPathComputation}
+     */
+    static <T> void forEachParallel(int concurrency, Collection<T> elements, Consumer<T> action) {
+        List<T> list = new ArrayList<>(elements);
+        if (!list.isEmpty()) {
+            invoke(concurrency, new ForEachTask<>(list, 0, list.size(), action));
+        }
+    }
+
+    private static <T> T invoke(int concurrency, ForkJoinTask<T> task) {
+        if (ForkJoinTask.inForkJoinPool()) {
+            return task.invoke();
+        }
+        if (concurrency == Pools.FJ_POOL.getParallelism()) {
+            return Pools.FJ_POOL.invoke(task);
+        }
+        ForkJoinPool pool = new ForkJoinPool(concurrency);
+        try {
+            return pool.invoke(task);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Forks the subtasks while the current worker has no more than {@link #SURPLUS_THRESHOLD} unstolen
+     * tasks queued and runs the others in the current thread, then waits for the forked ones.
+     * The last subtask always runs inline.
+     */
+    private static void forkAllSubtasks(Collection<? extends ForkJoinTask<?>> subtasks) {
+        List<ForkJoinTask<?>> forked = null;
+        int remaining = subtasks.size();
+        for (ForkJoinTask<?> subtask : subtasks) {
+            if (--remaining > 0
+                    && ForkJoinTask.inForkJoinPool()
+                    && ForkJoinTask.getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD) {
+                if (forked == null) {
+                    forked = new ArrayList<>();
+                }
+                forked.add(subtask.fork());
+            } else {
+                subtask.invoke();
+            }
+        }
+        if (forked != null) {
+            // join in reverse order, the latest fork is the most likely one to be still unstolen
+            for (int i = forked.size() - 1; i >= 0; i--) {
+                forked.get(i).join();
+            }
+        }
+    }
+
+    private static void forkAll(ForkJoinTask<?> first, ForkJoinTask<?> second) {
+        forkAllSubtasks(Arrays.asList(first, second));
+    }
+
+    private static final class ForEachTask<T> extends RecursiveAction {
+        private final List<T> elements;
+        private final int from;
+        private final int to;
+        private final Consumer<T> action;
+
+        private ForEachTask(List<T> elements, int from, int to, Consumer<T> action) {
+            this.elements = elements;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(elements.get(from));
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            forkAll(
+                    new ForEachTask<>(elements, from, mid, action),
+                    new ForEachTask<>(elements, mid, to, action));
+        }
+    }
 
     @Override
     public MetaPathComputation me() { return this; }
@@ -0,0 +1,327 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a binary meta-path index as written by {@link MetaPathIndexWriter}.
+ * The file is memory-mapped, paths are served directly from the mapping without being
+ * copied onto the heap.
+ * <p>
+ * Layout (big endian):
+ * <pre>
+ * header:    int magic | int version | long pathCount | int directorySize | int maxPathLength
+ * directory: directorySize x (int (startLabel, endLabel) | int pathCount | long index of first path)
+ * offsets:   pathCount x long offset of the path
+ * paths:     pathCount x (short length | length x short id | long count)
+ * </pre>
+ * The directory is sorted by its (startLabel, endLabel) key and all paths of a directory entry
+ * are stored consecutively, sorted by their ids. The offsets allow a binary search within the
+ * paths of a directory entry.
+ * <p>
+ * Files larger than 2 GB are mapped in chunks. The chunks overlap by the size of the largest
+ * possible path, so that every path can be read from the chunk it starts in.
+ */
+public final class MetaPathIndex {
+
+    public static final int MAGIC = 0x4D504958;
+    public static final int VERSION = 2;
+
+    static final int HEADER_SIZE = 24;
+    static final int DIRECTORY_ENTRY_SIZE = 16;
+    static final int OFFSET_SIZE = 8;
+
+    private static final int CHUNK_SHIFT = 30;
+    // the largest path record, a path has at most 0xFFFF ids
+    private static final long CHUNK_OVERLAP = 2L + 0xFFFFL * 2L + 8L;
+
+    private final ByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final long pathCount;
+    private final int directorySize;
+    private final int maxPathLength;
+    private final long offsetsStart;
+
+    private MetaPathIndex(ByteBuffer[] chunks, int chunkShift, long size) throws IOException {
+        this.chunks = chunks;
+        this.chunkShift = chunkShift;
+        this.chunkMask = (1L << chunkShift) - 1L;
+        if (size < HEADER_SIZE || getInt(0) != MAGIC) {
+            throw new IOException("not a meta-path index");
+        }
+        int version = getInt(4);
+        if (version != VERSION) {
+            throw new IOException("unsupported meta-path index version " + version + ", expected " + VERSION);
+        }
+        this.pathCount = getLong(8);
+        this.directorySize = getInt(16);
+        this.maxPathLength = getInt(20);
+        this.offsetsStart = HEADER_SIZE + (long) directorySize * DIRECTORY_ENTRY_SIZE;
+    }
+
+    /**
+     * map the index file into memory
+     */
+    public static MetaPathIndex open(Path file) throws IOException {
+        return open(file, CHUNK_SHIFT);
+    }
+
+    /**
+     * map the index file in chunks of {@code 1 << chunkShift} bytes, {@link #open(Path)} uses chunks of 1 GB
+     */
+    public static MetaPathIndex open(Path file, int chunkShift) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long chunkSize = 1L << chunkShift;
+            int chunkCount = (int) Math.max(1L, (size + chunkSize - 1L) >>> chunkShift);
+            ByteBuffer[] chunks = new ByteBuffer[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                long start = i * chunkSize;
+                long length = Math.min(size - start, chunkSize + CHUNK_OVERLAP);
+                chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.max(0L, length));
+            }
+            return new MetaPathIndex(chunks, chunkShift, size);
+        }
+    }
+
+    /**
+     * check whether the file starts with the index header
+     */
+    public static boolean isIndex(Path file) {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4);
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) {
+                    return false;
+                }
+            }
+            return magic.getInt(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public long pathCount() {
+        return pathCount;
+    }
+
+    public int maxPathLength() {
+        return maxPathLength;
+    }
+
+    /**
+     * visit every meta-path in the index
+     */
+    public void forEach(Visitor visitor) {
+        Cursor cursor = new Cursor(this);
+        long position = offsetsStart + pathCount * OFFSET_SIZE;
+        for (long i = 0; i < pathCount; i++) {
+            cursor.moveTo(position);
+            if (!visitor.visit(cursor, cursor.count())) {
+                return;
+            }
+            position = cursor.next();
+        }
+    }
+
+    /**
+     * visit all meta-paths starting with startLabel and ending with endLabel
+     */
+    public void forEach(short startLabel, short endLabel, Visitor visitor) {
+        int entry = findEntry(key(startLabel, endLabel));
+        if (entry < 0) {
+            return;
+        }
+        long entryOffset = HEADER_SIZE + (long) entry * DIRECTORY_ENTRY_SIZE;
+        int count = getInt(entryOffset + 4);
+        long position = pathOffset(getLong(entryOffset + 8));
+        Cursor cursor = new Cursor(this);
+        for (int i = 0; i < count; i++) {
+            cursor.moveTo(position);
+            if (!visitor.visit(cursor, cursor.count())) {
+                return;
+            }
+            position = cursor.next();
+        }
+    }
+
+    /**
+     * number of meta-paths between startLabel and endLabel
+     */
+    public int pathCount(short startLabel, short endLabel) {
+        int entry = findEntry(key(startLabel, endLabel));
+        return entry < 0 ? 0 : getInt(HEADER_SIZE + (long) entry * DIRECTORY_ENTRY_SIZE + 4);
+    }
+
+    /**
+     * get the instance count of a single meta-path or 0 if it is not contained
+     */
+    public long count(ComputeAllMetaPaths.MetaPath metaPath) {
+        if (metaPath.length == 0) {
+            return 0;
+        }
+        int entry = findEntry(key(metaPath.path[0], metaPath.path[metaPath.length - 1]));
+        if (entry < 0) {
+            return 0;
+        }
+        long entryOffset = HEADER_SIZE + (long) entry * DIRECTORY_ENTRY_SIZE;
+        long first = getLong(entryOffset + 8);
+        long low = first;
+        long high = first + getInt(entryOffset + 4) - 1L;
+        Cursor cursor = new Cursor(this);
+        while (low <= high) {
+            long mid = (low + high) >>> 1;
+            cursor.moveTo(pathOffset(mid));
+            int cmp = cursor.compareTo(metaPath);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return cursor.count();
+            }
+        }
+        return 0;
+    }
+
+    private long pathOffset(long index) {
+        return getLong(offsetsStart + index * OFFSET_SIZE);
+    }
+
+    private int findEntry(int key) {
+        int low = 0;
+        int high = directorySize - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midKey = getInt(HEADER_SIZE + (long) mid * DIRECTORY_ENTRY_SIZE);
+            int cmp = Integer.compareUnsigned(midKey, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int getInt(long position) {
+        return chunks[(int) (position >>> chunkShift)].getInt((int) (position & chunkMask));
+    }
+
+    private long getLong(long position) {
+        return chunks[(int) (position >>> chunkShift)].getLong((int) (position & chunkMask));
+    }
+
+    static int key(short startLabel, short endLabel) {
+        return (startLabel & 0xFFFF) << 16 | (endLabel & 0xFFFF);
+    }
+
+    /**
+     * callback for index iteration. returning false stops the iteration
+     */
+    public interface Visitor {
+        boolean visit(Cursor path, long count);
+    }
+
+    /**
+     * Flyweight over a single meta-path inside the mapping. The cursor is reused
+     * between callbacks and must not be stored, use {@link #toMetaPath()} to keep a copy.
+     */
+    public static final class Cursor {
+
+        private final MetaPathIndex index;
+        // the chunk the path starts in, which contains the whole path
+        private ByteBuffer buffer;
+        private long position;
+        private int offset;
+        private int length;
+
+        private Cursor(MetaPathIndex index) {
+            this.index = index;
+        }
+
+        private void moveTo(long position) {
+            this.position = position;
+            this.buffer = index.chunks[(int) (position >>> index.chunkShift)];
+            this.offset = (int) (position & index.chunkMask);
+            this.length = buffer.getShort(offset) & 0xFFFF;
+        }
+
+        private long next() {
+            return position + 2 + length * 2 + 8;
+        }
+
+        private long count() {
+            return buffer.getLong(offset + 2 + length * 2);
+        }
+
+        /**
+         * compare in the order of {@link MetaPathIndexWriter#ORDER}, within a directory entry
+         */
+        private int compareTo(ComputeAllMetaPaths.MetaPath metaPath) {
+            int common = Math.min(length, metaPath.length);
+            for (int i = 0; i < common; i++) {
+                int cmp = Integer.compare(get(i) & 0xFFFF, metaPath.path[i] & 0xFFFF);
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return Integer.compare(length, metaPath.length);
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public short get(int index) {
+            return buffer.getShort(offset + 2 + index * 2);
+        }
+
+        public short startLabel() {
+            return get(0);
+        }
+
+        public short endLabel() {
+            return get(length - 1);
+        }
+
+        public boolean matches(ComputeAllMetaPaths.MetaPath metaPath) {
+            if (metaPath.length != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (metaPath.path[i] != get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        public ComputeAllMetaPaths.MetaPath toMetaPath() {
+            ComputeAllMetaPaths.MetaPath metaPath = new ComputeAllMetaPaths.MetaPath(get(0));
+            for (int i = 1; i < length; i++) {
+                metaPath.add(get(i));
+            }
+            return metaPath;
+        }
+
+        /**
+         * same format as {@link ComputeAllMetaPaths.MetaPath#toString()}
+         */
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder(length * 5);
+            for (int i = 0; i < length; i++) {
+                sb.append((int) get(i));
+                if (i < length - 1) sb.append(" | ");
+            }
+            return sb.toString();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+
+import static org.neo4j.graphalgo.impl.metapath.MetaPathIndex.DIRECTORY_ENTRY_SIZE;
+import static org.neo4j.graphalgo.impl.metapath.MetaPathIndex.HEADER_SIZE;
+import static org.neo4j.graphalgo.impl.metapath.MetaPathIndex.MAGIC;
+import static org.neo4j.graphalgo.impl.metapath.MetaPathIndex.OFFSET_SIZE;
+import static org.neo4j.graphalgo.impl.metapath.MetaPathIndex.VERSION;
+import static org.neo4j.graphalgo.impl.metapath.MetaPathIndex.key;
+
+/**
+ * Writes meta-paths and their counts in the binary format read by {@link MetaPathIndex}.
+ */
+public final class MetaPathIndexWriter {
+
+    /**
+     * order by (startLabel, endLabel) and then by the ids of the path
+     */
+    static final Comparator<ComputeAllMetaPaths.MetaPath> ORDER = (a, b) -> {
+        int cmp = Integer.compareUnsigned(key(a), key(b));
+        if (cmp != 0) {
+            return cmp;
+        }
+        int length = Math.min(a.length, b.length);
+        for (int i = 0; i < length; i++) {
+            cmp = Integer.compare(a.path[i] & 0xFFFF, b.path[i] & 0xFFFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(a.length, b.length);
+    };
+
+    private MetaPathIndexWriter() {}
+
+    public static void write(Map<ComputeAllMetaPaths.MetaPath, Long> metaPaths, Path file) throws IOException {
+        ComputeAllMetaPaths.MetaPath[] paths = metaPaths.keySet().stream()
+                .filter(p -> p.length > 0)
+                .toArray(ComputeAllMetaPaths.MetaPath[]::new);
+        Arrays.sort(paths, ORDER);
+
+        int directorySize = 0;
+        int maxPathLength = 0;
+        for (int i = 0; i < paths.length; i++) {
+            if (i == 0 || key(paths[i]) != key(paths[i - 1])) {
+                directorySize++;
+            }
+            maxPathLength = Math.max(maxPathLength, paths[i].length);
+        }
+
+        // written next to the file and moved over it, so that readers that still map the old index are not truncated
+        Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(paths.length);
+            out.writeInt(directorySize);
+            out.writeInt(maxPathLength);
+
+            int start = 0;
+            while (start < paths.length) {
+                int key = key(paths[start]);
+                int end = start;
+                while (end < paths.length && key(paths[end]) == key) {
+                    end++;
+                }
+                out.writeInt(key);
+                out.writeInt(end - start);
+                out.writeLong(start);
+                start = end;
+            }
+
+            long offset = HEADER_SIZE + (long) directorySize * DIRECTORY_ENTRY_SIZE + (long) paths.length * OFFSET_SIZE;
+            for (ComputeAllMetaPaths.MetaPath path : paths) {
+                out.writeLong(offset);
+                offset += recordSize(path);
+            }
+
+            for (ComputeAllMetaPaths.MetaPath path : paths) {
+                out.writeShort(path.length);
+                for (int i = 0; i < path.length; i++) {
+                    out.writeShort(path.path[i]);
+                }
+                out.writeLong(metaPaths.get(path));
+            }
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static int key(ComputeAllMetaPaths.MetaPath path) {
+        return MetaPathIndex.key(path.path[0], path.path[path.length - 1]);
+    }
+
+    private static long recordSize(ComputeAllMetaPaths.MetaPath path) {
+        return 2L + path.length * 2L + 8L;
+    }
+}
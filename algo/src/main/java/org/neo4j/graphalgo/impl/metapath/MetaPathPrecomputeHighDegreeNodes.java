@@ -1,212 +1,169 @@
 package org.neo4j.graphalgo.impl.metapath;
 
-import org.neo4j.graphalgo.api.ArrayGraphInterface;
-import org.neo4j.graphalgo.api.Degrees;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import com.carrotsearch.hppc.cursors.IntObjectCursor;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
-import org.neo4j.graphdb.Direction;
-
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.io.*;
-import java.util.*;
-import java.util.concurrent.Semaphore;
-import java.util.stream.Collectors;
-
-
-//TODO test correctness!
-
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Precomputes the meta-paths of the nodes with the highest degrees together with the end nodes
+ * each meta-path reaches, and writes them into a {@link HighDegreeMetaPathIndex}.
+ * {@link ComputeAllMetaPathsBetweenInstances} reads the paths of these nodes from the index
+ * instead of expanding them again. The meta-paths are packed with the same
+ * {@link PackedMetaPath} layout as {@link ComputeAllMetaPathsBetweenInstances} uses.
+ */
 public class MetaPathPrecomputeHighDegreeNodes extends MetaPathComputation {
 
-    private Degrees degrees;
-    private HeavyGraph graph;
-    private ArrayGraphInterface arrayGraphInterface;
-    private ArrayList<Integer> metaPathsWeights;
-    private int metaPathLength;
-    private int currentLabelId = 0;
-    private HashMap<Integer, HashMap<String, HashSet<Integer>>> duplicateFreeMetaPaths;
-    private PrintStream out;
-    private PrintStream debugOut;
-    private int printCount = 0;
-    private double estimatedCount;
-    private long startTime;
-    private HashMap<AbstractMap.SimpleEntry<Integer, Integer>, Integer> labelDictionary;
-    private float ratioHighDegreeNodes;
-    private List<Integer> maxDegreeNodes;
-    final int MAX_NOF_THREADS = 12; //TODO why not full utilization?
-    final Semaphore threadSemaphore = new Semaphore(MAX_NOF_THREADS);
+    private final TypedAdjacency adjacency;
+    private final LabelMapping labelMapping;
+    private final int metaPathLength;
+    private final float ratioHighDegreeNodes;
+    private final PackedMetaPath codec;
+    private final HighDegreeMetaPathIndexWriter indexWriter;
 
-    public MetaPathPrecomputeHighDegreeNodes(HeavyGraph graph, ArrayGraphInterface arrayGraphInterface, Degrees degrees, int metaPathLength, float ratioHighDegreeNodes) throws IOException {
-        this.graph = graph;
-        this.arrayGraphInterface = arrayGraphInterface;
-        this.metaPathsWeights = new ArrayList<>();
-        this.metaPathLength = metaPathLength;
-        this.out = new PrintStream(new FileOutputStream("Precomputed_MetaPaths_HighDegree.txt"));//ends up in root/tests //or in dockerhome
-        this.debugOut = new PrintStream(new FileOutputStream("Precomputed_MetaPaths_HighDegree_Debug.txt"));
-        this.estimatedCount = Math.pow(arrayGraphInterface.getAllLabels().size(), metaPathLength + 1);
-        this.labelDictionary = new HashMap<>();
-        this.degrees = degrees;
-        this.ratioHighDegreeNodes = ratioHighDegreeNodes;
-        this.duplicateFreeMetaPaths = new HashMap<>();
+    public MetaPathPrecomputeHighDegreeNodes(HeavyGraph graph, LabelMapping labelMapping, int metaPathLength, float ratioHighDegreeNodes) {
+        this(TypedAdjacency.of(graph, labelMapping), labelMapping, metaPathLength, ratioHighDegreeNodes);
     }
 
-    public Result compute() throws InterruptedException{
-        debugOut.println("started computation");
-        startTime = System.nanoTime();
-        maxDegreeNodes = getMaxDegreeNodes();
-        HashMap<Integer, HashMap<String, HashSet<Integer>>> finalMetaPaths = computeAllMetaPaths();
-        long endTime = System.nanoTime();
-
-        debugOut.println("calculation took: " + String.valueOf(endTime - startTime));
-        debugOut.println("actual amount of metaPaths: " + printCount);
-        debugOut.println("total time past: " + (endTime - startTime));
-        debugOut.println("finished computation");
-
-        System.out.println(endTime - startTime);
-        return new Result(finalMetaPaths);
-    }
-
-    private void outputIndexStructure(int highDegreeNode, HashMap<String, HashSet<Integer>> metaPaths){
-        synchronized(out) {
-            out.print(highDegreeNode + ":");
-            metaPaths.forEach((metaPath, endNodes) -> out.print(metaPath + "=" + endNodes.stream().map(Object::toString).collect(Collectors.joining(",")) + "-"));
-            out.print("\n");
+    public MetaPathPrecomputeHighDegreeNodes(TypedAdjacency adjacency, LabelMapping labelMapping, int metaPathLength, float ratioHighDegreeNodes) {
+        this.adjacency = adjacency;
+        this.labelMapping = labelMapping;
+        this.metaPathLength = metaPathLength;
+        this.ratioHighDegreeNodes = ratioHighDegreeNodes;
+        this.codec = new PackedMetaPath(labelMapping);
+        if (codec.maxLength() < metaPathLength) {
+            throw new IllegalArgumentException("meta-paths of length " + metaPathLength + " exceed the packed meta-path layout, at most " + codec.maxLength() + " are supported");
         }
+        this.indexWriter = new HighDegreeMetaPathIndexWriter(codec, metaPathLength);
     }
 
-    public HashMap<Integer, HashMap<String, HashSet<Integer>>> computeAllMetaPaths() throws InterruptedException {
-
-        initializeLabelDict();
-        computeMetaPathsFromAllRelevantNodes();
-
-        return duplicateFreeMetaPaths;
+    /**
+     * compute the meta-paths of the high degree nodes and write them into the index file
+     */
+    public Result compute(Path indexFile) throws IOException {
+        forEachParallel(highDegreeNodes(), this::computeMetaPathsFromNode);
+        indexWriter.write(indexFile);
+        return new Result(HighDegreeMetaPathIndex.open(indexFile));
     }
 
-    private void initializeLabelDict() {
-        currentLabelId = 0;
-
-        for (int nodeLabel : arrayGraphInterface.getAllLabels()) {
-            for (int edgeLabel : arrayGraphInterface.getAllEdgeLabels()) {
-                assignIdToNodeLabel(edgeLabel, nodeLabel);
-            }
+    /**
+     * expands the meta-paths of one prefix, every (edge label, node label) step with
+     * instances becomes a subtask which can be stolen by idle workers of the pool
+     */
+    private final class ExpandTask extends RecursiveAction {
+        private final LongObjectHashMap<int[]> metaPaths;
+        private final long currentMetaPath;
+        private final int[] currentInstances;
+        private final int metaPathLength;
+
+        private ExpandTask(LongObjectHashMap<int[]> metaPaths, long currentMetaPath, int[] currentInstances, int metaPathLength) {
+            this.metaPaths = metaPaths;
+            this.currentMetaPath = currentMetaPath;
+            this.currentInstances = currentInstances;
+            this.metaPathLength = metaPathLength;
         }
-    }
 
-    private int assignIdToNodeLabel(int edgeLabel, int nodeLabel) {
-        labelDictionary.put(new AbstractMap.SimpleEntry<>(edgeLabel, nodeLabel), currentLabelId);
-        currentLabelId++;
-        return currentLabelId - 1;
-    }
-
-    private void computeMetaPathsFromAllRelevantNodes() throws InterruptedException {//TODO: rework for Instances
-        ArrayList<ComputeMetaPathFromNodeThread> threads = new ArrayList<>(MAX_NOF_THREADS);
-        int i = 0;
-        for (int nodeID : maxDegreeNodes) {
-            threadSemaphore.acquire();
-            ComputeMetaPathFromNodeThread thread = new ComputeMetaPathFromNodeThread(this, "thread--" + i, nodeID, metaPathLength);
-            thread.start();
-            threads.add(thread);
-            i++;
-
-        }
+        @Override
+        protected void compute() {
+            if (metaPathLength <= 0) {
+                return;
+            }
 
-        for (ComputeMetaPathFromNodeThread thread : threads) {
-            try {
-                thread.join();
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+            List<ExpandTask> subtasks = new ArrayList<>();
+            for (IntObjectCursor<IntArrayList> next : nextInstances(currentInstances)) {
+                long newMetaPath = codec.extend(currentMetaPath, TypedAdjacency.type(next.key), TypedAdjacency.label(next.key));
+                int[] nextInstances = sortedDistinct(next.value);
+                addMetaPath(metaPaths, newMetaPath, nextInstances);
+                subtasks.add(new ExpandTask(metaPaths, newMetaPath, nextInstances, metaPathLength - 1));
             }
+            forkAll(subtasks);
         }
     }
 
-    private void computeMetaPathFromNodeLabel(ArrayList<Integer> currentMetaPath, HashSet<Integer> currentInstances, int metaPathLength) {
-        if (metaPathLength <= 0) {
-            return;
-        }
-
-        ArrayList<HashSet<Integer>> nextInstances = allocateNextInstances();
-        fillNextInstances(currentInstances, nextInstances);
-        currentInstances = null;//not sure if this helps or not
-
-        for(int edgeLabel : arrayGraphInterface.getAllEdgeLabels()) {
-            for (int nodeLabel : arrayGraphInterface.getAllLabels()) {
-                int key = labelDictionary.get(new AbstractMap.SimpleEntry<>(edgeLabel, nodeLabel));
-                HashSet<Integer> nextInstancesForLabel = nextInstances.get(key);
-
-                if(!nextInstancesForLabel.isEmpty()) {
-                    nextInstances.set(key, null);
-
-                    ArrayList<Integer> newMetaPath = copyMetaPath(currentMetaPath);
-                    newMetaPath.add(edgeLabel);
-                    newMetaPath.add(nodeLabel);
-                    addMetaPath(newMetaPath, nextInstancesForLabel);
-
-                    computeMetaPathFromNodeLabel(newMetaPath, nextInstancesForLabel, metaPathLength - 1);
-                    nextInstancesForLabel = null;
+    /**
+     * the neighbours of the instances, grouped by the (type, label) key of the step that reaches them
+     */
+    private IntObjectHashMap<IntArrayList> nextInstances(int[] currentInstances) {
+        IntObjectHashMap<IntArrayList> nextInstances = new IntObjectHashMap<>();
+        for (int instance : currentInstances) {
+            int end = adjacency.end(instance);
+            for (int i = adjacency.start(instance); i < end; i++) {
+                int key = adjacency.key(i);
+                IntArrayList instances = nextInstances.get(key);
+                if (instances == null) {
+                    instances = new IntArrayList();
+                    nextInstances.put(key, instances);
                 }
+                instances.add(adjacency.target(i));
             }
         }
-    }
-
-    private ArrayList<HashSet<Integer>> allocateNextInstances() {
-        int nextInstancesSize = arrayGraphInterface.getAllLabels().size() * arrayGraphInterface.getAllEdgeLabels().size();
-        ArrayList<HashSet<Integer>> nextInstances = new ArrayList<>(nextInstancesSize);
-
-        for (int i = 0; i < nextInstancesSize; i++) {
-            nextInstances.add(new HashSet<>());
-        }
-
         return nextInstances;
     }
 
-    private void fillNextInstances(HashSet<Integer> currentInstances, ArrayList<HashSet<Integer>> nextInstances) {
-        for (int instance : currentInstances) {
-            for (int nodeId : arrayGraphInterface.getAdjacentNodes(instance)) { //TODO: check if getAdjacentNodes works
-                int label = arrayGraphInterface.getLabel(nodeId); //get the id of the label of the node
-                int edgeLabel = arrayGraphInterface.getEdgeLabel(instance, nodeId);
-                int labelID = labelDictionary.get(new AbstractMap.SimpleEntry<>(edgeLabel, label));
-
-                nextInstances.get(labelID).add(nodeId); // add the node to the corresponding instances array
+    /**
+     * the instances in ascending order without duplicates, as the index stores them
+     */
+    private static int[] sortedDistinct(IntArrayList instances) {
+        int[] buffer = instances.buffer;
+        int size = instances.size();
+        Arrays.sort(buffer, 0, size);
+        int distinct = 0;
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || buffer[distinct - 1] != buffer[i]) {
+                buffer[distinct++] = buffer[i];
             }
         }
+        return Arrays.copyOf(buffer, distinct);
     }
 
-    private ArrayList<Integer> copyMetaPath(ArrayList<Integer> currentMetaPath) {
-        ArrayList<Integer> newMetaPath = new ArrayList<>();
-        for (int label : currentMetaPath) {
-            newMetaPath.add(label);
+    /**
+     * every meta-path is reached from exactly one prefix, its instances are the end nodes
+     */
+    private void addMetaPath(LongObjectHashMap<int[]> metaPaths, long newMetaPath, int[] nextInstancesForLabel) {
+        synchronized (metaPaths) {
+            metaPaths.put(newMetaPath, nextInstancesForLabel);
         }
-        return newMetaPath;
     }
 
-    private String addMetaPath(ArrayList<Integer> newMetaPath, HashSet<Integer> nextInstancesForLabel) {
-        String joinedMetaPath = newMetaPath.stream().map(Object::toString).collect(Collectors.joining("|"));
-        int nodeID = ((ComputeMetaPathFromNodeThread) Thread.currentThread()).getNodeID();
-        duplicateFreeMetaPaths.get(nodeID).putIfAbsent(joinedMetaPath, nextInstancesForLabel);
-        duplicateFreeMetaPaths.get(nodeID).get(joinedMetaPath).addAll(nextInstancesForLabel);
-
-        return joinedMetaPath;
+    public void computeMetaPathsFromNode(int nodeId) {
+        LongObjectHashMap<int[]> metaPaths = new LongObjectHashMap<>();
+        // the start label is part of the packed path, it is not stored as a step of its own
+        long initialMetaPath = codec.start(labelMapping.getLabel(nodeId));
+        invoke(new ExpandTask(metaPaths, initialMetaPath, new int[]{nodeId}, metaPathLength - 1));
+        // encoding the end nodes releases the instances of this node
+        indexWriter.add(nodeId, metaPaths);
     }
 
-    public void computeMetaPathFromNodeLabel(int nodeID, int metaPathLength) {
-        duplicateFreeMetaPaths.put(nodeID, new HashMap<>());
-        ArrayList<Integer> initialMetaPath = new ArrayList<>();
-        //initialMetaPath.add(arrayGraphInterface.getLabel(nodeID)); //Not needed as the high degree node (start node) ID is given in the file and its label ID can be easily derived
-        //TODO less hacky
-        HashSet<Integer> initialInstaceRow = new HashSet<>();
-        initialInstaceRow.add(nodeID);
-        computeMetaPathFromNodeLabel(initialMetaPath, initialInstaceRow, metaPathLength - 1);
-        outputIndexStructure(nodeID, duplicateFreeMetaPaths.get(nodeID));
-        duplicateFreeMetaPaths.remove(nodeID);
-        threadSemaphore.release();
+    /**
+     * the {@code ratioHighDegreeNodes} share of all nodes with the highest degrees, at least one node
+     */
+    List<Integer> highDegreeNodes() {
+        int nodeCount = adjacency.nodeCount();
+        int count = (int) Math.min(nodeCount, Math.ceil((double) nodeCount * ratioHighDegreeNodes));
+        // degree in the upper and node id in the lower half, sorting puts the highest degrees last
+        long[] nodes = new long[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            nodes[node] = (long) (adjacency.end(node) - adjacency.start(node)) << 32 | node;
+        }
+        Arrays.sort(nodes);
+        List<Integer> highDegreeNodes = new ArrayList<>(count);
+        for (int i = nodeCount - count; i < nodeCount; i++) {
+            highDegreeNodes.add((int) nodes[i]);
+        }
+        return highDegreeNodes;
     }
-/*
-    private HashSet<Integer> initInstancesRow(int startNodeLabel) {
-        int startNodeLabelId = labelDictionary.get(startNodeLabel);
-        HashSet<Integer> row = initialInstances.get(startNodeLabelId);
-        return row;
-    }*/
-
-    //TODO------------------------------------------------------------------------------------------------------------------
 
     @Override
     public MetaPathPrecomputeHighDegreeNodes me() {
@@ -223,10 +180,10 @@ public class MetaPathPrecomputeHighDegreeNodes extends MetaPathComputation {
      */
     public static final class Result {
 
-        HashMap<Integer, HashMap<String, HashSet<Integer>>> finalMetaPaths;
+        private final HighDegreeMetaPathIndex index;
 
-        public Result(HashMap<Integer, HashMap<String, HashSet<Integer>>> finalMetaPaths) {
-            this.finalMetaPaths = finalMetaPaths;
+        public Result(HighDegreeMetaPathIndex index) {
+            this.index = index;
         }
 
         @Override
@@ -234,36 +191,35 @@ public class MetaPathPrecomputeHighDegreeNodes extends MetaPathComputation {
             return "Result{}";
         }
 
-        public HashMap<Integer, HashMap<String, HashSet<Integer>>> getFinalMetaPaths() {
-            return finalMetaPaths;
+        public HighDegreeMetaPathIndex getIndex() {
+            return index;
         }
-    }
-
-    private List<Integer> getMaxDegreeNodes() {
-        ArrayList<Integer> nodeList = new ArrayList();
-        List<Integer> maxDegreeNodes;
-        graph.forEachNode(nodeList::add);
-        nodeList.sort(new DegreeComparator(graph)); //TODO Use Array instead of list?
-
-        maxDegreeNodes = nodeList.subList((int) (nodeList.size() - Math.ceil((double) nodeList.size() * ratioHighDegreeNodes)), nodeList.size());
-        for (int nodeID : maxDegreeNodes) { //TODO always consecutive? (without gap)
-            debugOut.println("nodeID: " + nodeID + "; degree: " + graph.degree(nodeID, Direction.BOTH) + "; label: " ); // TODO gaph.getLabel(nodeID));
 
+        /**
+         * copy the index onto the heap, the meta-paths are keyed by their edge and node labels
+         * without the label of the high degree node, e.g. {@code "edgeLabel|nodeLabel"}
+         */
+        public HashMap<Integer, HashMap<String, HashSet<Integer>>> getFinalMetaPaths() {
+            HashMap<Integer, HashMap<String, HashSet<Integer>>> finalMetaPaths = new HashMap<>();
+            for (int i = 0; i < index.nodeCount(); i++) {
+                int nodeId = index.nodeId(i);
+                HashMap<String, HashSet<Integer>> metaPaths = new HashMap<>();
+                index.forEach(nodeId, (packedMetaPath, endNodes) -> {
+                    ComputeAllMetaPaths.MetaPath metaPath = index.codec().decode(packedMetaPath);
+                    StringJoiner joiner = new StringJoiner("|");
+                    for (int j = 1; j < metaPath.length; j++) {
+                        joiner.add(String.valueOf(metaPath.path[j]));
+                    }
+                    HashSet<Integer> ends = new HashSet<>();
+                    for (int end = endNodes.next(); end != -1; end = endNodes.next()) {
+                        ends.add(end);
+                    }
+                    metaPaths.put(joiner.toString(), ends);
+                    return true;
+                });
+                finalMetaPaths.put(nodeId, metaPaths);
+            }
+            return finalMetaPaths;
         }
-        return maxDegreeNodes;
     }
 }
-
-
-class DegreeComparator implements Comparator<Integer> {
-    HeavyGraph graph;
-
-    DegreeComparator(HeavyGraph graph) {
-        this.graph = graph;
-    }
-
-    @Override
-    public int compare(Integer a, Integer b) {
-        return Integer.compare(graph.degree(a, Direction.BOTH), graph.degree(b, Direction.BOTH));
-    }
-}
\ No newline at end of file
@@ -0,0 +1,116 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+
+import java.util.Collection;
+
+/**
+ * Encodes a meta-path as a single long. Label and type ids are stored shifted by one
+ * (so that the missing label -1 becomes 0) using just as many bits as the largest id
+ * needs. A leading 1-bit marks the start of the path, which makes the length recoverable
+ * from the position of the highest set bit.
+ */
+public final class PackedMetaPath {
+
+    private final int labelBits;
+    private final int typeBits;
+    private final long labelMask;
+    private final long typeMask;
+
+    public PackedMetaPath(LabelMapping labelMapping) {
+        this(bits(labelMapping.getAllNodeLabels()), bits(labelMapping.getAllEdgeLabels()));
+    }
+
+    /**
+     * layout for graphs that identify labels and types by plain int ids
+     */
+    public static PackedMetaPath of(Collection<Integer> labelIds, Collection<Integer> typeIds) {
+        return new PackedMetaPath(bits(max(labelIds)), bits(max(typeIds)));
+    }
+
+    PackedMetaPath(int labelBits, int typeBits) {
+        this.labelBits = labelBits;
+        this.typeBits = typeBits;
+        this.labelMask = (1L << labelBits) - 1;
+        this.typeMask = (1L << typeBits) - 1;
+    }
+
+    /**
+     * maximum number of node labels a packed meta-path can hold
+     */
+    public int maxLength() {
+        return (62 + typeBits) / (labelBits + typeBits);
+    }
+
+    int labelBits() {
+        return labelBits;
+    }
+
+    int typeBits() {
+        return typeBits;
+    }
+
+    public long start(short label) {
+        return 1L << labelBits | encode(label, labelMask);
+    }
+
+    public long extend(long path, short type, short label) {
+        path = path << typeBits | encode(type, typeMask);
+        return path << labelBits | encode(label, labelMask);
+    }
+
+    /**
+     * number of node labels in the path
+     */
+    public int length(long path) {
+        int bits = 63 - Long.numberOfLeadingZeros(path);
+        return (bits - labelBits) / (labelBits + typeBits) + 1;
+    }
+
+    public ComputeAllMetaPaths.MetaPath decode(long path) {
+        int length = length(path);
+        short[] ids = new short[2 * length - 1];
+        for (int i = ids.length - 1; i >= 0; i--) {
+            if (i % 2 == 0) {
+                ids[i] = (short) ((path & labelMask) - 1);
+                path >>>= labelBits;
+            } else {
+                ids[i] = (short) ((path & typeMask) - 1);
+                path >>>= typeBits;
+            }
+        }
+        ComputeAllMetaPaths.MetaPath metaPath = new ComputeAllMetaPaths.MetaPath(ids[0]);
+        for (int i = 1; i < ids.length; i++) {
+            metaPath.add(ids[i]);
+        }
+        return metaPath;
+    }
+
+    private static long encode(short id, long mask) {
+        long value = id + 1L;
+        if (value < 0 || value > mask) {
+            throw new IllegalArgumentException("id " + id + " exceeds the packed meta-path layout");
+        }
+        return value;
+    }
+
+    static int bits(short[] ids) {
+        int max = -1;
+        for (short id : ids) {
+            max = Math.max(max, id);
+        }
+        return bits(max);
+    }
+
+    private static int bits(int maxId) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(maxId + 1));
+    }
+
+    private static int max(Collection<Integer> ids) {
+        int max = -1;
+        for (int id : ids) {
+            max = Math.max(max, id);
+        }
+        return max;
+    }
+}
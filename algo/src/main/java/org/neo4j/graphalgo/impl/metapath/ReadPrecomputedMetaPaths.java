@@ -1,6 +1,8 @@
 package org.neo4j.graphalgo.impl.metapath;
 
 import java.io.*;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.regex.Pattern;
 
@@ -13,6 +15,21 @@ public class ReadPrecomputedMetaPaths extends MetaPathComputation {
     public ReadPrecomputedMetaPaths.Result readMetaPaths(String filePath)
     {
         HashMap<String, Long> metaPathDict = new HashMap<>();
+        Path path = Paths.get(filePath);
+        if (MetaPathIndex.isIndex(path)) {
+            try {
+                MetaPathIndex index = MetaPathIndex.open(path);
+                index.forEach((metaPath, count) -> {
+                    metaPathDict.put(metaPath.toString(), count);
+                    return true;
+                });
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+            return new ReadPrecomputedMetaPaths.Result(metaPathDict);
+        }
+
+        // legacy tab separated text format
         try(BufferedReader br = new BufferedReader(new FileReader(filePath))) {
             String line = br.readLine();
 
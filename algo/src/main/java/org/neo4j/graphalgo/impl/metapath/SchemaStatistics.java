@@ -0,0 +1,194 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.ProgressLogger;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphalgo.impl.metapath.labels.Tokens;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.helpers.Exceptions;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Number of relationships for every (start label, relationship type, end label) triple of a graph,
+ * the same numbers {@code MATCH (:Start)-[:TYPE]-(:End) RETURN count(*)} returns. Relationships are
+ * undirected, so every relationship is counted from both of its ends and the tensor is symmetric in
+ * its labels.
+ * <p>
+ * The counts are stored in a dense tensor indexed by the token ids. It is filled in a single pass
+ * over the graph with one task per start label, every task only writes the slice of its own label.
+ */
+public final class SchemaStatistics {
+
+    private final Tokens labels;
+    private final Tokens types;
+    private final int labelDim;
+    private final int typeDim;
+    private final long[] counts;
+
+    private SchemaStatistics(Tokens labels, Tokens types) {
+        this.labels = labels;
+        this.types = types;
+        this.labelDim = dimension(labels.ids);
+        this.typeDim = dimension(types.ids);
+        this.counts = new long[Math.multiplyExact(Math.multiplyExact(labelDim, typeDim), labelDim)];
+    }
+
+    /**
+     * load the graph of the database with its labels and relationship types and count its triples
+     */
+    public static SchemaStatistics load(GraphDatabaseAPI api, int concurrency, ExecutorService executor) {
+        final HeavyGraph graph = (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .withRelationshipTypes()
+                .withExecutorService(executor)
+                .load(HeavyGraphFactory.class);
+        final LabelMapping labelMapping;
+        try {
+            labelMapping = LabelImporter.loadMetaData(graph, api, concurrency, ParallelUtil.DEFAULT_BATCH_SIZE, executor, ProgressLogger.NULL_LOGGER);
+        } catch (EntityNotFoundException e) {
+            throw Exceptions.launderedException(e);
+        }
+        SchemaStatistics statistics = of(graph, labelMapping, concurrency);
+        graph.release();
+        return statistics;
+    }
+
+    /**
+     * count all (label, type, label) triples of the graph, which should be loaded as undirected
+     */
+    public static SchemaStatistics of(HeavyGraph graph, LabelMapping labelMapping, int concurrency) {
+        SchemaStatistics statistics = new SchemaStatistics(labelMapping.getLabels(), labelMapping.getTypes());
+        short[] labels = labelMapping.getAllNodeLabels();
+        int[][] nodesByLabel = ComputeAllMetaPathsPrimitive.nodesByLabel(labelMapping, labels);
+
+        List<StartLabelTask> tasks = new ArrayList<>(labels.length);
+        for (int i = 0; i < labels.length; i++) {
+            tasks.add(statistics.new StartLabelTask(graph, labelMapping, labels[i], nodesByLabel[i]));
+        }
+        MetaPathComputation.forEachParallel(concurrency, tasks, StartLabelTask::run);
+        return statistics;
+    }
+
+    public Tokens labels() {
+        return labels;
+    }
+
+    public Tokens types() {
+        return types;
+    }
+
+    public long count(short startLabel, short type, short endLabel) {
+        if (!contains(startLabel, labelDim) || !contains(type, typeDim) || !contains(endLabel, labelDim)) {
+            return 0L;
+        }
+        return counts[index(startLabel, type, endLabel)];
+    }
+
+    /**
+     * count of the triple given by label and type names, 0 if one of them does not exist
+     */
+    public long count(String startLabel, String type, String endLabel) {
+        return count(labels.id(startLabel), types.id(type), labels.id(endLabel));
+    }
+
+    /**
+     * sum over all triples, each relationship is counted twice
+     */
+    public long total() {
+        long total = 0L;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * visit every triple with at least one relationship
+     */
+    public void forEach(TripleConsumer consumer) {
+        for (short startLabel : labels.ids) {
+            for (short type : types.ids) {
+                for (short endLabel : labels.ids) {
+                    long count = counts[index(startLabel, type, endLabel)];
+                    if (count > 0) {
+                        consumer.accept(startLabel, type, endLabel, count);
+                    }
+                }
+            }
+        }
+    }
+
+    private int index(int startLabel, int type, int endLabel) {
+        return (startLabel * typeDim + type) * labelDim + endLabel;
+    }
+
+    private static boolean contains(short id, int dimension) {
+        return id >= 0 && id < dimension;
+    }
+
+    private static int dimension(short[] ids) {
+        int max = -1;
+        for (short id : ids) {
+            max = Math.max(max, id);
+        }
+        return max + 1;
+    }
+
+    public interface TripleConsumer {
+        void accept(short startLabel, short type, short endLabel, long count);
+    }
+
+    private final class StartLabelTask implements Runnable {
+
+        private final HeavyGraph graph;
+        private final LabelMapping labelMapping;
+        private final short label;
+        private final int[] startNodes;
+
+        StartLabelTask(HeavyGraph graph, LabelMapping labelMapping, short label, int[] startNodes) {
+            this.graph = graph;
+            this.labelMapping = labelMapping;
+            this.label = label;
+            this.startNodes = startNodes;
+        }
+
+        @Override
+        public void run() {
+            // the slice of the start label, no other task writes into it
+            final int sliceOffset = index(label, 0, 0);
+            for (int node : startNodes) {
+                if (graph.hasRelationshipTypes()) {
+                    graph.forEachRelationship(node, Direction.BOTH, (int sourceNodeId, int targetNodeId, long relationId, short typeId) -> {
+                        add(sliceOffset, typeId, targetNodeId);
+                        return true;
+                    });
+                } else {
+                    graph.forEachRelationship(node, Direction.BOTH, (sourceNodeId, targetNodeId, relationId) -> {
+                        add(sliceOffset, labelMapping.getEdgeLabel(sourceNodeId, targetNodeId), targetNodeId);
+                        return true;
+                    });
+                }
+            }
+        }
+
+        private void add(int sliceOffset, short type, int targetNodeId) {
+            if (!contains(type, typeDim)) {
+                return;
+            }
+            int typeOffset = sliceOffset + type * labelDim;
+            for (short endLabel : labelMapping.getLabels(targetNodeId)) {
+                counts[typeOffset + endLabel]++;
+            }
+        }
+    }
+}
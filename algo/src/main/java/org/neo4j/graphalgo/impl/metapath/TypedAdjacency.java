@@ -0,0 +1,102 @@
+package org.neo4j.graphalgo.impl.metapath;
+
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphdb.Direction;
+
+import java.util.Arrays;
+
+/**
+ * Compressed sparse row adjacency where every entry carries the relationship type and
+ * the label of the neighbour, combined into one int key. The entries of a node are sorted
+ * by that key so that all neighbours reached by the same (type, label) step are stored
+ * consecutively and can be consumed without hashing.
+ */
+public final class TypedAdjacency {
+
+    private final int nodeCount;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] keys;
+
+    private TypedAdjacency(int nodeCount, int[] offsets, int[] targets, int[] keys) {
+        this.nodeCount = nodeCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.keys = keys;
+    }
+
+    public static TypedAdjacency of(HeavyGraph graph, LabelMapping labelMapping) {
+        final int nodeCount = Math.toIntExact(graph.nodeCount());
+        final int[] offsets = new int[nodeCount + 1];
+        int maxDegree = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            int degree = graph.degree(node, Direction.BOTH);
+            maxDegree = Math.max(maxDegree, degree);
+            offsets[node + 1] = Math.addExact(offsets[node], degree);
+        }
+
+        final int[] targets = new int[offsets[nodeCount]];
+        final int[] keys = new int[offsets[nodeCount]];
+        final long[] scratch = new long[maxDegree];
+        final int[] size = {0};
+        for (int node = 0; node < nodeCount; node++) {
+            size[0] = 0;
+            if (graph.hasRelationshipTypes()) {
+                graph.forEachRelationship(node, Direction.BOTH, (int sourceNodeId, int targetNodeId, long relationId, short typeId) -> {
+                    int key = key(typeId, labelMapping.getLabel(targetNodeId));
+                    scratch[size[0]++] = (long) key << 32 | (targetNodeId & 0xFFFFFFFFL);
+                    return true;
+                });
+            } else {
+                graph.forEachRelationship(node, Direction.BOTH, (sourceNodeId, targetNodeId, relationId) -> {
+                    int key = key(labelMapping.getEdgeLabel(sourceNodeId, targetNodeId), labelMapping.getLabel(targetNodeId));
+                    scratch[size[0]++] = (long) key << 32 | (targetNodeId & 0xFFFFFFFFL);
+                    return true;
+                });
+            }
+            Arrays.sort(scratch, 0, size[0]);
+            int offset = offsets[node];
+            for (int i = 0; i < size[0]; i++) {
+                keys[offset + i] = (int) (scratch[i] >> 32);
+                targets[offset + i] = (int) scratch[i];
+            }
+        }
+        return new TypedAdjacency(nodeCount, offsets, targets, keys);
+    }
+
+    /**
+     * combine relationship type and neighbour label, same layout as {@link ComputeAllMetaPaths}
+     */
+    public static int key(short type, short label) {
+        return (int) type << 16 | (label & 0xFFFF);
+    }
+
+    public static short type(int key) {
+        return (short) (key >> 16);
+    }
+
+    public static short label(int key) {
+        return (short) key;
+    }
+
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    public int start(int nodeId) {
+        return offsets[nodeId];
+    }
+
+    public int end(int nodeId) {
+        return offsets[nodeId + 1];
+    }
+
+    public int target(int index) {
+        return targets[index];
+    }
+
+    public int key(int index) {
+        return keys[index];
+    }
+}
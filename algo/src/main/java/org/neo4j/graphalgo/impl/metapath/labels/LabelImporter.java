@@ -1,71 +1,149 @@
 package org.neo4j.graphalgo.impl.metapath.labels;
 
+import com.carrotsearch.hppc.LongShortHashMap;
+import com.carrotsearch.hppc.LongShortMap;
+import org.neo4j.collection.primitive.PrimitiveIntIterable;
 import org.neo4j.collection.primitive.PrimitiveIntIterator;
-import org.neo4j.collection.primitive.PrimitiveLongIterator;
-import org.neo4j.graphalgo.api.IdMapping;
-import org.neo4j.graphalgo.core.IdMap;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.core.utils.ProgressLogger;
+import org.neo4j.graphalgo.core.utils.RawValues;
 import org.neo4j.graphalgo.core.utils.StatementTask;
+import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.kernel.api.ReadOperations;
 import org.neo4j.kernel.api.Statement;
 import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.impl.api.RelationshipVisitor;
+import org.neo4j.kernel.impl.api.store.RelationshipIterator;
 import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
 
-public class LabelImporter extends StatementTask<LabelMapping, EntityNotFoundException> {
-    private final IdMapping mapping;
+/**
+ * Imports the node labels and relationship types of one batch of nodes into a {@link LabelMapping}.
+ * Batches are created by {@link ParallelUtil#readParallel} like the relationship import of the
+ * heavy graph. Each batch writes the labels of its own nodes and collects the types of their
+ * outgoing relationships into a private map, so batches never share mutable state.
+ */
+public class LabelImporter extends StatementTask<Void, EntityNotFoundException> {
 
-    public LabelImporter(GraphDatabaseAPI api, IdMapping mapping) {
+    private final HeavyGraph graph;
+    private final LabelMapping labelMapping;
+    private final int nodeOffset;
+    private final PrimitiveIntIterable nodes;
+    private final boolean loadTypes;
+    private final ProgressLogger progressLogger;
+    private final AtomicLong progress;
+    private int sourceNodeId;
+    private volatile boolean done;
+
+    private LabelImporter(
+            GraphDatabaseAPI api,
+            HeavyGraph graph,
+            LabelMapping labelMapping,
+            int nodeOffset,
+            PrimitiveIntIterable nodes,
+            ProgressLogger progressLogger,
+            AtomicLong progress) {
         super(api);
-        this.mapping = mapping;
+        this.graph = graph;
+        this.labelMapping = labelMapping;
+        this.nodeOffset = nodeOffset;
+        this.nodes = nodes;
+        // a typed graph already knows the type of each relationship
+        this.loadTypes = !graph.hasRelationshipTypes();
+        this.progressLogger = progressLogger;
+        this.progress = progress;
     }
 
     public static LabelMapping loadMetaData(HeavyGraph graph, GraphDatabaseAPI api) throws EntityNotFoundException {
+        return loadMetaData(graph, api, Pools.DEFAULT_CONCURRENCY, ParallelUtil.DEFAULT_BATCH_SIZE, Pools.DEFAULT, ProgressLogger.NULL_LOGGER);
+    }
+
+    public static LabelMapping loadMetaData(
+            HeavyGraph graph,
+            GraphDatabaseAPI api,
+            int concurrency,
+            int minBatchSize,
+            ExecutorService executor,
+            ProgressLogger progressLogger) throws EntityNotFoundException {
+        final int nodeCount = Math.toIntExact(graph.nodeCount());
+        final int batchSize = ParallelUtil.adjustBatchSize(nodeCount, concurrency, minBatchSize);
+        final LabelMapping labelMapping;
         try (Transaction tx = api.beginTx()) {
-            LabelMapping labelMapping;
             try (Statement statement = api.getDependencyResolver().resolveDependency(ThreadToStatementContextBridge.class).get()) {
-                labelMapping = new LabelImporter(api, graph).apply(statement);
+                ReadOperations readOp = statement.readOperations();
+                labelMapping = new LabelMapping(readOp.labelsGetAllTokens(), readOp.relationshipTypesGetAllTokens(), nodeCount, batchSize);
             }
             tx.success();
-            return labelMapping;
         }
+
+        final AtomicLong progress = new AtomicLong();
+        List<LabelImporter> tasks = ParallelUtil.readParallel(
+                concurrency,
+                batchSize,
+                graph,
+                (offset, nodes) -> new LabelImporter(api, graph, labelMapping, offset, nodes, progressLogger, progress),
+                executor);
+        // the executor may reject batches when it is saturated, those run on the calling thread
+        for (LabelImporter task : tasks) {
+            if (!task.done) {
+                task.run();
+            }
+        }
+        if (graph.hasRelationshipTypes()) {
+            labelMapping.useRelationshipTypesOf(graph);
+        }
+        progressLogger.logDone();
+        return labelMapping;
     }
 
     @Override
-    public LabelMapping apply(final Statement statement) throws EntityNotFoundException {
+    public Void apply(final Statement statement) throws EntityNotFoundException {
         final ReadOperations readOp = statement.readOperations();
+        final double nodeCount = graph.nodeCount();
+        final LongShortMap edgeLabelMap = new LongShortHashMap();
+        final RelationshipVisitor<EntityNotFoundException> visitOutgoing = (relationshipId, typeId, startNodeId, endNodeId) -> {
+            final int targetNodeId = graph.toMappedNodeId(endNodeId);
+            if (targetNodeId != -1) {
+                edgeLabelMap.put(RawValues.combineSorted(sourceNodeId, targetNodeId), (short) typeId);
+            }
+        };
 
-        LabelMapping labelMapping = new LabelMapping(readOp.labelsGetAllTokens(), readOp.relationshipTypesGetAllTokens());
-        PrimitiveLongIterator relationships = readOp.relationshipsGetAll();
-        while (relationships.hasNext()) {
-            long relationshipId = relationships.next();
-            readOp.relationshipVisit(relationshipId, (relationship, typeId, startNodeId, endNodeId) ->
-            {
-                int mapped_start = mapping.toMappedNodeId(startNodeId);
-                int mapped_end = mapping.toMappedNodeId(endNodeId);
-                labelMapping.putEdgeMapping(mapped_start, mapped_end, (short) typeId);
-            });
-        }
-
-        PrimitiveLongIterator nodes = readOp.nodesGetAll();
-        short[] labelArray = new short[100];
-        while (nodes.hasNext()) {
-            long id = nodes.next();
-            int mappedId = mapping.toMappedNodeId(id);
+        short[] labelArray = new short[16];
+        PrimitiveIntIterator iterator = nodes.iterator();
+        while (iterator.hasNext()) {
+            final int nodeId = iterator.next();
+            final long id = graph.toOriginalNodeId(nodeId);
+            this.sourceNodeId = nodeId;
             PrimitiveIntIterator labels = readOp.nodeGetLabels(id);
             int idx = 0;
             while (labels.hasNext()) {
-                if (idx > labelArray.length) {
-                    labelArray = Arrays.copyOf(labelArray, labelArray.length + 10);
+                if (idx >= labelArray.length) {
+                    labelArray = Arrays.copyOf(labelArray, labelArray.length * 2);
+                }
+                labelArray[idx++] = (short) labels.next();
+            }
+            labelMapping.setNodeMapping(nodeId, Arrays.copyOf(labelArray, idx));
+
+            if (loadTypes) {
+                RelationshipIterator relationships = readOp.nodeGetRelationships(id, Direction.OUTGOING);
+                while (relationships.hasNext()) {
+                    relationships.relationshipVisit(relationships.next(), visitOutgoing);
                 }
-                labelArray[idx++] = (short)labels.next();
             }
-            labelMapping.addNodeMapping(mappedId, Arrays.copyOf(labelArray, idx));
+            progressLogger.logProgress(progress.incrementAndGet(), nodeCount);
         }
-        return labelMapping;
+        if (loadTypes) {
+            labelMapping.setEdgeMappings(nodeOffset, edgeLabelMap);
+        }
+        done = true;
+        return null;
     }
-
 }
@@ -1,28 +1,39 @@
 package org.neo4j.graphalgo.impl.metapath.labels;
 
-import com.carrotsearch.hppc.IntObjectHashMap;
-import com.carrotsearch.hppc.IntObjectMap;
-import com.carrotsearch.hppc.LongShortHashMap;
 import com.carrotsearch.hppc.LongShortMap;
 import com.carrotsearch.hppc.cursors.IntObjectCursor;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
 import org.neo4j.graphalgo.core.utils.RawValues;
 import org.neo4j.storageengine.api.Token;
 
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
+/**
+ * Node labels and relationship types of a graph. Both are written by the batches of the
+ * {@link LabelImporter}: every batch owns the label slots of its nodes and a map with the
+ * types of the relationships that start at its nodes, so no synchronization is needed.
+ */
 public class LabelMapping implements GraphLabeler {
     private static final short[] NO_LABELS = new short[0];
     private final Tokens labels;
     private final Tokens types;
 
-    private IntObjectMap<short[]> nodeLabelsMap = new IntObjectHashMap<>();
-    private LongShortMap edgeLabelMap = new LongShortHashMap();
+    private final short[][] nodeLabels;
+    private final int batchSize;
+    // relationship types per import batch keyed by the sorted node pair
+    private final LongShortMap[] edgeLabelMaps;
+    // graph which stores the relationship types in its adjacency, replaces the edgeLabelMaps
+    private HeavyGraph typedGraph;
 
-    public LabelMapping(Iterator<Token> labels, Iterator<Token> types){
+    public LabelMapping(Iterator<Token> labels, Iterator<Token> types, int nodeCount, int batchSize){
         this.labels = new Tokens(labels);
         this.types = new Tokens(types);
+        this.nodeLabels = new short[nodeCount][];
+        this.batchSize = batchSize;
+        this.edgeLabelMaps = new LongShortMap[(int) ParallelUtil.threadSize(batchSize, nodeCount)];
     }
 
     @Override
@@ -35,7 +46,15 @@ public class LabelMapping implements GraphLabeler {
     }
 
     public void forEachNode(Consumer<IntObjectCursor<short[]>> callback) {
-        nodeLabelsMap.forEach(callback);
+        IntObjectCursor<short[]> cursor = new IntObjectCursor<>();
+        for (int nodeId = 0; nodeId < nodeLabels.length; nodeId++) {
+            if (nodeLabels[nodeId] != null) {
+                cursor.index = nodeId;
+                cursor.key = nodeId;
+                cursor.value = nodeLabels[nodeId];
+                callback.accept(cursor);
+            }
+        }
     }
     @Override
     public short[] getLabels(int nodeId){
@@ -67,20 +86,54 @@ public class LabelMapping implements GraphLabeler {
 
     @Override
     public short getEdgeLabel(int start, int end) {
+        if (typedGraph != null) {
+            return typedGraph.relationshipType(start, end);
+        }
         long combined = RawValues.combineSorted(start, end);
-        return edgeLabelMap.getOrDefault(combined, (short)-1);
+        short type = getEdgeLabel(start, combined);
+        return type != -1 ? type : getEdgeLabel(end, combined);
+    }
+
+    private short getEdgeLabel(int nodeId, long combined) {
+        if (nodeId < 0 || nodeId >= nodeLabels.length) {
+            return -1;
+        }
+        LongShortMap edgeLabelMap = edgeLabelMaps[nodeId / batchSize];
+        return edgeLabelMap == null ? -1 : edgeLabelMap.getOrDefault(combined, (short) -1);
     }
 
-    public void putEdgeMapping(int nodeId1, int nodeId2, short typeId){
-        long combined = RawValues.combineSorted(nodeId1, nodeId2);
-        edgeLabelMap.put(combined, typeId);
+    /**
+     * read the edge labels from the adjacency of the graph instead of the pair map,
+     * the graph must have been loaded with relationship types
+     */
+    public void useRelationshipTypesOf(HeavyGraph graph) {
+        if (!graph.hasRelationshipTypes()) {
+            throw new IllegalArgumentException("graph has been loaded without relationship types");
+        }
+        this.typedGraph = graph;
+        Arrays.fill(edgeLabelMaps, null);
+    }
+
+    public boolean hasRelationshipTypes() {
+        return typedGraph != null;
     }
 
-    public void addNodeMapping(int nodeId, short[] types){
-        nodeLabelsMap.put(nodeId,types);
+    /**
+     * set the relationship types of the batch starting at the given node offset
+     */
+    void setEdgeMappings(int nodeOffset, LongShortMap edgeLabelMap) {
+        edgeLabelMaps[nodeOffset / batchSize] = edgeLabelMap;
+    }
+
+    void setNodeMapping(int nodeId, short[] labels){
+        nodeLabels[nodeId] = labels;
     }
 
     private short[] getNodeMapping(int nodeId){
-        return nodeLabelsMap.getOrDefault(nodeId, NO_LABELS);
+        if (nodeId < 0 || nodeId >= nodeLabels.length) {
+            return NO_LABELS;
+        }
+        short[] labels = nodeLabels[nodeId];
+        return labels == null ? NO_LABELS : labels;
     }
 }
@@ -28,18 +28,20 @@ public class ComputeAllMetaPathsBetweenTypesProc {
     public KernelTransaction transaction;
 
     @Procedure("algo.computeAllMetaPathsBetweenTypes")
-    @Description("CALL algo.computeAllMetaPathsBetweenTypes(length:int, type1:String, type2:String) YIELD length: \n" +
+    @Description("CALL algo.computeAllMetaPathsBetweenTypes(length:int, type1:String, type2:String, concurrency:int) YIELD length: \n" +
             "Precomputes all metapaths up to a metapath-length given by 'length' and saves them to a File called 'Precomputed_MetaPaths.txt' \n")//TODO change description
 
     public Stream<ComputeAllMetaPathsBetweenTypesResult> ComputeAllMetaPathsBetweenTypes(
             @Name(value = "length", defaultValue = "5") String lengthString,
             @Name(value = "type1", defaultValue = "none") String type1,
-            @Name(value = "type2", defaultValue = "none") String type2) throws Exception {
+            @Name(value = "type2", defaultValue = "none") String type2,
+            @Name(value = "concurrency", defaultValue = "0") String concurrencyString) throws Exception {
         int length = Integer.valueOf(lengthString);
 
         final ComputeAllMetaPathsBetweenTypesResult.Builder builder = ComputeAllMetaPathsBetweenTypesResult.builder();
 
         final ComputeAllMetaPathsBetweenTypes algo = new ComputeAllMetaPathsBetweenTypes(length, type1, type2, api);
+        algo.setConcurrency(Integer.valueOf(concurrencyString));
         HashSet<String> metaPaths;
         Result result = algo.compute();
         metaPaths = result.getFinalMetaPaths();
@@ -4,7 +4,11 @@ import org.neo4j.graphalgo.api.IdMapping;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
-import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsForInstances;
+import org.neo4j.graphalgo.core.utils.AlgoDirectory;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsBetweenInstances;
+import org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
 import org.neo4j.graphalgo.results.metaPathComputationResults.ComputeAllMetaPathsForInstancesResult;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
@@ -15,9 +19,8 @@ import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.nio.file.Path;
 import java.util.HashSet;
-import java.util.List;
 import java.util.regex.Pattern;
 import java.util.stream.Stream;
 
@@ -34,12 +37,12 @@ public class ComputeAllMetaPathsForInstancesProc {
 
     @Procedure("algo.computeAllMetaPathsForInstances")
     @Description("CALL algo.computeAllMetaPathsForInstances(startNodes:long[], endNodes:long[], length:int) YIELD length: \n" +
-            "Compute all metaPaths up to a metapath-length given by 'length' that start with a startNode and end with a endNOde and saves them to a File called 'Precomputed_MetaPaths_Instances.txt' \n")
+            "Compute all metaPaths up to a metapath-length given by 'length' that start with a startNode and end with an endNode. The paths are searched from both sides and joined in the middle \n")
 
     public Stream<ComputeAllMetaPathsForInstancesResult> computeAllMetaPaths(
             @Name(value = "startNodes", defaultValue = "{}") String startNodesString,
             @Name(value = "endNodes", defaultValue = "{}") String endNodesString,
-            @Name(value = "length", defaultValue = "5") String lengthString) throws IOException {
+            @Name(value = "length", defaultValue = "5") String lengthString) throws Exception {
 
         int length = Integer.valueOf(lengthString);
 
@@ -62,27 +65,43 @@ public class ComputeAllMetaPathsForInstancesProc {
         graph = (HeavyGraph) new GraphLoader(api)
                 .asUndirected(true)
                 .withLabelAsProperty(true)
+                .withRelationshipTypes()
                 .load(HeavyGraphFactory.class);
 
-        HashSet<Integer> convertedEndNodes = new HashSet<>();//converting in the proc allows for easier testing
-        convertIds(graph, endNodes, convertedEndNodes);
-        List<Integer> startNodeList = new ArrayList<>(convertedEndNodes);
-
-        HashSet<Integer> convertedStartNodes = new HashSet<>();
+        HashSet<Integer> convertedStartNodes = new HashSet<>();//converting in the proc allows for easier testing
         convertIds(graph, startNodes, convertedStartNodes);
-        List<Integer> endNodeList = new ArrayList<>(convertedStartNodes);
 
-        final ComputeAllMetaPathsForInstances algo = null; // TODO  new ComputeAllMetaPathsForInstances(graph, graph, length, startNodeList, endNodeList);
+        HashSet<Integer> convertedEndNodes = new HashSet<>();
+        convertIds(graph, endNodes, convertedEndNodes);
+
+        LabelMapping labelMapping = LabelImporter.loadMetaData(graph, api);
+        final ComputeAllMetaPathsBetweenInstances algo = new ComputeAllMetaPathsBetweenInstances(graph, labelMapping, length);
+        graph.release();
+        algo.setHighDegreeIndex(openHighDegreeIndex());
         HashSet<String> metaPaths;
-        metaPaths = algo.compute().getFinalMetaPaths();
+        metaPaths = algo.compute(convertedStartNodes, convertedEndNodes);
         builder.setMetaPaths(metaPaths);
-        graph.release();
        return Stream.of(builder.build());
     }
 
+    /**
+     * the index written by algo.metaPathPrecomputeHighDegreeNodes, null if there is none
+     */
+    private HighDegreeMetaPathIndex openHighDegreeIndex() throws IOException {
+        if (!AlgoDirectory.isConfigured(api)) {
+            return null;
+        }
+        Path indexFile = AlgoDirectory.resolve(api, HighDegreeMetaPathIndex.DEFAULT_INDEX_FILE);
+        return HighDegreeMetaPathIndex.isIndex(indexFile) ? HighDegreeMetaPathIndex.open(indexFile) : null;
+    }
+
     public void convertIds(IdMapping idMapping, Long[] incomingIds, HashSet<Integer> convertedIds) {
         for (long id : incomingIds) {
-            convertedIds.add(idMapping.toMappedNodeId(id));
+            int mappedId = idMapping.toMappedNodeId(id);
+            if (mappedId == -1) {
+                throw new IllegalArgumentException("Node " + id + " does not exist");
+            }
+            convertedIds.add(mappedId);
         }
     }
 }
@@ -3,7 +3,15 @@ package org.neo4j.graphalgo.metaPathComputationProcs;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.impl.FilterMetaPaths;
+import org.neo4j.graphalgo.core.utils.ParallelUtil;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.core.utils.ProgressLogger;
 import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsPrimitive;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsSampled;
+import org.neo4j.graphalgo.impl.metapath.MetaPathIndexWriter;
+import org.neo4j.graphalgo.impl.metapath.PackedMetaPath;
 import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
 import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
 import org.neo4j.graphalgo.results.metaPathComputationResults.ComputeAllMetaPathsResult;
@@ -15,12 +23,9 @@ import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
-import java.io.FileOutputStream;
-import java.io.PrintStream;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 
 public class ComputeAllMetaPathsProc {
@@ -35,25 +40,72 @@ public class ComputeAllMetaPathsProc {
     public KernelTransaction transaction;
 
     @Procedure("algo.computeAllMetaPaths")
-    @Description("CALL algo.computeAllMetaPaths(length:int) YIELD length: \n" +
-            "Precomputes all metapaths up to a metapath-length given by 'length' and saves them to a File called 'Precomputed_MetaPaths.txt' \n")
+    @Description("CALL algo.computeAllMetaPaths(length:int, concurrency:int, samples:int, confidence:double, seed:int) YIELD length: \n" +
+            "Precomputes all metapaths up to a metapath-length given by 'length' and saves them to a binary index called 'Precomputed_MetaPaths.bin' \n" +
+            "If 'samples' is positive, the counts are estimated from that many random walks per start label instead, " +
+            "with bounds holding at the given 'confidence'. The walks are seeded with 'seed' (random if negative or not given), " +
+            "the seed used is returned with every estimate. Estimates are not saved to the index \n")
 
     public Stream<ComputeAllMetaPathsResult> computeAllMetaPaths(
-            @Name(value = "length", defaultValue = "5") Long length) throws Exception {
+            @Name(value = "length", defaultValue = "5") Long length,
+            @Name(value = "concurrency", defaultValue = "-1") Long concurrency,
+            @Name(value = "samples", defaultValue = "0") Long samples,
+            @Name(value = "confidence", defaultValue = "0.95") Double confidence,
+            @Name(value = "seed", defaultValue = "-1") Long seed) throws Exception {
+
+        final int threads = concurrency > 0 ? concurrency.intValue() : Pools.DEFAULT_CONCURRENCY;
 
         final HeavyGraph graph = (HeavyGraph) new GraphLoader(api)
                 .asUndirected(true)
                 .withLabelAsProperty(true)
+                .withRelationshipTypes()
                 .load(HeavyGraphFactory.class);
 
-        int processorCount = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(processorCount);
-
-        LabelMapping labelMapping = LabelImporter.loadMetaData(graph, api);
-        final ComputeAllMetaPaths algo = new ComputeAllMetaPaths(graph, labelMapping, length.intValue(),
-                    new PrintStream(new FileOutputStream("Precomputed_MetaPaths.txt")), executor);
+        LabelMapping labelMapping = LabelImporter.loadMetaData(graph, api, threads, ParallelUtil.DEFAULT_BATCH_SIZE, Pools.DEFAULT,
+                ProgressLogger.wrap(log, "LabelImport"));
+        if (samples > 0) {
+            // random seeds are kept non-negative so they can be passed back in
+            final long usedSeed = seed >= 0 ? seed : System.nanoTime() & Long.MAX_VALUE;
+            final ComputeAllMetaPathsSampled algo = new ComputeAllMetaPathsSampled(graph, labelMapping, length.intValue(),
+                    Math.toIntExact(samples), usedSeed, threads);
+            graph.release();
+            Map<ComputeAllMetaPaths.MetaPath, ComputeAllMetaPathsSampled.Estimate> result = algo.compute(confidence);
+            return result.entrySet().stream().map(e -> new ComputeAllMetaPathsResult(e.getKey(), e.getValue(), usedSeed, labelMapping));
+        }
+        final ComputeAllMetaPathsPrimitive algo = new ComputeAllMetaPathsPrimitive(graph, labelMapping, length.intValue(),
+                threads);
         Map<ComputeAllMetaPaths.MetaPath, Long> result = algo.compute();
         graph.release();
+        MetaPathIndexWriter.write(result, Paths.get(FilterMetaPaths.DEFAULT_INDEX_FILE));
         return result.entrySet().stream().map(e -> new ComputeAllMetaPathsResult(e.getKey(), e.getValue(), labelMapping));
     }
-}
\ No newline at end of file
+
+    @Procedure("algo.computeAllMetaPaths.stream")
+    @Description("CALL algo.computeAllMetaPaths.stream(length:int, concurrency:int, queueSize:int) YIELD metaPath, length, pathIds, count: \n" +
+            "Streams all metapaths up to a metapath-length given by 'length' while they are computed, without writing an index. " +
+            "At most 'queueSize' metapaths are buffered until they are consumed \n")
+
+    public Stream<ComputeAllMetaPathsResult> computeAllMetaPathsStream(
+            @Name(value = "length", defaultValue = "5") Long length,
+            @Name(value = "concurrency", defaultValue = "-1") Long concurrency,
+            @Name(value = "queueSize", defaultValue = "10000") Long queueSize) throws Exception {
+
+        final int threads = concurrency > 0 ? concurrency.intValue() : Pools.DEFAULT_CONCURRENCY;
+
+        final HeavyGraph graph = (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .withRelationshipTypes()
+                .load(HeavyGraphFactory.class);
+
+        LabelMapping labelMapping = LabelImporter.loadMetaData(graph, api, threads, ParallelUtil.DEFAULT_BATCH_SIZE, Pools.DEFAULT,
+                ProgressLogger.wrap(log, "LabelImport"));
+        final ComputeAllMetaPathsPrimitive algo = new ComputeAllMetaPathsPrimitive(graph, labelMapping, length.intValue(),
+                threads);
+        // the algorithm keeps its own adjacency
+        graph.release();
+        final PackedMetaPath codec = algo.codec();
+        return algo.computeStream(queueSize > 0 ? queueSize.intValue() : ComputeAllMetaPathsPrimitive.DEFAULT_QUEUE_SIZE)
+                .map(path -> new ComputeAllMetaPathsResult(codec.decode(path.packedMetaPath), path.count, labelMapping));
+    }
+}
@@ -25,16 +25,18 @@ public class ComputeAllMetaPathsSchemaFullWeightsProc {
     public KernelTransaction transaction;
 
     @Procedure("algo.ComputeAllMetaPathsSchemaFullWeights")
-    @Description("CALL algo.ComputeAllMetaPathsSchemaFullWeights(length:int) YIELD length: \n" +
+    @Description("CALL algo.ComputeAllMetaPathsSchemaFullWeights(length:int, concurrency:int) YIELD length: \n" +
             "Precomputes all metapaths up to a metapath-length given by 'length' but dont garuatny their existence' \n")//TODO change description
 
     public Stream<ComputeAllMetaPathsBetweenTypesResult> ComputeAllMetaPathsSchemaFullWeights(
-            @Name(value = "length", defaultValue = "5") String lengthString) throws Exception {
+            @Name(value = "length", defaultValue = "5") String lengthString,
+            @Name(value = "concurrency", defaultValue = "0") String concurrencyString) throws Exception {
         int length = Integer.valueOf(lengthString);
 
         final ComputeAllMetaPathsBetweenTypesResult.Builder builder = ComputeAllMetaPathsBetweenTypesResult.builder();
 
         final ComputeAllMetaPathsSchemaFullWeights algo = new ComputeAllMetaPathsSchemaFullWeights(length, api);
+        algo.setConcurrency(Integer.valueOf(concurrencyString));
         HashSet<String> metaPaths;
         ComputeAllMetaPathsSchemaFullWeights.Result result = algo.compute();
         metaPaths = result.getFinalMetaPaths();
@@ -26,7 +26,7 @@ public class FilterMetaPathsProc {
 
     @Procedure("algo.filterMetaPaths")
     @Description("CALL algo.filterAllMetaPaths(startLabel:int, endLabel:int) YIELD length: \n" +
-            "Finds all metaPaths with the specified start and end label and saves them to a File called 'Filtered_MetaPaths.txt' \n")
+            "Finds all metaPaths with the specified start and end label in the index 'Precomputed_MetaPaths.bin' and saves them to a File called 'Filtered_MetaPaths.txt' \n")
 
     public Stream<MetaPathComputationResult> filterAllMetaPaths(
             @Name(value = "startLabel", defaultValue = "0") String startLabelString,
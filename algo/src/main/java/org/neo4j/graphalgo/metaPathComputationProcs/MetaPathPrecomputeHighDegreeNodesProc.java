@@ -3,7 +3,12 @@ package org.neo4j.graphalgo.metaPathComputationProcs;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.AlgoDirectory;
+import org.neo4j.graphalgo.core.utils.ProgressTimer;
+import org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex;
 import org.neo4j.graphalgo.impl.metapath.MetaPathPrecomputeHighDegreeNodes;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
 import org.neo4j.graphalgo.results.metaPathComputationResults.MetaPathPrecomputeHighDegreeNodesResult;
 import org.neo4j.kernel.api.KernelTransaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
@@ -13,9 +18,8 @@ import org.neo4j.procedure.Description;
 import org.neo4j.procedure.Name;
 import org.neo4j.procedure.Procedure;
 
-import java.io.IOException;
-import java.util.HashMap;
-import java.util.HashSet;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.stream.Stream;
 
 public class MetaPathPrecomputeHighDegreeNodesProc {
@@ -30,33 +34,38 @@ public class MetaPathPrecomputeHighDegreeNodesProc {
     public KernelTransaction transaction;
 
     @Procedure("algo.metaPathPrecomputeHighDegreeNodes")
-    @Description("CALL algo.metaPathPrecomputeHighDegreeNodes(length:int, ratioHighDegreeNodes:float) YIELD length: \n" +
-            "Compute for a certain amount of nodes, given by 'ratioHighDegreeNodes', with the highest degrees their meta-paths up to a meta-path-length given by 'length' and save their nodeID, meta-paths and the end-nodes of these meta-paths in a file called 'Precomputed_MetaPaths_HighDegree.txt' \n")
+    @Description("CALL algo.metaPathPrecomputeHighDegreeNodes(length:int, ratioHighDegreeNodes:float) YIELD nodes, metaPaths, indexFile, loadMillis, computeMillis: \n" +
+            "Compute for a certain amount of nodes, given by 'ratioHighDegreeNodes', with the highest degrees their meta-paths up to a meta-path-length given by 'length' and save their nodeID, meta-paths and the end-nodes of these meta-paths in a binary index called 'Precomputed_MetaPaths_HighDegree.bin' within the algo.directory of the server configuration. algo.computeAllMetaPathsForInstances reads the meta-paths of these nodes from the index \n")
 
     public Stream<MetaPathPrecomputeHighDegreeNodesResult> computeAllMetaPaths(
             @Name(value = "length", defaultValue = "5") String lengthString,
-            @Name(value = "ratioHighDegreeNodes", defaultValue = "0.0000001") String ratioHighDegreeNodesString) throws IOException, InterruptedException {
+            @Name(value = "ratioHighDegreeNodes", defaultValue = "0.0000001") String ratioHighDegreeNodesString) throws Exception {
 
         int length = Integer.valueOf(lengthString);
         float ratioHighDegreeNodes = Float.valueOf(ratioHighDegreeNodesString);
+        Path indexFile = AlgoDirectory.resolve(api, HighDegreeMetaPathIndex.DEFAULT_INDEX_FILE);
+        if (Files.exists(indexFile) && !HighDegreeMetaPathIndex.isIndex(indexFile)) {
+            throw new IllegalArgumentException("The file " + HighDegreeMetaPathIndex.DEFAULT_INDEX_FILE + " exists and is not a meta-path index");
+        }
 
         final MetaPathPrecomputeHighDegreeNodesResult.Builder builder = MetaPathPrecomputeHighDegreeNodesResult.builder();
 
-        final HeavyGraph graph;
+        final MetaPathPrecomputeHighDegreeNodes algo;
+        try (ProgressTimer timer = builder.timeLoad()) {
+            final HeavyGraph graph = (HeavyGraph) new GraphLoader(api)
+                    .asUndirected(true)
+                    .withLabelAsProperty(true)
+                    .withRelationshipTypes()
+                    .load(HeavyGraphFactory.class);
+            LabelMapping labelMapping = LabelImporter.loadMetaData(graph, api);
+            algo = new MetaPathPrecomputeHighDegreeNodes(graph, labelMapping, length, ratioHighDegreeNodes);
+            graph.release();
+        }
 
-        graph = (HeavyGraph) new GraphLoader(api)
-                .asUndirected(true)
-                .withLabelAsProperty(true)
-                .load(HeavyGraphFactory.class);
-
-
-        final MetaPathPrecomputeHighDegreeNodes algo = null; // TODO new MetaPathPrecomputeHighDegreeNodes(graph, graph, graph, length, ratioHighDegreeNodes);
-        HashMap<Integer, HashMap<String, HashSet<Integer>>> metaPaths = new HashMap<>();
-        metaPaths = algo.compute().getFinalMetaPaths();
-        builder.setMetaPaths(metaPaths);
-        graph.release();
-        //return algo.resultStream();
-        //System.out.println(Stream.of(builder.build()));
+        try (ProgressTimer timer = builder.timeEval()) {
+            HighDegreeMetaPathIndex index = algo.compute(indexFile).getIndex();
+            builder.setIndex(index.nodeCount(), index.pathCount(), HighDegreeMetaPathIndex.DEFAULT_INDEX_FILE);
+        }
         return Stream.of(builder.build());
     }
 }
@@ -74,5 +74,15 @@ public abstract class AbstractResultBuilder<R> {
         }
     }
 
+    /**
+     * @return number of elements written per second or 0 if nothing was written
+     */
+    protected double writeThroughput(long elements) {
+        if (writeDuration < 0) {
+            return 0.0;
+        }
+        return elements * 1000.0 / Math.max(1L, writeDuration);
+    }
+
     public abstract R build();
 }
@@ -18,6 +18,10 @@
  */
 package org.neo4j.graphalgo.results;
 
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+
 /**
  * @author mknblch
  */
@@ -26,17 +30,26 @@ public class LouvainResult {
     public final long loadMillis;
     public final long computeMillis;
     public final long writeMillis;
+    // nodes written per second
+    public final double writeThroughput;
     public final long nodes;
     public final long iterations;
     public final long communityCount;
+    public final long levels;
+    public final double modularity;
+    public final List<Double> modularities;
 
-    private LouvainResult(long loadMillis, long computeMillis, long writeMillis, long nodes, long iterations, long communityCount) {
+    private LouvainResult(long loadMillis, long computeMillis, long writeMillis, double writeThroughput, long nodes, long iterations, long communityCount, long levels, double modularity, List<Double> modularities) {
         this.loadMillis = loadMillis;
         this.computeMillis = computeMillis;
         this.writeMillis = writeMillis;
+        this.writeThroughput = writeThroughput;
         this.nodes = nodes;
         this.iterations = iterations;
         this.communityCount = communityCount;
+        this.levels = levels;
+        this.modularity = modularity;
+        this.modularities = modularities;
     }
 
     public static Builder builder() {
@@ -48,6 +61,8 @@ public class LouvainResult {
         private long nodes = 0;
         private long communityCount = 0;
         private long iterations = 1;
+        private long levels = 0;
+        private double[] modularities = new double[0];
 
         public Builder withIterations(long iterations) {
             this.iterations = iterations;
@@ -59,13 +74,33 @@ public class LouvainResult {
             return this;
         }
 
+        public Builder withLevels(long levels) {
+            this.levels = levels;
+            return this;
+        }
+
+        public Builder withModularities(double[] modularities) {
+            this.modularities = modularities;
+            return this;
+        }
+
         public Builder withNodeCount(long nodes) {
             this.nodes = nodes;
             return this;
         }
 
         public LouvainResult build() {
-            return new LouvainResult(loadDuration, evalDuration, writeDuration, nodes, iterations, communityCount);
+            return new LouvainResult(
+                    loadDuration,
+                    evalDuration,
+                    writeDuration,
+                    writeThroughput(nodes),
+                    nodes,
+                    iterations,
+                    communityCount,
+                    levels,
+                    modularities.length > 0 ? modularities[modularities.length - 1] : 0.0,
+                    DoubleStream.of(modularities).boxed().collect(Collectors.toList()));
         }
     }
 }
@@ -20,6 +20,9 @@ package org.neo4j.graphalgo.results;
 
 import org.neo4j.graphdb.Node;
 
+import java.util.Collections;
+import java.util.List;
+
 public class PageRankScore {
 
     public final long nodeId;
@@ -36,9 +39,13 @@ public class PageRankScore {
     //  the Graph API doesn't expose this value yet
     public static final class Stats {
         public final long nodes, iterations, loadMillis, computeMillis, writeMillis;
-        public final double dampingFactor;
-        public final boolean write;
+        public final double dampingFactor, tolerance, residual;
+        // nodes written per second
+        public final double writeThroughput;
+        public final boolean write, didConverge;
         public final String writeProperty;
+        // per iteration
+        public final List<Double> iterationMillis, residuals, partitionSkew;
 
         Stats(
                 long nodes,
@@ -46,25 +53,45 @@ public class PageRankScore {
                 long loadMillis,
                 long computeMillis,
                 long writeMillis,
+                double writeThroughput,
                 double dampingFactor,
+                double tolerance,
+                double residual,
                 boolean write,
-                String writeProperty) {
+                boolean didConverge,
+                String writeProperty,
+                List<Double> iterationMillis,
+                List<Double> residuals,
+                List<Double> partitionSkew) {
             this.nodes = nodes;
             this.iterations = iterations;
             this.loadMillis = loadMillis;
             this.computeMillis = computeMillis;
             this.writeMillis = writeMillis;
+            this.writeThroughput = writeThroughput;
             this.dampingFactor = dampingFactor;
+            this.tolerance = tolerance;
+            this.residual = residual;
             this.write = write;
+            this.didConverge = didConverge;
             this.writeProperty = writeProperty;
+            this.iterationMillis = iterationMillis;
+            this.residuals = residuals;
+            this.partitionSkew = partitionSkew;
         }
 
         public static final class Builder extends AbstractResultBuilder<Stats> {
             private long nodes;
             private long iterations;
             private double dampingFactor;
+            private double tolerance;
+            private double residual;
             private boolean write;
+            private boolean didConverge;
             private String writeProperty;
+            private List<Double> iterationMillis = Collections.emptyList();
+            private List<Double> residuals = Collections.emptyList();
+            private List<Double> partitionSkew = Collections.emptyList();
 
             public Builder withNodes(long nodes) {
                 this.nodes = nodes;
@@ -81,6 +108,36 @@ public class PageRankScore {
                 return this;
             }
 
+            public Builder withTolerance(double tolerance) {
+                this.tolerance = tolerance;
+                return this;
+            }
+
+            public Builder withResidual(double residual) {
+                this.residual = residual;
+                return this;
+            }
+
+            public Builder didConverge(boolean didConverge) {
+                this.didConverge = didConverge;
+                return this;
+            }
+
+            public Builder withIterationMillis(List<Double> iterationMillis) {
+                this.iterationMillis = iterationMillis;
+                return this;
+            }
+
+            public Builder withResiduals(List<Double> residuals) {
+                this.residuals = residuals;
+                return this;
+            }
+
+            public Builder withPartitionSkew(List<Double> partitionSkew) {
+                this.partitionSkew = partitionSkew;
+                return this;
+            }
+
             public Builder withWrite(boolean write) {
                 this.write = write;
                 return this;
@@ -98,9 +155,16 @@ public class PageRankScore {
                         loadDuration,
                         evalDuration,
                         writeDuration,
+                        write ? writeThroughput(nodes) : 0.0,
                         dampingFactor,
+                        tolerance,
+                        residual,
                         write,
-                        writeProperty);
+                        didConverge,
+                        writeProperty,
+                        iterationMillis,
+                        residuals,
+                        partitionSkew);
             }
         }
     }
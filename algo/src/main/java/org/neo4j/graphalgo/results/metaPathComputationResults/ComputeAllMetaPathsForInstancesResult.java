@@ -1,5 +1,6 @@
 package org.neo4j.graphalgo.results.metaPathComputationResults;
 
+import com.google.gson.Gson;
 import org.neo4j.graphalgo.results.AbstractResultBuilder;
 import java.util.HashSet;
 
@@ -8,10 +9,9 @@ public class ComputeAllMetaPathsForInstancesResult {
 
     public final String metaPaths;
 
-    private ComputeAllMetaPathsForInstancesResult() {
-        this.metaPaths = "";
-        //Gson gson = new Gson();
-        //this.metaPaths = gson.toJson(metaPaths);
+    private ComputeAllMetaPathsForInstancesResult(HashSet<String> metaPaths) {
+        Gson gson = new Gson();
+        this.metaPaths = gson.toJson(metaPaths);
     }
 
     public static Builder builder() {
@@ -27,7 +27,7 @@ public class ComputeAllMetaPathsForInstancesResult {
         }
 
         public ComputeAllMetaPathsForInstancesResult build() {
-            return new ComputeAllMetaPathsForInstancesResult();
+            return new ComputeAllMetaPathsForInstancesResult(metaPaths);
         }
     }
 }
\ No newline at end of file
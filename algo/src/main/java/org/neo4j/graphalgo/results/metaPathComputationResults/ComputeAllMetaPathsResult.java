@@ -1,6 +1,7 @@
 package org.neo4j.graphalgo.results.metaPathComputationResults;
 
 import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsSampled;
 import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
 import java.util.List;
 
@@ -10,6 +11,10 @@ public class ComputeAllMetaPathsResult {
     public final long length;
     public final List<Long> pathIds;
     public final long count;
+    public final double lowerBound;
+    public final double upperBound;
+    // seed of the sampled walks, null for exact counts
+    public final Long seed;
 
     public ComputeAllMetaPathsResult(ComputeAllMetaPaths.MetaPath metaPath, long count, LabelMapping mapping) {
         this.metaPath = metaPath.toString();
@@ -17,5 +22,18 @@ public class ComputeAllMetaPathsResult {
         this.length = metaPath.length;
         this.pathIds = metaPath.toIdList();
         this.count = count;
+        this.lowerBound = count;
+        this.upperBound = count;
+        this.seed = null;
+    }
+
+    public ComputeAllMetaPathsResult(ComputeAllMetaPaths.MetaPath metaPath, ComputeAllMetaPathsSampled.Estimate estimate, long seed, LabelMapping mapping) {
+        this.metaPath = metaPath.toString();
+        this.length = metaPath.length;
+        this.pathIds = metaPath.toIdList();
+        this.count = Math.round(estimate.count);
+        this.lowerBound = estimate.lowerBound;
+        this.upperBound = estimate.upperBound;
+        this.seed = seed;
     }
 }
\ No newline at end of file
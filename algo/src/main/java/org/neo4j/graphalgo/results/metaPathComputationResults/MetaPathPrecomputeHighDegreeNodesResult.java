@@ -2,15 +2,20 @@ package org.neo4j.graphalgo.results.metaPathComputationResults;
 
 import org.neo4j.graphalgo.results.AbstractResultBuilder;
 
-import java.util.HashMap;
-import java.util.HashSet;
-
 public class MetaPathPrecomputeHighDegreeNodesResult {
 
-    public final String metaPaths;
-
-    private MetaPathPrecomputeHighDegreeNodesResult(HashMap<Integer, HashMap<String, HashSet<Integer>>> metaPaths) {
-        this.metaPaths = "";
+    public final long nodes;
+    public final long metaPaths;
+    public final String indexFile;
+    public final long loadMillis;
+    public final long computeMillis;
+
+    private MetaPathPrecomputeHighDegreeNodesResult(long nodes, long metaPaths, String indexFile, long loadMillis, long computeMillis) {
+        this.nodes = nodes;
+        this.metaPaths = metaPaths;
+        this.indexFile = indexFile;
+        this.loadMillis = loadMillis;
+        this.computeMillis = computeMillis;
     }
 
     public static Builder builder() {
@@ -19,16 +24,22 @@ public class MetaPathPrecomputeHighDegreeNodesResult {
 
     public static class Builder extends AbstractResultBuilder<MetaPathPrecomputeHighDegreeNodesResult> {
 
-        private HashMap<Integer, HashMap<String, HashSet<Integer>>> metaPaths;
+        private long nodes;
+        private long metaPaths;
+        private String indexFile;
 
-        public void setMetaPaths(HashMap<Integer, HashMap<String, HashSet<Integer>>> metaPaths) {
-            // this.metaPaths =  metaPaths.toArray(new String[metaPaths.size()]);
+        /**
+         * @param nodes     number of high degree nodes in the index
+         * @param metaPaths number of meta-paths of all high degree nodes
+         */
+        public void setIndex(long nodes, long metaPaths, String indexFile) {
+            this.nodes = nodes;
             this.metaPaths = metaPaths;
+            this.indexFile = indexFile;
         }
 
         public MetaPathPrecomputeHighDegreeNodesResult build() {
-            return new MetaPathPrecomputeHighDegreeNodesResult(metaPaths);
-
+            return new MetaPathPrecomputeHighDegreeNodesResult(nodes, metaPaths, indexFile, loadDuration, evalDuration);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.bench;
+
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsPrimitive;
+import org.neo4j.graphalgo.impl.metapath.TypedAdjacency;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.neo4j.test.TestGraphDatabaseFactory;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the boxed meta-path expansion of {@link ComputeAllMetaPaths}
+ * with the allocation-free {@link ComputeAllMetaPathsPrimitive}.
+ */
+@Threads(1)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+@Warmup(iterations = 5)
+@Measurement(iterations = 5)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MetaPathBenchmark {
+
+    private static final int NODE_COUNT = 10_000;
+    private static final int RELATIONSHIP_COUNT = 50_000;
+    private static final String[] LABELS = {"A", "B", "C", "D", "E"};
+    private static final String[] TYPES = {"T1", "T2", "T3"};
+
+    private GraphDatabaseAPI api;
+    private HeavyGraph graph;
+    private LabelMapping labelMapping;
+    private TypedAdjacency adjacency;
+    private ExecutorService executor;
+    private PrintStream discard;
+
+    @Param({"3", "4", "5"})
+    int length;
+
+    @Setup
+    public void setup() throws Exception {
+        api = (GraphDatabaseAPI)
+                new TestGraphDatabaseFactory()
+                        .newImpermanentDatabaseBuilder()
+                        .newGraphDatabase();
+
+        Map<String, Object> params = new HashMap<>();
+        params.put("nodes", NODE_COUNT);
+        params.put("rels", RELATIONSHIP_COUNT);
+        try (Transaction tx = api.beginTx()) {
+            for (int i = 0; i < LABELS.length; i++) {
+                params.put("index", i);
+                api.execute("UNWIND range(0, {nodes} - 1) AS id WITH id WHERE id % " + LABELS.length + " = {index} " +
+                        "CREATE (:" + LABELS[i] + " {id: id})", params).close();
+            }
+            tx.success();
+        }
+        try (Transaction tx = api.beginTx()) {
+            for (int i = 0; i < TYPES.length; i++) {
+                api.execute("UNWIND range(1, {rels} / " + TYPES.length + ") AS i " +
+                        "WITH toInteger(rand() * {nodes}) AS a, toInteger(rand() * {nodes}) AS b " +
+                        "MATCH (s), (t) WHERE id(s) = a AND id(t) = b " +
+                        "CREATE (s)-[:" + TYPES[i] + "]->(t)", params).close();
+            }
+            tx.success();
+        }
+
+        graph = (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .withRelationshipTypes()
+                .load(HeavyGraphFactory.class);
+        labelMapping = LabelImporter.loadMetaData(graph, api);
+        adjacency = TypedAdjacency.of(graph, labelMapping);
+        executor = Executors.newFixedThreadPool(Pools.DEFAULT_CONCURRENCY);
+        discard = new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+        });
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (executor != null) executor.shutdown();
+        if (api != null) api.shutdown();
+    }
+
+    @Benchmark
+    public Object computeAllMetaPaths_boxed() {
+        return new ComputeAllMetaPaths(graph, labelMapping, length, discard, discard, executor)
+                .compute();
+    }
+
+    @Benchmark
+    public Object computeAllMetaPaths_primitive() {
+        return new ComputeAllMetaPathsPrimitive(adjacency, labelMapping, length, Pools.DEFAULT_CONCURRENCY)
+                .computePacked();
+    }
+}
@@ -83,6 +83,12 @@ public class GraphSetup {
     public final boolean loadAsUndirected;
     // Tell the factory to construct a label map
     public final boolean loadWithLabels;
+    // store the relationship type alongside each adjacency entry
+    public final boolean loadRelationshipTypes;
+    // allocate the adjacency of huge graphs outside of the java heap
+    public final boolean offHeap;
+    // store the relationship weights of huge graphs alongside their adjacency
+    public final boolean positionalWeights;
     /**
      * main ctor
      * @param startLabel the start label. null means any label.
@@ -101,6 +107,9 @@ public class GraphSetup {
      * @param batchSize batch size for parallel loading
      * @param accumulateWeights true if relationship-weights should be summed within the loader
      * @param sort
+     * @param loadRelationshipTypes true if the type of each relationship should be stored in the adjacency
+     * @param offHeap true if the adjacency of a huge graph should be allocated outside of the java heap
+     * @param positionalWeights true if the weights of a huge graph should be stored in the order of its adjacency
      */
     public GraphSetup(
             String startLabel,
@@ -123,6 +132,9 @@ public class GraphSetup {
             boolean sort,
             boolean loadAsUndirected,
             boolean loadWithLabels,
+            boolean loadRelationshipTypes,
+            boolean offHeap,
+            boolean positionalWeights,
             AllocationTracker tracker,
             String name) {
 
@@ -147,6 +159,9 @@ public class GraphSetup {
         this.sort = sort;
         this.loadAsUndirected = loadAsUndirected;
         this.loadWithLabels = loadWithLabels;
+        this.loadRelationshipTypes = loadRelationshipTypes;
+        this.offHeap = offHeap;
+        this.positionalWeights = positionalWeights;
         this.tracker = tracker;
         this.name = name;
     }
@@ -175,6 +190,9 @@ public class GraphSetup {
         this.sort = false;
         this.loadAsUndirected = false;
         this.loadWithLabels = false;
+        this.loadRelationshipTypes = false;
+        this.offHeap = false;
+        this.positionalWeights = false;
         this.tracker = AllocationTracker.EMPTY;
     }
 
@@ -205,6 +223,9 @@ public class GraphSetup {
         this.sort = false;
         this.loadAsUndirected = false;
         this.loadWithLabels = false;
+        this.loadRelationshipTypes = false;
+        this.offHeap = false;
+        this.positionalWeights = false;
         this.tracker = AllocationTracker.EMPTY;
     }
 
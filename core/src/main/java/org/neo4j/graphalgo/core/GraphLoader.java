@@ -83,6 +83,9 @@ public class GraphLoader {
     private boolean sort = false;
     private boolean loadAsUndirected = false;
     private boolean loadWithLabels = false;
+    private boolean loadRelationshipTypes = false;
+    private boolean offHeap = false;
+    private boolean positionalWeights = false;
 
     /**
      * Creates a new serial GraphLoader.
@@ -215,6 +218,73 @@ public class GraphLoader {
         return withLabelAsProperty(true);
     }
 
+    /**
+     * Toggle instruct the loader to store the relationship type of each relationship.
+     * Only supported by the {@link org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory}.
+     *
+     * @param loadRelationshipTypes When true relationship types are stored, when false they are not.
+     * @return itself to enable fluent interface
+     */
+    public GraphLoader withRelationshipTypes(boolean loadRelationshipTypes) {
+        this.loadRelationshipTypes = loadRelationshipTypes;
+        return this;
+    }
+
+    /**
+     * Instructs the loader to store the relationship type of each relationship.
+     *
+     * @return itself to enable fluent interface
+     */
+    public GraphLoader withRelationshipTypes() {
+        return withRelationshipTypes(true);
+    }
+
+    /**
+     * Toggle instruct the loader to allocate the adjacency outside of the java heap.
+     * The memory is counted by the {@link AllocationTracker} and freed when
+     * the graph is released.
+     * Only supported by the {@link org.neo4j.graphalgo.core.huge.HugeGraphFactory}.
+     *
+     * @param offHeap When true the adjacency is allocated off-heap, when false on the heap.
+     * @return itself to enable fluent interface
+     */
+    public GraphLoader withOffHeapMemory(boolean offHeap) {
+        this.offHeap = offHeap;
+        return this;
+    }
+
+    /**
+     * Instructs the loader to allocate the adjacency outside of the java heap.
+     *
+     * @return itself to enable fluent interface
+     */
+    public GraphLoader withOffHeapMemory() {
+        return withOffHeapMemory(true);
+    }
+
+    /**
+     * Toggle instruct the loader to store the relationship weights in the order of the adjacency
+     * instead of a weight map. Weighted traversals read the weights sequentially and every
+     * direction keeps the weights of its own relationships.
+     * Only supported by the {@link org.neo4j.graphalgo.core.huge.HugeGraphFactory}.
+     *
+     * @param positionalWeights When true the weights are stored alongside the adjacency, when false in a weight map.
+     * @return itself to enable fluent interface
+     */
+    public GraphLoader withPositionalRelationshipWeights(boolean positionalWeights) {
+        this.positionalWeights = positionalWeights;
+        return this;
+    }
+
+    /**
+     * Instructs the loader to store the relationship weights in the order of the adjacency.
+     *
+     * @return itself to enable fluent interface
+     */
+    public GraphLoader withPositionalRelationshipWeights() {
+        return withPositionalRelationshipWeights(true);
+    }
+
     public GraphLoader withName(String name) {
         this.name = name;
         return this;
@@ -529,6 +599,9 @@ public class GraphLoader {
                 sort,
                 loadAsUndirected,
                 loadWithLabels,
+                loadRelationshipTypes,
+                offHeap,
+                positionalWeights,
                 tracker,
                 name);
 
@@ -246,6 +246,15 @@ public class ProcedureConfiguration {
         return getNumber(ProcedureConstants.BATCH_SIZE_PARAM, defaultValue).intValue();
     }
 
+    /**
+     * get the max. number of nodes written per transaction
+     *
+     * @return write batch size or -1 to let the exporter decide
+     */
+    public long getWriteBatchSize() {
+        return getNumber(ProcedureConstants.WRITE_BATCH_SIZE_PARAM, -1L).longValue();
+    }
+
     /**
      * TODO
      *
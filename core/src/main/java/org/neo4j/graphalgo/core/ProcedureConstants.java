@@ -51,6 +51,8 @@ public class ProcedureConstants {
 
     public static final String BATCH_SIZE_PARAM = "batchSize";
 
+    public static final String WRITE_BATCH_SIZE_PARAM = "writeBatchSize";
+
     public static final String DIRECTION = "direction";
 
     public static final String DIRECTION_DEFAULT = "BOTH";
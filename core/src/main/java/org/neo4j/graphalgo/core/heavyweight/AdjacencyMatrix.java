@@ -42,6 +42,7 @@ import static org.neo4j.graphalgo.core.utils.ArrayUtil.*;
 class AdjacencyMatrix {
 
     private static final int[] EMPTY_INTS = new int[0];
+    private static final short[] EMPTY_SHORTS = new short[0];
 
     /**
      * mapping from nodeId to outgoing degree
@@ -59,6 +60,14 @@ class AdjacencyMatrix {
      * matrix nodeId x [incoming edge-relationIds..]
      */
     private final int[][] incoming;
+    /**
+     * relationship types aligned with outgoing, null if types are not loaded
+     */
+    private final short[][] outgoingTypes;
+    /**
+     * relationship types aligned with incoming, null if types are not loaded
+     */
+    private final short[][] incomingTypes;
 
     final boolean isBoth;
     private final IdCombiner inCombiner;
@@ -70,11 +79,21 @@ class AdjacencyMatrix {
         this(nodeCount, true, true, sorted);
     }
 
+    AdjacencyMatrix(int nodeCount, boolean sorted, boolean withTypes) {
+        this(nodeCount, true, true, sorted, withTypes);
+    }
+
     AdjacencyMatrix(int nodeCount, boolean withIncoming, boolean withOutgoing, boolean sorted) {
+        this(nodeCount, withIncoming, withOutgoing, sorted, false);
+    }
+
+    AdjacencyMatrix(int nodeCount, boolean withIncoming, boolean withOutgoing, boolean sorted, boolean withTypes) {
         this.outOffsets = withOutgoing ? new int[nodeCount] : null;
         this.inOffsets = withIncoming ? new int[nodeCount] : null;
         this.outgoing = withOutgoing ? new int[nodeCount][] : null;
         this.incoming = withIncoming ? new int[nodeCount][] : null;
+        this.outgoingTypes = withOutgoing && withTypes ? new short[nodeCount][] : null;
+        this.incomingTypes = withIncoming && withTypes ? new short[nodeCount][] : null;
         this.sorted = sorted;
         if (withOutgoing) {
             Arrays.fill(outgoing, EMPTY_INTS);
@@ -82,6 +101,12 @@ class AdjacencyMatrix {
         if (withIncoming) {
             Arrays.fill(incoming, EMPTY_INTS);
         }
+        if (outgoingTypes != null) {
+            Arrays.fill(outgoingTypes, EMPTY_SHORTS);
+        }
+        if (incomingTypes != null) {
+            Arrays.fill(incomingTypes, EMPTY_SHORTS);
+        }
         if (withOutgoing && withIncoming) {
             outCombiner = RawValues.BOTH;
             inCombiner = RawValues.BOTH;
@@ -124,6 +149,9 @@ class AdjacencyMatrix {
     public void armOut(int sourceNodeId, int degree) {
         if (degree > 0) {
             outgoing[sourceNodeId] = Arrays.copyOf(outgoing[sourceNodeId], degree);
+            if (outgoingTypes != null) {
+                outgoingTypes[sourceNodeId] = Arrays.copyOf(outgoingTypes[sourceNodeId], degree);
+            }
         }
     }
 
@@ -133,6 +161,9 @@ class AdjacencyMatrix {
     public void armIn(int targetNodeId, int degree) {
         if (degree > 0) {
             incoming[targetNodeId] = Arrays.copyOf(incoming[targetNodeId], degree);
+            if (incomingTypes != null) {
+                incomingTypes[targetNodeId] = Arrays.copyOf(incomingTypes[targetNodeId], degree);
+            }
         }
     }
 
@@ -141,6 +172,9 @@ class AdjacencyMatrix {
      */
     public void growOut(int sourceNodeId, int length) {
         outgoing[sourceNodeId] = ArrayUtil.grow(outgoing[sourceNodeId], length);
+        if (outgoingTypes != null) {
+            outgoingTypes[sourceNodeId] = Arrays.copyOf(outgoingTypes[sourceNodeId], outgoing[sourceNodeId].length);
+        }
     }
 
     /**
@@ -148,6 +182,9 @@ class AdjacencyMatrix {
      */
     public void growIn(int targetNodeId, int length) {
         incoming[targetNodeId] = ArrayUtil.grow(incoming[targetNodeId], length);
+        if (incomingTypes != null) {
+            incomingTypes[targetNodeId] = Arrays.copyOf(incomingTypes[targetNodeId], incoming[targetNodeId].length);
+        }
     }
 
     /**
@@ -163,6 +200,17 @@ class AdjacencyMatrix {
         outOffsets[sourceNodeId] = nextDegree;
     }
 
+    /**
+     * add outgoing relation of the given type, the type is dropped if types are not loaded
+     */
+    public void addOutgoing(int sourceNodeId, int targetNodeId, short typeId) {
+        final int degree = outOffsets[sourceNodeId];
+        addOutgoing(sourceNodeId, targetNodeId);
+        if (outgoingTypes != null) {
+            outgoingTypes[sourceNodeId][degree] = typeId;
+        }
+    }
+
     /**
      * checks for outgoing target node
      */
@@ -206,6 +254,61 @@ class AdjacencyMatrix {
         inOffsets[targetNodeId] = nextDegree;
     }
 
+    /**
+     * add incoming relation of the given type, the type is dropped if types are not loaded
+     */
+    public void addIncoming(int sourceNodeId, int targetNodeId, short typeId) {
+        final int degree = inOffsets[targetNodeId];
+        addIncoming(sourceNodeId, targetNodeId);
+        if (incomingTypes != null) {
+            incomingTypes[targetNodeId][degree] = typeId;
+        }
+    }
+
+    /**
+     * true if relationship types have been loaded alongside the adjacency
+     */
+    public boolean hasTypes() {
+        return outgoingTypes != null || incomingTypes != null;
+    }
+
+    /**
+     * type of the first relationship between source and target in any direction or -1 if
+     * there is none or types are not loaded
+     */
+    public short relationshipType(int sourceNodeId, int targetNodeId) {
+        if (outgoingTypes != null) {
+            int index = indexOf(outgoing[sourceNodeId], outOffsets[sourceNodeId], targetNodeId);
+            if (index != -1) {
+                return outgoingTypes[sourceNodeId][index];
+            }
+        }
+        if (incomingTypes != null) {
+            int index = indexOf(incoming[sourceNodeId], inOffsets[sourceNodeId], targetNodeId);
+            if (index != -1) {
+                return incomingTypes[sourceNodeId][index];
+            }
+        }
+        return -1;
+    }
+
+    private int indexOf(int[] rels, int degree, int targetNodeId) {
+        if (sorted && degree > LINEAR_SEARCH_LIMIT) {
+            int index = Arrays.binarySearch(rels, 0, degree, targetNodeId);
+            // there may be parallel relationships, report the first one
+            while (index > 0 && rels[index - 1] == targetNodeId) {
+                index--;
+            }
+            return index < 0 ? -1 : index;
+        }
+        for (int i = 0; i < degree; i++) {
+            if (rels[i] == targetNodeId) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
     /**
      * get the degree for node / direction
      *
@@ -277,6 +380,36 @@ class AdjacencyMatrix {
         }
     }
 
+    /**
+     * iterate over each edge at the given node together with its relationship type
+     */
+    public void forEach(int nodeId, Direction direction, TypedRelationshipConsumer consumer) {
+        switch (direction) {
+            case OUTGOING:
+                forEachTyped(nodeId, outOffsets, outgoing, outgoingTypes, consumer, false);
+                break;
+            case INCOMING:
+                forEachTyped(nodeId, inOffsets, incoming, incomingTypes, consumer, true);
+                break;
+            default:
+                forEachTyped(nodeId, inOffsets, incoming, incomingTypes, consumer, true);
+                forEachTyped(nodeId, outOffsets, outgoing, outgoingTypes, consumer, false);
+                break;
+        }
+    }
+
+    private void forEachTyped(int nodeId, int[] offsets, int[][] adjacency, short[][] types, TypedRelationshipConsumer consumer, boolean incoming) {
+        final int degree = offsets[nodeId];
+        final int[] neighbours = adjacency[nodeId];
+        final short[] typeIds = types != null ? types[nodeId] : null;
+        for (int i = 0; i < degree; i++) {
+            final long relationId = incoming
+                    ? RawValues.combineIntInt(neighbours[i], nodeId)
+                    : RawValues.combineIntInt(nodeId, neighbours[i]);
+            consumer.accept(nodeId, neighbours[i], relationId, typeIds != null ? typeIds[i] : -1);
+        }
+    }
+
     public int capacity() {
         return outOffsets != null
                 ? outOffsets.length
@@ -294,6 +427,12 @@ class AdjacencyMatrix {
             System.arraycopy(other.incoming, 0, incoming, offset, length);
             System.arraycopy(other.inOffsets, 0, inOffsets, offset, length);
         }
+        if (other.outgoingTypes != null && outgoingTypes != null) {
+            System.arraycopy(other.outgoingTypes, 0, outgoingTypes, offset, length);
+        }
+        if (other.incomingTypes != null && incomingTypes != null) {
+            System.arraycopy(other.incomingTypes, 0, incomingTypes, offset, length);
+        }
     }
 
     private void forEachOutgoing(int nodeId, RelationshipConsumer consumer) {
@@ -330,11 +469,34 @@ class AdjacencyMatrix {
     }
 
     public void sortIncoming(int node) {
-        Arrays.sort(incoming[node]);
+        if (incomingTypes != null) {
+            sortTyped(incoming[node], incomingTypes[node], inOffsets[node]);
+        } else {
+            Arrays.sort(incoming[node]);
+        }
     }
 
     public void sortOutgoing(int node) {
-        Arrays.sort(outgoing[node]);
+        if (outgoingTypes != null) {
+            sortTyped(outgoing[node], outgoingTypes[node], outOffsets[node]);
+        } else {
+            Arrays.sort(outgoing[node]);
+        }
+    }
+
+    /**
+     * sort targets and keep the types aligned by sorting both packed into one long
+     */
+    private static void sortTyped(int[] targets, short[] types, int degree) {
+        final long[] packed = new long[degree];
+        for (int i = 0; i < degree; i++) {
+            packed[i] = (long) targets[i] << 16 | (types[i] & 0xFFFF);
+        }
+        Arrays.sort(packed);
+        for (int i = 0; i < degree; i++) {
+            targets[i] = (int) (packed[i] >> 16);
+            types[i] = (short) packed[i];
+        }
     }
 
     public void sortAll(ExecutorService pool, int concurrency) {
@@ -18,36 +18,49 @@
  */
 package org.neo4j.graphalgo.core.heavyweight;
 
-import com.carrotsearch.hppc.LongIntHashMap;
-import com.carrotsearch.hppc.LongIntMap;
-import com.carrotsearch.hppc.cursors.LongIntCursor;
-import com.carrotsearch.hppc.procedures.LongIntProcedure;
+import com.carrotsearch.hppc.IntObjectHashMap;
+import com.carrotsearch.hppc.IntObjectMap;
+import com.carrotsearch.hppc.LongDoubleHashMap;
+import com.carrotsearch.hppc.LongDoubleMap;
 import org.neo4j.graphalgo.api.*;
 import org.neo4j.graphalgo.core.IdMap;
 import org.neo4j.graphalgo.core.NullWeightMap;
 import org.neo4j.graphalgo.core.WeightMap;
 import org.neo4j.graphalgo.core.utils.RawValues;
-import org.neo4j.graphdb.Direction;
 import org.neo4j.graphdb.Result;
-import org.neo4j.helpers.collection.MapUtil;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * Loads a graph from a node and a relationship statement.
+ * <p>
+ * Both statements are executed exactly once. {@code {skip}} and {@code {limit}} parameters
+ * are still accepted and are set to return all rows. When loading concurrently, the rows of
+ * the relationship statement are streamed through a bounded queue to importer threads,
+ * see {@link #streamRelationships(int, Nodes)}.
+ *
  * @author mknblch
  */
 public class HeavyCypherGraphFactory extends GraphFactory {
 
     private static final int NO_BATCH = -1;
     private static final int INITIAL_NODE_COUNT = 1_000_000;
-    private static final int ESTIMATED_DEGREE = 3;
+    // number of full batches that may wait for an importer, per importer
+    private static final int QUEUED_BATCHES = 4;
+    // how long an importer waits for the next batch before it exits
+    private static final long IMPORTER_IDLE_MILLIS = 10L;
     private static final String LIMIT = "limit";
     private static final String SKIP = "skip";
     public static final String TYPE = "cypher";
@@ -59,14 +72,12 @@ public class HeavyCypherGraphFactory extends GraphFactory {
     }
 
     static class Nodes {
-        private final long offset;
         private final long rows;
         IdMap idMap;
         WeightMapping nodeWeights;
         WeightMapping nodeProps;
 
-        Nodes(long offset, long rows, IdMap idMap, WeightMapping nodeWeights, WeightMapping nodeProps) {
-            this.offset = offset;
+        Nodes(long rows, IdMap idMap, WeightMapping nodeWeights, WeightMapping nodeProps) {
             this.rows = rows;
             this.idMap = idMap;
             this.nodeWeights = nodeWeights;
@@ -76,13 +87,11 @@ public class HeavyCypherGraphFactory extends GraphFactory {
 
     static class Relationships {
 
-        private final long offset;
         private final long rows;
         private final AdjacencyMatrix matrix;
         private final WeightMapping relWeights;
 
-        Relationships(long offset, long rows, AdjacencyMatrix matrix, WeightMapping relWeights) {
-            this.offset = offset;
+        Relationships(long rows, AdjacencyMatrix matrix, WeightMapping relWeights) {
             this.rows = rows;
             this.matrix = matrix;
             this.relWeights = relWeights;
@@ -93,12 +102,9 @@ public class HeavyCypherGraphFactory extends GraphFactory {
     public Graph build() {
         int batchSize = setup.batchSize;
 
-        Nodes nodes = canBatchLoad(batchSize, setup.startLabel) ?
-                batchLoadNodes(batchSize) :
-                loadNodes(0, NO_BATCH);
-        Relationships relationships;
-        relationships = canBatchLoad(batchSize, setup.relationshipType) ?
-                batchLoadRelationships(batchSize, nodes) :
+        Nodes nodes = loadNodes(0, NO_BATCH);
+        Relationships relationships = setup.loadConcurrent() && batchSize > 0 ?
+                streamRelationships(batchSize, nodes) :
                 loadRelationships(0, NO_BATCH, nodes);
 
         if (setup.sort) {
@@ -107,139 +113,310 @@ public class HeavyCypherGraphFactory extends GraphFactory {
         return new HeavyGraph(nodes.idMap, relationships.matrix, relationships.relWeights, nodes.nodeWeights, nodes.nodeProps);
     }
 
-    private Relationships batchLoadRelationships(int batchSize, Nodes nodes) {
-        ExecutorService pool = setup.executor;
+    /**
+     * Executes the relationship statement once and hands its rows in batches to
+     * {@code concurrency} importers through a bounded queue. The rows are partitioned by
+     * their source node, every adjacency list belongs to one partition and is only written
+     * while holding the lock of that partition, so the importers write into a shared
+     * {@link AdjacencyMatrix} and the weights of the partitions are merged without conflicts.
+     * When the queue is full, the reading thread imports the batch itself instead of waiting.
+     * Importers exit once the queue runs empty, see {@link Importers}.
+     * <p>
+     * The batches of a partition are numbered in the order of their rows and are applied in that
+     * order, no matter which thread takes them, so that adjacency lists and the weight of duplicate
+     * relationships are the same as when the rows are loaded by a single thread.
+     */
+    private Relationships streamRelationships(int batchSize, Nodes nodes) {
         int threads = setup.concurrency();
-        boolean accumulateWeights = setup.accumulateWeights;
+        boolean hasRelationshipWeights = !setup.loadDefaultRelationshipWeight();
+        double defaultWeight = setup.relationDefaultWeight;
 
-        // data structures for merged information
         int nodeCount = nodes.idMap.size();
         AdjacencyMatrix matrix = new AdjacencyMatrix(nodeCount, false);
-        boolean hasRelationshipWeights = !setup.loadDefaultRelationshipWeight();
-        final WeightMapping relWeights = newWeightMapping(hasRelationshipWeights, setup.relationDefaultWeight, nodeCount*ESTIMATED_DEGREE);
-
-        long offset = 0;
-        long lastOffset = 0;
-        long total = 0;
-        List<Future<Relationships>> futures = new ArrayList<>(threads);
-        boolean working = true;
-        do {
-            long skip = offset;
-            // suboptimal, each sub-call allocates a AdjacencyMatrix of nodeCount size, would be better with a sparse variant
-            futures.add(pool.submit(() -> loadRelationships(skip, batchSize,nodes)));
-            offset += batchSize;
-            if (futures.size() >= threads) {
-                for (Future<Relationships> future : futures) {
-                    Relationships result = get("Error during loading relationships offset: "+(lastOffset+batchSize),future);
-                    lastOffset = result.offset;
-                    total += result.rows;
-                    working = result.rows > 0;
-                    if (working) {
-                        WeightMapping resultWeights = hasRelationshipWeights && result.relWeights.size() > 0 ? result.relWeights : null;
-                        result.matrix.nodesWithRelationships(Direction.OUTGOING).forEachNode(
-                                node -> {
-                                    result.matrix.forEach(node, Direction.OUTGOING,
-                                            (source, target, relationship) -> {
-                                                if (accumulateWeights) {
-                                                    // suboptimial, O(n) per node
-                                                    if (!matrix.hasOutgoing(source, target)) {
-                                                        matrix.addOutgoing(source, target);
-                                                    }
-                                                    if (resultWeights != null) {
-                                                        relWeights.set(relationship,
-                                                                resultWeights.get(relationship) +
-                                                                        relWeights.get(relationship, 0d));
-                                                    }
-                                                } else {
-                                                    matrix.addOutgoing(source, target);
-                                                    if (resultWeights != null) {
-                                                        relWeights.set(relationship, resultWeights.get(relationship));
-                                                    }
-                                                }
-                                                return true;
-                                            });
-                                    return true;
-                                });
-                    }
+        RelationshipPartition[] partitions = new RelationshipPartition[threads];
+        Arrays.setAll(partitions, i -> new RelationshipPartition(
+                matrix,
+                nodes.idMap,
+                hasRelationshipWeights,
+                setup.accumulateWeights));
+
+        Importers importers = new Importers(setup.executor, threads, partitions);
+
+        RelationshipBatch[] batches = new RelationshipBatch[threads];
+        Arrays.setAll(batches, i -> new RelationshipBatch(i, 0, batchSize));
+        long[] rows = {0L};
+        try {
+            api.execute(setup.relationshipType, params(0, NO_BATCH)).accept(row -> {
+                rows[0]++;
+                long source = row.getNumber("source").longValue();
+                int partition = (int) Math.floorMod(source, (long) threads);
+                RelationshipBatch batch = batches[partition];
+                double weight = hasRelationshipWeights
+                        ? RawValues.extractValue(row.get("weight"), defaultWeight)
+                        : defaultWeight;
+                batch.add(source, row.getNumber("target").longValue(), weight);
+                if (batch.length == batchSize) {
+                    importers.enqueue(batch);
+                    batches[partition] = new RelationshipBatch(partition, batch.sequence + 1, batchSize);
                 }
-                futures.clear();
+                return true;
+            });
+            for (RelationshipBatch batch : batches) {
+                importers.enqueue(batch);
             }
-        } while (working);
+        } finally {
+            importers.finish();
+        }
 
-        return new Relationships(0, total, matrix, relWeights);
+        WeightMapping relWeights;
+        if (hasRelationshipWeights) {
+            LongDoubleMap weights = new LongDoubleHashMap();
+            for (RelationshipPartition partition : partitions) {
+                weights.putAll(partition.weights);
+            }
+            relWeights = new WeightMap(weights.size(), weights, defaultWeight, -2);
+        } else {
+            relWeights = new NullWeightMap(defaultWeight);
+        }
+        return new Relationships(rows[0], matrix, relWeights);
     }
 
-    private Nodes batchLoadNodes(int batchSize) {
-        ExecutorService pool = setup.executor;
-        int threads = setup.concurrency();
-
-        // data structures for merged information
-        int capacity = INITIAL_NODE_COUNT * 10;
-        LongIntMap nodeToGraphIds = new LongIntHashMap(capacity);
+    /**
+     * Up to {@code threads} importers which take the batches from the queue. An importer exits
+     * once the queue stays empty and the reading thread starts importers again when it queues
+     * batches. An executor that rejects the importer or runs it on the reading thread, like one
+     * with a caller-runs or caller-blocks policy, therefore never makes the reader wait for an
+     * importer which waits for the reader: the importer drains the queue and returns, or the
+     * reader imports the batches itself once the queue is full.
+     */
+    private final class Importers {
+        private final ExecutorService pool;
+        private final int threads;
+        private final RelationshipPartition[] partitions;
+        private final BlockingQueue<RelationshipBatch> queue;
+        private final Thread reader = Thread.currentThread();
+        private final AtomicInteger active = new AtomicInteger();
+        private volatile Throwable failure;
+        private final List<Future<?>> started = new ArrayList<>();
+        // guarded by this, importers which are running right now, cancelling a future does not stop them
+        private int running;
+        private boolean done;
+
+        private Importers(ExecutorService pool, int threads, RelationshipPartition[] partitions) {
+            this.pool = pool;
+            this.threads = threads;
+            this.partitions = partitions;
+            this.queue = new ArrayBlockingQueue<>(threads * QUEUED_BATCHES);
+        }
 
-        boolean hasNodeWeights = !setup.loadDefaultNodeWeight();
-        final WeightMapping nodeWeights = newWeightMapping(hasNodeWeights, setup.nodeDefaultWeight, capacity);
+        private void enqueue(RelationshipBatch batch) {
+            if (batch.length == 0) {
+                return;
+            }
+            if (!queue.offer(batch)) {
+                partitions[batch.partition].add(batch);
+                return;
+            }
+            if (tryActivate()) {
+                started.removeIf(Future::isDone);
+                try {
+                    started.add(pool.submit(this::importBatches));
+                } catch (RejectedExecutionException e) {
+                    active.decrementAndGet();
+                }
+            }
+        }
 
-        boolean hasNodeProperty = !setup.loadDefaultNodeProperty();
-        final WeightMapping nodeProps = newWeightMapping(hasNodeProperty, setup.nodeDefaultPropertyValue, capacity);
+        private boolean tryActivate() {
+            int current = active.get();
+            return current < threads && active.compareAndSet(current, current + 1);
+        }
 
-        long offset = 0;
-        long total = 0;
-        long lastOffset = 0;
-        List<Future<Nodes>> futures = new ArrayList<>(threads);
-        boolean working = true;
-        do {
-            long skip = offset;
-            futures.add(pool.submit(() -> loadNodes(skip, batchSize)));
-            offset += batchSize;
-            if (futures.size() >= threads) {
-                for (Future<Nodes> future : futures) {
-                    Nodes result = get("Error during loading nodes offset: "+(lastOffset+batchSize),future);
-                    lastOffset = result.offset;
-                    total += result.rows;
-                    working = result.idMap.size() > 0;
-                    if (working) {
-                        int minNodeId = nodeToGraphIds.size();
-                        WeightMapping resultWeights = hasNodeWeights && result.nodeWeights.size() > 0 ? result.nodeWeights : null;
-                        WeightMapping resultProps = hasNodeProperty && result.nodeProps.size() > 0 ? result.nodeProps : null;
-                        result.idMap.nodeToGraphIds().forEach(
-                                (LongIntProcedure)(graphId,algoId) -> {
-                                    int newId = algoId + minNodeId;
-                                    nodeToGraphIds.put(graphId, newId);
-                                    if (resultWeights!=null) {
-                                        nodeWeights.set(newId, resultWeights.get(algoId));
-                                    }
-                                    if (resultProps != null) {
-                                        nodeProps.set(newId, resultProps.get(algoId));
-                                    }
-                                });
+        private void importBatches() {
+            synchronized (this) {
+                // an importer that starts after finish() has drained the queue has nothing left to import
+                if (done) {
+                    return;
+                }
+                running++;
+            }
+            try {
+                while (true) {
+                    // an importer on the reading thread must not wait for batches
+                    RelationshipBatch batch = isDone() || Thread.currentThread() == reader
+                            ? queue.poll()
+                            : queue.poll(IMPORTER_IDLE_MILLIS, TimeUnit.MILLISECONDS);
+                    if (batch != null) {
+                        partitions[batch.partition].add(batch);
+                        continue;
+                    }
+                    active.decrementAndGet();
+                    // a batch queued while this importer was still counted as active has no other importer
+                    if (queue.isEmpty() || !tryActivate()) {
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                active.decrementAndGet();
+                Thread.currentThread().interrupt();
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                throw e;
+            } finally {
+                synchronized (this) {
+                    if (--running == 0) {
+                        notifyAll();
                     }
                 }
-                futures.clear();
             }
-        } while (working);
+        }
+
+        private synchronized boolean isDone() {
+            return done;
+        }
 
-        long[] graphIds = new long[nodeToGraphIds.size()];
-        for (final LongIntCursor cursor : nodeToGraphIds) {
-            graphIds[cursor.value] = cursor.key;
+        /**
+         * wait until the running importers are done, they write into the matrix
+         */
+        private synchronized void awaitImporters() {
+            boolean interrupted = false;
+            while (running > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * import what is left, importers which have not been started yet are not needed anymore
+         */
+        private void finish() {
+            synchronized (this) {
+                done = true;
+            }
+            RelationshipBatch batch;
+            while ((batch = queue.poll()) != null) {
+                partitions[batch.partition].add(batch);
+            }
+            for (Future<?> importer : started) {
+                importer.cancel(false);
+            }
+            // cancel(false) also succeeds for importers which are already running, wait for them
+            awaitImporters();
+            if (failure != null) {
+                throw new RuntimeException("Error during loading relationships", failure);
+            }
         }
-        return new Nodes(0,total, new IdMap(graphIds,nodeToGraphIds),nodeWeights,nodeProps);
     }
 
-    private <T> T get(String message, Future<T> future) {
-        try {
-            return future.get();
-        } catch (InterruptedException e) {
-            throw new RuntimeException("Interrupted: " + message, e);
-        } catch (ExecutionException e) {
-            throw new RuntimeException(message, e);
+    /**
+     * rows of the relationship statement with the neo4j ids of their nodes
+     */
+    private static final class RelationshipBatch {
+        private final int partition;
+        // position of the batch among the batches of its partition
+        private final int sequence;
+        private final long[] sources;
+        private final long[] targets;
+        private final double[] weights;
+        private int length;
+
+        private RelationshipBatch(int partition, int sequence, int capacity) {
+            this.partition = partition;
+            this.sequence = sequence;
+            this.sources = new long[capacity];
+            this.targets = new long[capacity];
+            this.weights = new double[capacity];
+        }
+
+        private void add(long source, long target, double weight) {
+            sources[length] = source;
+            targets[length] = target;
+            weights[length] = weight;
+            length++;
         }
     }
 
-        private boolean canBatchLoad(int batchSize, String statement) {
-        return setup.loadConcurrent() && batchSize > 0 &&
-                (statement.contains("{" + LIMIT + "}") || statement.contains("$" + LIMIT)) &&
-                (statement.contains("{" + SKIP + "}") || statement.contains("$" + SKIP));
+    /**
+     * the relationships of all source nodes which fall into one partition
+     */
+    private static final class RelationshipPartition {
+        private final AdjacencyMatrix matrix;
+        private final IdMap idMap;
+        private final boolean hasWeights;
+        private final boolean accumulateWeights;
+        private final LongDoubleMap weights = new LongDoubleHashMap();
+        // guarded by this, batches which arrived before one of their predecessors
+        private final IntObjectMap<RelationshipBatch> pending = new IntObjectHashMap<>();
+        private int nextSequence;
+
+        private RelationshipPartition(
+                AdjacencyMatrix matrix,
+                IdMap idMap,
+                boolean hasWeights,
+                boolean accumulateWeights) {
+            this.matrix = matrix;
+            this.idMap = idMap;
+            this.hasWeights = hasWeights;
+            this.accumulateWeights = accumulateWeights;
+        }
+
+        /**
+         * apply the batch, or keep it until the batches before it have been applied
+         */
+        private synchronized void add(RelationshipBatch batch) {
+            if (batch.sequence != nextSequence) {
+                pending.put(batch.sequence, batch);
+                return;
+            }
+            do {
+                apply(batch);
+                batch = pending.remove(++nextSequence);
+            } while (batch != null);
+        }
+
+        private void apply(RelationshipBatch batch) {
+            long lastSourceId = -1, lastTargetId = -1;
+            int source = -1, target = -1;
+            for (int i = 0; i < batch.length; i++) {
+                long sourceId = batch.sources[i];
+                if (sourceId != lastSourceId) {
+                    source = idMap.get(sourceId);
+                    lastSourceId = sourceId;
+                }
+                if (source == -1) {
+                    continue;
+                }
+                long targetId = batch.targets[i];
+                if (targetId != lastTargetId) {
+                    target = idMap.get(targetId);
+                    lastTargetId = targetId;
+                }
+                if (target == -1) {
+                    continue;
+                }
+                long relId = RawValues.combineIntInt(source, target);
+                if (accumulateWeights) {
+                    // suboptimal, O(n) per node
+                    if (!matrix.hasOutgoing(source, target)) {
+                        matrix.addOutgoing(source, target);
+                    }
+                    if (hasWeights) {
+                        weights.addTo(relId, batch.weights[i]);
+                    }
+                } else {
+                    matrix.addOutgoing(source, target);
+                    if (hasWeights) {
+                        weights.put(relId, batch.weights[i]);
+                    }
+                }
+            }
+        }
     }
 
     private Relationships loadRelationships(long offset, int batchSize, Nodes nodes) {
@@ -288,11 +465,14 @@ public class HeavyCypherGraphFactory extends GraphFactory {
         }
         RelationshipRowVisitor visitor = new RelationshipRowVisitor();
         api.execute(setup.relationshipType, params(offset, batchSize)).accept(visitor);
-        return new Relationships(offset, visitor.rows, matrix, relWeigths);
+        return new Relationships(visitor.rows, matrix, relWeigths);
     }
 
     private Nodes loadNodes(long offset, int batchSize) {
-        int capacity = batchSize == NO_BATCH ? INITIAL_NODE_COUNT : batchSize;
+        // a modest start, the maps grow with the returned nodes, a small store needs even less
+        int capacity = batchSize == NO_BATCH
+                ? (int) Math.min(dimensions.allNodesCount(), INITIAL_NODE_COUNT)
+                : batchSize;
         final IdMap idMap = new IdMap(capacity);
 
         boolean hasNodeWeights = !setup.loadDefaultNodeWeight();
@@ -322,7 +502,7 @@ public class HeavyCypherGraphFactory extends GraphFactory {
         NodeRowVisitor visitor = new NodeRowVisitor();
         api.execute(setup.startLabel, params(offset, batchSize)).accept(visitor);
         idMap.buildMappedIds();
-        return new Nodes(offset, visitor.rows, idMap, nodeWeights, nodeProps);
+        return new Nodes(visitor.rows, idMap, nodeWeights, nodeProps);
     }
 
     private WeightMapping newWeightMapping(boolean needWeights, double defaultValue, int capacity) {
@@ -334,9 +514,8 @@ public class HeavyCypherGraphFactory extends GraphFactory {
     private Map<String, Object> params(long offset, int batchSize) {
         Map<String,Object> params = new HashMap<>(setup.params);
         params.put(SKIP, offset);
-        if (batchSize > 0) {
-            params.put(LIMIT, batchSize);
-        }
+        // larger limits than an int are not applied correctly by cypher
+        params.put(LIMIT, batchSize > 0 ? batchSize : Integer.MAX_VALUE);
         return params;
     }
 }
@@ -105,6 +105,28 @@ public class HeavyGraph implements Graph, NodeWeights, NodeProperties, Relations
         container.forEach(nodeId, direction, relationshipWeights, consumer);
     }
 
+    /**
+     * iterate over each relationship of the node together with its type id,
+     * the type id is -1 unless the graph has been loaded with relationship types
+     */
+    public void forEachRelationship(int nodeId, Direction direction, TypedRelationshipConsumer consumer) {
+        container.forEach(nodeId, direction, consumer);
+    }
+
+    /**
+     * true if the graph has been loaded with relationship types
+     */
+    public boolean hasRelationshipTypes() {
+        return container.hasTypes();
+    }
+
+    /**
+     * type id of a relationship between source and target or -1 if there is none
+     */
+    public short relationshipType(int sourceNodeId, int targetNodeId) {
+        return container.relationshipType(sourceNodeId, targetNodeId);
+    }
+
     @Override
     public int toMappedNodeId(long originalNodeId) {
         return nodeIdMap.get(originalNodeId);
@@ -120,7 +120,7 @@ public class HeavyGraphFactory extends GraphFactory {
             return importer.toGraph(idMap);
         }
 
-        final AdjacencyMatrix matrix = new AdjacencyMatrix(nodeCount, setup.sort);
+        final AdjacencyMatrix matrix = new AdjacencyMatrix(nodeCount, setup.sort, setup.loadRelationshipTypes);
         final WeightMapping relWeights = relWeightsSupplier.get();
         final WeightMapping nodeWeights = nodeWeightsSupplier.get();
         final WeightMapping nodeProps = nodePropsSupplier.get();
@@ -86,7 +86,7 @@ final class RelationshipImporter extends StatementTask<Void, EntityNotFoundExcep
         this.relationId = dimensions.relationId();
         loadIncoming = setup.loadIncoming;
         loadOutgoing = setup.loadOutgoing;
-        this.matrix = new AdjacencyMatrix(nodeSize, loadIncoming, loadOutgoing, setup.sort);
+        this.matrix = new AdjacencyMatrix(nodeSize, loadIncoming, loadOutgoing, setup.sort, setup.loadRelationshipTypes);
         this.currentNodeCount = 0;
         this.sort = sort;
     }
@@ -119,9 +119,10 @@ final class RelationshipImporter extends StatementTask<Void, EntityNotFoundExcep
                                 sourceGraphId,
                                 weights,
                                 relationshipId,
+                                typeId,
                                 endNodeId));
             } else {
-                visitOutgoing = ((relationshipId, typeId, startNodeId, endNodeId) -> visitOutgoing(endNodeId));
+                visitOutgoing = ((relationshipId, typeId, startNodeId, endNodeId) -> visitOutgoing(typeId, endNodeId));
             }
         }
         if (loadIncoming) {
@@ -134,9 +135,10 @@ final class RelationshipImporter extends StatementTask<Void, EntityNotFoundExcep
                                 sourceGraphId,
                                 weights,
                                 relationshipId,
+                                typeId,
                                 startNodeId));
             } else {
-                visitIncoming = ((relationshipId, typeId, startNodeId, endNodeId) -> visitIncoming(startNodeId));
+                visitIncoming = ((relationshipId, typeId, startNodeId, endNodeId) -> visitIncoming(typeId, startNodeId));
             }
         }
 
@@ -264,10 +266,10 @@ final class RelationshipImporter extends StatementTask<Void, EntityNotFoundExcep
         }
     }
 
-    private int visitOutgoing(long endNodeId) {
+    private int visitOutgoing(int typeId, long endNodeId) {
         final int targetGraphId = idMap.get(endNodeId);
         if (targetGraphId != -1) {
-            matrix.addOutgoing(sourceGraphId, targetGraphId);
+            matrix.addOutgoing(sourceGraphId, targetGraphId, (short) typeId);
         }
         return targetGraphId;
     }
@@ -278,18 +280,19 @@ final class RelationshipImporter extends StatementTask<Void, EntityNotFoundExcep
             int sourceGraphId,
             WeightMap weights,
             long relationshipId,
+            int typeId,
             long endNodeId) throws EntityNotFoundException {
-        final int targetGraphId = visitOutgoing(endNodeId);
+        final int targetGraphId = visitOutgoing(typeId, endNodeId);
         if (targetGraphId != -1) {
             visitWeight(readOp, isBoth, sourceGraphId, targetGraphId, weights, relationshipId);
         }
         return targetGraphId;
     }
 
-    private int visitIncoming(long startNodeId) {
+    private int visitIncoming(int typeId, long startNodeId) {
         final int startGraphId = idMap.get(startNodeId);
         if (startGraphId != -1) {
-            matrix.addIncoming(startGraphId, sourceGraphId);
+            matrix.addIncoming(startGraphId, sourceGraphId, (short) typeId);
         }
         return startGraphId;
     }
@@ -300,8 +303,9 @@ final class RelationshipImporter extends StatementTask<Void, EntityNotFoundExcep
             int sourceGraphId,
             WeightMap weights,
             long relationshipId,
+            int typeId,
             long startNodeId) throws EntityNotFoundException {
-        final int targetGraphId = visitIncoming(startNodeId);
+        final int targetGraphId = visitIncoming(typeId, startNodeId);
         if (targetGraphId != -1) {
             visitWeight(readOp, isBoth, sourceGraphId, targetGraphId, weights, relationshipId);
         }
@@ -0,0 +1,115 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.huge;
+
+import org.neo4j.graphalgo.core.utils.paged.ByteArray;
+
+/**
+ * Skip points of the delta encoded adjacency lists of the huge graph.
+ * <p>
+ * Delta encoded vlongs can only be read front to back. Adjacency lists with more than
+ * {@link #BLOCK_SIZE} targets are therefore prefixed with a table of skip points,
+ * one for every {@link #BLOCK_SIZE}-th target. A skip point stores the target as a full
+ * 8 byte {@code long} and the distance from the {@code degree} to the vlong following
+ * that target as a 4 byte {@code int}:
+ * <blockquote>
+ * <code>skip</code><sub><code>1</code></sub> ~ <code>skip</code><sub><code>k</code></sub> ~ <code>degree</code> ~ <code>targetId</code><sub><code>1</code></sub> ~ <code>targetId</code><sub><code>n</code></sub>
+ * </blockquote>
+ * The offset of a node still points to its {@code degree}, the table sits in front of it
+ * and its length follows from the degree, so cursors are not affected by it.
+ * Looking up a target is a binary search over the skip points followed by reading
+ * at most one block, i.e. O(log(degree) + {@link #BLOCK_SIZE}) instead of O(degree).
+ */
+final class HugeAdjacencySkips {
+
+    // has to be a power of two
+    static final int BLOCK_SIZE = 64;
+    static final int ENTRY_BYTES = Long.BYTES + Integer.BYTES;
+
+    private HugeAdjacencySkips() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    /**
+     * number of skip points of an adjacency list of the given degree, one for
+     * every target with an index that is a positive multiple of {@link #BLOCK_SIZE}
+     */
+    static int count(int degree) {
+        return degree > 0 ? (degree - 1) / BLOCK_SIZE : 0;
+    }
+
+    /**
+     * @return the position of the target in the adjacency list that starts at {@code offset}
+     * or -1 if the list does not contain it
+     */
+    static long indexOf(
+            ByteArray adjacency,
+            ByteArray.DeltaCursor reuse,
+            long offset,
+            long target) {
+        final int degree = adjacency.getInt(offset);
+        final int skips = count(degree);
+        final long table = offset - (long) skips * ENTRY_BYTES;
+
+        // the last skip point with a target not larger than the one we are looking for
+        int low = 1;
+        int high = skips;
+        int skip = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long value = adjacency.getLong(table + (long) (mid - 1) * ENTRY_BYTES);
+            if (value < target) {
+                skip = mid;
+                low = mid + 1;
+            } else if (value > target) {
+                high = mid - 1;
+            } else {
+                return (long) mid * BLOCK_SIZE;
+            }
+        }
+
+        final ByteArray.DeltaCursor cursor;
+        long index;
+        if (skip == 0) {
+            cursor = adjacency.deltaCursor(reuse, offset);
+            index = 0L;
+        } else {
+            long entry = table + (long) (skip - 1) * ENTRY_BYTES;
+            int skipped = skip * BLOCK_SIZE;
+            cursor = adjacency.deltaCursor(
+                    reuse,
+                    offset + (adjacency.getInt(entry + Long.BYTES) & 0xFFFFFFFFL),
+                    adjacency.getLong(entry),
+                    degree - skipped - 1);
+            index = skipped + 1L;
+        }
+
+        long next;
+        while ((next = cursor.getVLong()) != -1L) {
+            if (next == target) {
+                return index;
+            }
+            if (next > target) {
+                break;
+            }
+            index++;
+        }
+        return -1L;
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.huge;
+
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+
+/**
+ * Relationship weights of one direction, stored in the same order as the
+ * targets in the adjacency {@link org.neo4j.graphalgo.core.utils.paged.ByteArray}.
+ * <p>
+ * The weights of a node are stored consecutively in a {@link DoubleArray}, the
+ * {@code i}-th weight belongs to the {@code i}-th target of the adjacency list.
+ * A {@link LongArray} holds the offset of the first weight of every node.
+ * Iterating the weights alongside the targets is a sequential read instead of
+ * a hash lookup for every (source, target) pair.
+ */
+final class HugeAdjacencyWeights {
+
+    private LongArray offsets;
+    private DoubleArray weights;
+
+    private HugeAdjacencyWeights(LongArray offsets, DoubleArray weights) {
+        this.offsets = offsets;
+        this.weights = weights;
+    }
+
+    static HugeAdjacencyWeights newWeights(long nodeCount, boolean offHeap, AllocationTracker tracker) {
+        return new HugeAdjacencyWeights(
+                LongArray.newArray(nodeCount, tracker),
+                offHeap
+                        ? DoubleArray.newOffHeapArray(0, tracker)
+                        : DoubleArray.newArray(0, tracker));
+    }
+
+    static HugeAdjacencyWeights of(LongArray offsets, DoubleArray weights) {
+        return new HugeAdjacencyWeights(offsets, weights);
+    }
+
+    LongArray offsets() {
+        return offsets;
+    }
+
+    DoubleArray weights() {
+        return weights;
+    }
+
+    /**
+     * @return the index of the first weight of the node
+     */
+    long offset(long node) {
+        return offsets.get(node);
+    }
+
+    double weight(long index) {
+        return weights.get(index);
+    }
+
+    Writer newWriter() {
+        return new Writer(this);
+    }
+
+    long release() {
+        long freed = 0L;
+        if (offsets != null) {
+            freed += offsets.release();
+            freed += weights.release();
+            offsets = null;
+            weights = null;
+        }
+        return freed;
+    }
+
+    /**
+     * Writes the weights of whole adjacency lists, not thread-safe – every import thread needs its own writer.
+     */
+    static final class Writer {
+        private final LongArray offsets;
+        private final DoubleArray weights;
+        private final DoubleArray.LocalAllocator allocator;
+
+        private Writer(HugeAdjacencyWeights weights) {
+            this.offsets = weights.offsets;
+            this.weights = weights.weights;
+            this.allocator = weights.weights.newAllocator();
+        }
+
+        void write(long node, double[] values, int length) {
+            long offset = allocator.allocate(length);
+            offsets.set(node, offset);
+            for (int i = 0; i < length; i++) {
+                weights.set(offset + i, values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,656 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.huge;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.LongArrayList;
+import com.carrotsearch.hppc.LongDoubleHashMap;
+import com.carrotsearch.hppc.LongHashSet;
+import com.carrotsearch.hppc.LongLongHashMap;
+import com.carrotsearch.hppc.LongObjectHashMap;
+import org.neo4j.collection.primitive.PrimitiveLongIterable;
+import org.neo4j.collection.primitive.PrimitiveLongIterator;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.api.HugeRelationshipConsumer;
+import org.neo4j.graphalgo.api.HugeWeightedRelationshipConsumer;
+import org.neo4j.graphalgo.api.RelationshipConsumer;
+import org.neo4j.graphalgo.api.WeightedRelationshipConsumer;
+import org.neo4j.graphalgo.core.utils.RawValues;
+import org.neo4j.graphdb.Direction;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.LongPredicate;
+
+/**
+ * Mutable overlay of node and relationship changes on top of an immutable {@link HugeGraph}.
+ * <p>
+ * The base graph is not modified. Every node with changed relationships gets a delta per
+ * direction, which holds the relationships added to the node, the removed targets of the base
+ * graph and the changed weights of base relationships. Traversals read the base adjacency, skip
+ * the removed targets and append the added ones, so nodes without changes only pay for a single
+ * hash lookup. Like the base graph, the overlay keeps at most one relationship per pair of nodes
+ * and direction, adding a relationship to an adjacent node changes its weight. In undirected
+ * graphs a changed relationship gets the same weight at both of its nodes, whereas loading the
+ * graph keeps the weight of the outgoing relationship at each node. Weights are kept per direction,
+ * so a weighted base graph that loads both directions has to be loaded with
+ * {@link org.neo4j.graphalgo.api.GraphSetup#positionalWeights}, otherwise a pair of anti-parallel
+ * relationships shares a single weight in the base graph but not in the overlay.
+ * <p>
+ * Created nodes get ids after the nodes of the base graph. Deleted nodes keep their id, they
+ * have no relationships left and can no longer be found by their neo id. They are still counted
+ * and iterated and their id still maps to their former neo id, so results written back for them
+ * would hit a deleted or reused node. A graph with {@link #hasDeletedNodes()} has to be loaded again
+ * before it is used.
+ * <p>
+ * The overlay is meant to stay small compared to the base graph and should be compacted by loading
+ * the graph again once {@link #changes()} grows too large. It is not thread-safe, changes
+ * must not be applied while the graph is traversed.
+ */
+public final class HugeDeltaGraph implements HugeGraph {
+
+    private final HugeGraph base;
+    private final Overlay overlay;
+
+    private HugeDeltaGraph(HugeGraph base, Overlay overlay) {
+        this.base = base;
+        this.overlay = overlay;
+    }
+
+    /**
+     * @param direction  the direction the base graph has been loaded with
+     * @param undirected true if the base graph has been loaded as undirected
+     * @param defaultWeight weight of relationships without a weight
+     */
+    public static HugeDeltaGraph of(HugeGraph base, Direction direction, boolean undirected, double defaultWeight) {
+        if (base instanceof HugeDeltaGraph) {
+            throw new IllegalArgumentException("The base graph must not have an overlay");
+        }
+        return new HugeDeltaGraph(base, new Overlay(
+                base.nodeCount(),
+                undirected || direction != Direction.INCOMING,
+                !undirected && direction != Direction.OUTGOING,
+                undirected,
+                defaultWeight));
+    }
+
+    /**
+     * @return the graph without the changes
+     */
+    public HugeGraph base() {
+        return base;
+    }
+
+    /**
+     * @return the number of changes applied to the overlay
+     */
+    public long changes() {
+        return overlay.changes;
+    }
+
+    /**
+     * @return true if nodes of the graph have been deleted and not added again
+     */
+    public boolean hasDeletedNodes() {
+        return !overlay.deletedNodes.isEmpty();
+    }
+
+    /**
+     * Add a node, a deleted node whose neo id is reused gets its former id back.
+     *
+     * @return the mapped id of the node
+     */
+    public long addNode(long neoId) {
+        long nodeId = base.toHugeMappedNodeId(neoId);
+        if (nodeId == -1L) {
+            nodeId = overlay.createdNodes.getOrDefault(neoId, -1L);
+        }
+        if (nodeId != -1L) {
+            if (overlay.deletedNodes.remove(nodeId)) {
+                overlay.changes++;
+            }
+            return nodeId;
+        }
+        nodeId = overlay.baseNodeCount + overlay.createdIds.size();
+        overlay.createdIds.add(neoId);
+        overlay.createdNodes.put(neoId, nodeId);
+        overlay.changes++;
+        return nodeId;
+    }
+
+    /**
+     * Delete a node, its relationships have to be removed before.
+     *
+     * @return false if the node is not part of the graph
+     */
+    public boolean deleteNode(long neoId) {
+        long nodeId = toHugeMappedNodeId(neoId);
+        if (nodeId == -1L) {
+            return false;
+        }
+        overlay.deletedNodes.add(nodeId);
+        overlay.changes++;
+        return true;
+    }
+
+    /**
+     * @return false if one of the nodes is not part of the graph
+     */
+    public boolean addRelationship(long sourceNeoId, long targetNeoId, double weight) {
+        long source = toHugeMappedNodeId(sourceNeoId);
+        long target = toHugeMappedNodeId(targetNeoId);
+        if (source == -1L || target == -1L) {
+            return false;
+        }
+        if (overlay.undirected) {
+            add(overlay.outDeltas, source, target, weight, Direction.OUTGOING);
+            add(overlay.outDeltas, target, source, weight, Direction.OUTGOING);
+        } else {
+            if (overlay.outgoing) {
+                add(overlay.outDeltas, source, target, weight, Direction.OUTGOING);
+            }
+            if (overlay.incoming) {
+                add(overlay.inDeltas, target, source, weight, Direction.INCOMING);
+            }
+        }
+        overlay.changes++;
+        return true;
+    }
+
+    /**
+     * Remove the relationship between the nodes.
+     *
+     * @return false if there is no such relationship
+     */
+    public boolean removeRelationship(long sourceNeoId, long targetNeoId) {
+        long source = toHugeMappedNodeId(sourceNeoId);
+        long target = toHugeMappedNodeId(targetNeoId);
+        if (source == -1L || target == -1L) {
+            return false;
+        }
+        boolean removed = false;
+        if (overlay.undirected) {
+            removed = remove(overlay.outDeltas, source, target, Direction.OUTGOING);
+            if (removed) {
+                remove(overlay.outDeltas, target, source, Direction.OUTGOING);
+            }
+        } else {
+            if (overlay.outgoing) {
+                removed = remove(overlay.outDeltas, source, target, Direction.OUTGOING);
+            }
+            if (overlay.incoming) {
+                removed |= remove(overlay.inDeltas, target, source, Direction.INCOMING);
+            }
+        }
+        if (removed) {
+            overlay.changes++;
+        }
+        return removed;
+    }
+
+    /**
+     * Change the weight of the relationship between the nodes.
+     *
+     * @return false if one of the nodes is not part of the graph
+     */
+    public boolean setWeight(long sourceNeoId, long targetNeoId, double weight) {
+        long source = toHugeMappedNodeId(sourceNeoId);
+        long target = toHugeMappedNodeId(targetNeoId);
+        if (source == -1L || target == -1L) {
+            return false;
+        }
+        if (overlay.undirected) {
+            overlay.delta(overlay.outDeltas, source).setWeight(target, weight);
+            overlay.delta(overlay.outDeltas, target).setWeight(source, weight);
+        } else {
+            if (overlay.outgoing) {
+                overlay.delta(overlay.outDeltas, source).setWeight(target, weight);
+            }
+            if (overlay.incoming) {
+                overlay.delta(overlay.inDeltas, target).setWeight(source, weight);
+            }
+        }
+        overlay.changes++;
+        return true;
+    }
+
+    private void add(LongObjectHashMap<NodeDelta> deltas, long node, long target, double weight, Direction direction) {
+        NodeDelta delta = overlay.delta(deltas, node);
+        if (delta.targets.contains(target)) {
+            delta.setWeight(target, weight);
+        } else if (delta.removed.remove(target)) {
+            // the relationship of the base graph is back
+            delta.weights.put(target, weight);
+        } else if (inBase(node, target, direction)) {
+            delta.weights.put(target, weight);
+        } else {
+            delta.targets.add(target);
+            delta.targetWeights.add(weight);
+        }
+    }
+
+    private boolean remove(LongObjectHashMap<NodeDelta> deltas, long node, long target, Direction direction) {
+        NodeDelta delta = deltas.get(node);
+        if (delta != null && delta.removeAdded(target)) {
+            return true;
+        }
+        if ((delta != null && delta.removed.contains(target)) || !inBase(node, target, direction)) {
+            return false;
+        }
+        overlay.delta(deltas, node).removed.add(target);
+        return true;
+    }
+
+    private boolean inBase(long node, long target, Direction direction) {
+        return node < overlay.baseNodeCount
+                && target < overlay.baseNodeCount
+                && base.exists(node, target, direction);
+    }
+
+    @Override
+    public long nodeCount() {
+        return overlay.baseNodeCount + overlay.createdIds.size();
+    }
+
+    @Override
+    public Collection<PrimitiveLongIterable> hugeBatchIterables(int batchSize) {
+        List<PrimitiveLongIterable> iterables = new ArrayList<>(base.hugeBatchIterables(batchSize));
+        long nodeCount = nodeCount();
+        for (long start = overlay.baseNodeCount; start < nodeCount; start += batchSize) {
+            long end = Math.min(start + batchSize, nodeCount);
+            long first = start;
+            iterables.add(() -> new RangeIterator(first, end));
+        }
+        return iterables;
+    }
+
+    @Override
+    public void forEachNode(LongPredicate consumer) {
+        boolean[] proceed = {true};
+        base.forEachNode((long node) -> proceed[0] = consumer.test(node));
+        long nodeCount = nodeCount();
+        for (long node = overlay.baseNodeCount; proceed[0] && node < nodeCount; node++) {
+            proceed[0] = consumer.test(node);
+        }
+    }
+
+    @Override
+    public PrimitiveLongIterator hugeNodeIterator() {
+        PrimitiveLongIterator baseNodes = base.hugeNodeIterator();
+        RangeIterator createdNodes = new RangeIterator(overlay.baseNodeCount, nodeCount());
+        return new PrimitiveLongIterator() {
+            @Override
+            public boolean hasNext() {
+                return baseNodes.hasNext() || createdNodes.hasNext();
+            }
+
+            @Override
+            public long next() {
+                return baseNodes.hasNext() ? baseNodes.next() : createdNodes.next();
+            }
+        };
+    }
+
+    @Override
+    public long toHugeMappedNodeId(long nodeId) {
+        long mapped = base.toHugeMappedNodeId(nodeId);
+        if (mapped == -1L) {
+            mapped = overlay.createdNodes.getOrDefault(nodeId, -1L);
+        }
+        return mapped != -1L && overlay.deletedNodes.contains(mapped) ? -1L : mapped;
+    }
+
+    @Override
+    public long toOriginalNodeId(long nodeId) {
+        return nodeId < overlay.baseNodeCount
+                ? base.toOriginalNodeId(nodeId)
+                : overlay.createdIds.get((int) (nodeId - overlay.baseNodeCount));
+    }
+
+    @Override
+    public boolean contains(long nodeId) {
+        return toHugeMappedNodeId(nodeId) != -1L;
+    }
+
+    @Override
+    public int degree(long node, Direction direction) {
+        switch (direction) {
+            case INCOMING:
+                return degree(node, direction, overlay.inDeltas);
+
+            case OUTGOING:
+                return degree(node, direction, overlay.outDeltas);
+
+            case BOTH:
+                return degree(node, Direction.INCOMING, overlay.inDeltas)
+                        + degree(node, Direction.OUTGOING, overlay.outDeltas);
+
+            default:
+                throw new IllegalArgumentException(direction + "");
+        }
+    }
+
+    private int degree(long node, Direction direction, LongObjectHashMap<NodeDelta> deltas) {
+        int degree = node < overlay.baseNodeCount ? base.degree(node, direction) : 0;
+        NodeDelta delta = deltas.get(node);
+        if (delta != null) {
+            degree += delta.targets.size() - delta.removed.size();
+        }
+        return degree;
+    }
+
+    @Override
+    public void forEachRelationship(long nodeId, Direction direction, HugeRelationshipConsumer consumer) {
+        switch (direction) {
+            case INCOMING:
+                forEach(nodeId, Direction.INCOMING, overlay.inDeltas, consumer);
+                return;
+
+            case OUTGOING:
+                forEach(nodeId, Direction.OUTGOING, overlay.outDeltas, consumer);
+                return;
+
+            case BOTH:
+                forEach(nodeId, Direction.INCOMING, overlay.inDeltas, consumer);
+                forEach(nodeId, Direction.OUTGOING, overlay.outDeltas, consumer);
+                return;
+
+            default:
+                throw new IllegalArgumentException(direction + "");
+        }
+    }
+
+    @Override
+    public void forEachRelationship(long nodeId, Direction direction, HugeWeightedRelationshipConsumer consumer) {
+        switch (direction) {
+            case INCOMING:
+                forEachWeighted(nodeId, Direction.INCOMING, overlay.inDeltas, consumer);
+                return;
+
+            case OUTGOING:
+                forEachWeighted(nodeId, Direction.OUTGOING, overlay.outDeltas, consumer);
+                return;
+
+            case BOTH:
+                forEachWeighted(nodeId, Direction.INCOMING, overlay.inDeltas, consumer);
+                forEachWeighted(nodeId, Direction.OUTGOING, overlay.outDeltas, consumer);
+                return;
+
+            default:
+                throw new IllegalArgumentException(direction + "");
+        }
+    }
+
+    @Override
+    public void forEachRelationship(int nodeId, Direction direction, RelationshipConsumer consumer) {
+        switch (direction) {
+            case INCOMING:
+                forEachIncoming(nodeId, consumer);
+                return;
+
+            case OUTGOING:
+                forEachOutgoing(nodeId, consumer);
+                return;
+
+            case BOTH:
+                forEachIncoming(nodeId, consumer);
+                forEachOutgoing(nodeId, consumer);
+                return;
+
+            default:
+                throw new IllegalArgumentException(direction + "");
+        }
+    }
+
+    @Override
+    public void forEachRelationship(int nodeId, Direction direction, WeightedRelationshipConsumer consumer) {
+        forEachRelationship((long) nodeId, direction, (s, t, weight) -> consumer.accept(
+                (int) s,
+                (int) t,
+                RawValues.combineIntInt(direction, (int) s, (int) t),
+                weight));
+    }
+
+    @Override
+    public void forEachIncoming(int nodeId, RelationshipConsumer consumer) {
+        forEach(nodeId, Direction.INCOMING, overlay.inDeltas, (s, t) -> consumer.accept(
+                (int) s,
+                (int) t,
+                RawValues.combineIntInt((int) t, (int) s)));
+    }
+
+    @Override
+    public void forEachOutgoing(int nodeId, RelationshipConsumer consumer) {
+        forEach(nodeId, Direction.OUTGOING, overlay.outDeltas, (s, t) -> consumer.accept(
+                (int) s,
+                (int) t,
+                RawValues.combineIntInt((int) s, (int) t)));
+    }
+
+    private void forEach(long node, Direction direction, LongObjectHashMap<NodeDelta> deltas, HugeRelationshipConsumer consumer) {
+        NodeDelta delta = deltas.get(node);
+        boolean[] proceed = {true};
+        if (node < overlay.baseNodeCount) {
+            if (delta == null) {
+                base.forEachRelationship(node, direction, consumer);
+                return;
+            }
+            LongHashSet removed = delta.removed;
+            base.forEachRelationship(node, direction, (s, t) ->
+                    removed.contains(t) || (proceed[0] = consumer.accept(s, t)));
+        }
+        if (delta != null) {
+            LongArrayList targets = delta.targets;
+            for (int i = 0; proceed[0] && i < targets.size(); i++) {
+                proceed[0] = consumer.accept(node, targets.get(i));
+            }
+        }
+    }
+
+    private void forEachWeighted(long node, Direction direction, LongObjectHashMap<NodeDelta> deltas, HugeWeightedRelationshipConsumer consumer) {
+        NodeDelta delta = deltas.get(node);
+        boolean[] proceed = {true};
+        if (node < overlay.baseNodeCount) {
+            if (delta == null) {
+                base.forEachRelationship(node, direction, consumer);
+                return;
+            }
+            LongHashSet removed = delta.removed;
+            LongDoubleHashMap weights = delta.weights;
+            base.forEachRelationship(node, direction, (long s, long t, double weight) ->
+                    removed.contains(t) || (proceed[0] = consumer.accept(s, t, weights.getOrDefault(t, weight))));
+        }
+        if (delta != null) {
+            LongArrayList targets = delta.targets;
+            for (int i = 0; proceed[0] && i < targets.size(); i++) {
+                proceed[0] = consumer.accept(node, targets.get(i), delta.targetWeights.get(i));
+            }
+        }
+    }
+
+    @Override
+    public double weightOf(long sourceNodeId, long targetNodeId) {
+        // a node can have outgoing and incoming deltas, the relationship may be in either of them
+        NodeDelta delta = overlay.outDeltas.get(sourceNodeId);
+        if (delta != null && delta.hasWeight(targetNodeId)) {
+            return delta.weightOf(targetNodeId);
+        }
+        if (overlay.incoming) {
+            delta = overlay.inDeltas.get(sourceNodeId);
+            if (delta != null && delta.hasWeight(targetNodeId)) {
+                return delta.weightOf(targetNodeId);
+            }
+        }
+        if (sourceNodeId >= overlay.baseNodeCount || targetNodeId >= overlay.baseNodeCount) {
+            return overlay.defaultWeight;
+        }
+        return base.weightOf(sourceNodeId, targetNodeId);
+    }
+
+    @Override
+    public boolean exists(long sourceNodeId, long targetNodeId, Direction direction) {
+        switch (direction) {
+            case OUTGOING:
+                return exists(sourceNodeId, targetNodeId, direction, overlay.outDeltas);
+
+            case INCOMING:
+                return exists(sourceNodeId, targetNodeId, direction, overlay.inDeltas);
+
+            case BOTH:
+                return exists(sourceNodeId, targetNodeId, Direction.OUTGOING, overlay.outDeltas)
+                        || exists(sourceNodeId, targetNodeId, Direction.INCOMING, overlay.inDeltas);
+
+            default:
+                throw new IllegalArgumentException(direction + "");
+        }
+    }
+
+    private boolean exists(long source, long target, Direction direction, LongObjectHashMap<NodeDelta> deltas) {
+        NodeDelta delta = deltas.get(source);
+        if (delta == null) {
+            return inBase(source, target, direction);
+        }
+        return delta.targets.contains(target)
+                || (!delta.removed.contains(target) && inBase(source, target, direction));
+    }
+
+    @Override
+    public boolean exists(int sourceNodeId, int targetNodeId, Direction direction) {
+        return exists((long) sourceNodeId, (long) targetNodeId, direction);
+    }
+
+    @Override
+    public HugeGraph concurrentCopy() {
+        return new HugeDeltaGraph((HugeGraph) base.concurrentCopy(), overlay);
+    }
+
+    @Override
+    public void release() {
+        base.release();
+    }
+
+    @Override
+    public void canRelease(boolean canRelease) {
+        base.canRelease(canRelease);
+    }
+
+    /**
+     * changes shared by all concurrent copies of the graph
+     */
+    private static final class Overlay {
+        private final long baseNodeCount;
+        private final boolean outgoing;
+        private final boolean incoming;
+        private final boolean undirected;
+        private final double defaultWeight;
+        private final LongObjectHashMap<NodeDelta> outDeltas = new LongObjectHashMap<>();
+        private final LongObjectHashMap<NodeDelta> inDeltas = new LongObjectHashMap<>();
+        // neo id to mapped id and back for nodes created after the base graph has been loaded
+        private final LongLongHashMap createdNodes = new LongLongHashMap();
+        private final LongArrayList createdIds = new LongArrayList();
+        private final LongHashSet deletedNodes = new LongHashSet();
+        private long changes;
+
+        private Overlay(long baseNodeCount, boolean outgoing, boolean incoming, boolean undirected, double defaultWeight) {
+            this.baseNodeCount = baseNodeCount;
+            this.outgoing = outgoing;
+            this.incoming = incoming;
+            this.undirected = undirected;
+            this.defaultWeight = defaultWeight;
+        }
+
+        private NodeDelta delta(LongObjectHashMap<NodeDelta> deltas, long node) {
+            NodeDelta delta = deltas.get(node);
+            if (delta == null) {
+                delta = new NodeDelta();
+                deltas.put(node, delta);
+            }
+            return delta;
+        }
+    }
+
+    /**
+     * changes of the relationships of one node in one direction
+     */
+    private static final class NodeDelta {
+        // added relationships
+        private final LongArrayList targets = new LongArrayList(4);
+        private final DoubleArrayList targetWeights = new DoubleArrayList(4);
+        // removed targets of the base graph
+        private final LongHashSet removed = new LongHashSet();
+        // changed weights of base relationships per target
+        private final LongDoubleHashMap weights = new LongDoubleHashMap();
+
+        private boolean removeAdded(long target) {
+            int index = targets.indexOf(target);
+            if (index == -1) {
+                return false;
+            }
+            targets.remove(index);
+            targetWeights.remove(index);
+            return true;
+        }
+
+        /**
+         * whether the relationship to the target has been added or its weight has been changed
+         */
+        private boolean hasWeight(long target) {
+            return targets.contains(target) || weights.containsKey(target);
+        }
+
+        private double weightOf(long target) {
+            int index = targets.indexOf(target);
+            return index != -1 ? targetWeights.get(index) : weights.get(target);
+        }
+
+        private void setWeight(long target, double weight) {
+            int index = targets.indexOf(target);
+            if (index != -1) {
+                targetWeights.set(index, weight);
+            } else {
+                weights.put(target, weight);
+            }
+        }
+    }
+
+    private static final class RangeIterator implements PrimitiveLongIterator {
+        private long next;
+        private final long end;
+
+        private RangeIterator(long start, long end) {
+            this.next = start;
+            this.end = end;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < end;
+        }
+
+        @Override
+        public long next() {
+            if (next >= end) {
+                throw new NoSuchElementException();
+            }
+            return next++;
+        }
+    }
+}
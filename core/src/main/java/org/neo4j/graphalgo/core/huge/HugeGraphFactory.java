@@ -19,11 +19,13 @@
 package org.neo4j.graphalgo.core.huge;
 
 import org.apache.lucene.util.ArrayUtil;
+import org.apache.lucene.util.InPlaceMergeSorter;
 import org.neo4j.graphalgo.api.GraphFactory;
 import org.neo4j.graphalgo.api.GraphSetup;
 import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.api.HugeWeightMapping;
 import org.neo4j.graphalgo.core.GraphDimensions;
+import org.neo4j.graphalgo.core.HugeNullWeightMap;
 import org.neo4j.graphalgo.core.HugeWeightMap;
 import org.neo4j.graphalgo.core.utils.ImportProgress;
 import org.neo4j.graphalgo.core.utils.ParallelUtil;
@@ -65,7 +67,10 @@ public final class HugeGraphFactory extends GraphFactory {
     private HugeGraph importGraph() throws EntityNotFoundException {
         int concurrency = setup.concurrency();
         AllocationTracker tracker = setup.tracker;
-        HugeWeightMapping weights = hugeWeightMapping(tracker, dimensions.weightId(), setup.relationDefaultWeight);
+        // positional weights are stored alongside the adjacency, the map then only provides the default weight
+        HugeWeightMapping weights = setup.positionalWeights
+                ? new HugeNullWeightMap(setup.relationDefaultWeight)
+                : hugeWeightMapping(tracker, dimensions.weightId(), setup.relationDefaultWeight);
         HugeIdMap mapping = loadHugeIdMap(tracker);
         HugeGraph graph = loadRelationships(dimensions, mapping, weights, concurrency, tracker, progress);
         progressLogger.logDone(tracker);
@@ -97,15 +102,23 @@ public final class HugeGraphFactory extends GraphFactory {
         LongArray outOffsets = null;
         ByteArray inAdjacency = null;
         ByteArray outAdjacency = null;
+        HugeAdjacencyWeights inWeights = null;
+        HugeAdjacencyWeights outWeights = null;
         if (setup.loadIncoming) {
             inOffsets = LongArray.newArray(nodeCount, tracker);
-            inAdjacency = ByteArray.newArray(0, tracker);
+            inAdjacency = newAdjacency(0, tracker);
             inAdjacency.skipAllocationRegion(1);
+            if (weightId >= 0 && setup.positionalWeights) {
+                inWeights = HugeAdjacencyWeights.newWeights(nodeCount, setup.offHeap, tracker);
+            }
         }
         if (setup.loadOutgoing) {
             outOffsets = LongArray.newArray(nodeCount, tracker);
-            outAdjacency = ByteArray.newArray(nodeCount, tracker);
+            outAdjacency = newAdjacency(nodeCount, tracker);
             outAdjacency.skipAllocationRegion(1);
+            if (weightId >= 0 && setup.positionalWeights) {
+                outWeights = HugeAdjacencyWeights.newWeights(nodeCount, setup.offHeap, tracker);
+            }
         }
         if (setup.loadIncoming || setup.loadOutgoing) {
             // needs final b/c of reference from lambda
@@ -113,6 +126,8 @@ public final class HugeGraphFactory extends GraphFactory {
             final LongArray finalOutOffsets = outOffsets;
             final ByteArray finalInAdjacency = inAdjacency;
             final ByteArray finalOutAdjacency = outAdjacency;
+            final HugeAdjacencyWeights finalInWeights = inWeights;
+            final HugeAdjacencyWeights finalOutWeights = outWeights;
 
             NodeQueue nodes = new NodeQueue(nodeCount);
             BatchImportTask[] tasks = new BatchImportTask[concurrency];
@@ -126,9 +141,12 @@ public final class HugeGraphFactory extends GraphFactory {
                     finalOutOffsets,
                     finalInAdjacency,
                     finalOutAdjacency,
+                    finalInWeights,
+                    finalOutWeights,
                     false,
                     relationId,
                     weightId,
+                    setup.relationDefaultWeight,
                     weights
             ));
             ParallelUtil.run(Arrays.asList(tasks), threadPool);
@@ -141,10 +159,18 @@ public final class HugeGraphFactory extends GraphFactory {
                 inAdjacency,
                 outAdjacency,
                 inOffsets,
-                outOffsets
+                outOffsets,
+                inWeights,
+                outWeights
         );
     }
 
+    private ByteArray newAdjacency(long size, AllocationTracker tracker) {
+        return setup.offHeap
+                ? ByteArray.newOffHeapArray(size, tracker)
+                : ByteArray.newArray(size, tracker);
+    }
+
     private HugeGraph loadUndirectedRelationships(
             GraphDimensions dimensions,
             HugeIdMap mapping,
@@ -157,8 +183,11 @@ public final class HugeGraphFactory extends GraphFactory {
         final int weightId = dimensions.weightId();
 
         LongArray offsets = LongArray.newArray(nodeCount, tracker);
-        ByteArray adjacency = ByteArray.newArray(0, tracker);
+        ByteArray adjacency = newAdjacency(0, tracker);
         adjacency.skipAllocationRegion(1);
+        HugeAdjacencyWeights adjacencyWeights = weightId >= 0 && setup.positionalWeights
+                ? HugeAdjacencyWeights.newWeights(nodeCount, setup.offHeap, tracker)
+                : null;
 
         NodeQueue nodes = new NodeQueue(nodeCount);
         BatchImportTask[] tasks = new BatchImportTask[concurrency];
@@ -172,9 +201,12 @@ public final class HugeGraphFactory extends GraphFactory {
                 offsets,
                 null,
                 adjacency,
+                null,
+                adjacencyWeights,
                 true,
                 relationId,
                 weightId,
+                setup.relationDefaultWeight,
                 weights
         ));
         ParallelUtil.run(Arrays.asList(tasks), threadPool);
@@ -186,7 +218,9 @@ public final class HugeGraphFactory extends GraphFactory {
                 null,
                 adjacency,
                 null,
-                offsets
+                offsets,
+                null,
+                adjacencyWeights
         );
     }
 
@@ -219,8 +253,11 @@ public final class HugeGraphFactory extends GraphFactory {
         private final LongArray outOffsets;
         private final ByteArray.LocalAllocator inAllocator;
         private final ByteArray.LocalAllocator outAllocator;
+        private final HugeAdjacencyWeights.Writer inWeights;
+        private final HugeAdjacencyWeights.Writer outWeights;
         private final int[] relationId;
         private final int weightId;
+        private final double defaultWeight;
         private final HugeWeightMapping weights;
         private final boolean loadsBoth;
         private final boolean undirected;
@@ -235,9 +272,12 @@ public final class HugeGraphFactory extends GraphFactory {
                 LongArray outOffsets,
                 ByteArray inAdjacency,
                 ByteArray outAdjacency,
+                HugeAdjacencyWeights inWeights,
+                HugeAdjacencyWeights outWeights,
                 boolean undirected,
                 int[] relationId,
                 int weightId,
+                double defaultWeight,
                 HugeWeightMapping weights) {
             super(api);
             this.batchIndex = batchIndex;
@@ -248,8 +288,11 @@ public final class HugeGraphFactory extends GraphFactory {
             this.outOffsets = outOffsets;
             this.inAllocator = inAdjacency != null ? inAdjacency.newAllocator() : null;
             this.outAllocator = outAdjacency != null ? outAdjacency.newAllocator() : null;
+            this.inWeights = inWeights != null ? inWeights.newWriter() : null;
+            this.outWeights = outWeights != null ? outWeights.newWriter() : null;
             this.relationId = relationId;
             this.weightId = weightId;
+            this.defaultWeight = defaultWeight;
             this.weights = weights;
             this.loadsBoth = inAdjacency != null && outAdjacency != null;
             this.undirected = undirected;
@@ -276,6 +319,7 @@ public final class HugeGraphFactory extends GraphFactory {
                         readOp,
                         outOffsets,
                         outAllocator,
+                        outWeights,
                         importer
                 );
             } else {
@@ -292,6 +336,7 @@ public final class HugeGraphFactory extends GraphFactory {
                                     Direction.OUTGOING,
                                     outOffsets,
                                     outAllocator,
+                                    outWeights,
                                     outImporter
                             );
                             readRelationships(
@@ -301,6 +346,7 @@ public final class HugeGraphFactory extends GraphFactory {
                                     Direction.INCOMING,
                                     inOffsets,
                                     inAllocator,
+                                    inWeights,
                                     inImporter
                             );
                         };
@@ -312,6 +358,7 @@ public final class HugeGraphFactory extends GraphFactory {
                                 Direction.INCOMING,
                                 inOffsets,
                                 inAllocator,
+                                inWeights,
                                 inImporter
                         );
                     }
@@ -325,6 +372,7 @@ public final class HugeGraphFactory extends GraphFactory {
                                 Direction.OUTGOING,
                                 outOffsets,
                                 outAllocator,
+                                outWeights,
                                 outImporter
                         );
                     } else {
@@ -346,6 +394,14 @@ public final class HugeGraphFactory extends GraphFactory {
                 ReadOperations readOp,
                 Direction direction) {
             if (weightId >= 0) {
+                if (inWeights != null || outWeights != null) {
+                    return new RelationshipImporterWithPositionalWeights(
+                            idMap,
+                            direction,
+                            readOp,
+                            weightId,
+                            defaultWeight);
+                }
                 return new RelationshipImporterWithWeights(
                         idMap,
                         direction,
@@ -364,6 +420,7 @@ public final class HugeGraphFactory extends GraphFactory {
                 Direction direction,
                 LongArray offsets,
                 ByteArray.LocalAllocator allocator,
+                HugeAdjacencyWeights.Writer weights,
                 DeltaEncodingVisitor delta) throws EntityNotFoundException {
 
             int degree = degree(sourceNodeId, readOp, direction);
@@ -378,20 +435,10 @@ public final class HugeGraphFactory extends GraphFactory {
             }
 
             long requiredSize = delta.applyDelta();
-            degree = delta.length;
-            if (degree == 0) {
+            if (delta.length == 0) {
                 return;
             }
-
-            long adjacencyIdx = allocator.allocate(requiredSize);
-            offsets.set(sourceGraphId, adjacencyIdx);
-
-            ByteArray.BulkAdder bulkAdder = allocator.adder;
-            bulkAdder.addUnsignedInt(degree);
-            long[] targets = delta.targets;
-            for (int i = 0; i < degree; i++) {
-                bulkAdder.addVLong(targets[i]);
-            }
+            writeAdjacency(sourceGraphId, requiredSize, offsets, allocator, weights, delta);
         }
 
         private void readUndirectedRelationships(
@@ -400,6 +447,7 @@ public final class HugeGraphFactory extends GraphFactory {
                 ReadOperations readOp,
                 LongArray offsets,
                 ByteArray.LocalAllocator allocator,
+                HugeAdjacencyWeights.Writer weights,
                 DeltaEncodingVisitor delta) throws EntityNotFoundException {
 
             int degree = degree(sourceNodeId, readOp, Direction.BOTH);
@@ -417,17 +465,39 @@ public final class HugeGraphFactory extends GraphFactory {
                 }
 
                 long requiredSize = delta.applyDelta();
-                degree = delta.length;
-                long adjacencyIdx = allocator.allocate(requiredSize);
-                offsets.set(sourceGraphId, adjacencyIdx);
-
-                ByteArray.BulkAdder bulkAdder = allocator.adder;
-                bulkAdder.addUnsignedInt(degree);
-                long[] targets = delta.targets;
-                for (int i = 0; i < degree; i++) {
-                    bulkAdder.addVLong(targets[i]);
+                if (delta.length == 0) {
+                    return;
                 }
+                writeAdjacency(sourceGraphId, requiredSize, offsets, allocator, weights, delta);
+            }
+        }
+
+        private void writeAdjacency(
+                long sourceGraphId,
+                long requiredSize,
+                LongArray offsets,
+                ByteArray.LocalAllocator allocator,
+                HugeAdjacencyWeights.Writer weights,
+                DeltaEncodingVisitor delta) {
+            long adjacencyIdx = allocator.allocate(requiredSize);
+            ByteArray.BulkAdder bulkAdder = allocator.adder;
+
+            // the skip points are written in front of the degree
+            long[] skips = delta.skips;
+            int skipCount = delta.skipCount;
+            for (int i = 0; i < skipCount; i += 2) {
+                bulkAdder.addLong(skips[i]);
+                bulkAdder.addUnsignedInt((int) skips[i + 1]);
             }
+            offsets.set(sourceGraphId, adjacencyIdx + (skipCount >> 1) * (long) HugeAdjacencySkips.ENTRY_BYTES);
+
+            int degree = delta.length;
+            bulkAdder.addUnsignedInt(degree);
+            long[] targets = delta.targets;
+            for (int i = 0; i < degree; i++) {
+                bulkAdder.addVLong(targets[i]);
+            }
+            delta.writeWeights(weights);
         }
 
         private int degree(
@@ -466,8 +536,11 @@ public final class HugeGraphFactory extends GraphFactory {
         long sourceGraphId;
         private long prevTarget;
         private boolean isSorted;
-        private long[] targets;
-        private int length;
+        long[] targets;
+        int length;
+        // pairs of (target, distance of the next vlong from the degree)
+        long[] skips;
+        int skipCount;
 
         private DeltaEncodingVisitor(
                 HugeIdMap idMap,
@@ -475,11 +548,13 @@ public final class HugeGraphFactory extends GraphFactory {
             this.idMap = idMap;
             this.direction = direction;
             targets = new long[0];
+            skips = new long[0];
         }
 
         final void reset(int degree, long sourceGraphId) {
             this.sourceGraphId = sourceGraphId;
             length = 0;
+            skipCount = 0;
             prevTarget = -1L;
             isSorted = true;
             if (targets.length < degree) {
@@ -524,7 +599,7 @@ public final class HugeGraphFactory extends GraphFactory {
 
             long[] targets = this.targets;
             if (!isSorted) {
-                Arrays.sort(targets, 0, length);
+                sort(length);
             }
 
             long delta = targets[0];
@@ -538,11 +613,37 @@ public final class HugeGraphFactory extends GraphFactory {
                     ++writePos;
                     requiredBytes += vSize(value);
                     delta = nextDelta;
+                    if (((writePos - 1) & (HugeAdjacencySkips.BLOCK_SIZE - 1)) == 0) {
+                        addSkip(delta, requiredBytes);
+                    }
                 }
+                // duplicates overwrite the value of the previous target
+                moveValue(i, writePos - 1);
             }
 
             this.length = writePos;
-            return requiredBytes;
+            return requiredBytes + (skipCount >> 1) * (long) HugeAdjacencySkips.ENTRY_BYTES;
+        }
+
+        private void addSkip(long target, long distance) {
+            if (skipCount + 2 > skips.length) {
+                skips = Arrays.copyOf(skips, ArrayUtil.oversize(skipCount + 2, Long.BYTES));
+            }
+            skips[skipCount++] = target;
+            skips[skipCount++] = distance;
+        }
+
+        void sort(int length) {
+            Arrays.sort(targets, 0, length);
+        }
+
+        /**
+         * Called for every target that is moved while removing duplicates.
+         */
+        void moveValue(int from, int to) {
+        }
+
+        void writeWeights(HugeAdjacencyWeights.Writer weights) {
         }
 
         private long vSize(long value) {
@@ -600,4 +701,89 @@ public final class HugeGraphFactory extends GraphFactory {
             return targetGraphId;
         }
     }
+
+    /**
+     * Keeps the weights in the order of the targets and writes them alongside the adjacency,
+     * see {@link GraphSetup#positionalWeights}.
+     */
+    private static final class RelationshipImporterWithPositionalWeights extends DeltaEncodingVisitor {
+        private final int weightId;
+        private final ReadOperations readOp;
+        private final double defaultValue;
+        private final PairSorter sorter;
+        private double[] weights;
+
+        private RelationshipImporterWithPositionalWeights(
+                final HugeIdMap idMap,
+                final Direction direction,
+                final ReadOperations readOp,
+                int weightId,
+                double defaultValue) {
+            super(idMap, direction);
+            this.readOp = readOp;
+            if (weightId < 0) {
+                throw new IllegalArgumentException(
+                        "expected weights to be defined");
+            }
+            this.weightId = weightId;
+            this.defaultValue = defaultValue;
+            this.weights = new double[0];
+            this.sorter = new PairSorter();
+        }
+
+        @Override
+        long maybeVisit(
+                final long relationshipId,
+                final long endNodeId) throws EntityNotFoundException {
+            long targetGraphId = super.maybeVisit(relationshipId, endNodeId);
+            if (targetGraphId >= 0) {
+                int index = length - 1;
+                if (index >= weights.length) {
+                    weights = Arrays.copyOf(weights, targets.length);
+                }
+                Object value = readOp.relationshipGetProperty(
+                        relationshipId,
+                        weightId);
+                weights[index] = RawValues.extractValue(value, defaultValue);
+            }
+            return targetGraphId;
+        }
+
+        /**
+         * Stable, so that of multiple relationships to the same target the last one read wins.
+         * This is the rule of the {@link org.neo4j.graphalgo.core.heavyweight.HeavyGraph} weights
+         * as well, which are overwritten in the order the relationships are read.
+         */
+        @Override
+        void sort(int length) {
+            sorter.sort(0, length);
+        }
+
+        @Override
+        void moveValue(int from, int to) {
+            weights[to] = weights[from];
+        }
+
+        @Override
+        void writeWeights(HugeAdjacencyWeights.Writer weights) {
+            weights.write(sourceGraphId, this.weights, length);
+        }
+
+        private final class PairSorter extends InPlaceMergeSorter {
+            @Override
+            protected int compare(int i, int j) {
+                return Long.compare(targets[i], targets[j]);
+            }
+
+            @Override
+            protected void swap(int i, int j) {
+                long target = targets[i];
+                targets[i] = targets[j];
+                targets[j] = target;
+                double weight = weights[i];
+                weights[i] = weights[j];
+                weights[j] = weight;
+            }
+        }
+    }
 }
@@ -23,6 +23,7 @@ import org.neo4j.collection.primitive.PrimitiveLongIterator;
 import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.api.HugeRelationshipConsumer;
 import org.neo4j.graphalgo.api.HugeWeightMapping;
+import org.neo4j.graphalgo.api.HugeWeightedRelationshipConsumer;
 import org.neo4j.graphalgo.api.RelationshipConsumer;
 import org.neo4j.graphalgo.api.WeightedRelationshipConsumer;
 import org.neo4j.graphalgo.core.utils.RawValues;
@@ -49,6 +50,8 @@ import java.util.function.LongPredicate;
  * (the neo kernel api returns an int for {@link org.neo4j.kernel.api.ReadOperations#nodeGetDegree(long, Direction)}).
  * Every target ID is first sorted, then delta encoded, and finally written as variable-length vlongs.
  * The delta encoding does not write the actual value but only the difference to the previous value, which plays very nice with the vlong encoding.
+ * Adjacency lists with many targets are prefixed with skip points, see {@link HugeAdjacencySkips},
+ * so that looking up a single target does not have to decode the whole list.
  * <p>
  * The seconds data structure is a LongArray, which is a long[] addressable by longs
  * and capable of storing about 2^43 (~9k bn) longs – or 64 TiB worth of 64 bit longs.
@@ -72,20 +75,32 @@ import java.util.function.LongPredicate;
  * and gives access to this data during import. Synchronization between threads only
  * has to happen when a new chunk has to be pre-allocated. This is similar to
  * what most garbage collectors do with TLAB allocations.
+ * <p>
+ * Relationship weights are kept in a {@link HugeWeightMapping}. When loading both directions
+ * a relationship has a single weight for both of its nodes, which is stored under the smaller
+ * node id first, just as in the {@link org.neo4j.graphalgo.core.heavyweight.HeavyGraph}.
+ * If the graph is loaded with {@link org.neo4j.graphalgo.api.GraphSetup#positionalWeights},
+ * the weights are instead stored per direction in {@link HugeAdjacencyWeights}, in
+ * the same order as the sorted targets of the adjacency list. Weighted traversals read
+ * them alongside the targets, {@link #weightOf(long, long)} has to search the adjacency
+ * list of the source for the target and prefers the outgoing relationship.
  *
  * @see <a href="https://developers.google.com/protocol-buffers/docs/encoding#varints">more abount vlong</a>
  * @see <a href="https://shipilev.net/jvm-anatomy-park/4-tlab-allocation/">more abount TLAB allocation</a>
  */
 public class HugeGraphImpl implements HugeGraph {
 
-    private final HugeIdMap idMapping;
+    final HugeIdMap idMapping;
     private final AllocationTracker tracker;
 
-    private HugeWeightMapping weights;
-    private ByteArray inAdjacency;
-    private ByteArray outAdjacency;
-    private LongArray inOffsets;
-    private LongArray outOffsets;
+    // package-private for HugeGraphSnapshot
+    HugeWeightMapping weights;
+    ByteArray inAdjacency;
+    ByteArray outAdjacency;
+    LongArray inOffsets;
+    LongArray outOffsets;
+    HugeAdjacencyWeights inWeights;
+    HugeAdjacencyWeights outWeights;
     private ByteArray.DeltaCursor empty;
     private ByteArray.DeltaCursor inCache;
     private ByteArray.DeltaCursor outCache;
@@ -99,7 +114,9 @@ public class HugeGraphImpl implements HugeGraph {
             final ByteArray inAdjacency,
             final ByteArray outAdjacency,
             final LongArray inOffsets,
-            final LongArray outOffsets) {
+            final LongArray outOffsets,
+            final HugeAdjacencyWeights inWeights,
+            final HugeAdjacencyWeights outWeights) {
         this.idMapping = idMapping;
         this.tracker = tracker;
         this.weights = weights;
@@ -107,6 +124,8 @@ public class HugeGraphImpl implements HugeGraph {
         this.outAdjacency = outAdjacency;
         this.inOffsets = inOffsets;
         this.outOffsets = outOffsets;
+        this.inWeights = inWeights;
+        this.outWeights = outWeights;
         inCache = newCursor(this.inAdjacency);
         outCache = newCursor(this.outAdjacency);
         empty = inCache == null ? newCursor(this.outAdjacency) : newCursor(this.inAdjacency);
@@ -133,8 +152,23 @@ public class HugeGraphImpl implements HugeGraph {
         return idMapping.hugeNodeIterator();
     }
 
+    /**
+     * O(log(degree)) for positional weights ! Prefer the traversal with a {@link HugeWeightedRelationshipConsumer}.
+     */
     @Override
     public double weightOf(final long sourceNodeId, final long targetNodeId) {
+        if (outWeights != null) {
+            long index = indexOf(sourceNodeId, targetNodeId, outOffsets, outAdjacency);
+            if (index != -1L) {
+                return outWeights.weight(outWeights.offset(sourceNodeId) + index);
+            }
+        }
+        if (inWeights != null) {
+            long index = indexOf(sourceNodeId, targetNodeId, inOffsets, inAdjacency);
+            if (index != -1L) {
+                return inWeights.weight(inWeights.offset(sourceNodeId) + index);
+            }
+        }
         if (isBoth && sourceNodeId > targetNodeId) {
             return weights.weight(targetNodeId, sourceNodeId);
         }
@@ -189,20 +223,40 @@ public class HugeGraphImpl implements HugeGraph {
         }
     }
 
+    @Override
+    public void forEachRelationship(
+            long nodeId,
+            Direction direction,
+            HugeWeightedRelationshipConsumer consumer) {
+        switch (direction) {
+            case INCOMING:
+                forEachWeighted(nodeId, inOffsets, inAdjacency, inWeights, consumer);
+                return;
+
+            case OUTGOING:
+                forEachWeighted(nodeId, outOffsets, outAdjacency, outWeights, consumer);
+                return;
+
+            case BOTH:
+                forEachWeighted(nodeId, inOffsets, inAdjacency, inWeights, consumer);
+                forEachWeighted(nodeId, outOffsets, outAdjacency, outWeights, consumer);
+                return;
+
+            default:
+                throw new IllegalArgumentException(direction + "");
+        }
+    }
+
     @Override
     public void forEachRelationship(
             int nodeId,
             Direction direction,
             WeightedRelationshipConsumer consumer) {
-        RelationshipConsumer nonWeighted = (s, t, relId) -> {
-            double weight = weightOf((long) s, (long) t);
-            return consumer.accept(
-                    s,
-                    t,
-                    RawValues.combineIntInt(direction, s, t),
-                    weight);
-        };
-        forEachRelationship(nodeId, direction, nonWeighted);
+        forEachRelationship((long) nodeId, direction, (s, t, weight) -> consumer.accept(
+                (int) s,
+                (int) t,
+                RawValues.combineIntInt(direction, (int) s, (int) t),
+                weight));
     }
 
     @Override
@@ -303,7 +357,9 @@ public class HugeGraphImpl implements HugeGraph {
                 inAdjacency,
                 outAdjacency,
                 inOffsets,
-                outOffsets
+                outOffsets,
+                inWeights,
+                outWeights
         );
     }
 
@@ -341,6 +397,46 @@ public class HugeGraphImpl implements HugeGraph {
                 consumer.accept(startNode, next)) ;
     }
 
+    private void forEachWeighted(
+            long node,
+            LongArray offsets,
+            ByteArray adjacency,
+            HugeAdjacencyWeights adjacencyWeights,
+            HugeWeightedRelationshipConsumer consumer) {
+        ByteArray.DeltaCursor cursor = cursor(
+                node,
+                adjacency.newCursor(),
+                offsets,
+                adjacency);
+        if (adjacencyWeights == null) {
+            consumeNodes(node, cursor, (s, t) -> consumer.accept(s, t, weightOf(s, t)));
+            return;
+        }
+        long index = adjacencyWeights.offset(node);
+        long next;
+        //noinspection StatementWithEmptyBody
+        while ((next = cursor.getVLong()) != -1L &&
+                consumer.accept(node, next, adjacencyWeights.weight(index++))) ;
+    }
+
+    /**
+     * @return the position of the target in the adjacency list of the source or -1 if they are not adjacent
+     */
+    private long indexOf(
+            long source,
+            long target,
+            LongArray offsets,
+            ByteArray adjacency) {
+        if (adjacency == null) {
+            return -1L;
+        }
+        final long offset = offsets.get(source);
+        if (offset == 0L) {
+            return -1L;
+        }
+        return HugeAdjacencySkips.indexOf(adjacency, adjacency.newCursor(), offset, target);
+    }
+
     @Override
     public void release() {
         if (!canRelease) return;
@@ -356,6 +452,14 @@ public class HugeGraphImpl implements HugeGraph {
             outAdjacency = null;
             outOffsets = null;
         }
+        if (inWeights != null) {
+            tracker.remove(inWeights.release());
+            inWeights = null;
+        }
+        if (outWeights != null) {
+            tracker.remove(outWeights.release());
+            outWeights = null;
+        }
         if (weights != null) {
             tracker.remove(weights.release());
         }
@@ -371,38 +475,24 @@ public class HugeGraphImpl implements HugeGraph {
     }
 
     /**
-     * O(n) !
+     * O(log(degree)), see {@link HugeAdjacencySkips}
      */
     @Override
     public boolean exists(long sourceNodeId, long targetNodeId, Direction direction) {
-        final boolean[] found = {false};
         switch (direction) {
             case OUTGOING:
-                forEachOutgoing(sourceNodeId, (s, t) -> {
-                    if (t == targetNodeId) {
-                        found[0] = true;
-                        return false;
-                    }
-                    return true;
-                });
+                return indexOf(sourceNodeId, targetNodeId, outOffsets, outAdjacency) != -1L;
+
             case INCOMING:
-                forEachIncoming(sourceNodeId, (s, t) -> {
-                    if (t == targetNodeId) {
-                        found[0] = true;
-                        return false;
-                    }
-                    return true;
-                });
+                return indexOf(sourceNodeId, targetNodeId, inOffsets, inAdjacency) != -1L;
+
+            case BOTH:
+                return indexOf(sourceNodeId, targetNodeId, outOffsets, outAdjacency) != -1L
+                        || indexOf(sourceNodeId, targetNodeId, inOffsets, inAdjacency) != -1L;
+
             default:
-                forEachRelationship(sourceNodeId, Direction.BOTH, (s, t) -> {
-                    if (t == targetNodeId) {
-                        found[0] = true;
-                        return false;
-                    }
-                    return true;
-                });
+                throw new IllegalArgumentException(direction + "");
         }
-        return found[0];
     }
 
     @Override
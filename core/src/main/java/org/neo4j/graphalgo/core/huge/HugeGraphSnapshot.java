@@ -0,0 +1,336 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.huge;
+
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.HugeNullWeightMap;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.ByteArray;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphalgo.core.utils.paged.PageUtil;
+import org.neo4j.graphalgo.core.utils.paged.SparseLongArray;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Binary snapshot of a {@link HugeGraph}, which can be loaded without importing the graph again.
+ * <p>
+ * The file starts with a header, which is followed by one section for the id mapping and
+ * for the offsets, adjacency and weights of every loaded direction.
+ * Every section starts at a page boundary and the adjacency and weights sections contain
+ * the pages of the {@link ByteArray} and {@link DoubleArray} as they are in memory, so that
+ * they are memory mapped read-only on load instead of being read or decoded.
+ * Only the id mapping and the offsets, which are of the size of the node count, are read
+ * into the heap. The data is written in the native byte order, a snapshot can only be loaded
+ * on a machine with the same byte order.
+ */
+public final class HugeGraphSnapshot {
+
+    // "HUGEGRPH"
+    private static final long MAGIC = 0x4855474547525048L;
+    private static final int VERSION = 1;
+
+    private static final int ALIGNMENT = PageUtil.pageSizeFor(Byte.BYTES);
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int ID_MAP = 0;
+    private static final int IN_OFFSETS = 1;
+    private static final int IN_ADJACENCY = 2;
+    private static final int IN_WEIGHT_OFFSETS = 3;
+    private static final int IN_WEIGHTS = 4;
+    private static final int OUT_OFFSETS = 5;
+    private static final int OUT_ADJACENCY = 6;
+    private static final int OUT_WEIGHT_OFFSETS = 7;
+    private static final int OUT_WEIGHTS = 8;
+    private static final int SECTIONS = 9;
+
+    // magic, version, byte order, node count, highest node id, default weight, position and size of every section
+    private static final int HEADER_SIZE = 40 + SECTIONS * 2 * Long.BYTES;
+
+    private HugeGraphSnapshot() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    /**
+     * Write the graph into the file, an existing file is overwritten.
+     *
+     * @return the size of the snapshot in bytes
+     */
+    public static long write(Graph graph, Path path) throws IOException {
+        if (graph instanceof HugeDeltaGraph) {
+            throw new IllegalArgumentException("Only huge graphs without an overlay of changes can be saved, "
+                    + "the graph has to be loaded again first");
+        }
+        if (!(graph instanceof HugeGraphImpl)) {
+            throw new IllegalArgumentException("Only huge graphs can be saved, got a graph of type " + graph.getType());
+        }
+        HugeGraphImpl hugeGraph = (HugeGraphImpl) graph;
+        if (!(hugeGraph.weights instanceof HugeNullWeightMap)) {
+            throw new IllegalArgumentException("Only graphs without weights or with weights alongside their adjacency "
+                    + "can be saved, the graph has to be loaded with positional weights");
+        }
+        if (hugeGraph.inAdjacency == null && hugeGraph.outAdjacency == null) {
+            throw new IllegalStateException("The graph has already been released");
+        }
+
+        long nodeCount = hugeGraph.nodeCount();
+        long[] sections = new long[SECTIONS * 2];
+        Arrays.fill(sections, -1L);
+        try (FileChannel channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+            long highestNodeId = -1L;
+            startSection(channel, sections, ID_MAP, nodeCount);
+            for (long node = 0; node < nodeCount; node++) {
+                long nodeId = hugeGraph.idMapping.toOriginalNodeId(node);
+                highestNodeId = Math.max(highestNodeId, nodeId);
+                putLong(channel, buffer, nodeId);
+            }
+            flush(channel, buffer);
+
+            writeDirection(channel, buffer, sections, nodeCount,
+                    hugeGraph.inOffsets, hugeGraph.inAdjacency, hugeGraph.inWeights, IN_OFFSETS);
+            writeDirection(channel, buffer, sections, nodeCount,
+                    hugeGraph.outOffsets, hugeGraph.outAdjacency, hugeGraph.outWeights, OUT_OFFSETS);
+
+            // HugeNullWeightMap returns its default for every pair
+            double defaultWeight = hugeGraph.weights.weight(0L, 0L);
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putLong(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(ByteOrder.nativeOrder() == ByteOrder.LITTLE_ENDIAN ? 0 : 1)
+                    .putLong(nodeCount)
+                    .putLong(highestNodeId)
+                    .putDouble(defaultWeight);
+            for (long section : sections) {
+                header.putLong(section);
+            }
+            header.flip();
+            long position = 0L;
+            while (header.hasRemaining()) {
+                position += channel.write(header, position);
+            }
+            return channel.size();
+        }
+    }
+
+    /**
+     * @return true if the file starts like a snapshot written by {@link #write(Graph, Path)}
+     */
+    public static boolean isSnapshot(Path path) {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining()) {
+                if (channel.read(magic) < 0) {
+                    return false;
+                }
+            }
+            return magic.getLong(0) == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Load a graph from a snapshot written by {@link #write(Graph, Path)}.
+     */
+    public static HugeGraph read(Path path, AllocationTracker tracker) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header, 0L);
+            header.flip();
+            if (header.getLong() != MAGIC) {
+                throw new IllegalArgumentException(path + " is not a graph snapshot");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IllegalArgumentException("Unsupported snapshot version " + version + ", expected " + VERSION);
+            }
+            ByteOrder byteOrder = header.getInt() == 0 ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN;
+            if (byteOrder != ByteOrder.nativeOrder()) {
+                throw new IllegalArgumentException("The snapshot has been written with the byte order " + byteOrder
+                        + ", but this machine uses " + ByteOrder.nativeOrder());
+            }
+            long nodeCount = header.getLong();
+            long highestNodeId = header.getLong();
+            double defaultWeight = header.getDouble();
+            long[] sections = new long[SECTIONS * 2];
+            for (int i = 0; i < sections.length; i++) {
+                sections[i] = header.getLong();
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.nativeOrder());
+            // the ids are the dense half of the id map, only the sparse reverse mapping is built again
+            LongArray nodeIds = readLongs(channel, buffer, sections, ID_MAP, tracker);
+            SparseLongArray graphIds = SparseLongArray.newArray(highestNodeId + 1L, tracker);
+            for (long node = 0; node < nodeCount; node++) {
+                graphIds.set(nodeIds.get(node), node);
+            }
+            HugeIdMap idMap = new HugeIdMap(nodeCount, nodeIds, graphIds);
+
+            return new HugeGraphImpl(
+                    tracker,
+                    idMap,
+                    new HugeNullWeightMap(defaultWeight),
+                    mapBytes(channel, sections, IN_ADJACENCY, tracker),
+                    mapBytes(channel, sections, OUT_ADJACENCY, tracker),
+                    readLongs(channel, buffer, sections, IN_OFFSETS, tracker),
+                    readLongs(channel, buffer, sections, OUT_OFFSETS, tracker),
+                    readWeights(channel, buffer, sections, IN_WEIGHT_OFFSETS, tracker),
+                    readWeights(channel, buffer, sections, OUT_WEIGHT_OFFSETS, tracker));
+        }
+    }
+
+    /**
+     * the offsets, adjacency, weight offsets and weights of one direction in consecutive sections
+     */
+    private static void writeDirection(
+            FileChannel channel,
+            ByteBuffer buffer,
+            long[] sections,
+            long nodeCount,
+            LongArray offsets,
+            ByteArray adjacency,
+            HugeAdjacencyWeights weights,
+            int firstSection) throws IOException {
+        if (adjacency == null) {
+            return;
+        }
+        writeLongs(channel, buffer, sections, firstSection, offsets, nodeCount);
+        startSection(channel, sections, firstSection + 1, adjacency.capacity());
+        adjacency.writeTo(channel);
+        if (weights != null) {
+            writeLongs(channel, buffer, sections, firstSection + 2, weights.offsets(), nodeCount);
+            startSection(channel, sections, firstSection + 3, weights.weights().capacity());
+            weights.weights().writeTo(channel);
+        }
+    }
+
+    private static void writeLongs(
+            FileChannel channel,
+            ByteBuffer buffer,
+            long[] sections,
+            int section,
+            LongArray values,
+            long size) throws IOException {
+        startSection(channel, sections, section, size);
+        for (long i = 0; i < size; i++) {
+            putLong(channel, buffer, values.get(i));
+        }
+        flush(channel, buffer);
+    }
+
+    /**
+     * move to the next page boundary and remember it as the start of the section
+     */
+    private static void startSection(FileChannel channel, long[] sections, int section, long size) throws IOException {
+        long position = channel.position();
+        long aligned = (position + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+        channel.position(Math.max(aligned, ALIGNMENT));
+        sections[section * 2] = channel.position();
+        sections[section * 2 + 1] = size;
+    }
+
+    private static void putLong(FileChannel channel, ByteBuffer buffer, long value) throws IOException {
+        if (buffer.remaining() < Long.BYTES) {
+            flush(channel, buffer);
+        }
+        buffer.putLong(value);
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static LongArray readLongs(
+            FileChannel channel,
+            ByteBuffer buffer,
+            long[] sections,
+            int section,
+            AllocationTracker tracker) throws IOException {
+        long position = sections[section * 2];
+        if (position < 0L) {
+            return null;
+        }
+        long size = sections[section * 2 + 1];
+        LongArray values = LongArray.newArray(size, tracker);
+        long index = 0L;
+        while (index < size) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), (size - index) * Long.BYTES));
+            position += readFully(channel, buffer, position);
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                values.set(index++, buffer.getLong());
+            }
+        }
+        return values;
+    }
+
+    private static ByteArray mapBytes(
+            FileChannel channel,
+            long[] sections,
+            int section,
+            AllocationTracker tracker) throws IOException {
+        long position = sections[section * 2];
+        return position < 0L ? null : ByteArray.map(channel, position, sections[section * 2 + 1], tracker);
+    }
+
+    private static HugeAdjacencyWeights readWeights(
+            FileChannel channel,
+            ByteBuffer buffer,
+            long[] sections,
+            int offsetsSection,
+            AllocationTracker tracker) throws IOException {
+        LongArray offsets = readLongs(channel, buffer, sections, offsetsSection, tracker);
+        if (offsets == null) {
+            return null;
+        }
+        int section = offsetsSection + 1;
+        DoubleArray weights = DoubleArray.map(channel, sections[section * 2], sections[section * 2 + 1], tracker);
+        return HugeAdjacencyWeights.of(offsets, weights);
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int bytes = channel.read(buffer, position + read);
+            if (bytes < 0) {
+                throw new IOException("Unexpected end of the snapshot at position " + (position + read));
+            }
+            read += bytes;
+        }
+        return read;
+    }
+}
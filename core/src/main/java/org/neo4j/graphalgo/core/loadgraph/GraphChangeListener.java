@@ -0,0 +1,91 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.loadgraph;
+
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.event.TransactionData;
+import org.neo4j.graphdb.event.TransactionEventHandler;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * Transaction event handler of a database which feeds the changes of every committed
+ * transaction to the refreshed graphs loaded from that database.
+ * <p>
+ * The changes are collected before the commit, while the deleted entities can still be read,
+ * and handed to the graphs only after the commit succeeded.
+ */
+final class GraphChangeListener implements TransactionEventHandler<Map<GraphRefresh, GraphChangeLog>> {
+
+    // guarded by the class lock
+    private static final Map<GraphDatabaseService, GraphChangeListener> listeners = new IdentityHashMap<>();
+
+    private final Set<GraphRefresh> subscriptions = new CopyOnWriteArraySet<>();
+
+    private GraphChangeListener() {
+    }
+
+    static synchronized void subscribe(GraphDatabaseService db, GraphRefresh refresh) {
+        GraphChangeListener listener = listeners.get(db);
+        if (listener == null) {
+            listener = new GraphChangeListener();
+            db.registerTransactionEventHandler(listener);
+            listeners.put(db, listener);
+        }
+        listener.subscriptions.add(refresh);
+    }
+
+    static synchronized void unsubscribe(GraphDatabaseService db, GraphRefresh refresh) {
+        GraphChangeListener listener = listeners.get(db);
+        if (listener != null && listener.subscriptions.remove(refresh) && listener.subscriptions.isEmpty()) {
+            listeners.remove(db);
+            db.unregisterTransactionEventHandler(listener);
+        }
+    }
+
+    @Override
+    public Map<GraphRefresh, GraphChangeLog> beforeCommit(TransactionData data) {
+        Map<GraphRefresh, GraphChangeLog> changes = null;
+        for (GraphRefresh refresh : subscriptions) {
+            GraphChangeLog log = refresh.collect(data);
+            if (!log.isEmpty()) {
+                if (changes == null) {
+                    changes = new HashMap<>();
+                }
+                changes.put(refresh, log);
+            }
+        }
+        return changes;
+    }
+
+    @Override
+    public void afterCommit(TransactionData data, Map<GraphRefresh, GraphChangeLog> changes) {
+        if (changes != null) {
+            changes.forEach(GraphRefresh::append);
+        }
+    }
+
+    @Override
+    public void afterRollback(TransactionData data, Map<GraphRefresh, GraphChangeLog> changes) {
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.loadgraph;
+
+import java.util.Arrays;
+
+/**
+ * Changes of committed transactions which affect a named graph, in commit order.
+ * <p>
+ * Every change is a record of four longs, the kind of change, the neo ids of one or two
+ * nodes and the bits of the relationship weight, in a single growing array.
+ */
+final class GraphChangeLog {
+
+    static final int NODE_CREATED = 0;
+    static final int NODE_DELETED = 1;
+    static final int RELATIONSHIP_CREATED = 2;
+    static final int RELATIONSHIP_DELETED = 3;
+    static final int WEIGHT_CHANGED = 4;
+
+    private static final int RECORD_SIZE = 4;
+
+    private long[] records = new long[RECORD_SIZE * 16];
+    private int size;
+    private boolean reloadRequired;
+
+    void nodeCreated(long node) {
+        add(NODE_CREATED, node, -1L, 0.0);
+    }
+
+    void nodeDeleted(long node) {
+        add(NODE_DELETED, node, -1L, 0.0);
+    }
+
+    void relationshipCreated(long source, long target, double weight) {
+        add(RELATIONSHIP_CREATED, source, target, weight);
+    }
+
+    void relationshipDeleted(long source, long target) {
+        add(RELATIONSHIP_DELETED, source, target, 0.0);
+    }
+
+    void weightChanged(long source, long target, double weight) {
+        add(WEIGHT_CHANGED, source, target, weight);
+    }
+
+    /**
+     * mark a change which cannot be recorded, the graph has to be loaded again
+     */
+    void requireReload() {
+        reloadRequired = true;
+    }
+
+    boolean reloadRequired() {
+        return reloadRequired;
+    }
+
+    /**
+     * @return the number of records
+     */
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0 && !reloadRequired;
+    }
+
+    void append(GraphChangeLog other) {
+        ensureCapacity(size + other.size);
+        System.arraycopy(other.records, 0, records, size * RECORD_SIZE, other.size * RECORD_SIZE);
+        size += other.size;
+        reloadRequired |= other.reloadRequired;
+    }
+
+    void forEach(Visitor visitor) {
+        for (int i = 0; i < size * RECORD_SIZE; i += RECORD_SIZE) {
+            visitor.visit(
+                    (int) records[i],
+                    records[i + 1],
+                    records[i + 2],
+                    Double.longBitsToDouble(records[i + 3]));
+        }
+    }
+
+    private void add(int change, long first, long second, double weight) {
+        ensureCapacity(size + 1);
+        int offset = size++ * RECORD_SIZE;
+        records[offset] = change;
+        records[offset + 1] = first;
+        records[offset + 2] = second;
+        records[offset + 3] = Double.doubleToRawLongBits(weight);
+    }
+
+    private void ensureCapacity(int records) {
+        int length = records * RECORD_SIZE;
+        if (length > this.records.length) {
+            this.records = Arrays.copyOf(this.records, Math.max(length, this.records.length * 2));
+        }
+    }
+
+    interface Visitor {
+        void visit(int change, long first, long second, double weight);
+    }
+}
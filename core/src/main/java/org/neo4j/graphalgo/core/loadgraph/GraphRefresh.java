@@ -0,0 +1,329 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.loadgraph;
+
+import com.carrotsearch.hppc.LongHashSet;
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.huge.HugeDeltaGraph;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.GraphDatabaseService;
+import org.neo4j.graphdb.Label;
+import org.neo4j.graphdb.Node;
+import org.neo4j.graphdb.NotFoundException;
+import org.neo4j.graphdb.Relationship;
+import org.neo4j.graphdb.RelationshipType;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.graphdb.event.LabelEntry;
+import org.neo4j.graphdb.event.PropertyEntry;
+import org.neo4j.graphdb.event.TransactionData;
+
+import java.util.function.Supplier;
+
+/**
+ * Keeps a named graph up to date with the changes committed to the database.
+ * <p>
+ * A transaction event handler records the created and deleted nodes and relationships as well
+ * as the changed relationship weights that match the label, relationship type and weight property
+ * of the graph in a compact {@link GraphChangeLog}. The log is applied to the graph by
+ * {@link #apply(Graph)}. Huge graphs get a {@link HugeDeltaGraph} overlay, which is compacted by
+ * loading the graph again once it holds more than the given number of changes. All other graphs,
+ * changes the overlay cannot express, like labels removed from nodes with relationships, and
+ * deleted nodes, whose mapped ids would still lead to their neo ids when results are written back,
+ * have to be loaded again. {@link #apply(Graph)} only marks them with {@link #reloadRequired()},
+ * the caller loads them with {@link #reload()}, so that it does not need to hold any locks meanwhile.
+ * <p>
+ * The handler runs inside every writing transaction and only records what the transaction data
+ * provides. Whether a parallel relationship is left after a deletion is looked up in the database
+ * when the deletion is applied, since the graph keeps a single relationship per pair of nodes.
+ * <p>
+ * Transactions which commit while the graph is loaded again may be seen by the new graph
+ * and be applied a second time afterwards.
+ */
+public final class GraphRefresh {
+
+    private final GraphDatabaseService db;
+    private final String label;
+    private final RelationshipType relationshipType;
+    private final String weightProperty;
+    private final double defaultWeight;
+    private final Direction direction;
+    private final boolean undirected;
+    private final long compactAfter;
+    private final Supplier<Graph> loader;
+
+    // guarded by this
+    private GraphChangeLog changes = new GraphChangeLog();
+    private boolean reloadRequired;
+
+    /**
+     * @param label            label of the nodes, null for all nodes
+     * @param relationshipType type of the relationships, null for all relationships
+     * @param weightProperty   property of the relationship weights, null for unweighted graphs
+     * @param compactAfter     number of changes after which the graph is loaded again
+     * @param loader           loads the graph from the database, weighted huge graphs with positional weights
+     */
+    public GraphRefresh(
+            GraphDatabaseService db,
+            String label,
+            String relationshipType,
+            String weightProperty,
+            double defaultWeight,
+            Direction direction,
+            boolean undirected,
+            long compactAfter,
+            Supplier<Graph> loader) {
+        this.db = db;
+        this.label = label;
+        this.relationshipType = relationshipType == null ? null : RelationshipType.withName(relationshipType);
+        this.weightProperty = weightProperty;
+        this.defaultWeight = defaultWeight;
+        this.direction = direction;
+        this.undirected = undirected;
+        this.compactAfter = compactAfter;
+        this.loader = loader;
+    }
+
+    /**
+     * start recording the changes of committed transactions
+     */
+    void start() {
+        GraphChangeListener.subscribe(db, this);
+    }
+
+    void stop() {
+        GraphChangeListener.unsubscribe(db, this);
+    }
+
+    /**
+     * @return the number of changes which have not been applied to the graph yet
+     */
+    public synchronized int pendingChanges() {
+        return changes.size();
+    }
+
+    synchronized void append(GraphChangeLog log) {
+        changes.append(log);
+    }
+
+    /**
+     * @return true if the graph has to be loaded again with {@link #reload()}
+     */
+    synchronized boolean reloadRequired() {
+        return reloadRequired;
+    }
+
+    /**
+     * Apply the pending changes, the graph must not be in use.
+     * Changes which require the graph to be loaded again are left to {@link #reload()}.
+     *
+     * @return the graph with the changes, which may be a new overlay
+     */
+    Graph apply(Graph graph) {
+        GraphChangeLog log;
+        synchronized (this) {
+            if (reloadRequired || changes.isEmpty()) {
+                return graph;
+            }
+            if (changes.reloadRequired() || !(graph instanceof HugeGraph)) {
+                reloadRequired = true;
+                return graph;
+            }
+            log = changes;
+            changes = new GraphChangeLog();
+        }
+        HugeDeltaGraph overlay = graph instanceof HugeDeltaGraph
+                ? (HugeDeltaGraph) graph
+                : HugeDeltaGraph.of((HugeGraph) graph, direction, undirected, defaultWeight);
+        try (Transaction tx = db.beginTx()) {
+            applyTo(overlay, log);
+            tx.success();
+        }
+        if (overlay.changes() > compactAfter || overlay.hasDeletedNodes()) {
+            synchronized (this) {
+                reloadRequired = true;
+            }
+        }
+        return overlay;
+    }
+
+    private void applyTo(HugeDeltaGraph overlay, GraphChangeLog log) {
+        log.forEach((change, first, second, weight) -> {
+            switch (change) {
+                case GraphChangeLog.NODE_CREATED:
+                    overlay.addNode(first);
+                    break;
+                case GraphChangeLog.NODE_DELETED:
+                    overlay.deleteNode(first);
+                    break;
+                case GraphChangeLog.RELATIONSHIP_CREATED:
+                    overlay.addRelationship(first, second, weight);
+                    break;
+                case GraphChangeLog.RELATIONSHIP_DELETED:
+                    Relationship remaining = remaining(first, second);
+                    if (remaining == null) {
+                        overlay.removeRelationship(first, second);
+                    } else {
+                        // graphs keep one relationship per pair of nodes, it now has the weight of the remaining one
+                        overlay.setWeight(first, second, weight(remaining));
+                    }
+                    break;
+                case GraphChangeLog.WEIGHT_CHANGED:
+                    overlay.setWeight(first, second, weight);
+                    break;
+                default:
+                    throw new IllegalStateException("unknown change " + change);
+            }
+        });
+    }
+
+    /**
+     * Load the graph again, it contains all changes committed so far.
+     * The previous graph is left to the caller to release.
+     */
+    Graph reload() {
+        synchronized (this) {
+            changes = new GraphChangeLog();
+            reloadRequired = false;
+        }
+        try {
+            Graph reloaded = loader.get();
+            reloaded.canRelease(false);
+            return reloaded;
+        } catch (RuntimeException | Error e) {
+            synchronized (this) {
+                reloadRequired = true;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * record the changes of a transaction which is about to commit
+     */
+    GraphChangeLog collect(TransactionData data) {
+        GraphChangeLog log = new GraphChangeLog();
+        Label nodeLabel = label == null ? null : Label.label(label);
+        LongHashSet createdNodes = new LongHashSet();
+        for (Node node : data.createdNodes()) {
+            createdNodes.add(node.getId());
+            if (nodeLabel == null || node.hasLabel(nodeLabel)) {
+                log.nodeCreated(node.getId());
+            }
+        }
+        if (nodeLabel != null) {
+            collectLabelChanges(data, log, createdNodes);
+        }
+        LongHashSet createdRelationships = new LongHashSet();
+        for (Relationship relationship : data.createdRelationships()) {
+            createdRelationships.add(relationship.getId());
+            if (matches(relationship)) {
+                log.relationshipCreated(
+                        relationship.getStartNodeId(),
+                        relationship.getEndNodeId(),
+                        weight(relationship));
+            }
+        }
+        if (weightProperty != null) {
+            for (PropertyEntry<Relationship> entry : data.assignedRelationshipProperties()) {
+                Relationship relationship = entry.entity();
+                if (weightProperty.equals(entry.key())
+                        && !createdRelationships.contains(relationship.getId())
+                        && matches(relationship)) {
+                    log.weightChanged(relationship.getStartNodeId(), relationship.getEndNodeId(), weight(entry.value()));
+                }
+            }
+            for (PropertyEntry<Relationship> entry : data.removedRelationshipProperties()) {
+                Relationship relationship = entry.entity();
+                if (weightProperty.equals(entry.key())
+                        && !data.isDeleted(relationship)
+                        && matches(relationship)) {
+                    log.weightChanged(relationship.getStartNodeId(), relationship.getEndNodeId(), defaultWeight);
+                }
+            }
+        }
+        for (Relationship relationship : data.deletedRelationships()) {
+            if (matches(relationship)) {
+                log.relationshipDeleted(relationship.getStartNodeId(), relationship.getEndNodeId());
+            }
+        }
+        for (Node node : data.deletedNodes()) {
+            log.nodeDeleted(node.getId());
+        }
+        return log;
+    }
+
+    private void collectLabelChanges(TransactionData data, GraphChangeLog log, LongHashSet createdNodes) {
+        for (LabelEntry entry : data.assignedLabels()) {
+            Node node = entry.node();
+            if (label.equals(entry.label().name()) && !createdNodes.contains(node.getId())) {
+                // the relationships of the node have not been part of the graph
+                if (node.hasRelationship()) {
+                    log.requireReload();
+                } else {
+                    log.nodeCreated(node.getId());
+                }
+            }
+        }
+        for (LabelEntry entry : data.removedLabels()) {
+            Node node = entry.node();
+            if (label.equals(entry.label().name()) && !data.isDeleted(node)) {
+                if (node.hasRelationship()) {
+                    log.requireReload();
+                } else {
+                    log.nodeDeleted(node.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return a relationship between the nodes of a deleted one that is still part of the graph, if any
+     */
+    private Relationship remaining(long startNode, long endNode) {
+        final Node start;
+        try {
+            start = db.getNodeById(startNode);
+        } catch (NotFoundException e) {
+            return null;
+        }
+        Direction direction = undirected ? Direction.BOTH : Direction.OUTGOING;
+        Iterable<Relationship> relationships = relationshipType == null
+                ? start.getRelationships(direction)
+                : start.getRelationships(direction, relationshipType);
+        for (Relationship relationship : relationships) {
+            if (relationship.getOtherNodeId(startNode) == endNode) {
+                return relationship;
+            }
+        }
+        return null;
+    }
+
+    private boolean matches(Relationship relationship) {
+        return relationshipType == null || relationship.isType(relationshipType);
+    }
+
+    private double weight(Relationship relationship) {
+        return weight(weightProperty == null ? null : relationship.getProperty(weightProperty, null));
+    }
+
+    private double weight(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : defaultWeight;
+    }
+}
@@ -21,15 +21,62 @@ package org.neo4j.graphalgo.core.loadgraph;
 import org.neo4j.graphalgo.api.Graph;
 import org.neo4j.graphalgo.api.GraphFactory;
 import org.neo4j.graphalgo.api.GraphSetup;
-import org.neo4j.graphalgo.core.neo4jview.GraphView;
-import org.neo4j.graphdb.Direction;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.huge.HugeDeltaGraph;
+import org.neo4j.graphalgo.core.huge.HugeGraphSnapshot;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.helpers.Exceptions;
+import org.neo4j.kernel.api.KernelTransaction;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Catalog of named graphs.
+ * <p>
+ * Every graph is registered with its memory footprint. When the sum of the footprints
+ * exceeds the memory budget, the graphs that are least recently used ({@link EvictionPolicy#LRU})
+ * or least frequently used ({@link EvictionPolicy#LFU}) are evicted until it fits again.
+ * Evicted huge graphs are spilled to a snapshot in the spill directory, if one is configured, and
+ * are mapped again on their next use. All other graphs are removed from the catalog.
+ * <p>
+ * Graphs are reference counted, a graph with references is never evicted or released.
+ * {@link #build()} takes a reference, which is given back when the current transaction closes,
+ * so that a graph stays valid until the algorithm that uses it has finished. References are given
+ * back through the entry they have been taken from, a graph that is removed while it is in use
+ * is released once its last {@link Lease} is closed.
+ * <p>
+ * Graphs registered with a {@link GraphRefresh} follow the changes committed to the database.
+ * The changes are applied whenever the graph is requested without being in use. Such graphs
+ * are never spilled to disk, they are removed when they have to be evicted. When such a graph
+ * has to be loaded again, the previous graph is served until the new one is swapped in.
+ * <p>
+ * Snapshots are written and read and changes are applied without holding the catalog lock.
+ * The entry is marked while this happens, users of the same graph wait for a graph that is
+ * restored or refreshed, a graph that is spilled can still be used and then stays in memory.
+ */
 public final class LoadGraphFactory extends GraphFactory {
 
-    private final static ConcurrentHashMap<String, Graph> graphs = new ConcurrentHashMap<>();
+    public enum EvictionPolicy {
+        LRU, LFU
+    }
+
+    private final static ConcurrentHashMap<String, Entry> graphs = new ConcurrentHashMap<>();
+    private final static AtomicLong clock = new AtomicLong();
+
+    private static volatile long memoryBudget = Long.MAX_VALUE;
+    private static volatile EvictionPolicy evictionPolicy = EvictionPolicy.LRU;
+    private static volatile Path spillDirectory = null;
 
     public LoadGraphFactory(
             final GraphDatabaseAPI api,
@@ -39,33 +86,212 @@ public final class LoadGraphFactory extends GraphFactory {
 
     @Override
     public Graph build() {
-        return get(setup.name);
+        String name = setup.name;
+        KernelTransaction transaction = api.getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class)
+                .getKernelTransactionBoundToThisThread(false);
+        if (transaction == null) {
+            throw new IllegalStateException("Graph " + name + " can only be used within a transaction, use acquire() otherwise");
+        }
+        Entry entry = acquireEntry(name, false);
+        if (entry == null) {
+            return null;
+        }
+        transaction.registerCloseListener(txId -> release(entry));
+        return entry.graph;
     }
 
+    /**
+     * Register a graph without a known footprint, it does not count against the memory budget.
+     */
     public static void set(String name, Graph graph) {
+        set(name, graph, 0L);
+    }
+
+    /**
+     * Register a graph, other graphs are evicted if the memory budget is exceeded.
+     *
+     * @param bytes the memory footprint of the graph
+     */
+    public static void set(String name, Graph graph, long bytes) {
+        set(name, graph, bytes, null);
+    }
+
+    /**
+     * Register a graph which is kept up to date with the changes committed to the database.
+     *
+     * @param refresh applies the changes to the graph, null if the graph should not be refreshed
+     */
+    public static void set(String name, Graph graph, long bytes, GraphRefresh refresh) {
         if (name == null || graph == null) {
             throw new IllegalArgumentException("Both name and graph must be not null");
         }
-        if (graphs.putIfAbsent(name, graph) != null) {
-            throw new IllegalStateException("Graph name "+name+" already loaded");
+        List<Entry> spills;
+        synchronized (LoadGraphFactory.class) {
+            Entry entry = new Entry(name, graph, bytes, refresh);
+            if (graphs.putIfAbsent(name, entry) != null) {
+                throw new IllegalStateException("Graph name "+name+" already loaded");
+            }
+            graph.canRelease(false);
+            if (refresh != null) {
+                refresh.start();
+            }
+            spills = evict(entry);
+        }
+        spill(spills);
+    }
+
+    /**
+     * @return the number of committed changes which have not been applied to the graph yet
+     */
+    public static int pendingChanges(String name) {
+        Entry entry = name == null ? null : graphs.get(name);
+        return entry == null || entry.refresh == null ? 0 : entry.refresh.pendingChanges();
+    }
+
+    /**
+     * Get the graph and take a reference, which has to be given back by closing the lease.
+     * The graph is not evicted or released while there are references to it, a graph that has
+     * been spilled to disk is loaded from its snapshot.
+     *
+     * @return the lease of the graph, null if there is no such graph
+     */
+    public static Lease acquire(String name) {
+        Entry entry = acquireEntry(name, false);
+        return entry == null ? null : new Lease(entry);
+    }
+
+    /**
+     * Like {@link #acquire(String)}, but a graph with an overlay of refreshed changes is loaded
+     * again first, unless it is in use, so that it is a plain graph which can be saved.
+     */
+    public static Lease acquireCompacted(String name) {
+        Entry entry = acquireEntry(name, true);
+        return entry == null ? null : new Lease(entry);
+    }
+
+    private static Entry acquireEntry(String name, boolean compact) {
+        Entry entry = name == null ? null : graphs.get(name);
+        if (entry == null) {
+            return null;
+        }
+        entry.touch();
+        if (entry.refresh != null) {
+            refresh(entry, compact);
+        }
+        Path snapshot;
+        synchronized (LoadGraphFactory.class) {
+            awaitIdle(entry);
+            // the graph may have been removed or spilled since it was refreshed
+            if (entry.removed) {
+                return null;
+            }
+            if (entry.graph != null) {
+                entry.references++;
+                return entry;
+            }
+            if (entry.snapshot == null) {
+                return null;
+            }
+            entry.busy = true;
+            snapshot = entry.snapshot;
+        }
+        return restore(entry, snapshot);
+    }
+
+    /**
+     * load a spilled graph from its snapshot, the entry has been marked as busy
+     */
+    private static Entry restore(Entry entry, Path snapshot) {
+        Graph graph = null;
+        AllocationTracker tracker = new AllocationTracker();
+        try {
+            Graph read = HugeGraphSnapshot.read(snapshot, tracker);
+            read.canRelease(false);
+            graph = read;
+        } catch (IOException e) {
+            throw Exceptions.launderedException(e);
+        } finally {
+            if (graph == null) {
+                restored(entry, null, 0L);
+            }
+        }
+        List<Entry> spills;
+        synchronized (LoadGraphFactory.class) {
+            if (!restored(entry, graph, tracker.tracked())) {
+                return null;
+            }
+            spills = evict(entry);
         }
-        graph.canRelease(false);
+        spill(spills);
+        return entry;
     }
 
-    public static Graph get(String name) {
-        return name == null ? null : graphs.get(name);
+    /**
+     * swap in the restored graph and take a reference
+     *
+     * @param graph the restored graph, null if restoring failed
+     * @return whether a reference has been taken
+     */
+    private static synchronized boolean restored(Entry entry, Graph graph, long bytes) {
+        entry.busy = false;
+        LoadGraphFactory.class.notifyAll();
+        if (graph == null) {
+            return false;
+        }
+        entry.graph = graph;
+        entry.bytes = bytes;
+        if (entry.removed) {
+            entry.free();
+            return false;
+        }
+        entry.references++;
+        return true;
+    }
+
+    private static void release(Entry entry) {
+        List<Entry> spills;
+        synchronized (LoadGraphFactory.class) {
+            if (entry.references == 0) {
+                return;
+            }
+            entry.references--;
+            if (entry.removed) {
+                entry.free();
+                return;
+            }
+            spills = evict(null);
+        }
+        spill(spills);
+    }
+
+    /**
+     * wait until the graph of the entry is neither restored nor refreshed, the caller holds the class lock
+     */
+    private static void awaitIdle(Entry entry) {
+        while (entry.busy) {
+            try {
+                LoadGraphFactory.class.wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw Exceptions.launderedException(e);
+            }
+        }
     }
 
     public static boolean check(String name) {
         return name != null && graphs.containsKey(name);
     }
 
-    public static boolean remove(String name) {
+    /**
+     * Remove the graph from the catalog, it is released as soon as it has no more references.
+     */
+    public static synchronized boolean remove(String name) {
         if (name == null) return false;
-        Graph graph = graphs.remove(name);
-        if (graph!=null) {
-            graph.canRelease(true);
-            graph.release();
+        Entry entry = graphs.remove(name);
+        if (entry != null) {
+            entry.removed = true;
+            entry.free();
             return true;
         }
         return false;
@@ -73,7 +299,345 @@ public final class LoadGraphFactory extends GraphFactory {
 
     public static String getType(String name) {
         if (name == null) return null;
-        Graph graph = graphs.get(name);
-        return graph == null ? null : graph.getType();
+        Entry entry = graphs.get(name);
+        return entry == null ? null : entry.type;
+    }
+
+    /**
+     * @return the memory footprint of the graph, 0 if it is unknown, spilled to disk or not loaded
+     */
+    public static long footprint(String name) {
+        Entry entry = name == null ? null : graphs.get(name);
+        return entry == null || entry.graph == null ? 0L : entry.bytes;
+    }
+
+    /**
+     * @return the sum of the memory footprints of all graphs in memory
+     */
+    public static long memoryUsage() {
+        long used = 0L;
+        for (Entry entry : graphs.values()) {
+            if (entry.graph != null) {
+                used += entry.bytes;
+            }
+        }
+        return used;
+    }
+
+    public static long memoryBudget() {
+        return memoryBudget;
+    }
+
+    public static EvictionPolicy evictionPolicy() {
+        return evictionPolicy;
+    }
+
+    public static Path spillDirectory() {
+        return spillDirectory;
+    }
+
+    /**
+     * Configure the catalog and evict graphs until the new budget is met.
+     *
+     * @param spillDirectory directory for the snapshots of evicted huge graphs, null removes evicted graphs
+     */
+    public static void configure(long memoryBudget, EvictionPolicy evictionPolicy, Path spillDirectory) {
+        if (memoryBudget < 0L) {
+            throw new IllegalArgumentException("The memory budget must not be negative, got " + memoryBudget);
+        }
+        List<Entry> spills;
+        synchronized (LoadGraphFactory.class) {
+            LoadGraphFactory.memoryBudget = memoryBudget;
+            LoadGraphFactory.evictionPolicy = evictionPolicy;
+            LoadGraphFactory.spillDirectory = spillDirectory;
+            spills = evict(null);
+        }
+        spill(spills);
+    }
+
+    /**
+     * apply the pending changes unless the graph is in use, the changes are applied
+     * and a graph that has to be loaded again is loaded without holding the catalog lock
+     *
+     * @param compact load a graph with an overlay again, even if it is below its compaction threshold
+     */
+    private static Graph refresh(Entry entry, boolean compact) {
+        Graph graph;
+        synchronized (LoadGraphFactory.class) {
+            graph = entry.graph;
+            if (graph == null || entry.references > 0 || entry.removed || entry.reloading || entry.busy) {
+                return graph;
+            }
+            entry.busy = true;
+        }
+        Graph refreshed;
+        try {
+            refreshed = entry.refresh.apply(graph);
+        } catch (RuntimeException | Error e) {
+            refreshed(entry, graph, false);
+            throw e;
+        }
+        boolean reload = entry.refresh.reloadRequired() || (compact && refreshed instanceof HugeDeltaGraph);
+        if (!refreshed(entry, refreshed, reload)) {
+            return refreshed;
+        }
+        Graph reloaded;
+        try {
+            reloaded = entry.refresh.reload();
+        } catch (RuntimeException | Error e) {
+            swap(entry, null);
+            throw e;
+        }
+        return swap(entry, reloaded);
+    }
+
+    /**
+     * swap in the graph with the applied changes
+     *
+     * @param reload whether the graph has to be loaded again
+     * @return whether the entry has been marked for loading the graph again
+     */
+    private static synchronized boolean refreshed(Entry entry, Graph graph, boolean reload) {
+        entry.busy = false;
+        LoadGraphFactory.class.notifyAll();
+        entry.graph = graph;
+        if (entry.removed) {
+            entry.free();
+            return false;
+        }
+        entry.reloading = reload;
+        return reload;
+    }
+
+    /**
+     * replace the graph with the one that has been loaded again
+     *
+     * @param reloaded the new graph, null if loading failed
+     * @return the current graph of the entry
+     */
+    private static synchronized Graph swap(Entry entry, Graph reloaded) {
+        entry.reloading = false;
+        if (reloaded == null) {
+            return entry.graph;
+        }
+        if (entry.removed) {
+            reloaded.canRelease(true);
+            reloaded.release();
+            return entry.graph;
+        }
+        Graph graph = entry.graph;
+        entry.graph = reloaded;
+        // a graph in use is left to the garbage collector once its users are done
+        if (graph != null && entry.references == 0) {
+            graph.canRelease(true);
+            graph.release();
+        }
+        return reloaded;
+    }
+
+    /**
+     * evict unreferenced graphs, except for the given one, until the memory budget is met,
+     * the caller holds the class lock
+     *
+     * @return the graphs that have to be written to a snapshot with {@link #spill(List)} once the lock is released
+     */
+    private static List<Entry> evict(Entry keep) {
+        long used = 0L;
+        for (Entry entry : graphs.values()) {
+            // graphs that are spilled already are on their way out
+            if (entry.graph != null && !entry.spilling) {
+                used += entry.bytes;
+            }
+        }
+        if (used <= memoryBudget) {
+            return Collections.emptyList();
+        }
+        List<Entry> candidates = new ArrayList<>();
+        for (Entry entry : graphs.values()) {
+            if (entry != keep && entry.graph != null && entry.references == 0 && !entry.busy && !entry.spilling) {
+                candidates.add(entry);
+            }
+        }
+        Comparator<Entry> byRecency = Comparator.comparingLong(entry -> entry.lastAccess);
+        candidates.sort(evictionPolicy == EvictionPolicy.LFU
+                ? Comparator.<Entry>comparingLong(entry -> entry.accesses.get()).thenComparing(byRecency)
+                : byRecency);
+        List<Entry> spills = new ArrayList<>();
+        for (Entry entry : candidates) {
+            if (used <= memoryBudget) {
+                break;
+            }
+            used -= entry.bytes;
+            if (spillDirectory == null || entry.refresh != null || !(entry.graph instanceof HugeGraph)) {
+                drop(entry);
+            } else if (entry.snapshot != null) {
+                // the graph has been spilled before, its snapshot is still valid
+                unload(entry);
+            } else {
+                entry.spilling = true;
+                spills.add(entry);
+            }
+        }
+        return spills;
+    }
+
+    /**
+     * write the snapshots of the graphs selected by {@link #evict(Entry)} without holding the class lock
+     */
+    private static void spill(List<Entry> entries) {
+        for (Entry entry : entries) {
+            Path snapshot = null;
+            Path written = null;
+            try {
+                snapshot = Files.createTempFile(Files.createDirectories(spillDirectory), snapshotPrefix(entry.name), ".graph");
+                HugeGraphSnapshot.write(entry.graph, snapshot);
+                snapshot.toFile().deleteOnExit();
+                written = snapshot;
+            } catch (IOException | RuntimeException ignored) {
+                // the graph is removed instead
+            } finally {
+                if (written == null) {
+                    deleteSnapshot(snapshot);
+                }
+                spilled(entry, written);
+            }
+        }
+    }
+
+    /**
+     * unload the spilled graph, unless it has been acquired while its snapshot was written
+     *
+     * @param snapshot the written snapshot, null if writing failed
+     */
+    private static synchronized void spilled(Entry entry, Path snapshot) {
+        entry.spilling = false;
+        entry.snapshot = snapshot;
+        if (entry.removed) {
+            entry.free();
+        } else if (entry.references == 0) {
+            if (snapshot == null) {
+                drop(entry);
+            } else {
+                unload(entry);
+            }
+        }
+    }
+
+    /**
+     * remove the graph from the catalog
+     */
+    private static void drop(Entry entry) {
+        graphs.remove(entry.name, entry);
+        entry.removed = true;
+        entry.free();
+    }
+
+    /**
+     * release the graph of a spilled entry, it is restored from its snapshot on the next use
+     */
+    private static void unload(Entry entry) {
+        Graph graph = entry.graph;
+        entry.graph = null;
+        graph.canRelease(true);
+        graph.release();
+    }
+
+    private static void deleteSnapshot(Path snapshot) {
+        if (snapshot != null) {
+            try {
+                Files.deleteIfExists(snapshot);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    /**
+     * graph names are chosen by the user, only keep the characters that are safe in file names
+     */
+    private static String snapshotPrefix(String name) {
+        String prefix = name.replaceAll("[^A-Za-z0-9_-]", "_");
+        return "graph-" + (prefix.length() > 64 ? prefix.substring(0, 64) : prefix) + "-";
+    }
+
+    /**
+     * A reference to a graph of the catalog, the graph stays valid until the lease is closed.
+     */
+    public static final class Lease implements AutoCloseable {
+        private final Entry entry;
+        private final Graph graph;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Entry entry) {
+            this.entry = entry;
+            this.graph = entry.graph;
+        }
+
+        public Graph graph() {
+            return graph;
+        }
+
+        /**
+         * give back the reference, only the first call has an effect
+         */
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(entry);
+            }
+        }
+    }
+
+    private static final class Entry {
+        private final String name;
+        private final String type;
+        private final AtomicLong accesses = new AtomicLong();
+        private final GraphRefresh refresh;
+        private volatile Graph graph;
+        private volatile long bytes;
+        private volatile long lastAccess;
+        // guarded by the class lock
+        private int references;
+        private boolean removed;
+        private boolean reloading;
+        // the graph is restored or refreshed without holding the lock
+        private boolean busy;
+        // the snapshot is written without holding the lock
+        private boolean spilling;
+        private Path snapshot;
+
+        private Entry(String name, Graph graph, long bytes, GraphRefresh refresh) {
+            this.name = name;
+            this.refresh = refresh;
+            this.type = graph.getType();
+            this.graph = graph;
+            this.bytes = bytes;
+            touch();
+        }
+
+        private void touch() {
+            lastAccess = clock.incrementAndGet();
+            accesses.incrementAndGet();
+        }
+
+        /**
+         * release the graph once it has no references, the entry has already been removed from the catalog.
+         * A graph that is restored, refreshed or spilled is freed once that has finished.
+         */
+        private void free() {
+            if (refresh != null) {
+                refresh.stop();
+            }
+            if (busy || spilling) {
+                return;
+            }
+            Graph graph = this.graph;
+            if (graph != null && references == 0) {
+                this.graph = null;
+                graph.canRelease(true);
+                graph.release();
+            }
+            deleteSnapshot(snapshot);
+            snapshot = null;
+        }
     }
 }
@@ -0,0 +1,108 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils;
+
+import org.neo4j.kernel.configuration.Config;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The directory for the files which procedures read and write, configured with {@value #SETTING}
+ * in the server configuration.
+ * <p>
+ * File names given to procedures are resolved against this directory. Absolute paths and names
+ * which leave the directory are rejected, so that callers of procedures cannot access any other
+ * file the database process is allowed to read or write.
+ */
+public final class AlgoDirectory {
+
+    public static final String SETTING = "algo.directory";
+
+    private AlgoDirectory() {
+        throw new UnsupportedOperationException("No instances");
+    }
+
+    /**
+     * @return true if a directory has been configured
+     */
+    public static boolean isConfigured(GraphDatabaseAPI api) {
+        return config(api).getRaw(SETTING).isPresent();
+    }
+
+    /**
+     * @return the configured directory
+     * @throws IllegalArgumentException if no directory has been configured
+     */
+    public static Path get(GraphDatabaseAPI api) {
+        String directory = config(api)
+                .getRaw(SETTING)
+                .orElseThrow(() -> new IllegalArgumentException(
+                        "Files can only be used once " + SETTING + " is set in the server configuration"));
+        return Paths.get(directory).toAbsolutePath().normalize();
+    }
+
+    private static Config config(GraphDatabaseAPI api) {
+        return api.getDependencyResolver().resolveDependency(Config.class);
+    }
+
+    /**
+     * @return the file of the given name within the configured directory
+     */
+    public static Path resolve(GraphDatabaseAPI api, String name) {
+        return resolve(get(api), name);
+    }
+
+    /**
+     * @return the file of the given name within the directory
+     * @throws IllegalArgumentException if the name is absolute or refers to a file outside of the directory
+     */
+    public static Path resolve(Path directory, String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("The file name must not be empty");
+        }
+        Path path = Paths.get(name);
+        if (path.isAbsolute() || path.getRoot() != null) {
+            throw new IllegalArgumentException("The file name " + name + " must be relative to " + SETTING);
+        }
+        for (Path element : path) {
+            if ("..".equals(element.toString())) {
+                throw new IllegalArgumentException("The file name " + name + " must not contain '..'");
+            }
+        }
+        Path file = directory.resolve(path).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new IllegalArgumentException("The file name " + name + " is not within " + SETTING);
+        }
+        // links must not lead out of the directory either
+        if (Files.exists(file)) {
+            try {
+                if (!file.toRealPath().startsWith(directory.toRealPath())) {
+                    throw new IllegalArgumentException("The file name " + name + " is not within " + SETTING);
+                }
+            } catch (IOException e) {
+                throw new IllegalArgumentException("The file " + name + " cannot be accessed", e);
+            }
+        }
+        return file;
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils;
+
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.kernel.api.ReadOperations;
+import org.neo4j.kernel.api.StatementConstants;
+import org.neo4j.kernel.api.exceptions.EntityNotFoundException;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * Reads a numeric node property of every node of a graph into a {@link DoubleArray}.
+ * The nodes are read in batches through the kernel API, every batch in its own transaction,
+ * in parallel if the executor allows it. Nodes without a numeric value get the default value.
+ */
+public final class NodePropertyReader extends StatementApi {
+
+    private static final long MIN_BATCH_SIZE = 10_000L;
+    private static final long MAX_BATCH_SIZE = 100_000L;
+
+    private final long nodeCount;
+    private final LongUnaryOperator toOriginalNodeId;
+    private final ExecutorService executor;
+    private final int concurrency;
+
+    /**
+     * @param toOriginalNodeId maps the graph ids [0, nodeCount) to node ids
+     */
+    public NodePropertyReader(
+            GraphDatabaseAPI api,
+            long nodeCount,
+            LongUnaryOperator toOriginalNodeId,
+            ExecutorService executor,
+            int concurrency) {
+        super(api);
+        this.nodeCount = nodeCount;
+        this.toOriginalNodeId = toOriginalNodeId;
+        this.executor = executor;
+        this.concurrency = concurrency;
+    }
+
+    public DoubleArray read(String property, double defaultValue, AllocationTracker tracker) {
+        final int propertyId = applyInTransaction(stmt -> stmt.readOperations().propertyKeyGetForName(property));
+        final DoubleArray values = DoubleArray.newArray(nodeCount, tracker);
+        if (propertyId == StatementConstants.NO_SUCH_PROPERTY_KEY) {
+            values.fill(defaultValue);
+            return values;
+        }
+        final long batchSize = ParallelUtil.adjustBatchSize(nodeCount, concurrency, MIN_BATCH_SIZE, MAX_BATCH_SIZE);
+        final Collection<Runnable> batches = LazyBatchCollection.of(
+                nodeCount,
+                batchSize,
+                (start, length) -> () -> acceptInTransaction(stmt -> {
+                    ReadOperations ops = stmt.readOperations();
+                    long end = start + length;
+                    for (long node = start; node < end; node++) {
+                        values.set(node, read(ops, toOriginalNodeId.applyAsLong(node), propertyId, defaultValue));
+                    }
+                }));
+        ParallelUtil.runWithConcurrency(
+                concurrency,
+                batches,
+                Integer.MAX_VALUE,
+                10L,
+                TimeUnit.MICROSECONDS,
+                TerminationFlag.RUNNING_TRUE,
+                executor);
+        return values;
+    }
+
+    private static double read(ReadOperations ops, long nodeId, int propertyId, double defaultValue) {
+        try {
+            return RawValues.extractValue(ops.nodeGetProperty(nodeId, propertyId), defaultValue);
+        } catch (EntityNotFoundException e) {
+            return defaultValue;
+        }
+    }
+}
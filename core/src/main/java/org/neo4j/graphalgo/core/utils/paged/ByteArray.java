@@ -18,15 +18,20 @@
  */
 package org.neo4j.graphalgo.core.utils.paged;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.util.concurrent.atomic.AtomicLong;
 
 
-public final class ByteArray extends PagedDataStructure<byte[]> {
+public final class ByteArray extends PagedDataStructure<Page> {
 
     private final AtomicLong allocIdx = new PaddedAtomicLong();
 
-    private static final PageAllocator.Factory<byte[]> ALLOCATOR_FACTORY =
-            PageAllocator.ofArray(byte[].class);
+    private static final PageAllocator.Factory<Page> ALLOCATOR_FACTORY =
+            Page.heapBytes();
+
+    private static final PageAllocator.Factory<Page> OFF_HEAP_ALLOCATOR_FACTORY =
+            Page.offHeap(Byte.BYTES);
 
     public static long estimateMemoryUsage(long size) {
         return ALLOCATOR_FACTORY.estimateMemoryUsage(size, ByteArray.class);
@@ -36,22 +41,53 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         return new ByteArray(size, ALLOCATOR_FACTORY.newAllocator(tracker));
     }
 
-    private ByteArray(long size, PageAllocator<byte[]> allocator) {
+    /**
+     * An array with its pages in native memory, which is freed on {@link #release()}.
+     */
+    public static ByteArray newOffHeapArray(long size, AllocationTracker tracker) {
+        return new ByteArray(size, OFF_HEAP_ALLOCATOR_FACTORY.newAllocator(tracker));
+    }
+
+    /**
+     * An array with the pages of a file, which have been written with {@link #writeTo(FileChannel)}.
+     * The pages are mapped into memory, not read, and the array is read-only.
+     *
+     * @param size the number of elements, as returned from {@link #capacity()} when the array was written
+     */
+    public static ByteArray map(FileChannel channel, long position, long size, AllocationTracker tracker) throws IOException {
+        PageAllocator<Page> allocator = OFF_HEAP_ALLOCATOR_FACTORY.newAllocator(tracker);
+        int numPages = PageUtil.numPagesFor(size, allocator.pageSize());
+        Page[] pages = Page.map(channel, position, numPages, (int) allocator.bytesPerPage(), tracker);
+        return new ByteArray(size, pages, allocator);
+    }
+
+    private ByteArray(long size, PageAllocator<Page> allocator) {
         super(size, allocator);
     }
 
+    private ByteArray(long size, Page[] pages, PageAllocator<Page> allocator) {
+        super(size, pages, allocator);
+    }
+
+    /**
+     * Write all pages up to the {@link #capacity()} in the native byte order.
+     */
+    public void writeTo(FileChannel channel) throws IOException {
+        Page.writeTo(pages, channel);
+    }
+
     public byte get(long index) {
         assert index < capacity();
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
-        return pages[pageIndex][indexInPage];
+        return pages[pageIndex].getByte(indexInPage);
     }
 
     public int getInt(long index) {
         assert index < capacity();
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
-        byte[] page = pages[pageIndex];
+        Page page = pages[pageIndex];
 
         if (page.length - indexInPage >= 4) {
             return getInt(page, indexInPage);
@@ -62,32 +98,36 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         return getInt(page, pages[pageIndex + 1], indexInPage);
     }
 
-    private int getInt(byte[] page, int offset) {
-        return ((page[offset] & 0xFF) << 24) |
-                ((page[offset + 1] & 0xFF) << 16) |
-                ((page[offset + 2] & 0xFF) << 8) |
-                (page[offset + 3] & 0xFF);
+    public long getLong(long index) {
+        return ((long) getInt(index) << 32) | (getInt(index + 4L) & 0xFFFFFFFFL);
+    }
+
+    private int getInt(Page page, int offset) {
+        return ((page.getByte(offset) & 0xFF) << 24) |
+                ((page.getByte(offset + 1) & 0xFF) << 16) |
+                ((page.getByte(offset + 2) & 0xFF) << 8) |
+                (page.getByte(offset + 3) & 0xFF);
     }
 
-    private int getInt(byte[] page, byte[] nextPage, int offset) {
+    private int getInt(Page page, Page nextPage, int offset) {
         switch (page.length - offset) {
             case 0:
                 return getInt(nextPage, 0);
             case 1:
-                return ((page[offset] & 0xFF) << 24) |
-                        ((nextPage[0] & 0xFF) << 16) |
-                        ((nextPage[1] & 0xFF) << 8) |
-                        (nextPage[2] & 0xFF);
+                return ((page.getByte(offset) & 0xFF) << 24) |
+                        ((nextPage.getByte(0) & 0xFF) << 16) |
+                        ((nextPage.getByte(1) & 0xFF) << 8) |
+                        (nextPage.getByte(2) & 0xFF);
             case 2:
-                return ((page[offset] & 0xFF) << 24) |
-                        ((page[offset + 1] & 0xFF) << 16) |
-                        ((nextPage[0] & 0xFF) << 8) |
-                        (nextPage[1] & 0xFF);
+                return ((page.getByte(offset) & 0xFF) << 24) |
+                        ((page.getByte(offset + 1) & 0xFF) << 16) |
+                        ((nextPage.getByte(0) & 0xFF) << 8) |
+                        (nextPage.getByte(1) & 0xFF);
             case 3:
-                return ((page[offset] & 0xFF) << 24) |
-                        ((page[offset + 1] & 0xFF) << 16) |
-                        ((page[offset + 2] & 0xFF) << 8) |
-                        (nextPage[0] & 0xFF);
+                return ((page.getByte(offset) & 0xFF) << 24) |
+                        ((page.getByte(offset + 1) & 0xFF) << 16) |
+                        ((page.getByte(offset + 2) & 0xFF) << 8) |
+                        (nextPage.getByte(0) & 0xFF);
             default:
                 throw new IllegalArgumentException("wrong boundary");
         }
@@ -97,9 +137,9 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         assert index < capacity();
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
-        final byte[] page = pages[pageIndex];
-        final byte ret = page[indexInPage];
-        page[indexInPage] = value;
+        final Page page = pages[pageIndex];
+        final byte ret = page.getByte(indexInPage);
+        page.putByte(indexInPage, value);
         return ret;
     }
 
@@ -137,6 +177,7 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
     }
 
     public final long release() {
+        Page.free(pages);
         return super.release();
     }
 
@@ -144,15 +185,26 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         return reuse.init(offset);
     }
 
+    /**
+     * Continues reading a delta encoded adjacency in the middle, e.g. from a skip point.
+     *
+     * @param offset index of the first vlong to read
+     * @param previousTarget the value of the target before that vlong
+     * @param remainingTargets the number of targets to read
+     */
+    public DeltaCursor deltaCursor(DeltaCursor reuse, long offset, long previousTarget, int remainingTargets) {
+        return reuse.initAt(offset, previousTarget, remainingTargets);
+    }
+
     private static abstract class BaseCursor {
 
-        private byte[][] pages;
+        private Page[] pages;
         private int numPages;
         private final int pageSize;
         private final int pageShift;
         private final int pageMask;
 
-        public byte[] array;
+        public Page page;
         public int offset;
         public int limit;
 
@@ -164,7 +216,7 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         private int currentPage;
 
         BaseCursor(
-                byte[][] pages,
+                Page[] pages,
                 int pageSize,
                 int pageShift,
                 int pageMask) {
@@ -175,13 +227,13 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
             this.numPages = pages.length;
         }
 
-        void grow(byte[][] pages) {
+        void grow(Page[] pages) {
             this.pages = pages;
             this.numPages = pages.length;
         }
 
         void init(long fromIndex, long length) {
-            array = null;
+            page = null;
             from = fromIndex;
             to = fromIndex + length;
             size = length;
@@ -191,7 +243,7 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         }
 
         void initAll(long fromIndex) {
-            array = null;
+            page = null;
             from = fromIndex;
             to = PageUtil.capacityFor(numPages, pageShift);
             size = to - fromIndex;
@@ -206,26 +258,26 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
                 System.out.println("current = " + current);
             }
             if (current == fromPage) {
-                array = pages[current];
+                page = pages[current];
                 offset = PageUtil.indexInPage(from, pageMask);
                 int length = (int) Math.min((long) (pageSize - offset), size);
                 limit = offset + length;
                 return true;
             }
             if (current < toPage) {
-                array = pages[current];
+                page = pages[current];
                 offset = 0;
                 limit = offset + pageSize;
                 return true;
             }
             if (current == toPage) {
-                array = pages[current];
+                page = pages[current];
                 offset = 0;
                 int length = PageUtil.indexInPage(to - 1L, pageMask) + 1;
                 limit = offset + length;
                 return true;
             }
-            array = null;
+            page = null;
             return false;
         }
 
@@ -275,7 +327,7 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
     public static final class BulkAdder extends BaseCursor {
 
         private BulkAdder(
-                byte[][] pages,
+                Page[] pages,
                 int pageSize,
                 int pageShift,
                 int pageMask) {
@@ -296,8 +348,13 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
             }
         }
 
+        public void addLong(long i) {
+            addUnsignedInt((int) (i >>> 32));
+            addUnsignedInt((int) i);
+        }
+
         public void addVLong(long i) {
-            if (limit - offset >= 9) {
+            if (limit - offset >= VarLongEncoding.MAX_ENCODED_SIZE) {
                 quickAddVLong(i);
             } else {
                 slowAddVLong(i);
@@ -306,16 +363,16 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
 
         private void quickAddUnsignedInt(int i) {
             int offset = this.offset;
-            byte[] array = this.array;
-            array[offset++] = (byte) (i >>> 24);
-            array[offset++] = (byte) (i >>> 16);
-            array[offset++] = (byte) (i >>> 8);
-            array[offset++] = (byte) (i);
+            Page page = this.page;
+            page.putByte(offset++, (byte) (i >>> 24));
+            page.putByte(offset++, (byte) (i >>> 16));
+            page.putByte(offset++, (byte) (i >>> 8));
+            page.putByte(offset++, (byte) (i));
             this.offset = offset;
         }
 
         private void slowAddUnsignedInt(int i) {
-            byte[] array = this.array;
+            Page page = this.page;
             int offset = this.offset;
             switch (limit - offset) {
                 case 0:
@@ -325,37 +382,37 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
                     quickAddUnsignedInt(i);
                     break;
                 case 1:
-                    array[offset++] = (byte) (i >>> 24);
+                    page.putByte(offset++, (byte) (i >>> 24));
                     if (!next()) {
                         break;
                     }
-                    array = this.array;
+                    page = this.page;
                     offset = this.offset;
-                    array[offset++] = (byte) (i >>> 16);
-                    array[offset++] = (byte) (i >>> 8);
-                    array[offset++] = (byte) (i);
+                    page.putByte(offset++, (byte) (i >>> 16));
+                    page.putByte(offset++, (byte) (i >>> 8));
+                    page.putByte(offset++, (byte) (i));
                     break;
                 case 2:
-                    array[offset++] = (byte) (i >>> 24);
-                    array[offset++] = (byte) (i >>> 16);
+                    page.putByte(offset++, (byte) (i >>> 24));
+                    page.putByte(offset++, (byte) (i >>> 16));
                     if (!next()) {
                         break;
                     }
-                    array = this.array;
+                    page = this.page;
                     offset = this.offset;
-                    array[offset++] = (byte) (i >>> 8);
-                    array[offset++] = (byte) (i);
+                    page.putByte(offset++, (byte) (i >>> 8));
+                    page.putByte(offset++, (byte) (i));
                     break;
                 case 3:
-                    array[offset++] = (byte) (i >>> 24);
-                    array[offset++] = (byte) (i >>> 16);
-                    array[offset++] = (byte) (i >>> 8);
+                    page.putByte(offset++, (byte) (i >>> 24));
+                    page.putByte(offset++, (byte) (i >>> 16));
+                    page.putByte(offset++, (byte) (i >>> 8));
                     if (!next()) {
                         break;
                     }
-                    array = this.array;
+                    page = this.page;
                     offset = this.offset;
-                    array[offset++] = (byte) (i);
+                    page.putByte(offset++, (byte) (i));
                     break;
                 default:
                     throw new IllegalArgumentException("invalid boundaries");
@@ -365,13 +422,12 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
 
         private void quickAddVLong(long i) {
             int offset = this.offset;
-            byte[] array = this.array;
+            Page page = this.page;
 
-            while ((i & ~0x7FL) != 0L) {
-                array[offset++] = (byte) ((i & 0x7FL) | 0x80L);
-                i >>>= 7L;
+            int size = VarLongEncoding.encodedSize(i);
+            for (int j = 0; j < size; j++) {
+                page.putByte(offset++, VarLongEncoding.encodedByte(i, j));
             }
-            array[offset++] = (byte) i;
 
             this.offset = offset;
         }
@@ -379,30 +435,22 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         private void slowAddVLong(long i) {
             int offset = this.offset;
             int limit = this.limit;
-            byte[] array = this.array;
+            Page page = this.page;
 
-            while ((i & ~0x7FL) != 0L) {
+            int size = VarLongEncoding.encodedSize(i);
+            for (int j = 0; j < size; j++) {
                 if (offset >= limit) {
                     if (!next()) {
                         return;
                     }
-                    array = this.array;
+                    page = this.page;
                     offset = this.offset;
                     limit = this.limit;
-                } else {
-                    array[offset++] = (byte) ((i & 0x7FL) | 0x80L);
-                    i >>>= 7L;
                 }
+                page.putByte(offset++, VarLongEncoding.encodedByte(i, j));
             }
 
             this.offset = offset;
-            if (offset >= limit) {
-                if (!next()) {
-                    return;
-                }
-            }
-
-            this.array[this.offset++] = (byte) i;
         }
     }
 
@@ -412,7 +460,7 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         private long delta;
 
         private DeltaCursor(
-                byte[][] pages,
+                Page[] pages,
                 int pageSize,
                 int pageShift,
                 int pageMask) {
@@ -426,7 +474,7 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
             currentTarget = 0;
             delta = 0L;
             if (limit - offset >= 4) {
-                initLength(array, offset);
+                initLength(page, offset);
             } else {
                 initLengthSlow();
             }
@@ -434,6 +482,17 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
             return this;
         }
 
+        DeltaCursor initAt(long fromIndex, long previousTarget, int remainingTargets) {
+            super.initAll(fromIndex);
+            next();
+
+            currentTarget = 0;
+            maxTargets = remainingTargets;
+            delta = previousTarget;
+
+            return this;
+        }
+
         public long getVLong() {
             if (currentTarget++ >= maxTargets) {
                 return -1L;
@@ -442,30 +501,30 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
         }
 
         private long getVLong0() {
-            if (limit - offset >= 9) {
-                return getVLong(array, offset);
+            if (limit - offset >= VarLongEncoding.MAX_ENCODED_SIZE) {
+                return getVLong(page, offset);
             }
             return slowGetVLong();
         }
 
-        private void initLength(byte[] array, int offset) {
-            this.maxTargets = ((array[offset++] & 0xFF) << 24) |
-                    ((array[offset++] & 0xFF) << 16) |
-                    ((array[offset++] & 0xFF) << 8) |
-                    (array[offset++] & 0xFF);
+        private void initLength(Page page, int offset) {
+            this.maxTargets = ((page.getByte(offset++) & 0xFF) << 24) |
+                    ((page.getByte(offset++) & 0xFF) << 16) |
+                    ((page.getByte(offset++) & 0xFF) << 8) |
+                    (page.getByte(offset++) & 0xFF);
             this.offset = offset;
         }
 
         private void initLengthSlow() {
             int offset = this.offset;
             int limit = this.limit;
-            byte[] page1 = this.array;
+            Page page1 = this.page;
 
             if (!next()) {
                 return;
             }
 
-            byte[] page2 = this.array;
+            Page page2 = this.page;
             int offset2 = this.offset;
 
             switch (limit - offset) {
@@ -474,24 +533,24 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
                     return;
 
                 case 1:
-                    this.maxTargets = ((page1[offset] & 0xFF) << 24) |
-                            ((page2[offset2++] & 0xFF) << 16) |
-                            ((page2[offset2++] & 0xFF) << 8) |
-                            (page2[offset2++] & 0xFF);
+                    this.maxTargets = ((page1.getByte(offset) & 0xFF) << 24) |
+                            ((page2.getByte(offset2++) & 0xFF) << 16) |
+                            ((page2.getByte(offset2++) & 0xFF) << 8) |
+                            (page2.getByte(offset2++) & 0xFF);
                     break;
 
                 case 2:
-                    this.maxTargets = ((page1[offset++] & 0xFF) << 24) |
-                            ((page1[offset] & 0xFF) << 16) |
-                            ((page2[offset2++] & 0xFF) << 8) |
-                            (page2[offset2++] & 0xFF);
+                    this.maxTargets = ((page1.getByte(offset++) & 0xFF) << 24) |
+                            ((page1.getByte(offset) & 0xFF) << 16) |
+                            ((page2.getByte(offset2++) & 0xFF) << 8) |
+                            (page2.getByte(offset2++) & 0xFF);
                     break;
 
                 case 3:
-                    this.maxTargets = ((page1[offset++] & 0xFF) << 24) |
-                            ((page1[offset++] & 0xFF) << 16) |
-                            ((page1[offset] & 0xFF) << 8) |
-                            (page2[offset2++] & 0xFF);
+                    this.maxTargets = ((page1.getByte(offset++) & 0xFF) << 24) |
+                            ((page1.getByte(offset++) & 0xFF) << 16) |
+                            ((page1.getByte(offset) & 0xFF) << 8) |
+                            (page2.getByte(offset2++) & 0xFF);
                     break;
 
                 default:
@@ -501,42 +560,37 @@ public final class ByteArray extends PagedDataStructure<byte[]> {
             this.offset = offset2;
         }
 
-        private long getVLong(byte[] page, int offset) {
-            byte b = page[offset++];
-            long i = (long) ((int) b & 0x7F);
-            for (int shift = 7; ((int) b & 0x80) != 0; shift += 7) {
-                b = page[offset++];
-                i |= ((long) b & 0x7FL) << shift;
-            }
+        private long getVLong(Page page, int offset) {
+            long i = 0L;
+            int j = 0;
+            byte b;
+            do {
+                b = page.getByte(offset++);
+                i = VarLongEncoding.decodeByte(i, b, j++);
+            } while (VarLongEncoding.hasNextByte(b));
             this.offset = offset;
             return i + delta;
         }
 
         private long slowGetVLong() {
             int diff = limit - offset;
-            if (diff == 0) {
-                if (!next()) {
-                    return -1L;
-                }
-                return getVLong(this.array, this.offset);
-            }
-
-            byte[] array = this.array;
+            Page page = this.page;
             int offset = this.offset;
 
-            byte b = array[offset++];
-            long i = (long) ((int) b & 0x7F);
-            for (int shift = 7; ((int) b & 0x80) != 0; shift += 7) {
-                if (--diff == 0) {
+            long i = 0L;
+            int j = 0;
+            byte b;
+            do {
+                if (diff-- == 0) {
                     if (!next()) {
                         return -1L;
                     }
-                    array = this.array;
+                    page = this.page;
                     offset = this.offset;
                 }
-                b = array[offset++];
-                i |= ((long) b & 0x7FL) << shift;
-            }
+                b = page.getByte(offset++);
+                i = VarLongEncoding.decodeByte(i, b, j++);
+            } while (VarLongEncoding.hasNextByte(b));
             this.offset = offset;
             return i + delta;
         }
@@ -18,12 +18,19 @@
  */
 package org.neo4j.graphalgo.core.utils.paged;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
 
-public final class DoubleArray extends PagedDataStructure<double[]> {
+public final class DoubleArray extends PagedDataStructure<Page> {
 
-    private static final PageAllocator.Factory<double[]> ALLOCATOR_FACTORY =
-            PageAllocator.ofArray(double[].class);
+    private static final PageAllocator.Factory<Page> ALLOCATOR_FACTORY =
+            Page.heapDoubles();
+
+    private static final PageAllocator.Factory<Page> OFF_HEAP_ALLOCATOR_FACTORY =
+            Page.offHeap(Double.BYTES);
+
+    private final AtomicLong allocIdx = new PaddedAtomicLong();
 
     public static long estimateMemoryUsage(long size) {
         return ALLOCATOR_FACTORY.estimateMemoryUsage(size, DoubleArray.class);
@@ -33,30 +40,114 @@ public final class DoubleArray extends PagedDataStructure<double[]> {
         return new DoubleArray(size, ALLOCATOR_FACTORY.newAllocator(tracker));
     }
 
-    private DoubleArray(long size, PageAllocator<double[]> allocator) {
+    /**
+     * An array with its pages in native memory, which is freed on {@link #release()}.
+     */
+    public static DoubleArray newOffHeapArray(long size, AllocationTracker tracker) {
+        return new DoubleArray(size, OFF_HEAP_ALLOCATOR_FACTORY.newAllocator(tracker));
+    }
+
+    /**
+     * An array with the pages of a file, which have been written with {@link #writeTo(FileChannel)}.
+     * The pages are mapped into memory, not read, and the array is read-only.
+     *
+     * @param size the number of elements, as returned from {@link #capacity()} when the array was written
+     */
+    public static DoubleArray map(FileChannel channel, long position, long size, AllocationTracker tracker) throws IOException {
+        PageAllocator<Page> allocator = OFF_HEAP_ALLOCATOR_FACTORY.newAllocator(tracker);
+        int numPages = PageUtil.numPagesFor(size, allocator.pageSize());
+        Page[] pages = Page.map(channel, position, numPages, (int) allocator.bytesPerPage(), tracker);
+        return new DoubleArray(size, pages, allocator);
+    }
+
+    private DoubleArray(long size, PageAllocator<Page> allocator) {
         super(size, allocator);
     }
 
+    private DoubleArray(long size, Page[] pages, PageAllocator<Page> allocator) {
+        super(size, pages, allocator);
+    }
+
+    /**
+     * Write all pages up to the {@link #capacity()} in the native byte order.
+     */
+    public void writeTo(FileChannel channel) throws IOException {
+        Page.writeTo(pages, channel);
+    }
+
     public double get(long index) {
         assert index < capacity();
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
-        return pages[pageIndex][indexInPage];
+        return pages[pageIndex].getDouble(indexInPage);
     }
 
     public double set(long index, double value) {
         assert index < capacity();
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
-        final double[] page = pages[pageIndex];
-        final double ret = page[indexInPage];
-        page[indexInPage] = value;
+        final Page page = pages[pageIndex];
+        final double ret = page.getDouble(indexInPage);
+        page.putDouble(indexInPage, value);
         return ret;
     }
 
     public void fill(double value) {
-        for (double[] page : pages) {
-            Arrays.fill(page, value);
+        for (Page page : pages) {
+            for (int i = 0; i < pageSize; i++) {
+                page.putDouble(i, value);
+            }
+        }
+    }
+
+    @Override
+    public long release() {
+        Page.free(pages);
+        return super.release();
+    }
+
+    public LocalAllocator newAllocator() {
+        return new LocalAllocator(this);
+    }
+
+    private long allocate(long numberOfElements) {
+        long intoIndex = allocIdx.getAndAdd(numberOfElements);
+        grow(intoIndex + numberOfElements);
+        return intoIndex;
+    }
+
+    /**
+     * Hands out consecutive regions of the array to a single thread, see {@link ByteArray.LocalAllocator}.
+     */
+    public static final class LocalAllocator {
+        private static final long PREFETCH_PAGES = 1L;
+
+        private final DoubleArray array;
+        private final long prefetchSize;
+
+        private long top;
+        private long limit;
+
+        LocalAllocator(final DoubleArray array) {
+            this.array = array;
+            this.prefetchSize = (long) array.pageSize * PREFETCH_PAGES;
+        }
+
+        public long allocate(long size) {
+            long address = top;
+            if (address + size <= limit) {
+                top += size;
+                return address;
+            }
+            return majorAllocate(size);
+        }
+
+        private long majorAllocate(long size) {
+            long allocate = Math.max(size, prefetchSize);
+            long address = top = array.allocate(allocate);
+            limit = top + allocate;
+            top += size;
+            return address;
         }
     }
 }
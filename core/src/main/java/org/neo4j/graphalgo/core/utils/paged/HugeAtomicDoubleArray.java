@@ -0,0 +1,107 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils.paged;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.neo4j.graphalgo.core.utils.paged.MemoryUsage.shallowSizeOfInstance;
+import static org.neo4j.graphalgo.core.utils.paged.MemoryUsage.sizeOfLongArray;
+
+/**
+ * paged array of doubles that can be updated atomically, the values are stored as their raw long bits
+ */
+public final class HugeAtomicDoubleArray extends PagedDataStructure<AtomicLongArray> {
+
+    private static final PageAllocator.Factory<AtomicLongArray> ALLOCATOR_FACTORY;
+
+    static {
+        int pageSize = PageUtil.pageSizeFor(Long.BYTES);
+        long pageUsage = shallowSizeOfInstance(AtomicLongArray.class) + sizeOfLongArray(pageSize);
+
+        ALLOCATOR_FACTORY = PageAllocator.of(
+                pageSize,
+                pageUsage,
+                () -> new AtomicLongArray(pageSize),
+                new AtomicLongArray[0]);
+    }
+
+    public static long estimateMemoryUsage(long size) {
+        return ALLOCATOR_FACTORY.estimateMemoryUsage(size, HugeAtomicDoubleArray.class);
+    }
+
+    public static HugeAtomicDoubleArray newArray(long size, AllocationTracker tracker) {
+        return new HugeAtomicDoubleArray(size, ALLOCATOR_FACTORY.newAllocator(tracker));
+    }
+
+    private HugeAtomicDoubleArray(
+            final long size,
+            final PageAllocator<AtomicLongArray> allocator) {
+        super(size, allocator);
+    }
+
+    public double get(long index) {
+        assert index < capacity();
+        final int pageIndex = pageIndex(index);
+        final int indexInPage = indexInPage(index);
+        return Double.longBitsToDouble(pages[pageIndex].get(indexInPage));
+    }
+
+    public void set(long index, double value) {
+        assert index < capacity();
+        final int pageIndex = pageIndex(index);
+        final int indexInPage = indexInPage(index);
+        pages[pageIndex].set(indexInPage, Double.doubleToRawLongBits(value));
+    }
+
+    /**
+     * @param expected a value as returned from {@link #get(long)}, the comparison is done on the raw bits
+     */
+    public boolean cas(long index, double expected, double update) {
+        assert index < capacity();
+        final int pageIndex = pageIndex(index);
+        final int indexInPage = indexInPage(index);
+        return pages[pageIndex].compareAndSet(
+                indexInPage,
+                Double.doubleToRawLongBits(expected),
+                Double.doubleToRawLongBits(update));
+    }
+
+    /**
+     * adds the delta to the value at the index, behaves exactly like standard java double arithmetic
+     */
+    public void add(long index, double delta) {
+        assert index < capacity();
+        final AtomicLongArray page = pages[pageIndex(index)];
+        final int indexInPage = indexInPage(index);
+        long currentBits, newBits;
+        do {
+            currentBits = page.get(indexInPage);
+            newBits = Double.doubleToRawLongBits(Double.longBitsToDouble(currentBits) + delta);
+        } while (!page.compareAndSet(indexInPage, currentBits, newBits));
+    }
+
+    public void fill(double value) {
+        final long bits = Double.doubleToRawLongBits(value);
+        for (AtomicLongArray page : pages) {
+            for (int i = 0; i < page.length(); i++) {
+                page.set(i, bits);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils.paged;
+
+/**
+ * paged stack of longs that grows on demand and can hold more than {@code 2^31} elements
+ */
+public final class HugeLongStack extends PagedDataStructure<long[]> {
+
+    private static final PageAllocator.Factory<long[]> ALLOCATOR_FACTORY =
+            PageAllocator.ofArray(long[].class);
+
+    // number of elements on the stack
+    private long top;
+
+    public static HugeLongStack newStack(long initialCapacity, AllocationTracker tracker) {
+        return new HugeLongStack(initialCapacity, ALLOCATOR_FACTORY.newAllocator(tracker));
+    }
+
+    private HugeLongStack(long initialCapacity, PageAllocator<long[]> allocator) {
+        super(initialCapacity, allocator);
+    }
+
+    public void push(long value) {
+        final long index = top++;
+        if (index >= capacity()) {
+            grow(index + 1);
+        }
+        pages[pageIndex(index)][indexInPage(index)] = value;
+    }
+
+    public long pop() {
+        assert top > 0 : "stack is empty";
+        final long index = --top;
+        return pages[pageIndex(index)][indexInPage(index)];
+    }
+
+    public long peek() {
+        assert top > 0 : "stack is empty";
+        final long index = top - 1;
+        return pages[pageIndex(index)][indexInPage(index)];
+    }
+
+    /**
+     * @return the number of elements on the stack
+     */
+    public long stackSize() {
+        return top;
+    }
+
+    public boolean isEmpty() {
+        return top == 0;
+    }
+
+    public void clear() {
+        top = 0;
+    }
+}
@@ -0,0 +1,323 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils.paged;
+
+import org.neo4j.unsafe.impl.internal.dragons.UnsafeUtil;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+import static org.neo4j.graphalgo.core.utils.paged.MemoryUsage.sizeOfByteArray;
+import static org.neo4j.graphalgo.core.utils.paged.MemoryUsage.sizeOfDoubleArray;
+
+/**
+ * A page of a paged data structure, either a primitive array on the heap,
+ * a block of native memory outside of the heap or a region of a memory mapped file.
+ * <p>
+ * Heap pages are plain {@code byte[]} or {@code double[]} and the default for every data structure.
+ * Native pages are opt-in, they are accessed with Unsafe by their address and are not garbage collected,
+ * they have to be freed with {@link #free(Page[])}, which the data structures do on {@code release()}.
+ * Mapped pages are read through a slice of their {@link MappedByteBuffer}, which is unmapped once
+ * no page is reachable anymore.
+ */
+public abstract class Page {
+
+    private static final Page[] EMPTY_PAGES = new Page[0];
+
+    // a single mapping must not exceed 2 GiB, this is a multiple of every page size
+    private static final int MAX_MAPPING_SIZE = 1 << 30;
+
+    // in bytes
+    final int length;
+
+    private Page(int length) {
+        this.length = length;
+    }
+
+    /**
+     * Pages backed by a {@code byte[]}.
+     */
+    static PageAllocator.Factory<Page> heapBytes() {
+        int pageSize = PageUtil.pageSizeFor(Byte.BYTES);
+        long bytesPerPage = sizeOfByteArray(pageSize);
+        return PageAllocator.of(pageSize, bytesPerPage, tracker -> {
+            tracker.add(bytesPerPage);
+            return new BytePage(new byte[pageSize]);
+        }, EMPTY_PAGES);
+    }
+
+    /**
+     * Pages backed by a {@code double[]}.
+     */
+    static PageAllocator.Factory<Page> heapDoubles() {
+        int pageSize = PageUtil.pageSizeFor(Double.BYTES);
+        long bytesPerPage = sizeOfDoubleArray(pageSize);
+        return PageAllocator.of(pageSize, bytesPerPage, tracker -> {
+            tracker.add(bytesPerPage);
+            return new DoublePage(new double[pageSize]);
+        }, EMPTY_PAGES);
+    }
+
+    /**
+     * Pages in native memory, which is zeroed on allocation and
+     * accounted for in the {@link AllocationTracker} like heap memory.
+     */
+    static PageAllocator.Factory<Page> offHeap(int bytesPerElement) {
+        int pageSize = PageUtil.pageSizeFor(bytesPerElement);
+        int bytesPerPage = pageSize * bytesPerElement;
+        return PageAllocator.of(pageSize, bytesPerPage, tracker -> {
+            long address = UnsafeUtil.allocateMemory(bytesPerPage);
+            UnsafeUtil.setMemory(address, bytesPerPage, (byte) 0);
+            tracker.add(bytesPerPage);
+            return new NativePage(address, bytesPerPage);
+        }, EMPTY_PAGES);
+    }
+
+    abstract byte getByte(int index);
+
+    abstract void putByte(int index, byte value);
+
+    abstract double getDouble(int index);
+
+    abstract void putDouble(int index, double value);
+
+    /**
+     * Write the whole page in the native byte order.
+     */
+    abstract void writeTo(FileChannel channel) throws IOException;
+
+    void free() {
+    }
+
+    static void writeTo(Page[] pages, FileChannel channel) throws IOException {
+        for (Page page : pages) {
+            page.writeTo(channel);
+        }
+    }
+
+    /**
+     * Map pages of a file that have been written with {@link #writeTo(Page[], FileChannel)}.
+     * The mapping is read-only, the pages must not be written to.
+     * The mapped bytes are accounted for in the {@link AllocationTracker} like heap memory.
+     */
+    static Page[] map(
+            FileChannel channel,
+            long position,
+            int numPages,
+            int bytesPerPage,
+            AllocationTracker tracker) throws IOException {
+        Page[] pages = new Page[numPages];
+        int pagesPerMapping = MAX_MAPPING_SIZE / bytesPerPage;
+        for (int first = 0; first < numPages; first += pagesPerMapping) {
+            int count = Math.min(pagesPerMapping, numPages - first);
+            MappedByteBuffer mapping = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    position + (long) first * bytesPerPage,
+                    (long) count * bytesPerPage);
+            for (int i = 0; i < count; i++) {
+                ByteBuffer region = mapping.duplicate();
+                region.position(i * bytesPerPage);
+                region.limit((i + 1) * bytesPerPage);
+                pages[first + i] = new MappedPage(region.slice().order(ByteOrder.nativeOrder()));
+            }
+        }
+        tracker.add((long) numPages * bytesPerPage);
+        return pages;
+    }
+
+    /**
+     * Free the native memory of the pages, heap and mapped pages are left to the garbage collector.
+     */
+    static void free(Page[] pages) {
+        if (pages == null) {
+            return;
+        }
+        for (Page page : pages) {
+            if (page != null) {
+                page.free();
+            }
+        }
+    }
+
+    private static void write(ByteBuffer buffer, FileChannel channel) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static final class BytePage extends Page {
+        private final byte[] page;
+
+        private BytePage(byte[] page) {
+            super(page.length);
+            this.page = page;
+        }
+
+        @Override
+        byte getByte(int index) {
+            return page[index];
+        }
+
+        @Override
+        void putByte(int index, byte value) {
+            page[index] = value;
+        }
+
+        @Override
+        double getDouble(int index) {
+            throw new UnsupportedOperationException("byte page");
+        }
+
+        @Override
+        void putDouble(int index, double value) {
+            throw new UnsupportedOperationException("byte page");
+        }
+
+        @Override
+        void writeTo(FileChannel channel) throws IOException {
+            write(ByteBuffer.wrap(page), channel);
+        }
+    }
+
+    private static final class DoublePage extends Page {
+        private final double[] page;
+
+        private DoublePage(double[] page) {
+            super(page.length * Double.BYTES);
+            this.page = page;
+        }
+
+        @Override
+        byte getByte(int index) {
+            throw new UnsupportedOperationException("double page");
+        }
+
+        @Override
+        void putByte(int index, byte value) {
+            throw new UnsupportedOperationException("double page");
+        }
+
+        @Override
+        double getDouble(int index) {
+            return page[index];
+        }
+
+        @Override
+        void putDouble(int index, double value) {
+            page[index] = value;
+        }
+
+        @Override
+        void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.nativeOrder());
+            buffer.asDoubleBuffer().put(page);
+            write(buffer, channel);
+        }
+    }
+
+    /**
+     * Only uses the address based accessors of Unsafe, doubles are read and written by their bits.
+     */
+    private static final class NativePage extends Page {
+        private final long address;
+        private boolean freed;
+
+        private NativePage(long address, int length) {
+            super(length);
+            this.address = address;
+        }
+
+        @Override
+        byte getByte(int index) {
+            return UnsafeUtil.getByte(address + index);
+        }
+
+        @Override
+        void putByte(int index, byte value) {
+            UnsafeUtil.putByte(address + index, value);
+        }
+
+        @Override
+        double getDouble(int index) {
+            return Double.longBitsToDouble(UnsafeUtil.getLong(address + ((long) index << 3)));
+        }
+
+        @Override
+        void putDouble(int index, double value) {
+            UnsafeUtil.putLong(address + ((long) index << 3), Double.doubleToRawLongBits(value));
+        }
+
+        @Override
+        void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.nativeOrder());
+            for (int i = 0; i < length; i += Long.BYTES) {
+                buffer.putLong(UnsafeUtil.getLong(address + i));
+            }
+            buffer.flip();
+            write(buffer, channel);
+        }
+
+        @Override
+        void free() {
+            if (!freed) {
+                freed = true;
+                UnsafeUtil.free(address);
+            }
+        }
+    }
+
+    private static final class MappedPage extends Page {
+        private final ByteBuffer page;
+
+        private MappedPage(ByteBuffer page) {
+            super(page.capacity());
+            this.page = page;
+        }
+
+        @Override
+        byte getByte(int index) {
+            return page.get(index);
+        }
+
+        @Override
+        void putByte(int index, byte value) {
+            page.put(index, value);
+        }
+
+        @Override
+        double getDouble(int index) {
+            return page.getDouble(index << 3);
+        }
+
+        @Override
+        void putDouble(int index, double value) {
+            page.putDouble(index << 3, value);
+        }
+
+        @Override
+        void writeTo(FileChannel channel) throws IOException {
+            ByteBuffer buffer = page.duplicate();
+            buffer.clear();
+            write(buffer, channel);
+        }
+    }
+}
@@ -18,6 +18,12 @@
  */
 package org.neo4j.graphalgo.core.utils.paged;
 
+/**
+ * Sparse mapping of long indices to non-negative long values. Values are stored with their
+ * sign bit set to tell them apart from unset entries, which are reported as {@link #NOT_FOUND}.
+ * A value of {@code 0} is therefore a regular value and not an unset entry. Lookups beyond the
+ * capacity behave like unset entries, so that callers can ask for ids that were never imported.
+ */
 public final class SparseLongArray extends PagedDataStructure<long[]> {
 
     public static final long NOT_FOUND = -1L;
@@ -55,16 +61,25 @@ public final class SparseLongArray extends PagedDataStructure<long[]> {
         super(capacity, pages, pageAllocator);
     }
 
+    /**
+     * @return the value or {@link #NOT_FOUND} if it has not been set or the index is out of bounds
+     */
     public long get(long index) {
-        assert index < capacity();
+        if (index >= capacity()) {
+            return NOT_FOUND;
+        }
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
         long[] page = pages[pageIndex];
-        return page == null ? NOT_FOUND : (page[indexInPage] & Long.MAX_VALUE);
+        if (page == null || page[indexInPage] == 0L) {
+            return NOT_FOUND;
+        }
+        return page[indexInPage] & Long.MAX_VALUE;
     }
 
     public void set(long index, long value) {
         assert index < capacity();
+        assert value >= 0L;
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
         long[] page = pages[pageIndex];
@@ -72,11 +87,16 @@ public final class SparseLongArray extends PagedDataStructure<long[]> {
             page = allocateNewPage();
             pages[pageIndex] = page;
         }
-        page[indexInPage] = value;
+        page[indexInPage] = value | Long.MIN_VALUE;
     }
 
+    /**
+     * @return true if a value has been set for the index
+     */
     public boolean contains(long index) {
-        assert index < capacity();
+        if (index >= capacity()) {
+            return false;
+        }
         final int pageIndex = pageIndex(index);
         final int indexInPage = indexInPage(index);
         long[] page = pages[pageIndex];
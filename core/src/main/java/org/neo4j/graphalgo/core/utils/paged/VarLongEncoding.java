@@ -0,0 +1,84 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils.paged;
+
+/**
+ * The vlong encoding of {@link ByteArray} and every file format that stores vlongs.
+ * A value is written as groups of 7 bits, least significant group first, every byte
+ * but the last one has the high bit set.
+ * <p>
+ * The methods work on single bytes, so that callers can read and write them from
+ * whatever storage they use, including across page boundaries:
+ * <pre>
+ * for (int i = 0, size = encodedSize(value); i < size; i++) put(encodedByte(value, i));
+ *
+ * long value = 0L;
+ * int i = 0;
+ * byte b;
+ * do {
+ *     b = get();
+ *     value = decodeByte(value, b, i++);
+ * } while (hasNextByte(b));
+ * </pre>
+ */
+public final class VarLongEncoding {
+
+    /**
+     * the maximum number of bytes of a non-negative value
+     */
+    public static final int MAX_ENCODED_SIZE = 9;
+
+    private static final int BITS_PER_BYTE = 7;
+    private static final long PAYLOAD_MASK = 0x7FL;
+    private static final int CONTINUATION_BIT = 0x80;
+
+    public static int encodedSize(long value) {
+        int bits = Long.SIZE - Long.numberOfLeadingZeros(value);
+        return Math.max(1, (bits + BITS_PER_BYTE - 1) / BITS_PER_BYTE);
+    }
+
+    /**
+     * the {@code index}-th byte of the encoding of the value, {@code index < encodedSize(value)}
+     */
+    public static byte encodedByte(long value, int index) {
+        long group = value >>> (index * BITS_PER_BYTE);
+        if ((group & ~PAYLOAD_MASK) != 0L) {
+            return (byte) ((group & PAYLOAD_MASK) | CONTINUATION_BIT);
+        }
+        return (byte) group;
+    }
+
+    /**
+     * add the {@code index}-th byte of an encoding to the value decoded from the previous ones
+     */
+    public static long decodeByte(long value, byte b, int index) {
+        return value | ((b & PAYLOAD_MASK) << (index * BITS_PER_BYTE));
+    }
+
+    /**
+     * whether another byte of the same value follows
+     */
+    public static boolean hasNextByte(byte b) {
+        return (b & CONTINUATION_BIT) != 0;
+    }
+
+    private VarLongEncoding() {
+        throw new UnsupportedOperationException("No instances");
+    }
+}
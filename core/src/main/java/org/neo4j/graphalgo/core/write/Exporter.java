@@ -18,6 +18,7 @@
  */
 package org.neo4j.graphalgo.core.write;
 
+import com.carrotsearch.hppc.BitSet;
 import org.neo4j.graphalgo.api.Graph;
 import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.api.HugeIdMapping;
@@ -29,6 +30,8 @@ import org.neo4j.graphalgo.core.utils.ProgressLogger;
 import org.neo4j.graphalgo.core.utils.ProgressLoggerAdapter;
 import org.neo4j.graphalgo.core.utils.StatementApi;
 import org.neo4j.graphalgo.core.utils.TerminationFlag;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
 import org.neo4j.helpers.Exceptions;
 import org.neo4j.kernel.api.DataWriteOperations;
 import org.neo4j.kernel.api.exceptions.KernelException;
@@ -48,12 +51,15 @@ public final class Exporter extends StatementApi {
 
     private static final long MIN_BATCH_SIZE = 10_000L;
     private static final long MAX_BATCH_SIZE = 100_000L;
+    // number of writes a batch counts locally before it updates the shared progress
+    private static final long PROGRESS_INTERVAL = 10_000L;
     public static final String TASK_EXPORT = "EXPORT";
 
     private final TerminationFlag terminationFlag;
     private final ExecutorService executorService;
     private final ProgressLogger progressLogger;
     private final int concurrency;
+    private final long batchSize;
     private final long nodeCount;
     private final LongUnaryOperator toOriginalId;
 
@@ -77,6 +83,7 @@ public final class Exporter extends StatementApi {
         private ExecutorService executorService;
         private ProgressLoggerAdapter loggerAdapter;
         private int concurrency = Pools.DEFAULT_CONCURRENCY;
+        private long batchSize = -1L;
 
         private Builder(GraphDatabaseAPI db, IdMapping idMapping) {
             Objects.requireNonNull(idMapping);
@@ -116,6 +123,16 @@ public final class Exporter extends StatementApi {
             return this;
         }
 
+        /**
+         * limits the number of nodes written in a single transaction.
+         * If not set (or not positive) the batch size is derived from
+         * the node count and concurrency.
+         */
+        public Builder withBatchSize(long batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
         public Exporter build() {
             ProgressLogger progressLogger = loggerAdapter == null
                     ? ProgressLogger.NULL_LOGGER
@@ -123,7 +140,7 @@ public final class Exporter extends StatementApi {
             TerminationFlag flag = terminationFlag == null
                     ? TerminationFlag.RUNNING_TRUE
                     : terminationFlag;
-            return new Exporter(db, nodeCount, toOriginalId, flag, progressLogger, concurrency, executorService);
+            return new Exporter(db, nodeCount, toOriginalId, flag, progressLogger, concurrency, batchSize, executorService);
         }
     }
 
@@ -138,6 +155,7 @@ public final class Exporter extends StatementApi {
             TerminationFlag terminationFlag,
             ProgressLogger log,
             int concurrency,
+            long batchSize,
             ExecutorService executorService) {
         super(db);
         this.nodeCount = nodeCount;
@@ -145,6 +163,9 @@ public final class Exporter extends StatementApi {
         this.terminationFlag = terminationFlag;
         this.progressLogger = log;
         this.concurrency = concurrency;
+        this.batchSize = batchSize > 0L
+                ? batchSize
+                : ParallelUtil.adjustBatchSize(nodeCount, concurrency, MIN_BATCH_SIZE, MAX_BATCH_SIZE);
         this.executorService = executorService;
     }
 
@@ -213,6 +234,118 @@ public final class Exporter extends StatementApi {
         }
     }
 
+    /**
+     * writes relationships in node batches, one transaction per batch.
+     * The writer is created with the relationship type id and called once
+     * for every node id, it should create the relationships of that node.
+     * <p>
+     * Creating a relationship locks both of its nodes until the transaction
+     * commits. Batches run concurrently if an executor is set, the writer must
+     * then only create relationships whose nodes are not locked by another batch
+     * at the same time, like {@link #writeForest(String, LongUnaryOperator, AllocationTracker)} does.
+     */
+    public void writeRelationships(String relationshipType, IntFunction<WriteConsumer> createWriter) {
+        final int typeId = getOrCreateRelationshipId(relationshipType);
+        if (typeId == -1) {
+            throw new IllegalStateException("no write relationship type id is set");
+        }
+        final WriteConsumer writer = createWriter.apply(typeId);
+        if (ParallelUtil.canRunInParallel(executorService)) {
+            writeParallel(writer);
+        } else {
+            writeSequential(writer);
+        }
+    }
+
+    /**
+     * writes the relationships of a forest, given by the parent of every node
+     * or {@code -1} for roots and nodes outside of the forest, from the parents
+     * to their children.
+     * <p>
+     * Each parent creates all relationships to its children in the same batch.
+     * The parents at an even depth are written before those at an odd depth, so
+     * that the children of one batch are never parents in a concurrent batch.
+     * Concurrent batches therefore never lock the same nodes, even for hubs.
+     */
+    public void writeForest(String relationshipType, LongUnaryOperator parentOf, AllocationTracker tracker) {
+        final LongArray offsets = LongArray.newArray(nodeCount + 1L, tracker);
+        final LongArray children = LongArray.newArray(Math.max(1L, nodeCount), tracker);
+        final BitSet odd = new BitSet(nodeCount);
+        try {
+            groupByParent(parentOf, offsets, children);
+            markOddDepths(parentOf, odd);
+            for (boolean oddDepth : new boolean[]{false, true}) {
+                writeRelationships(relationshipType, typeId -> (ops, parent) -> {
+                    if (odd.get(parent) != oddDepth) {
+                        return;
+                    }
+                    final long source = toOriginalId.applyAsLong(parent);
+                    final long end = offsets.get(parent + 1L);
+                    for (long i = offsets.get(parent); i < end; i++) {
+                        ops.relationshipCreate(typeId, source, toOriginalId.applyAsLong(children.get(i)));
+                    }
+                });
+            }
+        } finally {
+            tracker.remove(offsets.release());
+            tracker.remove(children.release());
+        }
+    }
+
+    /**
+     * the children of parent p end up in [offsets[p], offsets[p + 1])
+     */
+    private void groupByParent(LongUnaryOperator parentOf, LongArray offsets, LongArray children) {
+        for (long node = 0L; node < nodeCount; node++) {
+            final long parent = parentOf.applyAsLong(node);
+            if (parent != -1L) {
+                offsets.addTo(parent, 1L);
+            }
+        }
+        long sum = 0L;
+        for (long node = 0L; node <= nodeCount; node++) {
+            sum += offsets.get(node);
+            offsets.set(node, sum);
+        }
+        for (long node = 0L; node < nodeCount; node++) {
+            final long parent = parentOf.applyAsLong(node);
+            if (parent != -1L) {
+                final long index = offsets.get(parent) - 1L;
+                offsets.set(parent, index);
+                children.set(index, node);
+            }
+        }
+    }
+
+    /**
+     * walks up to the first node of known depth, then marks the path on the way back
+     */
+    private void markOddDepths(LongUnaryOperator parentOf, BitSet odd) {
+        final BitSet known = new BitSet(nodeCount);
+        for (long node = 0L; node < nodeCount; node++) {
+            if (known.get(node)) {
+                continue;
+            }
+            long steps = 0L;
+            long ancestor = node;
+            long parent;
+            while (!known.get(ancestor) && (parent = parentOf.applyAsLong(ancestor)) != -1L) {
+                ancestor = parent;
+                steps++;
+            }
+            // roots are at depth 0
+            boolean oddDepth = known.get(ancestor) && odd.get(ancestor);
+            oddDepth ^= (steps & 1L) == 1L;
+            for (long current = node; steps-- >= 0L && !known.get(current); current = parentOf.applyAsLong(current)) {
+                known.set(current);
+                if (oddDepth) {
+                    odd.set(current);
+                }
+                oddDepth = !oddDepth;
+            }
+        }
+    }
+
     private <T> void writeSequential(
             int propertyId,
             T data,
@@ -248,46 +381,18 @@ public final class Exporter extends StatementApi {
     }
 
     private void writeSequential(WriteConsumer writer) {
-        try {
-            acceptInTransaction(stmt -> {
-                long progress = 0L;
-                DataWriteOperations ops = stmt.dataWriteOperations();
-                for (long i = 0L; i < nodeCount; i++) {
-                    writer.accept(ops, i);
-                    progressLogger.logProgress(++progress, nodeCount);
-                }
-            });
-        } catch (KernelException e) {
-            throw Exceptions.launderedException(e);
+        final AtomicLong progress = new AtomicLong(0L);
+        for (long start = 0L; start < nodeCount; start += batchSize) {
+            writeBatch(writer, start, Math.min(batchSize, nodeCount - start), progress);
         }
     }
 
     private void writeParallel(WriteConsumer writer) {
-        final long batchSize = ParallelUtil.adjustBatchSize(
-                nodeCount,
-                concurrency,
-                MIN_BATCH_SIZE,
-                MAX_BATCH_SIZE);
         final AtomicLong progress = new AtomicLong(0L);
         final Collection<Runnable> runnables = LazyBatchCollection.of(
                 nodeCount,
                 batchSize,
-                (start, len) -> () -> {
-                    try {
-                        acceptInTransaction(stmt -> {
-                            long end = start + len;
-                            DataWriteOperations ops = stmt.dataWriteOperations();
-                            for (long j = start; j < end; j++) {
-                                writer.accept(ops, j);
-                                progressLogger.logProgress(
-                                        progress.incrementAndGet(),
-                                        nodeCount);
-                            }
-                        });
-                    } catch (KernelException e) {
-                        throw Exceptions.launderedException(e);
-                    }
-                });
+                (start, len) -> () -> writeBatch(writer, start, len, progress));
         ParallelUtil.runWithConcurrency(
                 concurrency,
                 runnables,
@@ -299,6 +404,31 @@ public final class Exporter extends StatementApi {
         );
     }
 
+    /**
+     * writes the nodes [start, start + length) in a single transaction.
+     * Progress is counted locally and only added to the shared
+     * counter every {@link #PROGRESS_INTERVAL} nodes.
+     */
+    private void writeBatch(WriteConsumer writer, long start, long length, AtomicLong progress) {
+        try {
+            acceptInTransaction(stmt -> {
+                final long end = start + length;
+                long localProgress = 0L;
+                DataWriteOperations ops = stmt.dataWriteOperations();
+                for (long j = start; j < end; j++) {
+                    writer.accept(ops, j);
+                    if (++localProgress == PROGRESS_INTERVAL) {
+                        progressLogger.logProgress(progress.addAndGet(localProgress), nodeCount);
+                        localProgress = 0L;
+                    }
+                }
+                progressLogger.logProgress(progress.addAndGet(localProgress), nodeCount);
+            });
+        } catch (KernelException e) {
+            throw Exceptions.launderedException(e);
+        }
+    }
+
     private <T> void doWrite(
             int propertyId,
             T data,
@@ -32,8 +32,11 @@ import org.neo4j.kernel.api.exceptions.KernelException;
 import org.neo4j.kernel.impl.proc.Procedures;
 import org.neo4j.test.rule.ImpermanentDatabaseRule;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
@@ -119,6 +122,23 @@ public class LouvainClusteringIntegrationTest {
     }
 
 
+    @Test
+    public void testWriteInSmallTransactions() {
+        final String cypher = "CALL algo.louvain('', '', {writeBatchSize:2, writeProperty:'smallTxCommunity'}) " +
+                "YIELD nodes, writeThroughput";
+
+        DB.execute(cypher).accept(row -> {
+            assertEquals("invalid node count", 9, row.getNumber("nodes").longValue());
+            assertTrue("invalid write throughput", row.getNumber("writeThroughput").doubleValue() > 0.0);
+            return false;
+        });
+
+        final Object count = DB.execute("MATCH (n) WHERE exists(n.smallTxCommunity) RETURN count(n) AS count")
+                .next()
+                .get("count");
+        assertEquals(9L, count);
+    }
+
     @Test
     public void testStream() {
         final String cypher = "CALL algo.louvain.stream('', '', {concurrency:2}) " +
@@ -210,13 +230,82 @@ public class LouvainClusteringIntegrationTest {
     }
 
     @Test
-    public void shouldNotAllowLightOrHugeOrKernelGraph() throws Throwable {
+    public void shouldAllowHugeGraph() {
+        final String cypher = "CALL algo.louvain('', '', {graph:'huge'}) YIELD nodes, communityCount";
+
+        DB.execute(cypher).accept(row -> {
+            assertEquals("invalid node count",9, row.getNumber("nodes").longValue());
+            assertEquals("wrong community count", 3, row.getNumber("communityCount").longValue());
+            return true;
+        });
+    }
+
+    @Test
+    public void testLevelsAndModularity() {
+        final String cypher = "CALL algo.louvain('', '', {write:false}) YIELD levels, modularity, modularities";
+
+        DB.execute(cypher).accept(row -> {
+            final long levels = row.getNumber("levels").longValue();
+            final double modularity = row.getNumber("modularity").doubleValue();
+            @SuppressWarnings("unchecked")
+            final List<Double> modularities = (List<Double>) row.get("modularities");
+            assertTrue("invalid levels", levels >= 1);
+            assertEquals(levels, modularities.size());
+            assertEquals(modularities.get(modularities.size() - 1), modularity, 1e-9);
+            assertTrue("invalid modularity", modularity > 0.0);
+            return true;
+        });
+    }
+
+    @Test
+    public void testStreamIntermediateCommunities() {
+        final String cypher = "CALL algo.louvain.stream('', '', {includeIntermediateCommunities:true}) " +
+                "YIELD nodeId, community, communities";
+        final List<List<Long>> dendrogram = new ArrayList<>();
+        DB.execute(cypher).accept(row -> {
+            final int community = row.getNumber("community").intValue();
+            @SuppressWarnings("unchecked")
+            final List<Long> communities = (List<Long>) row.get("communities");
+            assertTrue(communities.size() >= 1);
+            assertEquals(community, communities.get(communities.size() - 1).intValue());
+            dendrogram.add(communities);
+            return true;
+        });
+        assertEquals(NODES.length, dendrogram.size());
+        final int levels = dendrogram.get(0).size();
+        for (int level = 1; level < levels; level++) {
+            // every community of a level lies completely within one community of the next
+            final Map<Long, Long> coarser = new HashMap<>();
+            for (List<Long> communities : dendrogram) {
+                assertEquals(levels, communities.size());
+                final Long previous = coarser.putIfAbsent(communities.get(level - 1), communities.get(level));
+                if (previous != null) {
+                    assertEquals(previous, communities.get(level));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testModularityDoesNotDecrease() {
+        final String cypher = "CALL algo.louvain('', '', {write:false}) YIELD modularities";
+        DB.execute(cypher).accept(row -> {
+            @SuppressWarnings("unchecked")
+            final List<Double> modularities = (List<Double>) row.get("modularities");
+            assertTrue(modularities.size() >= 1);
+            assertTrue(modularities.get(modularities.size() - 1) >= modularities.get(0));
+            return true;
+        });
+    }
+
+    @Test
+    public void shouldNotAllowLightOrKernelGraph() throws Throwable {
         String query = "CALL algo.louvain('', '', {graph:$graph})";
 
         exceptions.expect(IllegalArgumentException.class);
-        exceptions.expectMessage("The selected graph is not suitable for this algo, please use either 'heavy' or 'cypher'.");
+        exceptions.expectMessage("The selected graph is not suitable for this algo, please use either 'heavy' or 'cypher' or 'huge'.");
 
-        for (final String graph : Arrays.asList("light", "huge", "kernel")) {
+        for (final String graph : Arrays.asList("light", "kernel")) {
             Map<String, Object> params = Collections.singletonMap("graph", graph);
             try {
                 DB.execute(query, params).close();
@@ -76,6 +76,14 @@ public class MSTPrimProcIntegrationTest {
             db.execute(cypher);
             tx.success();
         }
+        // a hub with most of the tree hanging from it and some deeper paths
+        try (Transaction tx = db.beginTx()) {
+            db.execute("UNWIND range(0, 199) AS i CREATE (:Hub {id:i})").close();
+            db.execute("MATCH (a:Hub), (b:Hub) WHERE b.id = a.id + 1 CREATE (a)-[:HUB_TYPE {cost:3.0}]->(b)").close();
+            db.execute("MATCH (a:Hub {id:0}), (b:Hub) WHERE b.id > 1 " +
+                    "CREATE (a)-[:HUB_TYPE {cost:CASE WHEN b.id % 7 = 0 THEN 1.0 ELSE 10.0 END}]->(b)").close();
+            tx.success();
+        }
 
         db.getDependencyResolver()
                 .resolveDependency(Procedures.class)
@@ -85,7 +93,8 @@ public class MSTPrimProcIntegrationTest {
     @Test
     public void testMst() throws Exception {
 
-        db.execute("MATCH(n:Node{start:true}) WITH n CALL algo.mst(n, 'cost', {write:true, stats:true}) " +
+        db.execute("MATCH(n:Node{start:true}) WITH n CALL algo.mst(n, 'cost', {write:true, stats:true, " +
+                "nodeQuery:'Node', relationshipQuery:'TYPE'}) " +
                 "YIELD loadMillis, computeMillis, writeMillis, weightSum, weightMin, " +
                 "weightMax, relationshipCount RETURN loadMillis, computeMillis, " +
                 "writeMillis, weightSum, weightMin, weightMax, relationshipCount").accept(res -> {
@@ -107,4 +116,60 @@ public class MSTPrimProcIntegrationTest {
             return true;
         });
     }
+
+    @Test
+    public void testMstHuge() throws Exception {
+
+        db.execute("MATCH(n:Node{start:true}) WITH n CALL algo.mst(n, 'cost', {write:true, stats:true, " +
+                "writeProperty:'mstHuge', graph:'huge', concurrency:2, writeBatchSize:2}) " +
+                "YIELD writeMillis, weightSum, weightMin, weightMax, relationshipCount " +
+                "RETURN writeMillis, weightSum, weightMin, weightMax, relationshipCount").accept(res -> {
+
+            assertNotEquals(-1L, res.getNumber("writeMillis").longValue());
+            assertEquals(12.0, res.getNumber("weightSum").doubleValue(), 0.01);
+            assertEquals(1.0, res.getNumber("weightMin").doubleValue(), 0.01);
+            assertEquals(5.0, res.getNumber("weightMax").doubleValue(), 0.01);
+            assertEquals(4, res.getNumber("relationshipCount").intValue());
+
+            return true;
+        });
+
+        db.execute("MATCH ()-[r:mstHuge]->() RETURN count(r) AS count").accept(res -> {
+            assertEquals(4, res.getNumber("count").intValue());
+            return true;
+        });
+    }
+
+    @Test
+    public void testParallelWriteAroundAHub() throws Exception {
+        assertParallelWriteAroundAHub("heavy", "mstHubHeavy");
+        assertParallelWriteAroundAHub("huge", "mstHubHuge");
+    }
+
+    private void assertParallelWriteAroundAHub(String graph, String writeProperty) {
+        final double[] weightSum = new double[1];
+        final int[] relationshipCount = new int[1];
+        db.execute("MATCH (n:Hub {id:0}) WITH n CALL algo.mst(n, 'cost', {write:true, stats:true, " +
+                "writeProperty:'" + writeProperty + "', graph:'" + graph + "', concurrency:4, writeBatchSize:8, " +
+                "nodeQuery:'Hub', relationshipQuery:'HUB_TYPE'}) " +
+                "YIELD weightSum, relationshipCount RETURN weightSum, relationshipCount").accept(res -> {
+            relationshipCount[0] = res.getNumber("relationshipCount").intValue();
+            assertTrue(relationshipCount[0] > 10);
+            weightSum[0] = res.getNumber("weightSum").doubleValue();
+            return true;
+        });
+
+        // every node but the start node is written once, from its parent, along a relationship of the tree
+        db.execute("MATCH (a:Hub)-[r:" + writeProperty + "]->(b:Hub) " +
+                "WITH a, b, count(r) AS written " +
+                "MATCH (a)-[t:HUB_TYPE]-(b) " +
+                "RETURN count(DISTINCT b) AS children, max(written) AS maxWritten, " +
+                "sum(t.cost) AS cost, sum(CASE WHEN b.id = 0 THEN 1 ELSE 0 END) AS startWritten").accept(res -> {
+            assertEquals(relationshipCount[0], res.getNumber("children").intValue());
+            assertEquals(1, res.getNumber("maxWritten").intValue());
+            assertEquals(weightSum[0], res.getNumber("cost").doubleValue(), 0.01);
+            assertEquals(0, res.getNumber("startWritten").intValue());
+            return true;
+        });
+    }
 }
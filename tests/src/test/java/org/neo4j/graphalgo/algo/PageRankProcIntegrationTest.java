@@ -37,6 +37,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
 
@@ -149,6 +150,79 @@ public class PageRankProcIntegrationTest {
         assertMapEquals(expected, actual);
     }
 
+    @Test
+    public void testPageRankStreamWithSeedProperty() throws Exception {
+        runQuery(
+                "CALL algo.pageRank('Label1', 'TYPE1', {writeProperty:'seed', graph:'"+graphImpl+"'}) YIELD write",
+                row -> assertTrue(row.getBoolean("write")));
+
+        // a single iteration is enough when starting from converged scores
+        final Map<Long, Double> actual = new HashMap<>();
+        runQuery(
+                "CALL algo.pageRank.stream('Label1', 'TYPE1', {iterations:1, seedProperty:'seed', graph:'"+graphImpl+"'}) YIELD node, score",
+                row -> actual.put(
+                        row.getNode("node").getId(),
+                        (Double) row.get("score")));
+
+        assertMapEquals(expected, actual);
+    }
+
+    @Test
+    public void testPageRankStreamWithMissingSeedProperty() throws Exception {
+        // nodes without a seed start from the initial rank
+        final Map<Long, Double> actual = new HashMap<>();
+        runQuery(
+                "CALL algo.pageRank.stream('Label1', 'TYPE1', {seedProperty:'missing', graph:'"+graphImpl+"'}) YIELD node, score",
+                row -> actual.put(
+                        row.getNode("node").getId(),
+                        (Double) row.get("score")));
+
+        assertMapEquals(expected, actual);
+    }
+
+    @Test
+    public void testPageRankWithTolerance() throws Exception {
+        runQuery(
+                "CALL algo.pageRank('Label1', 'TYPE1', {iterations:100, tolerance:0.001, write:false, graph:'"+graphImpl+"'}) " +
+                        "YIELD iterations, tolerance, residual, didConverge, iterationMillis, residuals, partitionSkew",
+                row -> {
+                    long iterations = row.getNumber("iterations").longValue();
+                    assertTrue(iterations < 100);
+                    assertEquals(0.001, row.getNumber("tolerance").doubleValue(), 1e-9);
+                    assertTrue(row.getNumber("residual").doubleValue() < 0.001);
+                    assertTrue(row.getBoolean("didConverge"));
+                    assertEquals(iterations, ((List<?>) row.get("iterationMillis")).size());
+                    assertEquals(iterations, ((List<?>) row.get("residuals")).size());
+                    for (Object skew : (List<?>) row.get("partitionSkew")) {
+                        assertTrue(((Number) skew).doubleValue() >= 1.0);
+                    }
+                });
+    }
+
+    @Test
+    public void testPersonalizedPageRankStream() throws Exception {
+        final Map<Long, Map<Long, Double>> actual = new HashMap<>();
+        runQuery(
+                "MATCH (a:Label1 {name:'a'}), (b:Label1 {name:'b'}), (c:Label1 {name:'c'}), (e:Label1 {name:'e'}) " +
+                        "CALL algo.pageRank.personalized.stream('Label1', 'TYPE1', [[a], [b, c], id(e)], {topK:2, graph:'"+graphImpl+"'}) " +
+                        "YIELD seedSet, nodeId, score " +
+                        "RETURN seedSet, nodeId, score",
+                row -> actual
+                        .computeIfAbsent(row.getNumber("seedSet").longValue(), k -> new HashMap<>())
+                        .put(row.getNumber("nodeId").longValue(), row.getNumber("score").doubleValue()));
+
+        assertEquals(3, actual.size());
+        // a has no relationships and keeps only its own share
+        assertEquals(1, actual.get(0L).size());
+        assertEquals(0.15, actual.get(0L).values().iterator().next(), 1e-3);
+        // b and c only point to each other and share all scores
+        assertEquals(2, actual.get(1L).size());
+        for (double score : actual.get(1L).values()) {
+            assertEquals(0.5, score, 1e-3);
+        }
+        assertEquals(2, actual.get(2L).size());
+    }
+
     @Test
     public void testPageRankWriteBack() throws Exception {
         runQuery(
@@ -190,6 +264,21 @@ public class PageRankProcIntegrationTest {
         assertResult("pagerank");
     }
 
+    @Test
+    public void testPageRankWriteBackInSmallTransactions() throws Exception {
+        runQuery(
+                "CALL algo.pageRank('Label1', 'TYPE1', {writeBatchSize:2, writeProperty:'smallTx', graph:'"+graphImpl+"'}) " +
+                        "YIELD write, writeThroughput",
+                row -> {
+                    assertTrue(row.getBoolean("write"));
+                    assertTrue(
+                            "write throughput not set",
+                            row.getNumber("writeThroughput").doubleValue() > 0.0);
+                });
+
+        assertResult("smallTx");
+    }
+
     @Test
     public void testPageRankParallelExecution() throws Exception {
         final Map<Long, Double> actual = new HashMap<>();
@@ -111,6 +111,7 @@ public final class ShortestPathDeltaSteppingProcTest {
         return Arrays.asList(
                 new Object[]{"Heavy"},
                 new Object[]{"Light"},
+                new Object[]{"Huge"},
                 new Object[]{"Kernel"}
         );
     }
@@ -87,7 +87,8 @@ public class StronglyConnectedComponentsProcIntegrationTest {
         return Arrays.asList(
                 new Object[]{"Heavy"},
                 new Object[]{"Light"},
-                new Object[]{"Kernel"}
+                new Object[]{"Kernel"},
+                new Object[]{"Huge"}
         );
     }
 
@@ -33,6 +33,7 @@ import java.util.HashSet;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
@@ -150,6 +151,25 @@ public class TriangleProcTest {
     }
 
 
+    @Test
+    public void testHugeTriangleCountWriteCypher() throws Exception {
+        final String cypher = "CALL algo.triangleCount('Node', '', {concurrency:4, write:true, graph:'huge', " +
+                "writeProperty:'hugeTriangles', clusteringCoefficientProperty:'hugeCoefficient'}) " +
+                "YIELD nodeCount, triangleCount, averageClusteringCoefficient";
+        api.execute(cypher).accept(row -> {
+            assertEquals(3, row.getNumber("triangleCount").longValue());
+            assertEquals(9, row.getNumber("nodeCount").longValue());
+            return true;
+        });
+
+        final String request = "MATCH (n) WHERE exists(n.hugeTriangles) RETURN n.hugeTriangles as t, n.hugeCoefficient as c";
+        api.execute(request).accept(row -> {
+            assertEquals(1, row.getNumber("t").intValue());
+            assertNotNull(row.get("c"));
+            return true;
+        });
+    }
+
     @Test
     public void testTriangleCountExp1WriteCypher() throws Exception {
         final String cypher = "CALL algo.triangleCount.forkJoin('Node', '', {concurrency:4, write:true}) " +
@@ -189,6 +209,19 @@ public class TriangleProcTest {
         verify(mock, times(9)).consume(anyLong(), eq(1L));
     }
 
+    @Test
+    public void testHugeTriangleCountStream() throws Exception {
+        final TriangleCountConsumer mock = mock(TriangleCountConsumer.class);
+        final String cypher = "CALL algo.triangleCount.stream('Node', '', {concurrency:4, graph:'huge'}) YIELD nodeId, triangles";
+        api.execute(cypher).accept(row -> {
+            final long nodeId = row.getNumber("nodeId").longValue();
+            final long triangles = row.getNumber("triangles").longValue();
+            mock.consume(nodeId, triangles);
+            return true;
+        });
+        verify(mock, times(9)).consume(anyLong(), eq(1L));
+    }
+
     @Test
     public void testTriangleCountExp1Stream() throws Exception {
         final TriangleCountConsumer mock = mock(TriangleCountConsumer.class);
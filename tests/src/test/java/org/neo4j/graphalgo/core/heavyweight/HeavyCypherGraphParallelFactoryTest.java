@@ -32,6 +32,12 @@ import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.graphalgo.TestDatabaseCreator;
 import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
@@ -98,6 +104,114 @@ public class HeavyCypherGraphParallelFactoryTest {
         loadAndTestGraph(nodeStatement, relStatement, false);
     }
 
+    @Test
+    public void testStreamedRelationshipsEqualSequentialLoad() throws Exception {
+        String nodeStatement = "MATCH (n) RETURN id(n) as id";
+        String relStatement = "MATCH (n)-[r:REL]->(m) RETURN id(n) as source, id(m) as target, r.prop as weight";
+
+        Graph sequential = new GraphLoader((GraphDatabaseAPI) db)
+                .withRelationshipWeightsFromProperty("prop", 0d)
+                .withLabel(nodeStatement)
+                .withRelationshipType(relStatement)
+                .load(HeavyCypherGraphFactory.class);
+        Graph streamed = new GraphLoader((GraphDatabaseAPI) db)
+                .withExecutorService(Pools.DEFAULT)
+                .withConcurrency(4)
+                .withBatchSize(100)
+                .withRelationshipWeightsFromProperty("prop", 0d)
+                .withLabel(nodeStatement)
+                .withRelationshipType(relStatement)
+                .load(HeavyCypherGraphFactory.class);
+
+        assertEquals(sequential.nodeCount(), streamed.nodeCount());
+        sequential.forEachNode(node -> {
+            assertEquals(sequential.toOriginalNodeId(node), streamed.toOriginalNodeId(node));
+            assertEquals(relationships(sequential, node), relationships(streamed, node));
+            return true;
+        });
+    }
+
+    @Test
+    public void testStreamedDuplicatesKeepTheWeightOfTheLastRow() throws Exception {
+        String nodeStatement = "MATCH (n) RETURN id(n) as id";
+        // every relationship is returned five times, the copies end up in different batches
+        String relStatement = "UNWIND range(0, 4) AS copy MATCH (n)-[r:REL]->(m) " +
+                "RETURN id(n) as source, id(m) as target, r.prop * 10 + copy as weight";
+
+        Graph sequential = new GraphLoader((GraphDatabaseAPI) db)
+                .withRelationshipWeightsFromProperty("prop", 0d)
+                .withLabel(nodeStatement)
+                .withRelationshipType(relStatement)
+                .load(HeavyCypherGraphFactory.class);
+        Graph streamed = new GraphLoader((GraphDatabaseAPI) db)
+                .withExecutorService(Pools.DEFAULT)
+                .withConcurrency(4)
+                .withBatchSize(100)
+                .withRelationshipWeightsFromProperty("prop", 0d)
+                .withLabel(nodeStatement)
+                .withRelationshipType(relStatement)
+                .load(HeavyCypherGraphFactory.class);
+
+        sequential.forEachNode(node -> {
+            assertEquals(relationships(sequential, node), relationships(streamed, node));
+            streamed.forEachRelationship(node, Direction.OUTGOING, (s, t, r, w) -> {
+                assertEquals(4.0, w % 10, 0.0);
+                return true;
+            });
+            return true;
+        });
+    }
+
+    @Test(timeout = 60_000L)
+    public void testStreamedRelationshipsOnASaturatedExecutor() throws Exception {
+        String nodeStatement = "MATCH (n) RETURN id(n) as id";
+        String relStatement = "MATCH (n)-[r:REL]->(m) RETURN id(n) as source, id(m) as target, r.prop as weight";
+
+        // the only thread of the pool is busy, every importer runs on the reading thread
+        CountDownLatch busy = new CountDownLatch(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.execute(() -> {
+            try {
+                busy.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            Graph sequential = new GraphLoader((GraphDatabaseAPI) db)
+                    .withRelationshipWeightsFromProperty("prop", 0d)
+                    .withLabel(nodeStatement)
+                    .withRelationshipType(relStatement)
+                    .load(HeavyCypherGraphFactory.class);
+            Graph streamed = new GraphLoader((GraphDatabaseAPI) db)
+                    .withExecutorService(executor)
+                    .withConcurrency(4)
+                    .withBatchSize(100)
+                    .withRelationshipWeightsFromProperty("prop", 0d)
+                    .withLabel(nodeStatement)
+                    .withRelationshipType(relStatement)
+                    .load(HeavyCypherGraphFactory.class);
+
+            sequential.forEachNode(node -> {
+                assertEquals(relationships(sequential, node), relationships(streamed, node));
+                return true;
+            });
+        } finally {
+            busy.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private static List<String> relationships(Graph graph, int node) {
+        List<String> relationships = new ArrayList<>();
+        graph.forEachRelationship(node, Direction.OUTGOING, (s, t, r, w) -> {
+            relationships.add(s + "->" + t + ":" + w);
+            return true;
+        });
+        return relationships;
+    }
+
     protected void loadAndTestGraph(String nodeStatement, String relStatement, boolean accumulateWeights) {
         final Graph graph = new GraphLoader((GraphDatabaseAPI) db)
                 .withExecutorService(Pools.DEFAULT)
@@ -27,13 +27,19 @@ import org.mockito.Mockito;
 import org.mockito.runners.MockitoJUnitRunner;
 import org.neo4j.graphalgo.api.Graph;
 import org.neo4j.graphalgo.api.RelationshipConsumer;
+import org.neo4j.graphalgo.api.TypedRelationshipConsumer;
 import org.neo4j.graphalgo.api.WeightedRelationshipConsumer;
 import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphdb.*;
+import org.neo4j.kernel.api.Statement;
+import org.neo4j.kernel.impl.core.ThreadToStatementContextBridge;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.graphalgo.TestDatabaseCreator;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.anyInt;
 import static org.mockito.Matchers.anyLong;
 import static org.mockito.Matchers.eq;
@@ -52,6 +58,8 @@ public class HeavyGraphFactoryTest {
     private static long id1;
     private static long id2;
     private static long id3;
+    private static int rel1Type;
+    private static int rel3Type;
 
     @Mock
     private RelationshipConsumer relationConsumer;
@@ -59,6 +67,9 @@ public class HeavyGraphFactoryTest {
     @Mock
     private WeightedRelationshipConsumer weightedRelationConsumer;
 
+    @Mock
+    private TypedRelationshipConsumer typedRelationConsumer;
+
     @BeforeClass
     public static void setup() {
 
@@ -80,6 +91,11 @@ public class HeavyGraphFactoryTest {
             id2 = node2.getId();
             id3 = node3.getId();
         }
+        try (final Transaction transaction = db.beginTx()) {
+            rel1Type = typeId("REL1");
+            rel3Type = typeId("REL3");
+            transaction.success();
+        }
 
     }
 
@@ -161,4 +177,65 @@ public class HeavyGraphFactoryTest {
                 .accept(eq(graph.toMappedNodeId(id1)), eq(graph.toMappedNodeId(id2)), anyLong(), eq(1.0));
     }
 
+    @Test
+    public void testWithRelationshipTypes() throws Exception {
+        final HeavyGraph graph = (HeavyGraph) new GraphLoader((GraphDatabaseAPI) db)
+                .withAnyLabel()
+                .withAnyRelationshipType()
+                .withRelationshipTypes()
+                .load(HeavyGraphFactory.class);
+
+        assertTypes(graph);
+    }
+
+    @Test
+    public void testWithRelationshipTypesSortedInParallel() throws Exception {
+        final HeavyGraph graph = (HeavyGraph) new GraphLoader((GraphDatabaseAPI) db)
+                .withAnyLabel()
+                .withAnyRelationshipType()
+                .withRelationshipTypes()
+                .withSort(true)
+                .withBatchSize(1)
+                .withExecutorService(Pools.DEFAULT)
+                .load(HeavyGraphFactory.class);
+
+        assertTypes(graph);
+    }
+
+    @Test
+    public void testWithoutRelationshipTypes() throws Exception {
+        final HeavyGraph graph = (HeavyGraph) new GraphLoader((GraphDatabaseAPI) db)
+                .withAnyLabel()
+                .withAnyRelationshipType()
+                .load(HeavyGraphFactory.class);
+
+        assertFalse(graph.hasRelationshipTypes());
+        assertEquals(-1, graph.relationshipType(graph.toMappedNodeId(id1), graph.toMappedNodeId(id2)));
+        graph.forEachRelationship(graph.toMappedNodeId(id1), Direction.OUTGOING, typedRelationConsumer);
+        verify(typedRelationConsumer, times(2)).accept(eq(graph.toMappedNodeId(id1)), anyInt(), anyLong(), eq((short) -1));
+    }
+
+    private void assertTypes(HeavyGraph graph) {
+        final int node1 = graph.toMappedNodeId(id1);
+        final int node2 = graph.toMappedNodeId(id2);
+        final int node3 = graph.toMappedNodeId(id3);
+        assertTrue(graph.hasRelationshipTypes());
+        assertEquals(rel1Type, graph.relationshipType(node1, node2));
+        assertEquals(rel1Type, graph.relationshipType(node2, node1));
+        assertEquals(rel3Type, graph.relationshipType(node2, node3));
+        assertEquals(-1, graph.relationshipType(node2, node2));
+
+        graph.forEachRelationship(node2, Direction.BOTH, typedRelationConsumer);
+        verify(typedRelationConsumer, times(1)).accept(eq(node2), eq(node1), anyLong(), eq((short) rel1Type));
+        verify(typedRelationConsumer, times(1)).accept(eq(node2), eq(node3), anyLong(), eq((short) rel3Type));
+        Mockito.reset(typedRelationConsumer);
+    }
+
+    private static int typeId(String name) {
+        try (Statement statement = ((GraphDatabaseAPI) db).getDependencyResolver()
+                .resolveDependency(ThreadToStatementContextBridge.class)
+                .get()) {
+            return statement.readOperations().relationshipTypeGetForName(name);
+        }
+    }
 }
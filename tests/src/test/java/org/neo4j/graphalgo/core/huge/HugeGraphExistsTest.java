@@ -0,0 +1,128 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.huge;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class HugeGraphExistsTest {
+
+    private static final int NODES = 1000;
+    // more than a few skip blocks for the hub
+    private static final int HUB_DEGREE = 700;
+
+    @Rule
+    public ImpermanentDatabaseRule db = new ImpermanentDatabaseRule();
+
+    private final Set<Long> outgoing = new HashSet<>();
+    private final Set<Long> incoming = new HashSet<>();
+
+    @Before
+    public void setup() {
+        Random random = new Random(42L);
+        for (int i = 0; i < HUB_DEGREE; i++) {
+            outgoing.add(1L + random.nextInt(NODES - 1));
+        }
+        for (int i = 0; i < 100; i++) {
+            incoming.add(1L + random.nextInt(NODES - 1));
+        }
+        db.execute("UNWIND range(0, $nodes - 1) AS i CREATE (:Node {id: i})",
+                Collections.singletonMap("nodes", NODES)).close();
+        db.execute("MATCH (h:Node {id: 0}), (n:Node) WHERE n.id IN $targets CREATE (h)-[:TYPE {weight: n.id}]->(n)",
+                Collections.singletonMap("targets", outgoing)).close();
+        db.execute("MATCH (h:Node {id: 0}), (n:Node) WHERE n.id IN $sources CREATE (n)-[:TYPE {weight: -n.id}]->(h)",
+                Collections.singletonMap("sources", incoming)).close();
+    }
+
+    @Test
+    public void shouldFindRelationshipsOfHighDegreeNodes() throws Exception {
+        HugeGraph graph = load(Direction.BOTH);
+        long hub = graph.toHugeMappedNodeId(0L);
+        assertEquals(outgoing.size(), graph.degree(hub, Direction.OUTGOING));
+
+        for (long id = 0; id < NODES; id++) {
+            long node = graph.toHugeMappedNodeId(id);
+            assertEquals("(0)->(" + id + ")", outgoing.contains(id), graph.exists(hub, node, Direction.OUTGOING));
+            assertEquals("(0)<-(" + id + ")", incoming.contains(id), graph.exists(hub, node, Direction.INCOMING));
+            assertEquals("(0)--(" + id + ")",
+                    outgoing.contains(id) || incoming.contains(id),
+                    graph.exists(hub, node, Direction.BOTH));
+            assertEquals("(" + id + ")<-(0)", outgoing.contains(id), graph.exists(node, hub, Direction.INCOMING));
+        }
+    }
+
+    @Test
+    public void shouldFindWeightsOfHighDegreeNodes() throws Exception {
+        HugeGraph graph = load(Direction.BOTH);
+        long hub = graph.toHugeMappedNodeId(0L);
+        for (long id : outgoing) {
+            assertEquals(id, graph.weightOf(hub, graph.toHugeMappedNodeId(id)), 0.0);
+        }
+        for (long id : incoming) {
+            if (!outgoing.contains(id)) {
+                assertEquals(-id, graph.weightOf(hub, graph.toHugeMappedNodeId(id)), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void shouldOnlySearchTheGivenDirection() throws Exception {
+        HugeGraph graph = load(Direction.BOTH);
+        long hub = graph.toHugeMappedNodeId(0L);
+        long onlyIncoming = incoming.stream().filter(id -> !outgoing.contains(id)).findFirst().orElseThrow(AssertionError::new);
+        long node = graph.toHugeMappedNodeId(onlyIncoming);
+        assertFalse(graph.exists(hub, node, Direction.OUTGOING));
+        assertTrue(graph.exists(hub, node, Direction.INCOMING));
+    }
+
+    @Test
+    public void shouldFindRelationshipsOfUndirectedGraphs() throws Exception {
+        HugeGraph graph = (HugeGraph) new GraphLoader(db)
+                .asUndirected(true)
+                .load(HugeGraphFactory.class);
+        long hub = graph.toHugeMappedNodeId(0L);
+        for (long id = 1; id < NODES; id++) {
+            long node = graph.toHugeMappedNodeId(id);
+            boolean adjacent = outgoing.contains(id) || incoming.contains(id);
+            assertEquals(adjacent, graph.exists(hub, node, Direction.OUTGOING));
+            assertEquals(adjacent, graph.exists(node, hub, Direction.OUTGOING));
+        }
+    }
+
+    private HugeGraph load(Direction direction) {
+        return (HugeGraph) new GraphLoader(db)
+                .withRelationshipWeightsFromProperty("weight", 0.0)
+                .withDirection(direction)
+                .load(HugeGraphFactory.class);
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.huge;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.ByteArray;
+import org.neo4j.graphalgo.core.utils.paged.DoubleArray;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public final class HugeGraphOffHeapTest {
+
+    private static final int NODES = 500;
+
+    @Rule
+    public ImpermanentDatabaseRule db = new ImpermanentDatabaseRule();
+
+    @Before
+    public void setup() {
+        db.execute("UNWIND range(0, $nodes - 1) AS i CREATE (:Node {id: i})",
+                Collections.singletonMap("nodes", NODES)).close();
+        db.execute("MATCH (a:Node), (b:Node) WHERE (a.id * 31 + b.id * 17) % 23 = 0 CREATE (a)-[:TYPE {weight: a.id + b.id / 1000.0}]->(b)").close();
+    }
+
+    @Test
+    public void shouldLoadTheSameGraphOffHeap() throws Exception {
+        HugeGraph heap = load(AllocationTracker.EMPTY, false);
+        HugeGraph offHeap = load(AllocationTracker.EMPTY, true);
+        assertEquals(heap.nodeCount(), offHeap.nodeCount());
+        for (long id = 0; id < NODES; id++) {
+            long node = heap.toHugeMappedNodeId(id);
+            assertEquals(node, offHeap.toHugeMappedNodeId(id));
+            for (Direction direction : new Direction[]{Direction.OUTGOING, Direction.INCOMING}) {
+                assertEquals(relationships(heap, node, direction), relationships(offHeap, node, direction));
+            }
+        }
+    }
+
+    @Test
+    public void shouldFreeTheMemoryOnRelease() throws Exception {
+        AllocationTracker heapTracker = AllocationTracker.create();
+        load(heapTracker, false).release();
+
+        AllocationTracker tracker = AllocationTracker.create();
+        HugeGraph graph = load(tracker, true);
+        long loaded = tracker.tracked();
+        assertTrue(loaded > 0L);
+        graph.release();
+        assertTrue(tracker.tracked() < loaded);
+        assertEquals(heapTracker.tracked(), tracker.tracked());
+        // releasing twice must not free the pages again
+        graph.release();
+    }
+
+    @Test
+    public void shouldReadAndWriteOffHeapArrays() throws Exception {
+        AllocationTracker tracker = AllocationTracker.create();
+        DoubleArray doubles = DoubleArray.newOffHeapArray(100_000L, tracker);
+        ByteArray bytes = ByteArray.newOffHeapArray(100_000L, tracker);
+        assertTrue(tracker.tracked() > 0L);
+        assertEquals(0.0, doubles.get(99_999L), 0.0);
+        assertEquals(0, bytes.get(99_999L));
+        for (long i = 0; i < 100_000L; i += 7) {
+            doubles.set(i, i / 3.0);
+            bytes.set(i, (byte) i);
+        }
+        for (long i = 0; i < 100_000L; i += 7) {
+            assertEquals(i / 3.0, doubles.get(i), 0.0);
+            assertEquals((byte) i, bytes.get(i));
+        }
+        tracker.remove(doubles.release());
+        tracker.remove(bytes.release());
+        assertEquals(0L, tracker.tracked());
+    }
+
+    private HugeGraph load(AllocationTracker tracker, boolean offHeap) {
+        return (HugeGraph) new GraphLoader(db)
+                .withRelationshipWeightsFromProperty("weight", 0.0)
+                .withDirection(Direction.BOTH)
+                .withAllocationTracker(tracker)
+                .withOffHeapMemory(offHeap)
+                .withPositionalRelationshipWeights()
+                .load(HugeGraphFactory.class);
+    }
+
+    private static List<String> relationships(HugeGraph graph, long node, Direction direction) {
+        List<String> relationships = new ArrayList<>();
+        graph.forEachRelationship(node, direction, (long source, long target, double weight) -> {
+            relationships.add(source + "-" + target + ":" + weight);
+            return true;
+        });
+        return relationships;
+    }
+}
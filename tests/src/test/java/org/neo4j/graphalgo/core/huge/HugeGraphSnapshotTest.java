@@ -0,0 +1,254 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.huge;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphalgo.LoadGraphProc;
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.loadgraph.LoadGraphFactory;
+import org.neo4j.graphalgo.core.utils.AlgoDirectory;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.graphdb.Result;
+import org.neo4j.graphdb.factory.GraphDatabaseBuilder;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public final class HugeGraphSnapshotTest {
+
+    private static final int NODES = 300;
+
+    @ClassRule
+    public static TemporaryFolder directory = new TemporaryFolder();
+
+    @Rule
+    public ImpermanentDatabaseRule db = new ImpermanentDatabaseRule() {
+        @Override
+        protected void configure(GraphDatabaseBuilder builder) {
+            builder.setConfig(AlgoDirectory.SETTING, directory.getRoot().getAbsolutePath());
+        }
+    };
+
+    @Rule
+    public ExpectedException exception = ExpectedException.none();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path snapshot;
+
+    @Before
+    public void setup() throws Exception {
+        db.execute("UNWIND range(0, $nodes - 1) AS i CREATE (:Node {id: i})",
+                Collections.singletonMap("nodes", NODES)).close();
+        // a gap in the node ids
+        db.execute("MATCH (n:Node) WHERE n.id % 10 = 3 DETACH DELETE n").close();
+        db.execute("MATCH (a:Node), (b:Node) WHERE (a.id * 7 + b.id * 13) % 19 = 0 CREATE (a)-[:TYPE {weight: a.id - b.id / 100.0}]->(b)").close();
+        db.resolveDependency(Procedures.class).registerProcedure(LoadGraphProc.class);
+        snapshot = folder.getRoot().toPath().resolve("graph.snapshot");
+    }
+
+    @After
+    public void tearDown() {
+        LoadGraphFactory.remove("snapshot");
+    }
+
+    @Test
+    public void shouldReadTheSameGraph() throws Exception {
+        HugeGraph graph = load(new GraphLoader(db).withDirection(Direction.BOTH));
+        assertTrue(HugeGraphSnapshot.write(graph, snapshot) > 0L);
+        HugeGraph read = HugeGraphSnapshot.read(snapshot, AllocationTracker.EMPTY);
+        assertSameGraph(graph, read, Direction.OUTGOING, Direction.INCOMING);
+
+        long source = graph.toHugeMappedNodeId(0L);
+        long target = graph.toHugeMappedNodeId(19L);
+        assertEquals(graph.exists(source, target, Direction.OUTGOING), read.exists(source, target, Direction.OUTGOING));
+        assertEquals(graph.weightOf(source, target), read.weightOf(source, target), 0.0);
+    }
+
+    @Test
+    public void shouldReadUndirectedGraphs() throws Exception {
+        HugeGraph graph = load(new GraphLoader(db).asUndirected(true));
+        HugeGraphSnapshot.write(graph, snapshot);
+        assertSameGraph(graph, HugeGraphSnapshot.read(snapshot, AllocationTracker.EMPTY), Direction.OUTGOING);
+    }
+
+    @Test
+    public void shouldReleaseMappedGraphs() throws Exception {
+        HugeGraphSnapshot.write(load(new GraphLoader(db).withDirection(Direction.OUTGOING)), snapshot);
+        AllocationTracker tracker = AllocationTracker.create();
+        HugeGraph read = HugeGraphSnapshot.read(snapshot, tracker);
+        long loaded = tracker.tracked();
+        read.release();
+        assertTrue(tracker.tracked() < loaded);
+    }
+
+    @Test
+    public void shouldNotTrackMoreThanTheLoadedGraph() throws Exception {
+        AllocationTracker loadTracker = AllocationTracker.create();
+        HugeGraphSnapshot.write(load(new GraphLoader(db).withDirection(Direction.BOTH).withAllocationTracker(loadTracker)), snapshot);
+        AllocationTracker readTracker = AllocationTracker.create();
+        HugeGraphSnapshot.read(snapshot, readTracker);
+        // the id map is read once, not loaded and copied into a second one
+        assertTrue(readTracker.tracked() <= loadTracker.tracked());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldOnlySaveHugeGraphs() throws Exception {
+        Graph graph = new GraphLoader(db).load(HeavyGraphFactory.class);
+        HugeGraphSnapshot.write(graph, snapshot);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void shouldOnlySaveWeightsAlongsideTheAdjacency() throws Exception {
+        Graph graph = new GraphLoader(db)
+                .withRelationshipWeightsFromProperty("weight", 0.5)
+                .load(HugeGraphFactory.class);
+        HugeGraphSnapshot.write(graph, snapshot);
+    }
+
+    @Test
+    public void shouldSaveAndLoadNamedGraphs() throws Exception {
+        db.execute("CALL algo.graph.load('snapshot', 'Node', 'TYPE', {graph: 'huge', relationshipWeight: 'weight', positionalWeights: true})").close();
+        Map<String, Object> params = new HashMap<>();
+        params.put("path", "named.snapshot");
+        try (Result result = db.execute("CALL algo.graph.save('snapshot', $path)", params)) {
+            Map<String, Object> row = result.next();
+            assertEquals((long) NODES - NODES / 10, row.get("nodes"));
+            assertTrue((long) row.get("bytes") > 0L);
+        }
+        long savedNodes;
+        try (LoadGraphFactory.Lease lease = LoadGraphFactory.acquire("snapshot")) {
+            savedNodes = lease.graph().nodeCount();
+        }
+        LoadGraphFactory.remove("snapshot");
+
+        try (Result result = db.execute("CALL algo.graph.load('snapshot', null, null, {source: $path})", params)) {
+            Map<String, Object> row = result.next();
+            assertEquals("huge", row.get("graph"));
+            assertEquals((long) NODES - NODES / 10, row.get("nodes"));
+        }
+        try (LoadGraphFactory.Lease lease = LoadGraphFactory.acquire("snapshot")) {
+            HugeGraph loaded = (HugeGraph) lease.graph();
+            assertEquals(savedNodes, loaded.nodeCount());
+            assertTrue(loaded.degree(loaded.toHugeMappedNodeId(0L), Direction.OUTGOING) > 0);
+        }
+    }
+
+    @Test
+    public void shouldSaveRefreshedGraphsWithChanges() throws Exception {
+        db.execute("CALL algo.graph.load('snapshot', 'Node', 'TYPE', {graph: 'huge', refresh: true})").close();
+        db.execute("MATCH (a:Node {id: 0}), (b:Node {id: 1}) CREATE (a)-[:TYPE]->(b)").close();
+        try (Result result = db.execute("CALL algo.graph.info('snapshot')")) {
+            assertEquals("huge", result.next().get("type"));
+        }
+        try (Result result = db.execute("CALL algo.graph.save('snapshot', 'refreshed.snapshot')")) {
+            assertTrue((long) result.next().get("bytes") > 0L);
+        }
+
+        HugeGraph read = HugeGraphSnapshot.read(directory.getRoot().toPath().resolve("refreshed.snapshot"), AllocationTracker.EMPTY);
+        assertTrue(read.exists(read.toHugeMappedNodeId(nodeId(0)), read.toHugeMappedNodeId(nodeId(1)), Direction.OUTGOING));
+        read.release();
+    }
+
+    @Test
+    public void shouldNotSaveOutsideOfTheConfiguredDirectory() throws Exception {
+        db.execute("CALL algo.graph.load('snapshot', 'Node', 'TYPE', {graph: 'huge'})").close();
+        exception.expectMessage("must be relative");
+        db.execute("CALL algo.graph.save('snapshot', $path)", Collections.singletonMap("path", snapshot.toString())).close();
+    }
+
+    @Test
+    public void shouldNotLoadFromParentDirectories() throws Exception {
+        exception.expectMessage("must not contain '..'");
+        db.execute("CALL algo.graph.load('snapshot', null, null, {source: '../graph.snapshot'})").close();
+    }
+
+    @Test
+    public void shouldNotOverwriteOtherFiles() throws Exception {
+        Path other = directory.getRoot().toPath().resolve("other.txt");
+        Files.write(other, Collections.singletonList("not a snapshot"));
+        db.execute("CALL algo.graph.load('snapshot', 'Node', 'TYPE', {graph: 'huge'})").close();
+        try {
+            db.execute("CALL algo.graph.save('snapshot', 'other.txt')").close();
+            fail("other files must not be overwritten");
+        } catch (QueryExecutionException e) {
+            assertTrue(e.getMessage().contains("is not a graph snapshot"));
+        }
+        assertEquals(Collections.singletonList("not a snapshot"), Files.readAllLines(other));
+    }
+
+    private long nodeId(int id) {
+        try (Result result = db.execute("MATCH (n:Node {id: $id}) RETURN id(n) AS node", Collections.singletonMap("id", id))) {
+            return (long) result.next().get("node");
+        }
+    }
+
+    private HugeGraph load(GraphLoader loader) {
+        return (HugeGraph) loader
+                .withRelationshipWeightsFromProperty("weight", 0.5)
+                .withPositionalRelationshipWeights()
+                .load(HugeGraphFactory.class);
+    }
+
+    private static void assertSameGraph(HugeGraph expected, HugeGraph actual, Direction... directions) {
+        assertEquals(expected.nodeCount(), actual.nodeCount());
+        for (long id = 0; id < NODES; id++) {
+            assertEquals(expected.toHugeMappedNodeId(id), actual.toHugeMappedNodeId(id));
+        }
+        for (long node = 0; node < expected.nodeCount(); node++) {
+            assertEquals(expected.toOriginalNodeId(node), actual.toOriginalNodeId(node));
+            for (Direction direction : directions) {
+                assertEquals(expected.degree(node, direction), actual.degree(node, direction));
+                assertEquals(relationships(expected, node, direction), relationships(actual, node, direction));
+            }
+        }
+    }
+
+    private static List<String> relationships(HugeGraph graph, long node, Direction direction) {
+        List<String> relationships = new ArrayList<>();
+        graph.forEachRelationship(node, direction, (long source, long target, double weight) -> {
+            relationships.add(source + "-" + target + ":" + weight);
+            return true;
+        });
+        return relationships;
+    }
+}
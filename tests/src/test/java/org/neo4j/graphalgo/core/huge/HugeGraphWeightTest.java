@@ -20,8 +20,10 @@ package org.neo4j.graphalgo.core.huge;
 
 import org.junit.Rule;
 import org.junit.Test;
+import org.neo4j.graphalgo.api.Graph;
 import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
 import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.core.utils.paged.MemoryUsage;
 import org.neo4j.graphalgo.core.utils.paged.PageUtil;
@@ -34,6 +36,10 @@ import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.test.rule.ImpermanentDatabaseRule;
 import org.neo4j.values.storable.Values;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import static org.junit.Assert.assertEquals;
 
 public final class HugeGraphWeightTest {
@@ -63,6 +69,100 @@ public final class HugeGraphWeightTest {
         });
     }
 
+    @Test
+    public void shouldIterateWeightsAlongsideTargets() throws Exception {
+        mkDb(WEIGHT_BATCH_SIZE << 1, 2);
+        HugeGraph graph = loadGraph(db, Direction.BOTH, true);
+
+        graph.forEachNode((long node) -> {
+            graph.forEachRelationship(node, Direction.OUTGOING, (src, tgt, weight) -> {
+                int fakeId = ((int) src << 16) | (int) tgt & 0xFFFF;
+                assertEquals(
+                        "Wrong weight for (" + src + ")->(" + tgt + ")",
+                        fakeId, (long) weight);
+                return true;
+            });
+            graph.forEachRelationship(node, Direction.INCOMING, (src, tgt, weight) -> {
+                int fakeId = ((int) tgt << 16) | (int) src & 0xFFFF;
+                assertEquals(
+                        "Wrong weight for (" + src + ")<-(" + tgt + ")",
+                        fakeId, (long) weight);
+                assertEquals(weight, graph.weightOf(tgt, src), 0.0);
+                return true;
+            });
+            return true;
+        });
+    }
+
+    @Test
+    public void shouldUseDefaultWeightForMissingProperties() throws Exception {
+        db.execute("CREATE (a), (b), (c) CREATE (a)-[:TYPE {weight: 2.0}]->(b), (a)-[:TYPE]->(c), (b)-[:TYPE]->(b)").close();
+        for (boolean positionalWeights : new boolean[]{false, true}) {
+            HugeGraph graph = (HugeGraph) new GraphLoader(db)
+                    .withRelationshipWeightsFromProperty("weight", 42.0)
+                    .withDirection(Direction.OUTGOING)
+                    .withPositionalRelationshipWeights(positionalWeights)
+                    .load(HugeGraphFactory.class);
+
+            List<Double> weights = new ArrayList<>();
+            graph.forEachRelationship(0L, Direction.OUTGOING, (src, tgt, weight) -> weights.add(weight));
+            assertEquals(Arrays.asList(2.0, 42.0), weights);
+            assertEquals(2.0, graph.weightOf(0L, 1L), 0.0);
+            assertEquals(42.0, graph.weightOf(0L, 2L), 0.0);
+            assertEquals(42.0, graph.weightOf(1L, 1L), 0.0);
+            // not adjacent
+            assertEquals(42.0, graph.weightOf(2L, 0L), 0.0);
+        }
+    }
+
+    @Test
+    public void shouldResolveParallelRelationshipsLikeTheHeavyGraph() throws Exception {
+        db.execute("CREATE (a), (b), (c) CREATE (a)-[:TYPE {weight: 1.0}]->(c), (a)-[:TYPE {weight: 2.0}]->(b), (a)-[:TYPE {weight: 3.0}]->(c)").close();
+        Graph heavyGraph = new GraphLoader(db)
+                .withRelationshipWeightsFromProperty("weight", 0.0)
+                .withDirection(Direction.OUTGOING)
+                .load(HeavyGraphFactory.class);
+        for (boolean positionalWeights : new boolean[]{false, true}) {
+            HugeGraph graph = (HugeGraph) new GraphLoader(db)
+                    .withRelationshipWeightsFromProperty("weight", 0.0)
+                    .withDirection(Direction.OUTGOING)
+                    .withPositionalRelationshipWeights(positionalWeights)
+                    .load(HugeGraphFactory.class);
+
+            List<Double> weights = new ArrayList<>();
+            graph.forEachRelationship(0L, Direction.OUTGOING, (src, tgt, weight) -> weights.add(weight));
+            assertEquals(2, weights.size());
+            assertEquals(2.0, weights.get(0), 0.0);
+            // (a)->(c) was created twice, the last relationship read wins in both graphs
+            assertEquals(heavyGraph.weightOf(0, 2), weights.get(1), 0.0);
+            assertEquals(heavyGraph.weightOf(0, 2), graph.weightOf(0L, 2L), 0.0);
+        }
+    }
+
+    @Test
+    public void shouldShareTheWeightOfBothDirectionsLikeTheHeavyGraph() throws Exception {
+        db.execute("CREATE (a), (b), (c) CREATE (a)-[:TYPE {weight: 1.0}]->(b), (c)-[:TYPE {weight: 2.0}]->(a)").close();
+        Graph heavyGraph = new GraphLoader(db)
+                .withRelationshipWeightsFromProperty("weight", 0.0)
+                .withDirection(Direction.BOTH)
+                .load(HeavyGraphFactory.class);
+        HugeGraph graph = (HugeGraph) new GraphLoader(db)
+                .withRelationshipWeightsFromProperty("weight", 0.0)
+                .withDirection(Direction.BOTH)
+                .load(HugeGraphFactory.class);
+
+        for (long node = 0L; node < 3L; node++) {
+            for (Direction direction : new Direction[]{Direction.OUTGOING, Direction.INCOMING}) {
+                graph.forEachRelationship(node, direction, (src, tgt, weight) -> {
+                    assertEquals(heavyGraph.weightOf((int) src, (int) tgt), weight, 0.0);
+                    assertEquals(weight, graph.weightOf(src, tgt), 0.0);
+                    assertEquals(weight, graph.weightOf(tgt, src), 0.0);
+                    return true;
+                });
+            }
+        }
+    }
+
     @Test(timeout = 10000)
     public void shouldLoadMoreWeights() throws Exception {
         mkDb(WEIGHT_BATCH_SIZE, 4);
@@ -105,9 +205,14 @@ public final class HugeGraphWeightTest {
     }
 
     private HugeGraph loadGraph(final GraphDatabaseAPI db) {
+        return loadGraph(db, Direction.OUTGOING, false);
+    }
+
+    private HugeGraph loadGraph(final GraphDatabaseAPI db, Direction direction, boolean positionalWeights) {
         return (HugeGraph) new GraphLoader(db)
                 .withRelationshipWeightsFromProperty("weight", 0)
-                .withDirection(Direction.OUTGOING)
+                .withDirection(direction)
+                .withPositionalRelationshipWeights(positionalWeights)
                 .withExecutorService(Pools.DEFAULT)
                 .withBatchSize(BATCH_SIZE)
                 .load(HugeGraphFactory.class);
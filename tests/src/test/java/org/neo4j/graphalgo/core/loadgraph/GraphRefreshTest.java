@@ -0,0 +1,381 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.loadgraph;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphalgo.PageRankProc;
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.GraphFactory;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.huge.HugeDeltaGraph;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public final class GraphRefreshTest {
+
+    private static final String NAME = "refreshed";
+
+    @Rule
+    public ImpermanentDatabaseRule db = new ImpermanentDatabaseRule();
+
+    @Before
+    public void setup() throws Exception {
+        db.resolveDependency(Procedures.class).registerProcedure(PageRankProc.class);
+        db.execute("CREATE (a:Node {name:'a'})-[:TYPE {w:1.0}]->(b:Node {name:'b'})-[:TYPE {w:2.0}]->(c:Node {name:'c'})-[:TYPE {w:3.0}]->(a), " +
+                "(c)-[:OTHER {w:4.0}]->(b), (d:Other {name:'d'})").close();
+    }
+
+    @After
+    public void tearDown() {
+        LoadGraphFactory.remove(NAME);
+    }
+
+    @Test
+    public void shouldApplyChangesToAnOverlay() throws Exception {
+        register(HugeGraphFactory.class, Direction.BOTH, false, 100L);
+        change();
+
+        Graph graph = get(NAME);
+        assertTrue(graph instanceof HugeDeltaGraph);
+        assertEquals(0, LoadGraphFactory.pendingChanges(NAME));
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.OUTGOING);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.INCOMING);
+    }
+
+    @Test
+    public void shouldApplyChangesToAnUndirectedOverlay() throws Exception {
+        register(HugeGraphFactory.class, Direction.OUTGOING, true, 100L);
+        change();
+
+        Graph graph = get(NAME);
+        assertTrue(graph instanceof HugeDeltaGraph);
+        // the anti-parallel relationships of a and c have different weights at both ends when loaded
+        assertEquals(
+                relationships(load(HugeGraphFactory.class, Direction.OUTGOING, true), Direction.OUTGOING, false),
+                relationships(graph, Direction.OUTGOING, false));
+    }
+
+    @Test
+    public void shouldApplyChangesToAnUnweightedOverlay() throws Exception {
+        register(HugeGraphFactory.class, Direction.OUTGOING, false, 100L, null);
+        change();
+
+        Graph graph = get(NAME);
+        assertTrue(graph instanceof HugeDeltaGraph);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.OUTGOING, false, null), graph, Direction.OUTGOING);
+    }
+
+    @Test
+    public void shouldResolveWeightsOfNodesWithOutgoingAndIncomingChanges() throws Exception {
+        register(HugeGraphFactory.class, Direction.BOTH, false, 100L);
+        // an outgoing change of a without its relationship to c, and a changed weight of the incoming one
+        db.execute("MATCH ({name:'a'})-[r:TYPE]->({name:'b'}) DELETE r").close();
+        db.execute("MATCH ({name:'c'})-[r:TYPE]->({name:'a'}) SET r.w = 9.0").close();
+
+        Graph graph = get(NAME);
+        assertTrue(graph instanceof HugeDeltaGraph);
+        Graph expected = load(HugeGraphFactory.class, Direction.BOTH, false);
+        assertEquals(
+                expected.weightOf(expected.toMappedNodeId(nodeId("a")), expected.toMappedNodeId(nodeId("c"))),
+                graph.weightOf(graph.toMappedNodeId(nodeId("a")), graph.toMappedNodeId(nodeId("c"))),
+                0.0);
+        assertSameGraph(expected, graph, Direction.INCOMING);
+    }
+
+    @Test
+    public void shouldKeepRelationshipsWithParallelOnesLeft() throws Exception {
+        register(HugeGraphFactory.class, Direction.BOTH, false, 100L);
+        db.execute("MATCH (b {name:'b'}), (c {name:'c'}) CREATE (b)-[:TYPE {w:8.0}]->(c)").close();
+        get(NAME);
+
+        // the parallel relationship is left, the deletions are resolved when they are applied
+        db.execute("MATCH ({name:'b'})-[r:TYPE {w:2.0}]->({name:'c'}) DELETE r").close();
+        db.execute("MATCH ({name:'c'})-[r:TYPE]->({name:'a'}) DELETE r").close();
+        db.execute("MATCH (c {name:'c'}), (a {name:'a'}) CREATE (c)-[:TYPE {w:9.0}]->(a)").close();
+        Graph graph = get(NAME);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.OUTGOING);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.INCOMING);
+
+        db.execute("MATCH ({name:'b'})-[r:TYPE]->({name:'c'}) DELETE r").close();
+        graph = get(NAME);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.OUTGOING);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.INCOMING);
+    }
+
+    @Test
+    public void shouldReloadWhenNodesAreDeleted() throws Exception {
+        register(HugeGraphFactory.class, Direction.BOTH, false, 100L);
+        db.execute("MATCH (b {name:'b'}) DETACH DELETE b").close();
+
+        Graph graph = get(NAME);
+        assertFalse(graph instanceof HugeDeltaGraph);
+        assertEquals(2L, graph.nodeCount());
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.OUTGOING);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.BOTH, false), graph, Direction.INCOMING);
+    }
+
+    @Test
+    public void shouldWriteResultsAfterNodesAreDeleted() throws Exception {
+        register(HugeGraphFactory.class, Direction.OUTGOING, false, 100L);
+        db.execute("CREATE (:Node {name:'g'})").close();
+        db.execute("MATCH (b {name:'b'}) DETACH DELETE b").close();
+        db.execute("MATCH (g {name:'g'}) DELETE g").close();
+
+        long nodes = (long) db.execute("CALL algo.pageRank(null, null, {graph:$name, write:true, writeProperty:'rank'}) YIELD nodes",
+                Collections.singletonMap("name", NAME)).next().get("nodes");
+        assertEquals(2L, nodes);
+        assertEquals(0L, db.execute("MATCH (n:Node) WHERE n.rank IS NULL RETURN count(*) AS missing").next().get("missing"));
+    }
+
+    @Test
+    public void shouldCompactLargeOverlays() throws Exception {
+        register(HugeGraphFactory.class, Direction.OUTGOING, false, 2L);
+        change();
+
+        Graph graph = get(NAME);
+        assertFalse(graph instanceof HugeDeltaGraph);
+        assertTrue(graph instanceof HugeGraph);
+        assertSameGraph(load(HugeGraphFactory.class, Direction.OUTGOING, false), graph, Direction.OUTGOING);
+    }
+
+    @Test
+    public void shouldReloadOtherGraphs() throws Exception {
+        register(HeavyGraphFactory.class, Direction.OUTGOING, false, 100L);
+        change();
+
+        Graph graph = get(NAME);
+        assertSameGraph(load(HeavyGraphFactory.class, Direction.OUTGOING, false), graph, Direction.OUTGOING);
+    }
+
+    @Test
+    public void shouldReloadWhenNodesWithRelationshipsLoseTheirLabel() throws Exception {
+        register(HugeGraphFactory.class, Direction.OUTGOING, false, 100L);
+        db.execute("MATCH (n {name:'b'}) REMOVE n:Node").close();
+
+        Graph graph = get(NAME);
+        assertFalse(graph instanceof HugeDeltaGraph);
+        assertEquals(2L, graph.nodeCount());
+        assertSameGraph(load(HugeGraphFactory.class, Direction.OUTGOING, false), graph, Direction.OUTGOING);
+    }
+
+    @Test
+    public void shouldServeThePreviousGraphWhileLoadingAgain() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        Graph graph = load(HeavyGraphFactory.class, Direction.OUTGOING, false);
+        GraphRefresh refresh = new GraphRefresh(
+                db.getGraphDatabaseAPI(),
+                "Node",
+                "TYPE",
+                "w",
+                1.0,
+                Direction.OUTGOING,
+                false,
+                100L,
+                () -> {
+                    loading.countDown();
+                    try {
+                        loaded.await();
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                    return load(HeavyGraphFactory.class, Direction.OUTGOING, false);
+                });
+        LoadGraphFactory.set(NAME, graph, 0L, refresh);
+        db.execute("MATCH (a {name:'a'}), (b {name:'b'}) CREATE (b)-[:TYPE]->(a)").close();
+
+        CompletableFuture<Graph> reload = CompletableFuture.supplyAsync(() -> get(NAME));
+        assertTrue(loading.await(10, TimeUnit.SECONDS));
+        // the catalog is not locked while the graph is loaded
+        try (LoadGraphFactory.Lease lease = LoadGraphFactory.acquire(NAME)) {
+            assertTrue(graph == lease.graph());
+        }
+        loaded.countDown();
+
+        Graph reloaded = reload.get(10, TimeUnit.SECONDS);
+        assertTrue(reloaded == get(NAME));
+        assertEquals(2, reloaded.degree(reloaded.toMappedNodeId(nodeId("b")), Direction.OUTGOING));
+    }
+
+    @Test
+    public void shouldIgnoreUnrelatedChanges() throws Exception {
+        Graph graph = register(HugeGraphFactory.class, Direction.OUTGOING, false, 100L);
+        db.execute("MATCH (c {name:'c'}), (b {name:'b'}) CREATE (b)-[:OTHER]->(c), (:Other)").close();
+        db.execute("MATCH ()-[r:TYPE]->() SET r.other = 42").close();
+
+        assertEquals(0, LoadGraphFactory.pendingChanges(NAME));
+        assertTrue(graph == get(NAME));
+    }
+
+    @Test
+    public void shouldNotApplyChangesWhileTheGraphIsInUse() throws Exception {
+        Graph graph = register(HugeGraphFactory.class, Direction.OUTGOING, false, 100L);
+        LoadGraphFactory.Lease lease = LoadGraphFactory.acquire(NAME);
+        assertTrue(graph == lease.graph());
+        db.execute("MATCH (a {name:'a'}), (b {name:'b'}) CREATE (b)-[:TYPE]->(a)").close();
+
+        assertEquals(1, LoadGraphFactory.pendingChanges(NAME));
+        assertTrue(graph == get(NAME));
+        assertEquals(1, graph.degree(graph.toMappedNodeId(nodeId("b")), Direction.OUTGOING));
+
+        lease.close();
+        Graph refreshed = get(NAME);
+        assertEquals(0, LoadGraphFactory.pendingChanges(NAME));
+        assertEquals(2, refreshed.degree(refreshed.toMappedNodeId(nodeId("b")), Direction.OUTGOING));
+    }
+
+    @Test
+    public void shouldStopRecordingWhenRemoved() throws Exception {
+        register(HugeGraphFactory.class, Direction.OUTGOING, false, 100L);
+        assertTrue(LoadGraphFactory.remove(NAME));
+        db.execute("MATCH (a {name:'a'}), (b {name:'b'}) CREATE (b)-[:TYPE]->(a)").close();
+        assertEquals(0, LoadGraphFactory.pendingChanges(NAME));
+    }
+
+    /**
+     * every kind of change the overlay records
+     */
+    private void change() {
+        // created nodes and relationships, also to a new node
+        db.execute("MATCH (a {name:'a'}), (c {name:'c'}) " +
+                "CREATE (a)-[:TYPE {w:5.0}]->(c), (c)-[:TYPE]->(e:Node {name:'e'})-[:TYPE {w:6.0}]->(a)").close();
+        // a relationship of the base graph and one of the overlay deleted
+        db.execute("MATCH ({name:'a'})-[r:TYPE]->({name:'b'}) DELETE r").close();
+        db.execute("MATCH ({name:'e'})-[r:TYPE]->({name:'a'}) DELETE r").close();
+        // changed weights
+        db.execute("MATCH ({name:'b'})-[r:TYPE]->({name:'c'}) SET r.w = 7.0").close();
+        db.execute("MATCH ({name:'c'})-[r:TYPE]->({name:'a'}) REMOVE r.w").close();
+        // a parallel relationship created and deleted again
+        db.execute("MATCH (b {name:'b'}), (c {name:'c'}) CREATE (b)-[:TYPE {w:8.0}]->(c)").close();
+        db.execute("MATCH ({name:'b'})-[r:TYPE {w:8.0}]->({name:'c'}) DELETE r").close();
+        // a new node without relationships and a node joining the graph
+        db.execute("CREATE (:Node {name:'f'})").close();
+        db.execute("MATCH (d {name:'d'}) SET d:Node").close();
+    }
+
+    private Graph register(Class<? extends GraphFactory> factory, Direction direction, boolean undirected, long compactAfter) {
+        return register(factory, direction, undirected, compactAfter, "w");
+    }
+
+    private Graph register(
+            Class<? extends GraphFactory> factory,
+            Direction direction,
+            boolean undirected,
+            long compactAfter,
+            String weightProperty) {
+        Graph graph = load(factory, direction, undirected, weightProperty);
+        GraphRefresh refresh = new GraphRefresh(
+                db.getGraphDatabaseAPI(),
+                "Node",
+                "TYPE",
+                weightProperty,
+                1.0,
+                direction,
+                undirected,
+                compactAfter,
+                () -> load(factory, direction, undirected, weightProperty));
+        LoadGraphFactory.set(NAME, graph, 0L, refresh);
+        return graph;
+    }
+
+    private Graph load(Class<? extends GraphFactory> factory, Direction direction, boolean undirected) {
+        return load(factory, direction, undirected, "w");
+    }
+
+    private Graph load(
+            Class<? extends GraphFactory> factory,
+            Direction direction,
+            boolean undirected,
+            String weightProperty) {
+        return new GraphLoader(db.getGraphDatabaseAPI())
+                .withLabel("Node")
+                .withRelationshipType("TYPE")
+                .withOptionalRelationshipWeightsFromProperty(weightProperty, 1.0)
+                .withPositionalRelationshipWeights()
+                .withDirection(direction)
+                .asUndirected(undirected)
+                .load(factory);
+    }
+
+    private long nodeId(String name) {
+        return (long) db.execute("MATCH (n {name:$name}) RETURN id(n) AS id", Collections.singletonMap("name", name))
+                .next().get("id");
+    }
+
+    /**
+     * compare the relationships of the graphs by the neo ids of their nodes
+     */
+    private static void assertSameGraph(Graph expected, Graph actual, Direction direction) {
+        assertEquals(relationships(expected, direction, true), relationships(actual, direction, true));
+    }
+
+    private static List<String> relationships(Graph graph, Direction direction, boolean weighted) {
+        List<String> relationships = new ArrayList<>();
+        graph.forEachNode(node -> {
+            long neoId = graph.toOriginalNodeId(node);
+            if (!graph.contains(neoId)) {
+                // deleted nodes keep their id in the overlay
+                assertEquals(0, graph.degree(node, direction));
+                return true;
+            }
+            int[] degree = {0};
+            relationships.add(String.valueOf(neoId));
+            graph.forEachRelationship(node, direction, (source, target, relationId, weight) -> {
+                degree[0]++;
+                relationships.add(neoId + "-" + graph.toOriginalNodeId(target) + (weighted ? ":" + weight : ""));
+                if (direction == Direction.OUTGOING) {
+                    assertEquals(weight, graph.weightOf(source, target), 0.0);
+                }
+                assertTrue(graph.exists(source, target, direction));
+                return true;
+            });
+            assertEquals(degree[0], graph.degree(node, direction));
+            return true;
+        });
+        Collections.sort(relationships);
+        return relationships;
+    }
+
+    /**
+     * the current graph, the reference is given back right away
+     */
+    private static Graph get(String name) {
+        try (LoadGraphFactory.Lease lease = LoadGraphFactory.acquire(name)) {
+            return lease.graph();
+        }
+    }
+}
@@ -0,0 +1,207 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.loadgraph;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.GraphFactory;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+
+public final class LoadGraphFactoryTest {
+
+    private static final List<String> NAMES = Arrays.asList("a", "b", "c", "../a/b");
+
+    @Rule
+    public ImpermanentDatabaseRule db = new ImpermanentDatabaseRule();
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Before
+    public void setup() {
+        db.execute("CREATE (a:Node)-[:TYPE]->(b:Node)-[:TYPE]->(c:Node)-[:TYPE]->(a)").close();
+    }
+
+    @After
+    public void tearDown() {
+        LoadGraphFactory.configure(Long.MAX_VALUE, LoadGraphFactory.EvictionPolicy.LRU, null);
+        NAMES.forEach(LoadGraphFactory::remove);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedGraphs() throws Exception {
+        LoadGraphFactory.configure(250L, LoadGraphFactory.EvictionPolicy.LRU, null);
+        LoadGraphFactory.set("a", load(HeavyGraphFactory.class), 100L);
+        LoadGraphFactory.set("b", load(HeavyGraphFactory.class), 100L);
+        get("a");
+        LoadGraphFactory.set("c", load(HeavyGraphFactory.class), 100L);
+
+        assertTrue(LoadGraphFactory.check("a"));
+        assertFalse(LoadGraphFactory.check("b"));
+        assertTrue(LoadGraphFactory.check("c"));
+        assertEquals(200L, LoadGraphFactory.memoryUsage());
+    }
+
+    @Test
+    public void shouldEvictLeastFrequentlyUsedGraphs() throws Exception {
+        LoadGraphFactory.configure(250L, LoadGraphFactory.EvictionPolicy.LFU, null);
+        LoadGraphFactory.set("a", load(HeavyGraphFactory.class), 100L);
+        get("a");
+        get("a");
+        LoadGraphFactory.set("b", load(HeavyGraphFactory.class), 100L);
+        get("b");
+        LoadGraphFactory.set("c", load(HeavyGraphFactory.class), 100L);
+
+        assertTrue(LoadGraphFactory.check("a"));
+        assertFalse(LoadGraphFactory.check("b"));
+        assertTrue(LoadGraphFactory.check("c"));
+    }
+
+    @Test
+    public void shouldNotEvictReferencedGraphs() throws Exception {
+        LoadGraphFactory.set("a", load(HeavyGraphFactory.class), 100L);
+        LoadGraphFactory.Lease lease = LoadGraphFactory.acquire("a");
+        LoadGraphFactory.configure(0L, LoadGraphFactory.EvictionPolicy.LRU, null);
+        assertTrue(LoadGraphFactory.check("a"));
+
+        lease.close();
+        assertFalse(LoadGraphFactory.check("a"));
+        assertNotNull(lease.graph());
+    }
+
+    @Test
+    public void shouldReleaseRemovedGraphsWithTheLastReference() throws Exception {
+        Graph graph = load(HugeGraphFactory.class);
+        LoadGraphFactory.set("a", graph, 100L);
+        LoadGraphFactory.Lease lease = LoadGraphFactory.acquire("a");
+        assertTrue(LoadGraphFactory.remove("a"));
+        assertFalse(LoadGraphFactory.check("a"));
+        // still usable by whoever holds the reference
+        assertEquals(1, graph.degree(0, Direction.OUTGOING));
+        lease.close();
+    }
+
+    @Test
+    public void shouldReleaseRemovedGraphsThroughTheirLease() throws Exception {
+        Graph graph = spy(load(HeavyGraphFactory.class));
+        LoadGraphFactory.set("a", graph, 100L);
+        LoadGraphFactory.Lease lease = LoadGraphFactory.acquire("a");
+        assertTrue(LoadGraphFactory.remove("a"));
+        // a graph registered under the same name is not affected by the lease of the removed one
+        LoadGraphFactory.set("a", load(HeavyGraphFactory.class), 100L);
+        LoadGraphFactory.Lease other = LoadGraphFactory.acquire("a");
+        verify(graph, never()).release();
+
+        lease.close();
+        lease.close();
+        verify(graph).release();
+        LoadGraphFactory.configure(0L, LoadGraphFactory.EvictionPolicy.LRU, null);
+        assertTrue(LoadGraphFactory.check("a"));
+        other.close();
+        assertFalse(LoadGraphFactory.check("a"));
+    }
+
+    @Test
+    public void shouldHoldAReferenceUntilTheTransactionCloses() throws Exception {
+        LoadGraphFactory.set("a", load(HeavyGraphFactory.class), 100L);
+        try (Transaction tx = db.beginTx()) {
+            Graph graph = new GraphLoader(db).withName("a").load(LoadGraphFactory.class);
+            assertNotNull(graph);
+            LoadGraphFactory.configure(0L, LoadGraphFactory.EvictionPolicy.LRU, null);
+            assertTrue(LoadGraphFactory.check("a"));
+            tx.success();
+        }
+        assertFalse(LoadGraphFactory.check("a"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void shouldNotHandOutGraphsOutsideOfATransaction() throws Exception {
+        LoadGraphFactory.set("a", load(HeavyGraphFactory.class), 100L);
+        new GraphLoader(db).withName("a").load(LoadGraphFactory.class);
+    }
+
+    @Test
+    public void shouldSpillHugeGraphsToDisk() throws Exception {
+        LoadGraphFactory.configure(
+                Long.MAX_VALUE,
+                LoadGraphFactory.EvictionPolicy.LRU,
+                folder.getRoot().toPath());
+        Graph graph = load(HugeGraphFactory.class);
+        long nodeCount = graph.nodeCount();
+        LoadGraphFactory.set("a", graph, 100L);
+        LoadGraphFactory.configure(0L, LoadGraphFactory.EvictionPolicy.LRU, folder.getRoot().toPath());
+
+        assertTrue(LoadGraphFactory.check("a"));
+        assertEquals(0L, LoadGraphFactory.footprint("a"));
+        assertEquals("huge", LoadGraphFactory.getType("a"));
+
+        try (LoadGraphFactory.Lease lease = LoadGraphFactory.acquire("a")) {
+            Graph restored = lease.graph();
+            assertEquals(nodeCount, restored.nodeCount());
+            assertEquals(1, restored.degree(0, Direction.OUTGOING));
+        }
+        // spilled again once it is no longer in use
+        assertEquals(0L, LoadGraphFactory.footprint("a"));
+    }
+
+    @Test
+    public void shouldSpillGraphsWithNamesThatAreNoFileNames() throws Exception {
+        LoadGraphFactory.set("../a/b", load(HugeGraphFactory.class), 100L);
+        LoadGraphFactory.configure(0L, LoadGraphFactory.EvictionPolicy.LRU, folder.getRoot().toPath());
+
+        assertTrue(LoadGraphFactory.check("../a/b"));
+        assertEquals(0L, LoadGraphFactory.footprint("../a/b"));
+        try (LoadGraphFactory.Lease lease = LoadGraphFactory.acquire("../a/b")) {
+            assertEquals(1, lease.graph().degree(0, Direction.OUTGOING));
+        }
+    }
+
+    private Graph load(Class<? extends GraphFactory> factory) {
+        return new GraphLoader(db).withDirection(Direction.OUTGOING).load(factory);
+    }
+
+    /**
+     * the current graph, the reference is given back right away
+     */
+    private static Graph get(String name) {
+        try (LoadGraphFactory.Lease lease = LoadGraphFactory.acquire(name)) {
+            return lease.graph();
+        }
+    }
+}
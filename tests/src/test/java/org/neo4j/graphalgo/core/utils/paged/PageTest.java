@@ -0,0 +1,165 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils.paged;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Reads and writes the paged arrays with every backing of their pages.
+ */
+@RunWith(Parameterized.class)
+public final class PageTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(
+                new Object[]{"heap"},
+                new Object[]{"offHeap"},
+                new Object[]{"mapped"}
+        );
+    }
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final String backing;
+
+    public PageTest(String backing) {
+        this.backing = backing;
+    }
+
+    @Test
+    public void shouldReadBytesAcrossPages() throws Exception {
+        int pageSize = PageUtil.pageSizeFor(Byte.BYTES);
+        long size = 3L * pageSize;
+        AllocationTracker tracker = new AllocationTracker();
+        ByteArray array = byteArray(size, tracker);
+
+        for (long i = 0; i < size; i++) {
+            assertEquals(value(i), array.get(i));
+        }
+        // an int that starts two bytes before the end of the first page
+        long index = pageSize - 2L;
+        int expected = ((value(index) & 0xFF) << 24) |
+                ((value(index + 1) & 0xFF) << 16) |
+                ((value(index + 2) & 0xFF) << 8) |
+                (value(index + 3) & 0xFF);
+        assertEquals(expected, array.getInt(index));
+
+        tracker.remove(array.release());
+        assertEquals(0L, tracker.tracked());
+    }
+
+    @Test
+    public void shouldReadDoublesAcrossPages() throws Exception {
+        int pageSize = PageUtil.pageSizeFor(Double.BYTES);
+        long size = 3L * pageSize;
+        AllocationTracker tracker = new AllocationTracker();
+        DoubleArray array = doubleArray(size, tracker);
+
+        for (long i = 0; i < size; i++) {
+            assertEquals(i / 3.0, array.get(i), 0.0);
+        }
+
+        tracker.remove(array.release());
+        assertEquals(0L, tracker.tracked());
+    }
+
+    private ByteArray byteArray(long size, AllocationTracker tracker) throws IOException {
+        ByteArray array;
+        switch (backing) {
+            case "heap":
+                array = ByteArray.newArray(size, tracker);
+                break;
+            case "offHeap":
+                array = ByteArray.newOffHeapArray(size, tracker);
+                break;
+            default:
+                ByteArray written = byteArray(size, ByteArray.newArray(size, AllocationTracker.EMPTY));
+                Path file = write(written::writeTo);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return ByteArray.map(channel, 0L, written.capacity(), tracker);
+                }
+        }
+        return byteArray(size, array);
+    }
+
+    private static ByteArray byteArray(long size, ByteArray array) {
+        for (long i = 0; i < size; i++) {
+            array.set(i, value(i));
+        }
+        return array;
+    }
+
+    private DoubleArray doubleArray(long size, AllocationTracker tracker) throws IOException {
+        DoubleArray array;
+        switch (backing) {
+            case "heap":
+                array = DoubleArray.newArray(size, tracker);
+                break;
+            case "offHeap":
+                array = DoubleArray.newOffHeapArray(size, tracker);
+                break;
+            default:
+                DoubleArray written = doubleArray(size, DoubleArray.newArray(size, AllocationTracker.EMPTY));
+                Path file = write(written::writeTo);
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    return DoubleArray.map(channel, 0L, written.capacity(), tracker);
+                }
+        }
+        return doubleArray(size, array);
+    }
+
+    private static DoubleArray doubleArray(long size, DoubleArray array) {
+        for (long i = 0; i < size; i++) {
+            array.set(i, i / 3.0);
+        }
+        return array;
+    }
+
+    private Path write(Writer writer) throws IOException {
+        Path file = folder.newFile().toPath();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            writer.writeTo(channel);
+        }
+        return file;
+    }
+
+    private static byte value(long index) {
+        return (byte) (index * 31L);
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void writeTo(FileChannel channel) throws IOException;
+    }
+}
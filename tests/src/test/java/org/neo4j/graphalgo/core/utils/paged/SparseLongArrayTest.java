@@ -0,0 +1,67 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.core.utils.paged;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SparseLongArrayTest {
+
+    private final SparseLongArray array = SparseLongArray.newArray(10_000, AllocationTracker.EMPTY);
+
+    @Test
+    public void testUnsetEntriesAreNotFound() throws Exception {
+        assertEquals(SparseLongArray.NOT_FOUND, array.get(42));
+        assertFalse(array.contains(42));
+
+        // allocates the page of the entry, its neighbours stay unset
+        array.set(43, 1337);
+        assertEquals(SparseLongArray.NOT_FOUND, array.get(42));
+        assertFalse(array.contains(42));
+        assertEquals(1337, array.get(43));
+        assertTrue(array.contains(43));
+    }
+
+    @Test
+    public void testZeroIsAValue() throws Exception {
+        array.set(0, 0);
+        assertTrue(array.contains(0));
+        assertEquals(0, array.get(0));
+    }
+
+    @Test
+    public void testLargeValues() throws Exception {
+        array.set(1, Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, array.get(1));
+        array.set(1, 1L << 40);
+        assertEquals(1L << 40, array.get(1));
+    }
+
+    @Test
+    public void testOutOfBoundsIndicesAreNotFound() throws Exception {
+        long index = array.capacity();
+        assertEquals(SparseLongArray.NOT_FOUND, array.get(index));
+        assertFalse(array.contains(index));
+        assertEquals(SparseLongArray.NOT_FOUND, array.get(Long.MAX_VALUE));
+        assertFalse(array.contains(Long.MAX_VALUE));
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.neo4j.graphalgo.api.HugeGraph;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.core.utils.paged.LongArray;
+import org.neo4j.graphalgo.impl.louvain.HugeMultiLevelLouvain;
+import org.neo4j.graphalgo.impl.louvain.MultiLevelLouvain;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph:
+ *
+ * a ring of cliques, where each clique is connected to the next one by a single relationship,
+ * relationships within a clique weigh 1.0 and those between cliques 0.5
+ */
+public final class HugeMultiLevelLouvainTest {
+
+    @Rule
+    public ImpermanentDatabaseRule DB = new ImpermanentDatabaseRule();
+
+    @Test
+    public void testSameCommunitiesAsMultiLevelLouvain() throws Exception {
+        createRingOfCliques(30, 3);
+        final HugeGraph graph = load(false);
+
+        for (int concurrency : new int[]{1, 2, 8}) {
+            final MultiLevelLouvain expected = new MultiLevelLouvain(graph, false, Pools.DEFAULT, concurrency, 20, 10)
+                    .withSeed(1337L)
+                    .compute();
+            final HugeMultiLevelLouvain louvain = new HugeMultiLevelLouvain(graph, false, Pools.DEFAULT, concurrency, 20, 10, AllocationTracker.EMPTY)
+                    .withSeed(1337L)
+                    .compute();
+
+            assertTrue(louvain.getLevels() > 1);
+            assertSameDendrogram(expected.getDendrogram(), louvain.getDendrogram());
+            assertEquals(expected.getCommunityCount(), louvain.getCommunityCount());
+            assertEquals(expected.getIterations(), louvain.getIterations());
+            assertArrayEquals(expected.getModularities(), louvain.getModularities(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testWeighted() throws Exception {
+        createRingOfCliques(6, 5);
+        final HugeGraph graph = load(true);
+
+        final MultiLevelLouvain expected = new MultiLevelLouvain(graph, true, Pools.DEFAULT, 2, 20, 10).compute();
+        final HugeMultiLevelLouvain louvain = new HugeMultiLevelLouvain(graph, true, Pools.DEFAULT, 2, 20, 10, AllocationTracker.EMPTY)
+                .compute();
+
+        assertEquals(6, louvain.getCommunityCount());
+        assertSameDendrogram(expected.getDendrogram(), louvain.getDendrogram());
+        assertEquals(expected.getModularity(), louvain.getModularity(), 1e-9);
+    }
+
+    @Test
+    public void testReleasesAllButTheCommunities() throws Exception {
+        createRingOfCliques(30, 3);
+        final AllocationTracker tracker = AllocationTracker.create();
+        final HugeGraph graph = load(false);
+
+        final HugeMultiLevelLouvain louvain = new HugeMultiLevelLouvain(graph, false, Pools.DEFAULT, 2, 20, 10, tracker)
+                .compute();
+        final LongArray communities = louvain.getCommunityIds();
+        louvain.release();
+
+        final AllocationTracker expected = AllocationTracker.create();
+        LongArray.newArray(graph.nodeCount(), expected);
+        assertEquals(expected.tracked(), tracker.tracked());
+        for (long node = 0; node < graph.nodeCount(); node++) {
+            assertTrue(communities.get(node) < louvain.getCommunityCount());
+        }
+    }
+
+    @Test
+    public void testWithoutRelationships() throws Exception {
+        DB.execute("UNWIND range(1, 5) AS i CREATE (:Node)").close();
+        final HugeGraph graph = load(false);
+
+        final HugeMultiLevelLouvain louvain = new HugeMultiLevelLouvain(graph, false, Pools.DEFAULT, 2, 20, 10, AllocationTracker.EMPTY)
+                .compute();
+
+        assertEquals(5, louvain.getCommunityCount());
+        assertEquals(0, louvain.getLevels());
+    }
+
+    private static void assertSameDendrogram(int[][] expected, LongArray[] actual) {
+        assertEquals(expected.length, actual.length);
+        for (int level = 0; level < expected.length; level++) {
+            for (int node = 0; node < expected[level].length; node++) {
+                assertEquals(expected[level][node], actual[level].get(node));
+            }
+        }
+    }
+
+    private void createRingOfCliques(int cliques, int cliqueSize) {
+        DB.execute("UNWIND range(0, " + (cliques - 1) + ") AS c " +
+                "UNWIND range(0, " + (cliqueSize - 1) + ") AS i " +
+                "CREATE (:Node {clique:c, idx:i})").close();
+        DB.execute("MATCH (a:Node), (b:Node) WHERE a.clique = b.clique AND a.idx < b.idx " +
+                "CREATE (a)-[:TYPE {w:1.0}]->(b)").close();
+        DB.execute("MATCH (a:Node), (b:Node) WHERE a.idx = 0 AND b.idx = 1 AND b.clique = (a.clique + 1) % " + cliques + " " +
+                "CREATE (a)-[:TYPE {w:0.5}]->(b)").close();
+    }
+
+    private HugeGraph load(boolean weighted) {
+        final GraphLoader loader = new GraphLoader(DB)
+                .withLabel("Node")
+                .withRelationshipType("TYPE")
+                .withDirection(Direction.BOTH);
+        if (weighted) {
+            loader.withRelationshipWeightsFromProperty("w", 1.0);
+        }
+        return (HugeGraph) loader.load(HugeGraphFactory.class);
+    }
+}
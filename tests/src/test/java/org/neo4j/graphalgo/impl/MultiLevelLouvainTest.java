@@ -0,0 +1,248 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.GraphFactory;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
+import org.neo4j.graphalgo.core.lightweight.LightGraphFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.impl.louvain.MultiLevelLouvain;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Graphs:
+ *
+ * a ring of cliques, where each clique is connected to the next one by a single relationship
+ *
+ * (a)--(b)     all relationships weigh 0.1,
+ *  | \/ |      except (a)--(c) and (b)--(d), which weigh 5.0
+ *  | /\ |
+ * (c)--(d)
+ */
+@RunWith(Parameterized.class)
+public final class MultiLevelLouvainTest {
+
+    @Parameterized.Parameters(name = "{1}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(
+                new Object[]{HeavyGraphFactory.class, "heavy"},
+                new Object[]{LightGraphFactory.class, "light"},
+                new Object[]{HugeGraphFactory.class, "huge"}
+        );
+    }
+
+    @Rule
+    public ImpermanentDatabaseRule DB = new ImpermanentDatabaseRule();
+
+    @Parameterized.Parameter
+    public Class<? extends GraphFactory> graphImpl;
+
+    @Parameterized.Parameter(1)
+    public String name;
+
+    @Test
+    public void testRingOfCliques() throws Exception {
+        createRingOfCliques(6, 5);
+        final Graph graph = load(false);
+
+        final MultiLevelLouvain louvain = louvain(graph, false).compute();
+
+        assertEquals(6, louvain.getCommunityCount());
+        final Map<Long, Integer> communityOfClique = new HashMap<>();
+        DB.execute("MATCH (n:Node) RETURN id(n) AS id, n.clique AS clique").accept(row -> {
+            final int community = louvain.getCommunityIds()[graph.toMappedNodeId(row.getNumber("id").longValue())];
+            final Integer previous = communityOfClique.putIfAbsent(row.getNumber("clique").longValue(), community);
+            assertTrue(previous == null || previous == community);
+            return true;
+        });
+        assertEquals(6, communityOfClique.size());
+        assertEquals(modularity(graph, louvain.getCommunityIds(), false), louvain.getModularity(), 1e-9);
+    }
+
+    @Test
+    public void testSequentialRingOfCliques() throws Exception {
+        createRingOfCliques(6, 5);
+        final Graph graph = load(false);
+
+        final MultiLevelLouvain louvain = new MultiLevelLouvain(graph, false, Pools.DEFAULT, 1, 20, 10).compute();
+
+        assertEquals(6, louvain.getCommunityCount());
+        assertEquals(modularity(graph, louvain.getCommunityIds(), false), louvain.getModularity(), 1e-9);
+    }
+
+    @Test
+    public void testParallelIsReproducible() throws Exception {
+        createRingOfCliques(30, 3);
+        final Graph graph = load(false);
+
+        // with a seed, a single thread runs the same rounds as many
+        final int[][] expected = louvain(graph, false, 1).withSeed(1337L).compute().getDendrogram();
+        for (int concurrency : new int[]{1, 2, 4, 8}) {
+            final MultiLevelLouvain louvain = louvain(graph, false, concurrency).withSeed(1337L).compute();
+            assertTrue(Arrays.deepEquals(expected, louvain.getDendrogram()));
+            assertEquals(modularity(graph, louvain.getCommunityIds(), false), louvain.getModularity(), 1e-9);
+        }
+    }
+
+    @Test
+    public void testHierarchy() throws Exception {
+        createRingOfCliques(30, 3);
+        final Graph graph = load(false);
+
+        final MultiLevelLouvain louvain = louvain(graph, false).compute();
+
+        final int[][] dendrogram = louvain.getDendrogram();
+        final double[] modularities = louvain.getModularities();
+        assertTrue(louvain.getLevels() > 1);
+        assertEquals(louvain.getLevels(), dendrogram.length);
+        assertEquals(louvain.getLevels(), modularities.length);
+        for (int level = 0; level < dendrogram.length; level++) {
+            assertEquals(modularity(graph, dendrogram[level], false), modularities[level], 1e-9);
+            if (level > 0) {
+                assertTrue(modularities[level] > modularities[level - 1]);
+                // communities are only ever merged, never split
+                final Map<Integer, Integer> merged = new HashMap<>();
+                for (int node = 0; node < graph.nodeCount(); node++) {
+                    final Integer previous = merged.putIfAbsent(dendrogram[level - 1][node], dendrogram[level][node]);
+                    assertTrue(previous == null || previous == dendrogram[level][node]);
+                }
+            }
+        }
+        assertTrue(louvain.getCommunityCount() < 30);
+        assertEquals(dendrogram[dendrogram.length - 1][0], louvain.getCommunityIds()[0]);
+    }
+
+    @Test
+    public void testWeighted() throws Exception {
+        DB.execute("CREATE (a:Node {name:'a'}), (b:Node {name:'b'}), (c:Node {name:'c'}), (d:Node {name:'d'})\n" +
+                "CREATE (a)-[:TYPE {w:0.1}]->(b), (c)-[:TYPE {w:0.1}]->(d), (a)-[:TYPE {w:0.1}]->(d), (b)-[:TYPE {w:0.1}]->(c),\n" +
+                "       (a)-[:TYPE {w:5.0}]->(c), (b)-[:TYPE {w:5.0}]->(d)").close();
+
+        final Graph unweightedGraph = load(false);
+        final MultiLevelLouvain unweighted = louvain(unweightedGraph, false).compute();
+        assertEquals(1, unweighted.getCommunityCount());
+
+        final Graph graph = load(true);
+        final MultiLevelLouvain weighted = louvain(graph, true).compute();
+        assertEquals(2, weighted.getCommunityCount());
+        final int[] communities = weighted.getCommunityIds();
+        assertEquals(communities[mappedId(graph, "a")], communities[mappedId(graph, "c")]);
+        assertEquals(communities[mappedId(graph, "b")], communities[mappedId(graph, "d")]);
+        assertNotEquals(communities[mappedId(graph, "a")], communities[mappedId(graph, "b")]);
+        assertEquals(modularity(graph, communities, true), weighted.getModularity(), 1e-9);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsGraphsBeyondIntNodeIds() throws Exception {
+        final Graph graph = mock(Graph.class);
+        when(graph.nodeCount()).thenReturn(Integer.MAX_VALUE + 1L);
+        new MultiLevelLouvain(graph, false, Pools.DEFAULT, 1, 10, 10);
+    }
+
+    @Test
+    public void testWithoutRelationships() throws Exception {
+        DB.execute("UNWIND range(1, 5) AS i CREATE (:Node)").close();
+        final Graph graph = load(false);
+
+        final MultiLevelLouvain louvain = louvain(graph, false).compute();
+
+        assertEquals(5, louvain.getCommunityCount());
+        assertEquals(0, louvain.getLevels());
+    }
+
+    private void createRingOfCliques(int cliques, int cliqueSize) {
+        DB.execute("UNWIND range(0, " + (cliques - 1) + ") AS c " +
+                "UNWIND range(0, " + (cliqueSize - 1) + ") AS i " +
+                "CREATE (:Node {clique:c, idx:i})").close();
+        DB.execute("MATCH (a:Node), (b:Node) WHERE a.clique = b.clique AND a.idx < b.idx " +
+                "CREATE (a)-[:TYPE]->(b)").close();
+        DB.execute("MATCH (a:Node), (b:Node) WHERE a.idx = 0 AND b.idx = 1 AND b.clique = (a.clique + 1) % " + cliques + " " +
+                "CREATE (a)-[:TYPE]->(b)").close();
+    }
+
+    private Graph load(boolean weighted) {
+        final GraphLoader loader = new GraphLoader(DB)
+                .withLabel("Node")
+                .withRelationshipType("TYPE")
+                .withDirection(Direction.BOTH);
+        if (weighted) {
+            loader.withRelationshipWeightsFromProperty("w", 1.0);
+        }
+        return loader.load(graphImpl);
+    }
+
+    private MultiLevelLouvain louvain(Graph graph, boolean weighted) {
+        return louvain(graph, weighted, 2);
+    }
+
+    private MultiLevelLouvain louvain(Graph graph, boolean weighted, int concurrency) {
+        return new MultiLevelLouvain(graph, weighted, Pools.DEFAULT, concurrency, 20, 10);
+    }
+
+    private int mappedId(Graph graph, String name) {
+        return graph.toMappedNodeId(DB.execute("MATCH (n:Node {name:'" + name + "'}) RETURN id(n) AS id")
+                .<Long>columnAs("id")
+                .next());
+    }
+
+    /**
+     * Q = sum over all relationships (u, v) within a community of w / 2m - sum over all communities (tot / 2m)^2
+     */
+    private static double modularity(Graph graph, int[] communities, boolean weighted) {
+        final int nodeCount = Math.toIntExact(graph.nodeCount());
+        final double[] totals = new double[nodeCount];
+        final double[] internal = {0.0};
+        final double[] m2 = {0.0};
+        for (int node = 0; node < nodeCount; node++) {
+            graph.forEachRelationship(node, Direction.BOTH, (source, target, relationId, weight) -> {
+                final double w = weighted ? weight : 1.0;
+                m2[0] += w;
+                totals[communities[source]] += w;
+                if (communities[source] == communities[target]) {
+                    internal[0] += w;
+                }
+                return true;
+            });
+        }
+        double modularity = internal[0] / m2[0];
+        for (double total : totals) {
+            modularity -= (total / m2[0]) * (total / m2[0]);
+        }
+        return modularity;
+    }
+}
@@ -40,10 +40,12 @@ import org.neo4j.graphalgo.TestDatabaseCreator;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.stream.IntStream;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 @RunWith(Parameterized.class)
 public final class PageRankTest {
@@ -126,6 +128,68 @@ public final class PageRankTest {
 
     @Test
     public void test() throws Exception {
+        final Map<Long, Double> expected = expectedScores();
+        final Graph graph = loadGraph();
+
+        final PageRankResult rankResult = PageRankAlgorithm
+                .of(graph, 0.85)
+                .compute(40)
+                .result();
+
+        assertScores(expected, graph, rankResult, 1e-2);
+    }
+
+    @Test
+    public void testToleranceStopsEarly() throws Exception {
+        final Map<Long, Double> expected = expectedScores();
+        final Graph graph = loadGraph();
+
+        final PageRankAlgorithm pageRank = PageRankAlgorithm
+                .of(graph, 0.85)
+                .compute(100, 1e-3);
+
+        assertTrue(pageRank.iterations() < 100);
+        final List<PageRankAlgorithm.IterationStats> stats = pageRank.iterationStats();
+        assertEquals(pageRank.iterations(), stats.size());
+        assertTrue(stats.get(stats.size() - 1).residual < 1e-3);
+        assertTrue(stats.get(0).residual > stats.get(stats.size() - 1).residual);
+        assertScores(expected, graph, pageRank.result(), 1e-2);
+    }
+
+    @Test
+    public void testWarmStartFromPreviousResult() throws Exception {
+        final Map<Long, Double> expected = expectedScores();
+        final Graph graph = loadGraph();
+
+        final PageRankAlgorithm cold = PageRankAlgorithm
+                .of(graph, 0.85)
+                .compute(40, 1e-3);
+
+        final PageRankAlgorithm warm = PageRankAlgorithm
+                .of(graph, 0.85)
+                .withSeeds(cold.result())
+                .compute(40, 1e-3);
+
+        assertTrue(warm.iterations() < cold.iterations());
+        assertScores(expected, graph, warm.result(), 1e-2);
+    }
+
+    @Test
+    public void testWarmStartFromArbitrarySeeds() throws Exception {
+        final Map<Long, Double> expected = expectedScores();
+        final Graph graph = loadGraph();
+
+        // seeds that are off in both directions and a node without a seed
+        final PageRankResult rankResult = PageRankAlgorithm
+                .of(graph, 0.85)
+                .withSeeds(nodeId -> nodeId == 0 ? Double.NaN : nodeId % 2 == 0 ? 2.0 : 0.0)
+                .compute(100, 1e-4)
+                .result();
+
+        assertScores(expected, graph, rankResult, 1e-2);
+    }
+
+    private Map<Long, Double> expectedScores() {
         final Label label = Label.label("Label1");
         final Map<Long, Double> expected = new HashMap<>();
 
@@ -142,34 +206,36 @@ public final class PageRankTest {
             expected.put(db.findNode(label, "name", "j").getId(), 0.15);
             tx.close();
         }
+        return expected;
+    }
 
-        final Graph graph;
+    private Graph loadGraph() {
         if (graphImpl.isAssignableFrom(HeavyCypherGraphFactory.class)) {
-            graph = new GraphLoader(db)
+            return new GraphLoader(db)
                     .withLabel("MATCH (n:Label1) RETURN id(n) as id")
                     .withRelationshipType("MATCH (n:Label1)-[:TYPE1]->(m:Label1) RETURN id(n) as source,id(m) as target")
                     .load(graphImpl);
 
-        } else {
-            graph = new GraphLoader(db)
-                    .withLabel(label)
-                    .withRelationshipType("TYPE1")
-                    .withDirection(Direction.OUTGOING)
-                    .load(graphImpl);
         }
+        return new GraphLoader(db)
+                .withLabel(Label.label("Label1"))
+                .withRelationshipType("TYPE1")
+                .withDirection(Direction.OUTGOING)
+                .load(graphImpl);
+    }
 
-        final PageRankResult rankResult = PageRankAlgorithm
-                .of(graph, 0.85)
-                .compute(40)
-                .result();
-
+    private static void assertScores(
+            Map<Long, Double> expected,
+            Graph graph,
+            PageRankResult rankResult,
+            double delta) {
         IntStream.range(0, expected.size()).forEach(i -> {
             final long nodeId = graph.toOriginalNodeId(i);
             assertEquals(
                     "Node#" + nodeId,
                     expected.get(nodeId),
                     rankResult.score(i),
-                    1e-2
+                    delta
             );
         });
     }
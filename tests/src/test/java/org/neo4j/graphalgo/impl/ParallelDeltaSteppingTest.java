@@ -27,6 +27,9 @@ import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.helper.graphbuilder.GraphBuilder;
 import org.neo4j.graphalgo.helper.graphbuilder.GridBuilder;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
+import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.utils.ProgressTimer;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import org.neo4j.graphalgo.TestDatabaseCreator;
@@ -50,6 +53,7 @@ public class ParallelDeltaSteppingTest {
     private static GraphDatabaseAPI db;
     private static GridBuilder gridBuilder;
     private static Graph graph;
+    private static HugeGraph hugeGraph;
     private static double[] reference;
     private static long rootNodeId;
 
@@ -80,6 +84,11 @@ public class ParallelDeltaSteppingTest {
                     .withRelationshipType(RELATIONSHIP)
                     .withRelationshipWeightsFromProperty(PROPERTY, 1.0)
                     .load(HeavyGraphFactory.class);
+            hugeGraph = (HugeGraph) new GraphLoader(db)
+                    .withLabel(LABEL)
+                    .withRelationshipType(RELATIONSHIP)
+                    .withRelationshipWeightsFromProperty(PROPERTY, 1.0)
+                    .load(HugeGraphFactory.class);
         }
 
         reference = compute(1);
@@ -103,9 +112,26 @@ public class ParallelDeltaSteppingTest {
         }
     }
 
+    @Test
+    public void testHugeParallelBehaviour() throws Exception {
+        final int n = 20;
+        for (int i = 0; i < n; i++) {
+            final int threads = (i % 7) + 2;
+            final HugeShortestPathDeltaStepping sssp = new HugeShortestPathDeltaStepping(hugeGraph, 2.5, AllocationTracker.EMPTY)
+                    .withExecutorService(Executors.newFixedThreadPool(threads))
+                    .withConcurrency(threads)
+                    .compute(rootNodeId);
+            for (int node = 0; node < reference.length; node++) {
+                final int mapped = Math.toIntExact(hugeGraph.toHugeMappedNodeId(graph.toOriginalNodeId(node)));
+                Assert.assertEquals("error in iteration " + i, reference[node], sssp.distance(mapped), 0.001);
+            }
+        }
+    }
+
     private static double[] compute(int threads) throws Exception {
         return new ShortestPathDeltaStepping(graph, 2.5)
                 .withExecutorService(Executors.newFixedThreadPool(threads))
+                .withConcurrency(threads)
                 .compute(rootNodeId)
                 .getShortestPaths();
     }
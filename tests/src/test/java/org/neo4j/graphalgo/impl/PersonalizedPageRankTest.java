@@ -0,0 +1,224 @@
+/**
+ * Copyright (c) 2017 "Neo4j, Inc." <http://neo4j.com>
+ *
+ * This file is part of Neo4j Graph Algorithms <http://github.com/neo4j-contrib/neo4j-graph-algorithms>.
+ *
+ * Neo4j Graph Algorithms is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.neo4j.graphalgo.impl;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.neo4j.graphalgo.api.Graph;
+import org.neo4j.graphalgo.api.GraphFactory;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
+import org.neo4j.graphalgo.core.lightweight.LightGraphFactory;
+import org.neo4j.graphalgo.core.neo4jview.GraphViewFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.test.rule.ImpermanentDatabaseRule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Graph:
+ *
+ *  30 nodes, every node {@code i < 29} has relationships to
+ *  {@code i + 1} and {@code (7 * i + 3) % 30}, node {@code 29} has none.
+ *
+ *  The scores are compared to a personalized PageRank computed by power iteration.
+ */
+@RunWith(Parameterized.class)
+public final class PersonalizedPageRankTest {
+
+    private static final int NODES = 30;
+    private static final double DAMPING = 0.85;
+
+    @ClassRule
+    public static final ImpermanentDatabaseRule DB = new ImpermanentDatabaseRule();
+
+    @Parameterized.Parameters(name = "{1}")
+    public static Collection<Object[]> data() {
+        return Arrays.asList(
+                new Object[]{HeavyGraphFactory.class, "Heavy"},
+                new Object[]{LightGraphFactory.class, "Light"},
+                new Object[]{HugeGraphFactory.class, "Huge"},
+                new Object[]{GraphViewFactory.class, "View"}
+        );
+    }
+
+    @BeforeClass
+    public static void setupGraph() {
+        DB.execute("UNWIND range(0, " + (NODES - 1) + ") AS i CREATE (:Node {id:i})").close();
+        DB.execute("MATCH (a:Node), (b:Node) " +
+                "WHERE a.id < " + (NODES - 1) + " AND (b.id = a.id + 1 OR b.id = (7 * a.id + 3) % " + NODES + ") " +
+                "CREATE (a)-[:TYPE]->(b)").close();
+    }
+
+    @Parameterized.Parameter
+    public Class<? extends GraphFactory> graphImpl;
+
+    @Parameterized.Parameter(1)
+    public String name;
+
+    @Test
+    public void testSingleSeedSet() throws Exception {
+        final Graph graph = loadGraph();
+        final int[] seeds = {graph.toMappedNodeId(nodeId(0))};
+
+        final PersonalizedPageRank algo = personalizedPageRank(graph, NODES)
+                .compute(Collections.singletonList(seeds));
+
+        final double[] expected = powerIteration(graph, seeds);
+        final int[] nodes = algo.topNodes(0);
+        final double[] scores = algo.topScores(0);
+        assertTrue(nodes.length > 1);
+        for (int i = 0; i < nodes.length; i++) {
+            assertEquals("score of node " + nodes[i], expected[nodes[i]], scores[i], 1e-4);
+            if (i > 0) {
+                assertTrue(scores[i - 1] >= scores[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testSeedSetsAcrossBatches() throws Exception {
+        final Graph graph = loadGraph();
+        final int topK = 5;
+        final List<int[]> seedSets = new ArrayList<>();
+        for (int i = 0; i < PersonalizedPageRank.OMEGA + 6; i++) {
+            seedSets.add(new int[]{
+                    graph.toMappedNodeId(nodeId(i % NODES)),
+                    graph.toMappedNodeId(nodeId((i * 11) % NODES))});
+        }
+
+        final PersonalizedPageRank algo = personalizedPageRank(graph, topK)
+                .compute(seedSets);
+
+        for (int seedSet = 0; seedSet < seedSets.size(); seedSet++) {
+            final double[] expected = powerIteration(graph, seedSets.get(seedSet));
+            final double[] expectedTop = Arrays.stream(expected)
+                    .boxed()
+                    .sorted(Collections.reverseOrder())
+                    .limit(topK)
+                    .mapToDouble(Double::doubleValue)
+                    .toArray();
+            assertArrayEquals("seed set " + seedSet, expectedTop, algo.topScores(seedSet), 1e-4);
+            for (int node : algo.topNodes(seedSet)) {
+                assertTrue(expected[node] >= expectedTop[topK - 1] - 1e-4);
+            }
+        }
+
+        final List<PersonalizedPageRank.Result> results = algo.resultStream().collect(Collectors.toList());
+        assertEquals(seedSets.size() * topK, results.size());
+        assertEquals(seedSets.size() - 1, results.get(results.size() - 1).seedSet);
+    }
+
+    @Test
+    public void testParallelBatchesSameAsSequential() throws Exception {
+        final Graph graph = loadGraph();
+        final List<int[]> seedSets = new ArrayList<>();
+        for (int i = 0; i < 8 * PersonalizedPageRank.OMEGA; i++) {
+            seedSets.add(new int[]{graph.toMappedNodeId(nodeId(i % NODES))});
+        }
+
+        final PersonalizedPageRank parallel = personalizedPageRank(graph, NODES, 8)
+                .compute(seedSets);
+        final PersonalizedPageRank sequential = personalizedPageRank(graph, NODES, 1)
+                .compute(seedSets);
+
+        for (int seedSet = 0; seedSet < seedSets.size(); seedSet++) {
+            assertArrayEquals("seed set " + seedSet, sequential.topScores(seedSet), parallel.topScores(seedSet), 1e-12);
+        }
+    }
+
+    @Test
+    public void testEmptySeedSet() throws Exception {
+        final Graph graph = loadGraph();
+
+        final PersonalizedPageRank algo = personalizedPageRank(graph, 10)
+                .compute(Collections.singletonList(new int[0]));
+
+        assertEquals(0, algo.topNodes(0).length);
+        assertEquals(0L, algo.resultStream().count());
+    }
+
+    private PersonalizedPageRank personalizedPageRank(Graph graph, int topK) {
+        return personalizedPageRank(graph, topK, 4);
+    }
+
+    private PersonalizedPageRank personalizedPageRank(Graph graph, int topK, int concurrency) {
+        return new PersonalizedPageRank(
+                graph,
+                Direction.OUTGOING,
+                DAMPING,
+                1e-7,
+                topK,
+                Pools.DEFAULT,
+                concurrency);
+    }
+
+    private Graph loadGraph() {
+        return new GraphLoader(DB)
+                .withLabel("Node")
+                .withRelationshipType("TYPE")
+                .withDirection(Direction.OUTGOING)
+                .load(graphImpl);
+    }
+
+    private static long nodeId(int id) {
+        return DB.execute("MATCH (n:Node {id:" + id + "}) RETURN id(n) AS nodeId")
+                .<Long>columnAs("nodeId")
+                .next();
+    }
+
+    private static double[] powerIteration(Graph graph, int[] seeds) {
+        final int nodeCount = Math.toIntExact(graph.nodeCount());
+        final double[] personalization = new double[nodeCount];
+        for (int seed : seeds) {
+            personalization[seed] += (1.0 - DAMPING) / seeds.length;
+        }
+        double[] scores = personalization.clone();
+        for (int iteration = 0; iteration < 200; iteration++) {
+            final double[] current = scores;
+            final double[] next = personalization.clone();
+            for (int nodeId = 0; nodeId < nodeCount; nodeId++) {
+                final int degree = graph.degree(nodeId, Direction.OUTGOING);
+                if (degree > 0) {
+                    final double share = DAMPING * current[nodeId] / degree;
+                    graph.forEachRelationship(nodeId, Direction.OUTGOING, (s, t, r) -> {
+                        next[t] += share;
+                        return true;
+                    });
+                }
+            }
+            scores = next;
+        }
+        return scores;
+    }
+}
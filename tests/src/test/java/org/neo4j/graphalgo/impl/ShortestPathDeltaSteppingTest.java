@@ -23,7 +23,10 @@ import org.junit.BeforeClass;
 import org.junit.Test;
 import org.neo4j.graphalgo.api.Graph;
 import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.api.HugeGraph;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.huge.HugeGraphFactory;
+import org.neo4j.graphalgo.core.utils.paged.AllocationTracker;
 import org.neo4j.graphdb.Node;
 import org.neo4j.graphdb.Transaction;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
@@ -49,6 +52,8 @@ public final class ShortestPathDeltaSteppingTest {
 
     private static Graph graph;
 
+    private static HugeGraph hugeGraph;
+
     private static long head, tail;
 
     @BeforeClass
@@ -105,12 +110,19 @@ public final class ShortestPathDeltaSteppingTest {
                 .withRelationshipType("TYPE")
                 .withRelationshipWeightsFromProperty("cost", Double.MAX_VALUE)
                 .load(HeavyGraphFactory.class);
+
+        hugeGraph = (HugeGraph) new GraphLoader(api)
+                .withLabel("Node")
+                .withRelationshipType("TYPE")
+                .withRelationshipWeightsFromProperty("cost", Double.MAX_VALUE)
+                .load(HugeGraphFactory.class);
     }
 
     @AfterClass
     public static void tearDown() throws Exception {
         if (api != null) api.shutdown();
         graph = null;
+        hugeGraph = null;
     }
 
     @Test
@@ -134,6 +146,25 @@ public final class ShortestPathDeltaSteppingTest {
         assertEquals(8, sp[graph.toMappedNodeId(tail)],0.1);
     }
 
+    @Test
+    public void testHugeSequential() throws Exception {
+        final HugeShortestPathDeltaStepping sssp = new HugeShortestPathDeltaStepping(hugeGraph, 3, AllocationTracker.EMPTY)
+                .compute(head);
+
+        assertEquals(8, sssp.distance(hugeGraph.toHugeMappedNodeId(tail)), 0.1);
+    }
+
+    @Test
+    public void testHugeParallel() throws Exception {
+        final HugeShortestPathDeltaStepping sssp = new HugeShortestPathDeltaStepping(hugeGraph, 3, AllocationTracker.EMPTY)
+                .withExecutorService(Executors.newFixedThreadPool(3))
+                .withConcurrency(3)
+                .compute(head);
+
+        assertEquals(8, sssp.distance(hugeGraph.toHugeMappedNodeId(tail)), 0.1);
+        assertEquals(0, sssp.distance(hugeGraph.toHugeMappedNodeId(head)), 0.1);
+    }
+
     public static Node getNode(String name) {
         final Node[] node = new Node[1];
         api.execute("MATCH (n:Node) WHERE n.name = '" + name + "' RETURN n").accept(row -> {
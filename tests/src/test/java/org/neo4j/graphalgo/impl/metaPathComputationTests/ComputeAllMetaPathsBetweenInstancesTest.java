@@ -0,0 +1,204 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphalgo.TestDatabaseCreator;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsBetweenInstances;
+import org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex;
+import org.neo4j.graphalgo.impl.metapath.MetaPathPrecomputeHighDegreeNodes;
+import org.neo4j.graphalgo.impl.metapath.TypedAdjacency;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphalgo.metaPathComputationProcs.ComputeAllMetaPathsForInstancesProc;
+import org.neo4j.graphdb.QueryExecutionException;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ComputeAllMetaPathsBetweenInstancesTest {
+
+    private static GraphDatabaseAPI api;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HeavyGraph graph;
+    private LabelMapping labelMapping;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final String cypher =
+                "CREATE (a:A {name:\"a\"})\n" +
+                        "CREATE (b:B {name:\"b\"})\n" +
+                        "CREATE (c:A {name:\"c\"})\n" +
+                        "CREATE (i:A {name:\"i\"})\n" +
+                        "CREATE (k:B {name:\"k\"})\n" +
+                        "CREATE (o:A {name:\"o\"})\n" +
+                        "CREATE (s:C {name:\"s\"})\n" +
+                        "CREATE (t:C {name:\"t\"})\n" +
+                        "CREATE\n" +
+                        "  (a)-[:TYPE1]->(t),\n" +
+                        "  (a)-[:TYPE1]->(c),\n" +
+                        "  (a)-[:TYPE1]->(b),\n" +
+                        "  (a)-[:TYPE1]->(s),\n" +
+                        "  (b)-[:TYPE1]->(s),\n" +
+                        "  (b)-[:TYPE1]->(t),\n" +
+                        "  (c)-[:TYPE1]->(s),\n" +
+                        "  (c)-[:TYPE1]->(b),\n" +
+                        "  (i)-[:TYPE1]->(t),\n" +
+                        "  (t)-[:TYPE2]->(s),\n" +
+                        "  (t)-[:TYPE2]->(o),\n" +
+                        "  (k)-[:TYPE2]->(s)\n";
+
+        api = TestDatabaseCreator.createTestDatabase();
+
+        api.getDependencyResolver()
+                .resolveDependency(Procedures.class)
+                .registerProcedure(ComputeAllMetaPathsForInstancesProc.class);
+
+        try (Transaction tx = api.beginTx()) {
+            api.execute(cypher);
+            tx.success();
+        }
+    }
+
+    @AfterClass
+    public static void shutdownGraph() throws Exception {
+        api.shutdown();
+    }
+
+    @Before
+    public void loadGraph() throws Exception {
+        graph = (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .withRelationshipTypes()
+                .load(HeavyGraphFactory.class);
+        labelMapping = LabelImporter.loadMetaData(graph, api);
+    }
+
+    @Test
+    public void testSameResultAsForwardExpansion() throws Exception {
+        TypedAdjacency adjacency = TypedAdjacency.of(graph, labelMapping);
+        List<List<Integer>> nodeSets = Arrays.asList(
+                Arrays.asList(0, 4), Arrays.asList(1, 5), Arrays.asList(6), Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7));
+        for (int length = 1; length <= 5; length++) {
+            ComputeAllMetaPathsBetweenInstances algo = new ComputeAllMetaPathsBetweenInstances(adjacency, labelMapping, length);
+            for (List<Integer> startNodes : nodeSets) {
+                for (List<Integer> endNodes : nodeSets) {
+                    assertEquals("length " + length + " from " + startNodes + " to " + endNodes,
+                            forwardExpansion(adjacency, startNodes, endNodes, length),
+                            algo.compute(startNodes, endNodes));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testSameResultWithHighDegreeIndex() throws Exception {
+        TypedAdjacency adjacency = TypedAdjacency.of(graph, labelMapping);
+        Path indexFile = folder.newFile("highDegree.bin").toPath();
+        HighDegreeMetaPathIndex index = new MetaPathPrecomputeHighDegreeNodes(adjacency, labelMapping, 3, 0.5f)
+                .compute(indexFile)
+                .getIndex();
+        assertEquals(4, index.nodeCount());
+
+        List<List<Integer>> nodeSets = Arrays.asList(
+                Arrays.asList(0, 4), Arrays.asList(1, 5), Arrays.asList(6), Arrays.asList(0, 1, 2, 3, 4, 5, 6, 7));
+        for (int length = 1; length <= 5; length++) {
+            ComputeAllMetaPathsBetweenInstances algo = new ComputeAllMetaPathsBetweenInstances(adjacency, labelMapping, length);
+            algo.setHighDegreeIndex(index);
+            for (List<Integer> startNodes : nodeSets) {
+                for (List<Integer> endNodes : nodeSets) {
+                    assertEquals("length " + length + " from " + startNodes + " to " + endNodes,
+                            forwardExpansion(adjacency, startNodes, endNodes, length),
+                            algo.compute(startNodes, endNodes));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDirectNeighbours() throws Exception {
+        HashSet<String> metaPaths = new ComputeAllMetaPathsBetweenInstances(graph, labelMapping, 2)
+                .compute(Arrays.asList(0), Arrays.asList(1));
+        assertEquals(1, metaPaths.size());
+        assertTrue(metaPaths.contains(labelMapping.getLabel(0) + " | " + typeOf("TYPE1") + " | " + labelMapping.getLabel(1)));
+    }
+
+    @Test
+    public void testProcedure() throws Exception {
+        HashSet<String> expected = new ComputeAllMetaPathsBetweenInstances(graph, labelMapping, 4)
+                .compute(Arrays.asList(0, 4), Arrays.asList(1, 5));
+        Set<String> actual = new HashSet<>();
+        api.execute("CALL algo.computeAllMetaPathsForInstances('{0, 4}', '{1, 5}', '4') YIELD metaPaths").accept(row -> {
+            String json = row.getString("metaPaths");
+            for (String path : json.substring(1, json.length() - 1).split(",")) {
+                actual.add(path.substring(1, path.length() - 1));
+            }
+            return true;
+        });
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testProcedureRejectsUnknownNodes() throws Exception {
+        try {
+            api.execute("CALL algo.computeAllMetaPathsForInstances('{0, 4}', '{1, 424242}', '4') YIELD metaPaths").close();
+            fail("unknown node id has been accepted");
+        } catch (QueryExecutionException e) {
+            assertTrue(e.getMessage().contains("424242"));
+        }
+    }
+
+    private short typeOf(String name) {
+        return labelMapping.getTypes().id(name);
+    }
+
+    /**
+     * expands every path from the start nodes for the whole length
+     */
+    private HashSet<String> forwardExpansion(TypedAdjacency adjacency, Collection<Integer> startNodes, Collection<Integer> endNodes, int length) {
+        HashSet<String> result = new HashSet<>();
+        for (int start : startNodes) {
+            forwardExpansion(adjacency, start, new ComputeAllMetaPaths.MetaPath(labelMapping.getLabel(start)), endNodes, length - 1, result);
+        }
+        return result;
+    }
+
+    private static void forwardExpansion(TypedAdjacency adjacency, int node, ComputeAllMetaPaths.MetaPath path, Collection<Integer> endNodes, int remaining, HashSet<String> result) {
+        if (remaining == 0) {
+            return;
+        }
+        for (int i = adjacency.start(node); i < adjacency.end(node); i++) {
+            int key = adjacency.key(i);
+            int target = adjacency.target(i);
+            ComputeAllMetaPaths.MetaPath next = path.copy();
+            next.add(TypedAdjacency.type(key));
+            next.add(TypedAdjacency.label(key));
+            if (endNodes.contains(target)) {
+                result.add(next.toString());
+            }
+            forwardExpansion(adjacency, target, next, endNodes, remaining - 1, result);
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphalgo.TestDatabaseCreator;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsPrimitive;
+import org.neo4j.graphalgo.impl.metapath.PackedMetaPath;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphalgo.metaPathComputationProcs.ComputeAllMetaPathsProc;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ComputeAllMetaPathsPrimitiveTest {
+
+    private static GraphDatabaseAPI api;
+    private HeavyGraph graph;
+    private LabelMapping labelMapping;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final String cypher =
+                "CREATE (a:A {name:\"a\"})\n" +
+                        "CREATE (b:B {name:\"b\"})\n" +
+                        "CREATE (c:A {name:\"c\"})\n" +
+                        "CREATE (i:A {name:\"i\"})\n" +
+                        "CREATE (k:B {name:\"k\"})\n" +
+                        "CREATE (o:A {name:\"o\"})\n" +
+                        "CREATE (s:C {name:\"s\"})\n" +
+                        "CREATE (t:C {name:\"t\"})\n" +
+                        "CREATE\n" +
+                        "  (a)-[:TYPE1]->(t),\n" +
+                        "  (a)-[:TYPE1]->(c),\n" +
+                        "  (a)-[:TYPE1]->(b),\n" +
+                        "  (a)-[:TYPE1]->(s),\n" +
+                        "  (b)-[:TYPE1]->(s),\n" +
+                        "  (b)-[:TYPE2]->(t),\n" +
+                        "  (c)-[:TYPE1]->(s),\n" +
+                        "  (c)-[:TYPE2]->(b),\n" +
+                        "  (i)-[:TYPE1]->(t),\n" +
+                        "  (t)-[:TYPE1]->(s),\n" +
+                        "  (t)-[:TYPE2]->(o),\n" +
+                        "  (k)-[:TYPE1]->(s)\n";
+
+        api = TestDatabaseCreator.createTestDatabase();
+        try (Transaction tx = api.beginTx()) {
+            api.execute(cypher);
+            tx.success();
+        }
+    }
+
+    @AfterClass
+    public static void shutdownGraph() throws Exception {
+        api.shutdown();
+    }
+
+    @Before
+    public void loadGraph() throws Exception {
+        graph = (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .load(HeavyGraphFactory.class);
+        labelMapping = LabelImporter.loadMetaData(graph, api);
+    }
+
+    @Test
+    public void testSameResultAsComputeAllMetaPaths() throws Exception {
+        for (int length = 1; length <= 4; length++) {
+            Map<ComputeAllMetaPaths.MetaPath, Long> expected = new ComputeAllMetaPaths(
+                    graph, labelMapping, length, Pools.DEFAULT).compute();
+            Map<ComputeAllMetaPaths.MetaPath, Long> actual = new ComputeAllMetaPathsPrimitive(
+                    graph, labelMapping, length, 2).compute();
+            assertEquals("length " + length, toStrings(expected), toStrings(actual));
+        }
+    }
+
+    @Test
+    public void testSingleThreaded() throws Exception {
+        Map<ComputeAllMetaPaths.MetaPath, Long> result = new ComputeAllMetaPathsPrimitive(
+                graph, labelMapping, 3, 1).compute();
+        List<String> strings = toStrings(result);
+        assertTrue(strings.contains("0\t4"));
+        assertTrue(strings.contains("1\t2"));
+        assertTrue(strings.contains("2\t2"));
+        assertEquals(toStrings(new ComputeAllMetaPathsPrimitive(graph, labelMapping, 3, 4).compute()), strings);
+    }
+
+    @Test
+    public void testStreamSameAsCompute() throws Exception {
+        ComputeAllMetaPathsPrimitive algo = new ComputeAllMetaPathsPrimitive(graph, labelMapping, 4, 2);
+        Map<ComputeAllMetaPaths.MetaPath, Long> expected = algo.compute();
+        // a queue of a single element blocks the workers on every path
+        Map<ComputeAllMetaPaths.MetaPath, Long> actual;
+        try (Stream<ComputeAllMetaPathsPrimitive.CountedMetaPath> stream = algo.computeStream(1)) {
+            actual = stream.collect(Collectors.toMap(p -> algo.codec().decode(p.packedMetaPath), p -> p.count));
+        }
+        assertEquals(toStrings(expected), toStrings(actual));
+    }
+
+    @Test(timeout = 60_000)
+    public void testStreamConsumedOnTheSharedPool() throws Exception {
+        // the consumer occupies a worker and every producer blocks on the full queue
+        ComputeAllMetaPathsPrimitive algo = new ComputeAllMetaPathsPrimitive(
+                graph, labelMapping, 4, Pools.FJ_POOL.getParallelism());
+        Map<ComputeAllMetaPaths.MetaPath, Long> actual = Pools.FJ_POOL.submit(() -> {
+            try (Stream<ComputeAllMetaPathsPrimitive.CountedMetaPath> stream = algo.computeStream(1)) {
+                return stream.collect(Collectors.toMap(p -> algo.codec().decode(p.packedMetaPath), p -> p.count));
+            }
+        }).get();
+        Map<ComputeAllMetaPaths.MetaPath, Long> expected = new ComputeAllMetaPathsPrimitive(
+                graph, labelMapping, 4, 2).compute();
+        assertEquals(toStrings(expected), toStrings(actual));
+    }
+
+    @Test
+    public void testCloseStreamEarly() throws Exception {
+        ComputeAllMetaPathsPrimitive algo = new ComputeAllMetaPathsPrimitive(graph, labelMapping, 4, 2);
+        try (Stream<ComputeAllMetaPathsPrimitive.CountedMetaPath> stream = algo.computeStream(1)) {
+            assertEquals(2, stream.limit(2).count());
+        }
+        assertEquals(toStrings(algo.compute()), toStrings(algo.compute()));
+    }
+
+    @Test
+    public void testStreamProcedure() throws Exception {
+        api.getDependencyResolver()
+                .resolveDependency(Procedures.class)
+                .registerProcedure(ComputeAllMetaPathsProc.class);
+        List<String> expected = toStrings(new ComputeAllMetaPathsPrimitive(graph, labelMapping, 3, 1).compute());
+        List<String> actual = new ArrayList<>();
+        api.execute("CALL algo.computeAllMetaPaths.stream(3, 2, 2) YIELD metaPath, count").accept(row -> {
+            actual.add(row.getString("metaPath") + "\t" + row.getNumber("count").longValue());
+            return true;
+        });
+        Collections.sort(actual);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testPackedMetaPathRoundTrip() {
+        PackedMetaPath codec = new PackedMetaPath(labelMapping);
+        long packed = codec.start((short) 2);
+        packed = codec.extend(packed, (short) 1, (short) 0);
+        packed = codec.extend(packed, (short) -1, (short) -1);
+        assertEquals(3, codec.length(packed));
+        assertEquals("2 | 1 | 0 | -1 | -1", codec.decode(packed).toString());
+    }
+
+    private static List<String> toStrings(Map<ComputeAllMetaPaths.MetaPath, Long> result) {
+        return result.entrySet().stream()
+                .map(e -> e.getKey().toString() + "\t" + e.getValue())
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,159 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphalgo.TestDatabaseCreator;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsPrimitive;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsSampled;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphalgo.metaPathComputationProcs.ComputeAllMetaPathsProc;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.impl.proc.Procedures;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ComputeAllMetaPathsSampledTest {
+
+    private static GraphDatabaseAPI api;
+    private HeavyGraph graph;
+    private LabelMapping labelMapping;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final String cypher =
+                "CREATE (a:A {name:\"a\"})\n" +
+                        "CREATE (b:B {name:\"b\"})\n" +
+                        "CREATE (c:A {name:\"c\"})\n" +
+                        "CREATE (i:A {name:\"i\"})\n" +
+                        "CREATE (k:B {name:\"k\"})\n" +
+                        "CREATE (o:A {name:\"o\"})\n" +
+                        "CREATE (s:C {name:\"s\"})\n" +
+                        "CREATE (t:C {name:\"t\"})\n" +
+                        "CREATE\n" +
+                        "  (a)-[:TYPE1]->(t),\n" +
+                        "  (a)-[:TYPE1]->(c),\n" +
+                        "  (a)-[:TYPE1]->(b),\n" +
+                        "  (a)-[:TYPE1]->(s),\n" +
+                        "  (b)-[:TYPE1]->(s),\n" +
+                        "  (b)-[:TYPE2]->(t),\n" +
+                        "  (c)-[:TYPE1]->(s),\n" +
+                        "  (c)-[:TYPE2]->(b),\n" +
+                        "  (i)-[:TYPE1]->(t),\n" +
+                        "  (t)-[:TYPE1]->(s),\n" +
+                        "  (t)-[:TYPE2]->(o),\n" +
+                        "  (k)-[:TYPE1]->(s)\n";
+
+        api = TestDatabaseCreator.createTestDatabase();
+        try (Transaction tx = api.beginTx()) {
+            api.execute(cypher);
+            tx.success();
+        }
+    }
+
+    @AfterClass
+    public static void shutdownGraph() throws Exception {
+        api.shutdown();
+    }
+
+    @Before
+    public void loadGraph() throws Exception {
+        graph = (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .load(HeavyGraphFactory.class);
+        labelMapping = LabelImporter.loadMetaData(graph, api);
+    }
+
+    @Test
+    public void testEstimatesCoverExactCounts() throws Exception {
+        Map<ComputeAllMetaPaths.MetaPath, Long> exact = new ComputeAllMetaPathsPrimitive(
+                graph, labelMapping, 4, 2).compute();
+        Map<ComputeAllMetaPaths.MetaPath, ComputeAllMetaPathsSampled.Estimate> estimates = new ComputeAllMetaPathsSampled(
+                graph, labelMapping, 4, 20_000, 42L, 2).compute(0.999);
+
+        int covered = 0;
+        for (Map.Entry<ComputeAllMetaPaths.MetaPath, ComputeAllMetaPathsSampled.Estimate> entry : estimates.entrySet()) {
+            // every sampled walk exists, so no meta-path is invented
+            assertTrue(entry.getKey().toString(), exact.containsKey(entry.getKey()));
+            long count = exact.get(entry.getKey());
+            ComputeAllMetaPathsSampled.Estimate estimate = entry.getValue();
+            if (estimate.lowerBound <= count && count <= estimate.upperBound) {
+                covered++;
+            }
+            assertEquals(entry.getKey().toString(), count, estimate.count, Math.max(1.0, count * 0.2));
+        }
+        assertTrue(covered + " of " + estimates.size(), covered >= estimates.size() * 0.95);
+    }
+
+    @Test
+    public void testStartLabelsAreExact() throws Exception {
+        Map<ComputeAllMetaPaths.MetaPath, ComputeAllMetaPathsSampled.Estimate> estimates = new ComputeAllMetaPathsSampled(
+                graph, labelMapping, 1, 10, 7L, 1).compute(0.95);
+        assertEquals(3, estimates.size());
+        for (Map.Entry<ComputeAllMetaPaths.MetaPath, ComputeAllMetaPathsSampled.Estimate> entry : estimates.entrySet()) {
+            ComputeAllMetaPathsSampled.Estimate estimate = entry.getValue();
+            assertEquals(0.0, estimate.standardError, 1e-9);
+            assertEquals(estimate.count, estimate.lowerBound, 1e-9);
+            assertEquals(estimate.count, estimate.upperBound, 1e-9);
+        }
+    }
+
+    @Test
+    public void testSameSeedSameEstimates() throws Exception {
+        Map<ComputeAllMetaPaths.MetaPath, ComputeAllMetaPathsSampled.Estimate> first = new ComputeAllMetaPathsSampled(
+                graph, labelMapping, 3, 100, 1L, 4).compute(0.95);
+        Map<ComputeAllMetaPaths.MetaPath, ComputeAllMetaPathsSampled.Estimate> second = new ComputeAllMetaPathsSampled(
+                graph, labelMapping, 3, 100, 1L, 1).compute(0.95);
+        assertEquals(first.keySet(), second.keySet());
+        for (ComputeAllMetaPaths.MetaPath path : first.keySet()) {
+            assertEquals(first.get(path).count, second.get(path).count, 0.0);
+            assertEquals(first.get(path).upperBound, second.get(path).upperBound, 0.0);
+        }
+    }
+
+    @Test
+    public void testProcedureReturnsSeed() throws Exception {
+        api.getDependencyResolver()
+                .resolveDependency(Procedures.class)
+                .registerProcedure(ComputeAllMetaPathsProc.class);
+        Map<String, Double> first = sampledCounts("CALL algo.computeAllMetaPaths(3, 2, 100, 0.95, 42)", 42L);
+        Map<String, Double> second = sampledCounts("CALL algo.computeAllMetaPaths(3, 1, 100, 0.95, 42)", 42L);
+        assertEquals(first, second);
+
+        api.execute("CALL algo.computeAllMetaPaths(3, 2, 100) YIELD seed").accept(row -> {
+            assertNotNull(row.get("seed"));
+            return true;
+        });
+    }
+
+    private Map<String, Double> sampledCounts(String cypher, long expectedSeed) {
+        Map<String, Double> counts = new HashMap<>();
+        api.execute(cypher + " YIELD metaPath, upperBound, seed").accept(row -> {
+            assertEquals(expectedSeed, row.getNumber("seed").longValue());
+            counts.put(row.getString("metaPath"), row.getNumber("upperBound").doubleValue());
+            return true;
+        });
+        assertTrue(counts.size() > 0);
+        return counts;
+    }
+
+    @Test
+    public void testZScore() {
+        assertEquals(1.6449, ComputeAllMetaPathsSampled.zScore(0.90), 1e-4);
+        assertEquals(1.9600, ComputeAllMetaPathsSampled.zScore(0.95), 1e-4);
+        assertEquals(3.2905, ComputeAllMetaPathsSampled.zScore(0.999), 1e-4);
+    }
+}
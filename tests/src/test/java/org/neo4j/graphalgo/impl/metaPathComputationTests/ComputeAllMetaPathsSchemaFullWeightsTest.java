@@ -2,7 +2,9 @@ package org.neo4j.graphalgo.impl.metaPathComputationTests;
 
 import org.junit.*;
 import org.neo4j.graphalgo.TestDatabaseCreator;
+import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsSchemaFullWeights;
+import org.neo4j.graphalgo.impl.metapath.SchemaStatistics;
 import org.neo4j.graphdb.*;
 import org.neo4j.kernel.api.exceptions.KernelException;
 import org.neo4j.kernel.impl.proc.Procedures;
@@ -29,8 +31,11 @@ import static org.junit.Assert.assertTrue;
 public class ComputeAllMetaPathsSchemaFullWeightsTest {
 
     private static GraphDatabaseAPI api;
+    private static SchemaStatistics statistics;
+    // label and type ids of the statistics
+    private static int A, B, C, TYPE1;
     private ComputeAllMetaPathsSchemaFullWeights algo;
-    private final HashSet<String> metaPaths = new HashSet<>(Arrays.asList("-1|-10|-1|-10|-2", "-1|-10|-1|-10|-3", "-2|-10|-1", "-3|-10|-1", "-3|-10|-1|-10|-2|-10|-3|-10|-3|-10|-1|-10|-1"));
+    private final HashSet<String> metaPaths = new HashSet<>(Arrays.asList(path(A, TYPE1, A, TYPE1, B), path(A, TYPE1, A, TYPE1, C), path(B, TYPE1, A), path(C, TYPE1, A), path(C, TYPE1, A, TYPE1, B, TYPE1, C, TYPE1, C, TYPE1, A, TYPE1, A)));
 
     @BeforeClass
     public static void setup() throws KernelException, Exception {
@@ -68,6 +73,11 @@ public class ComputeAllMetaPathsSchemaFullWeightsTest {
             api.execute(cypher);
             tx.success();
         }
+        statistics = SchemaStatistics.load(api, 1, Pools.DEFAULT);
+        A = statistics.labels().id("A");
+        B = statistics.labels().id("B");
+        C = statistics.labels().id("C");
+        TYPE1 = statistics.types().id("TYPE1");
     }
 
     @AfterClass
@@ -80,55 +90,64 @@ public class ComputeAllMetaPathsSchemaFullWeightsTest {
         algo = new ComputeAllMetaPathsSchemaFullWeights(3, api);
         HashMap<Integer, String> idTypeMappingNodes = new HashMap<>();
         HashMap<Integer, String> idTypeMappingEdges = new HashMap<>();
-        idTypeMappingNodes.put(-1, "A");
-        idTypeMappingNodes.put(-2, "B");
-        idTypeMappingNodes.put(-3, "C");
-        idTypeMappingEdges.put(-10, "TYPE1");
+        idTypeMappingNodes.put(A, "A");
+        idTypeMappingNodes.put(B, "B");
+        idTypeMappingNodes.put(C, "C");
+        idTypeMappingEdges.put(TYPE1, "TYPE1");
+        algo.setStatistics(statistics);
         algo.setIDTypeMappingNodes(idTypeMappingNodes);
         algo.setIDTypeMappingEdges(idTypeMappingEdges);
     }
 
     @Test
     public void testGetTwoMPWeights() throws InterruptedException {
-        HashSet<Integer> nodeLabelIDs = new HashSet<>(Arrays.asList(-1, -2, -3));
+        HashSet<Integer> nodeLabelIDs = new HashSet<>(Arrays.asList(A, B, C));
         algo.setNodeLabelIDs(nodeLabelIDs);
         HashMap<Integer, HashSet<AbstractMap.SimpleEntry<Integer, Integer>>> adjacentNodesDict = new HashMap<>();
-        adjacentNodesDict.put(-1, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(-1, -10), new AbstractMap.SimpleEntry<>(-2, -10), new AbstractMap.SimpleEntry<>(-3, -10))));
-        adjacentNodesDict.put(-2, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(-1, -10), new AbstractMap.SimpleEntry<>(-3, -10))));
-        adjacentNodesDict.put(-3, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(-1, -10), new AbstractMap.SimpleEntry<>(-2, -10), new AbstractMap.SimpleEntry<>(-3, -10))));
+        adjacentNodesDict.put(A, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(A, TYPE1), new AbstractMap.SimpleEntry<>(B, TYPE1), new AbstractMap.SimpleEntry<>(C, TYPE1))));
+        adjacentNodesDict.put(B, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(A, TYPE1), new AbstractMap.SimpleEntry<>(C, TYPE1))));
+        adjacentNodesDict.put(C, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(A, TYPE1), new AbstractMap.SimpleEntry<>(B, TYPE1), new AbstractMap.SimpleEntry<>(C, TYPE1))));
         algo.setAdjacentNodesDict(adjacentNodesDict);
         algo.getTwoMPWeights();
         HashMap<String, Double> actualTwoMPWeightDict = new HashMap<>();
-        actualTwoMPWeightDict.put("-1|-10|-1", (double) 2 / 26);
-        actualTwoMPWeightDict.put("-1|-10|-2", (double) 2 / 26);
-        actualTwoMPWeightDict.put("-1|-10|-3", (double) 5 / 26);
-        actualTwoMPWeightDict.put("-2|-10|-1", (double) 2 / 26);
-        actualTwoMPWeightDict.put("-2|-10|-3", (double) 4 / 26);
-        actualTwoMPWeightDict.put("-3|-10|-1", (double) 5 / 26);
-        actualTwoMPWeightDict.put("-3|-10|-2", (double) 4 / 26);
-        actualTwoMPWeightDict.put("-3|-10|-3", (double) 2 / 26);
+        actualTwoMPWeightDict.put(path(A, TYPE1, A), (double) 2 / 26);
+        actualTwoMPWeightDict.put(path(A, TYPE1, B), (double) 2 / 26);
+        actualTwoMPWeightDict.put(path(A, TYPE1, C), (double) 5 / 26);
+        actualTwoMPWeightDict.put(path(B, TYPE1, A), (double) 2 / 26);
+        actualTwoMPWeightDict.put(path(B, TYPE1, C), (double) 4 / 26);
+        actualTwoMPWeightDict.put(path(C, TYPE1, A), (double) 5 / 26);
+        actualTwoMPWeightDict.put(path(C, TYPE1, B), (double) 4 / 26);
+        actualTwoMPWeightDict.put(path(C, TYPE1, C), (double) 2 / 26);
         assertEquals(actualTwoMPWeightDict, algo.getTwoMPWeightDict());
     }
 
     @Test
     public void testComputeMetaPathWeights() throws InterruptedException {
-        HashSet<Integer> nodeLabelIDs = new HashSet<>(Arrays.asList(-1, -2, -3));
+        HashSet<Integer> nodeLabelIDs = new HashSet<>(Arrays.asList(A, B, C));
         algo.setNodeLabelIDs(nodeLabelIDs);
         HashMap<Integer, HashSet<AbstractMap.SimpleEntry<Integer, Integer>>> adjacentNodesDict = new HashMap<>();
-        adjacentNodesDict.put(-1, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(-1, -10), new AbstractMap.SimpleEntry<>(-2, -10), new AbstractMap.SimpleEntry<>(-3, -10))));
-        adjacentNodesDict.put(-2, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(-1, -10), new AbstractMap.SimpleEntry<>(-3, -10))));
-        adjacentNodesDict.put(-3, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(-1, -10), new AbstractMap.SimpleEntry<>(-2, -10), new AbstractMap.SimpleEntry<>(-3, -10))));
+        adjacentNodesDict.put(A, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(A, TYPE1), new AbstractMap.SimpleEntry<>(B, TYPE1), new AbstractMap.SimpleEntry<>(C, TYPE1))));
+        adjacentNodesDict.put(B, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(A, TYPE1), new AbstractMap.SimpleEntry<>(C, TYPE1))));
+        adjacentNodesDict.put(C, new HashSet<>(Arrays.asList(new AbstractMap.SimpleEntry<>(A, TYPE1), new AbstractMap.SimpleEntry<>(B, TYPE1), new AbstractMap.SimpleEntry<>(C, TYPE1))));
         algo.setAdjacentNodesDict(adjacentNodesDict);
         algo.computeMetaPathWeights(metaPaths);
         HashMap<String, Double> actualMetaPathWeightsDict = new HashMap<>();
-        actualMetaPathWeightsDict.put("-1|-10|-1|-10|-2", ((double) 2 / 26) * ((double) 2 / 26));
-        actualMetaPathWeightsDict.put("-1|-10|-1|-10|-3", ((double) 2 / 26) * ((double) 5 / 26));
-        actualMetaPathWeightsDict.put("-2|-10|-1", (double) 2 / 26);
-        actualMetaPathWeightsDict.put("-3|-10|-1", (double) 5 / 26);
-        actualMetaPathWeightsDict.put("-3|-10|-1|-10|-2|-10|-3|-10|-3|-10|-1|-10|-1", ((double) 5 / 26) * ((double) 2 / 26) * ((double) 4 / 26) * ((double) 2 / 26) * ((double) 5 / 26) * ((double) 2 / 26));
+        actualMetaPathWeightsDict.put(path(A, TYPE1, A, TYPE1, B), ((double) 2 / 26) * ((double) 2 / 26));
+        actualMetaPathWeightsDict.put(path(A, TYPE1, A, TYPE1, C), ((double) 2 / 26) * ((double) 5 / 26));
+        actualMetaPathWeightsDict.put(path(B, TYPE1, A), (double) 2 / 26);
+        actualMetaPathWeightsDict.put(path(C, TYPE1, A), (double) 5 / 26);
+        actualMetaPathWeightsDict.put(path(C, TYPE1, A, TYPE1, B, TYPE1, C, TYPE1, C, TYPE1, A, TYPE1, A), ((double) 5 / 26) * ((double) 2 / 26) * ((double) 4 / 26) * ((double) 2 / 26) * ((double) 5 / 26) * ((double) 2 / 26));
         assertEquals(actualMetaPathWeightsDict, algo.getMetaPathWeightsDict());
     }
 
+    private static String path(int... ids) {
+        StringJoiner joiner = new StringJoiner("|");
+        for (int id : ids) {
+            joiner.add(String.valueOf(id));
+        }
+        return joiner.toString();
+    }
+
     @Ignore //TODO could be a problem if we consider the direction of edges
     @Test
     public void testPairHashSet() {
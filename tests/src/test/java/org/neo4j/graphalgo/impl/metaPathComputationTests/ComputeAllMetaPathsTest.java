@@ -8,6 +8,7 @@ import org.neo4j.graphalgo.TestDatabaseCreator;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
 import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
 import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
 import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
@@ -20,8 +21,6 @@ import org.neo4j.kernel.internal.GraphDatabaseAPI;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
 import java.util.*;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
@@ -97,10 +96,7 @@ public class ComputeAllMetaPathsTest {
         LabelMapping labelMapping = LabelImporter.loadMetaData(graph, api);
 
         //PrintStream out = new PrintStream(new FileOutputStream("Precomputed_MetaPaths.txt"));
-        int processorCount = Runtime.getRuntime().availableProcessors();
-        ExecutorService executor = Executors.newFixedThreadPool(processorCount);
-
-        algo = new ComputeAllMetaPaths(graph, labelMapping, 3, System.out, executor);
+        algo = new ComputeAllMetaPaths(graph, labelMapping, 3, System.out, Pools.DEFAULT);
     }
 
     @Test
@@ -0,0 +1,139 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import com.carrotsearch.hppc.LongObjectHashMap;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex;
+import org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndexWriter;
+import org.neo4j.graphalgo.impl.metapath.MetaPathPrecomputeHighDegreeNodes;
+import org.neo4j.graphalgo.impl.metapath.PackedMetaPath;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class HighDegreeMetaPathIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final PackedMetaPath codec = PackedMetaPath.of(Arrays.asList(0, 1, 2), Arrays.asList(0, 1));
+    private Path indexFile;
+
+    @Before
+    public void writeIndex() throws Exception {
+        HighDegreeMetaPathIndexWriter writer = new HighDegreeMetaPathIndexWriter(codec, 3);
+
+        LongObjectHashMap<int[]> node7 = new LongObjectHashMap<>();
+        node7.put(path(2, 0, 0), new int[]{0, 3, 5});
+        node7.put(path(2, 1, 1), new int[]{1});
+        writer.add(7, node7);
+
+        LongObjectHashMap<int[]> node0 = new LongObjectHashMap<>();
+        node0.put(path(0, 1, 2), new int[]{6, 7});
+        node0.put(path(0, 0, 0, 1, 2), new int[]{42, 300, 1_000_000});
+        node0.put(path(0, 0, 1), new int[]{1, 4});
+        writer.add(0, node0);
+
+        indexFile = folder.newFile("highDegree.bin").toPath();
+        writer.write(indexFile);
+    }
+
+    @Test
+    public void testNodes() throws Exception {
+        HighDegreeMetaPathIndex index = HighDegreeMetaPathIndex.open(indexFile);
+        assertEquals(3, index.metaPathLength());
+        assertEquals(2, index.nodeCount());
+        assertEquals(5, index.pathCount());
+        assertEquals(0, index.nodeId(0));
+        assertEquals(7, index.nodeId(1));
+        assertTrue(index.contains(7));
+        assertFalse(index.contains(3));
+        assertEquals(3, index.pathCount(0));
+        assertEquals(2, index.pathCount(7));
+        assertEquals(0, index.pathCount(3));
+    }
+
+    @Test
+    public void testForEach() throws Exception {
+        HighDegreeMetaPathIndex index = HighDegreeMetaPathIndex.open(indexFile);
+        List<String> paths = new ArrayList<>();
+        index.forEach(0, (packedMetaPath, endNodes) -> {
+            StringBuilder sb = new StringBuilder(index.codec().decode(packedMetaPath).toString()).append('\t');
+            for (int end = endNodes.next(); end != -1; end = endNodes.next()) {
+                sb.append(end).append(' ');
+            }
+            paths.add(sb.toString().trim());
+            return true;
+        });
+        assertEquals(Arrays.asList(
+                "0 | 0 | 1\t1 4",
+                "0 | 1 | 2\t6 7",
+                "0 | 0 | 0 | 1 | 2\t42 300 1000000"), paths);
+
+        int[] visited = {0};
+        index.forEach(7, (packedMetaPath, endNodes) -> ++visited[0] < 1);
+        assertEquals(1, visited[0]);
+    }
+
+    @Test
+    public void testChunkedMapping() throws Exception {
+        // chunks of 16 bytes, so that the entries and the end nodes span several chunks
+        HighDegreeMetaPathIndex index = HighDegreeMetaPathIndex.open(indexFile, 4);
+        assertEquals(5, index.pathCount());
+        assertEquals(7, index.nodeId(1));
+        List<String> ends = new ArrayList<>();
+        index.forEach(0, (packedMetaPath, endNodes) -> {
+            StringBuilder sb = new StringBuilder();
+            for (int end = endNodes.next(); end != -1; end = endNodes.next()) {
+                sb.append(end).append(' ');
+            }
+            ends.add(sb.toString().trim());
+            return true;
+        });
+        assertEquals(Arrays.asList("1 4", "6 7", "42 300 1000000"), ends);
+    }
+
+    @Test
+    public void testResetEndNodes() throws Exception {
+        HighDegreeMetaPathIndex index = HighDegreeMetaPathIndex.open(indexFile);
+        index.forEach(7, (packedMetaPath, endNodes) -> {
+            int first = endNodes.next();
+            while (endNodes.next() != -1) ;
+            endNodes.reset();
+            assertEquals(first, endNodes.next());
+            return true;
+        });
+    }
+
+    @Test
+    public void testFinalMetaPaths() throws Exception {
+        MetaPathPrecomputeHighDegreeNodes.Result result = new MetaPathPrecomputeHighDegreeNodes.Result(HighDegreeMetaPathIndex.open(indexFile));
+        HashMap<Integer, HashMap<String, HashSet<Integer>>> metaPaths = result.getFinalMetaPaths();
+        assertEquals(2, metaPaths.size());
+        assertEquals(set(0, 3, 5), metaPaths.get(7).get("0|0"));
+        assertEquals(set(1), metaPaths.get(7).get("1|1"));
+        assertEquals(set(42, 300, 1_000_000), metaPaths.get(0).get("0|0|1|2"));
+    }
+
+    private long path(int... ids) {
+        long path = codec.start((short) ids[0]);
+        for (int i = 1; i < ids.length; i += 2) {
+            path = codec.extend(path, (short) ids[i], (short) ids[i + 1]);
+        }
+        return path;
+    }
+
+    private static HashSet<Integer> set(Integer... ids) {
+        return new HashSet<>(Arrays.asList(ids));
+    }
+}
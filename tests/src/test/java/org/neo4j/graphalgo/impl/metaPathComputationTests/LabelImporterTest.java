@@ -0,0 +1,108 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphalgo.TestDatabaseCreator;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.core.utils.ProgressLogger;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphdb.Direction;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class LabelImporterTest {
+
+    private static GraphDatabaseAPI api;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final String cypher =
+                "CREATE (a:A {name:\"a\"})\n" +
+                        "CREATE (b:B {name:\"b\"})\n" +
+                        "CREATE (c:A:B {name:\"c\"})\n" +
+                        "CREATE (d:C {name:\"d\"})\n" +
+                        "CREATE (e {name:\"e\"})\n" +
+                        "CREATE (f:C {name:\"f\"})\n" +
+                        "CREATE (g:A {name:\"g\"})\n" +
+                        "CREATE\n" +
+                        "  (a)-[:TYPE1]->(b),\n" +
+                        "  (a)-[:TYPE2]->(g),\n" +
+                        "  (c)-[:TYPE1]->(d),\n" +
+                        "  (f)-[:TYPE2]->(a),\n" +
+                        "  (e)-[:TYPE3]->(g),\n" +
+                        "  (g)-[:TYPE1]->(b)\n";
+
+        api = TestDatabaseCreator.createTestDatabase();
+        try (Transaction tx = api.beginTx()) {
+            api.execute(cypher);
+            tx.success();
+        }
+    }
+
+    @AfterClass
+    public static void shutdownGraph() throws Exception {
+        api.shutdown();
+    }
+
+    @Test
+    public void testBatchedImportMatchesSingleBatch() throws Exception {
+        HeavyGraph graph = loadGraph(false);
+        LabelMapping expected = LabelImporter.loadMetaData(graph, api);
+        LabelMapping actual = LabelImporter.loadMetaData(graph, api, 4, 2, Pools.DEFAULT, ProgressLogger.NULL_LOGGER);
+        assertFalse(actual.hasRelationshipTypes());
+        assertSameMapping(graph, expected, actual);
+    }
+
+    @Test
+    public void testImportFromTypedGraph() throws Exception {
+        HeavyGraph graph = loadGraph(false);
+        HeavyGraph typedGraph = loadGraph(true);
+        LabelMapping expected = LabelImporter.loadMetaData(graph, api);
+        LabelMapping actual = LabelImporter.loadMetaData(typedGraph, api, 4, 2, Pools.DEFAULT, ProgressLogger.NULL_LOGGER);
+        assertTrue(actual.hasRelationshipTypes());
+        assertSameMapping(graph, expected, actual);
+    }
+
+    @Test
+    public void testLabels() throws Exception {
+        HeavyGraph graph = loadGraph(false);
+        LabelMapping mapping = LabelImporter.loadMetaData(graph, api, 4, 2, Pools.DEFAULT, ProgressLogger.NULL_LOGGER);
+        int[] labelled = {0};
+        mapping.forEachNode(cursor -> labelled[0] += cursor.value.length > 0 ? 1 : 0);
+        assertEquals(6, labelled[0]);
+        assertEquals(2, mapping.getLabels(graph.toMappedNodeId(2)).length);
+        assertEquals(-1, mapping.getLabel(graph.toMappedNodeId(4)));
+    }
+
+    private static HeavyGraph loadGraph(boolean withTypes) {
+        return (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .withRelationshipTypes(withTypes)
+                .load(HeavyGraphFactory.class);
+    }
+
+    private static void assertSameMapping(HeavyGraph graph, LabelMapping expected, LabelMapping actual) {
+        assertArrayEquals(expected.getAllNodeLabels(), actual.getAllNodeLabels());
+        assertArrayEquals(expected.getAllEdgeLabels(), actual.getAllEdgeLabels());
+        graph.forEachNode(node -> {
+            assertArrayEquals(expected.getLabels(node), actual.getLabels(node));
+            graph.forEachRelationship(node, Direction.BOTH, (source, target, relationId) -> {
+                assertEquals(expected.getEdgeLabel(source, target), actual.getEdgeLabel(source, target));
+                assertTrue(actual.getEdgeLabel(source, target) != -1);
+                return true;
+            });
+            return true;
+        });
+    }
+}
@@ -0,0 +1,145 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import org.junit.Test;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.impl.metapath.MetaPathComputation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+public class MetaPathComputationTest {
+
+    @Test
+    public void testNestedTasksRunOnTheSharedPool() throws Exception {
+        Computation computation = new Computation(10, 10, 0L);
+        computation.setConcurrency(Pools.FJ_POOL.getParallelism());
+        computation.run();
+
+        assertEquals(100, computation.visited.get());
+        assertEquals(Collections.singleton(Pools.FJ_POOL), computation.pools);
+    }
+
+    @Test
+    public void testOtherConcurrenciesRunOnAPoolOfTheirOwn() throws Exception {
+        Computation computation = new Computation(10, 10, 0L);
+        computation.setConcurrency(Pools.FJ_POOL.getParallelism() + 1);
+        computation.run();
+
+        assertEquals(100, computation.visited.get());
+        assertEquals(1, computation.pools.size());
+        ForkJoinPool pool = computation.pools.iterator().next();
+        assertNotSame(Pools.FJ_POOL, pool);
+        assertEquals(Pools.FJ_POOL.getParallelism() + 1, pool.getParallelism());
+        assertTrue(pool.isShutdown());
+    }
+
+    @Test
+    public void testConcurrencyBoundsTheBusyWorkers() throws Exception {
+        assumeTrue(Pools.FJ_POOL.getParallelism() > 2);
+        Computation computation = new Computation(8, 20, 1L);
+        computation.setConcurrency(2);
+        computation.run();
+
+        assertEquals(160, computation.visited.get());
+        assertTrue(computation.maxRunning.get() <= 2);
+    }
+
+    @Test
+    public void testIdleWorkersHelpWithASkewedElement() throws Exception {
+        assumeTrue(Pools.FJ_POOL.getParallelism() > 1);
+        // only the first element has children, a split into contiguous parts would leave one worker with all of them
+        Computation computation = new Computation(4, 0, 1L) {
+            @Override
+            int children(int element) {
+                return element == 0 ? 200 : 0;
+            }
+        };
+        computation.setConcurrency(2);
+        computation.run();
+
+        assertEquals(200, computation.visited.get());
+        assertTrue(computation.threads.size() > 1);
+    }
+
+    private static class Computation extends MetaPathComputation {
+        private final int elements;
+        private final int children;
+        private final long sleepMillis;
+        private final Set<ForkJoinPool> pools = ConcurrentHashMap.newKeySet();
+        private final Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        private final AtomicInteger visited = new AtomicInteger();
+        private final AtomicInteger running = new AtomicInteger();
+        private final AtomicInteger maxRunning = new AtomicInteger();
+
+        private Computation(int elements, int children, long sleepMillis) {
+            this.elements = elements;
+            this.children = children;
+            this.sleepMillis = sleepMillis;
+        }
+
+        int children(int element) {
+            return children;
+        }
+
+        private void run() {
+            List<Integer> elements = new ArrayList<>();
+            for (int i = 0; i < this.elements; i++) {
+                elements.add(i);
+            }
+            forEachParallel(elements, element -> invoke(new Expand(children(element))));
+        }
+
+        private final class Expand extends RecursiveAction {
+            private final int children;
+
+            private Expand(int children) {
+                this.children = children;
+            }
+
+            @Override
+            protected void compute() {
+                pools.add(ForkJoinTask.getPool());
+                if (children == 0) {
+                    return;
+                }
+                List<Leaf> subtasks = new ArrayList<>();
+                for (int i = 0; i < children; i++) {
+                    subtasks.add(new Leaf());
+                }
+                forkAll(subtasks);
+            }
+        }
+
+        private final class Leaf extends RecursiveAction {
+            @Override
+            protected void compute() {
+                pools.add(ForkJoinTask.getPool());
+                threads.add(Thread.currentThread());
+                int current = running.incrementAndGet();
+                maxRunning.accumulateAndGet(current, Math::max);
+                try {
+                    if (sleepMillis > 0) {
+                        Thread.sleep(sleepMillis);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    running.decrementAndGet();
+                }
+                visited.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.graphalgo.impl.FilterMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.MetaPathIndex;
+import org.neo4j.graphalgo.impl.metapath.MetaPathIndexWriter;
+import org.neo4j.graphalgo.impl.metapath.ReadPrecomputedMetaPaths;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MetaPathIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path indexFile;
+
+    @Before
+    public void writeIndex() throws Exception {
+        Map<ComputeAllMetaPaths.MetaPath, Long> metaPaths = new HashMap<>();
+        metaPaths.put(path(0), 4L);
+        metaPaths.put(path(1), 2L);
+        metaPaths.put(path(2, 0, 0), 5L);
+        metaPaths.put(path(0, 0, 2), 5L);
+        metaPaths.put(path(0, 1, 2), 4L);
+        metaPaths.put(path(0, 0, 0), 2L);
+        metaPaths.put(path(0, 0, 1, 0, 2), 7L);
+        metaPaths.put(path(0, 0, 0, 0, 2), 3L);
+        indexFile = folder.newFile("index.bin").toPath();
+        MetaPathIndexWriter.write(metaPaths, indexFile);
+    }
+
+    @Test
+    public void testForEach() throws Exception {
+        MetaPathIndex index = MetaPathIndex.open(indexFile);
+        assertEquals(8, index.pathCount());
+        assertEquals(5, index.maxPathLength());
+
+        List<String> all = new ArrayList<>();
+        index.forEach((path, count) -> all.add(path + "\t" + count));
+        assertEquals(Arrays.asList(
+                "0\t4",
+                "0 | 0 | 0\t2",
+                "0 | 0 | 0 | 0 | 2\t3",
+                "0 | 0 | 1 | 0 | 2\t7",
+                "0 | 0 | 2\t5",
+                "0 | 1 | 2\t4",
+                "1\t2",
+                "2 | 0 | 0\t5"), all);
+    }
+
+    @Test
+    public void testForEachByLabels() throws Exception {
+        MetaPathIndex index = MetaPathIndex.open(indexFile);
+        List<String> filtered = new ArrayList<>();
+        index.forEach((short) 0, (short) 2, (path, count) -> filtered.add(path + "\t" + count));
+        assertEquals(Arrays.asList(
+                "0 | 0 | 0 | 0 | 2\t3",
+                "0 | 0 | 1 | 0 | 2\t7",
+                "0 | 0 | 2\t5",
+                "0 | 1 | 2\t4"), filtered);
+        assertEquals(4, index.pathCount((short) 0, (short) 2));
+        assertEquals(0, index.pathCount((short) 2, (short) 1));
+
+        index.forEach((short) 2, (short) 1, (path, count) -> {
+            throw new AssertionError("unexpected path " + path);
+        });
+    }
+
+    @Test
+    public void testCount() throws Exception {
+        MetaPathIndex index = MetaPathIndex.open(indexFile);
+        assertEquals(7L, index.count(path(0, 0, 1, 0, 2)));
+        assertEquals(4L, index.count(path(0)));
+        assertEquals(0L, index.count(path(0, 1, 0)));
+        // binary search within the paths from 0 to 2
+        assertEquals(3L, index.count(path(0, 0, 0, 0, 2)));
+        assertEquals(5L, index.count(path(0, 0, 2)));
+        assertEquals(4L, index.count(path(0, 1, 2)));
+        assertEquals(0L, index.count(path(0, 1, 1, 2)));
+    }
+
+    @Test
+    public void testChunkedMapping() throws Exception {
+        // chunks of 64 bytes, so that the directory, the offsets and the paths span several chunks
+        MetaPathIndex index = MetaPathIndex.open(indexFile, 6);
+        List<String> all = new ArrayList<>();
+        index.forEach((path, count) -> all.add(path + "\t" + count));
+        assertEquals(8, all.size());
+        assertEquals("2 | 0 | 0\t5", all.get(7));
+        assertEquals(7L, index.count(path(0, 0, 1, 0, 2)));
+        assertEquals(3L, index.count(path(0, 0, 0, 0, 2)));
+        assertEquals(5L, index.count(path(2, 0, 0)));
+        assertEquals(0L, index.count(path(0, 0, 0, 2)));
+    }
+
+    @Test
+    public void testReadAndFilterFromIndex() throws Exception {
+        assertTrue(MetaPathIndex.isIndex(indexFile));
+        assertFalse(MetaPathIndex.isIndex(folder.newFile("empty.txt").toPath()));
+
+        HashMap<String, Long> read = new ReadPrecomputedMetaPaths().readMetaPaths(indexFile.toString()).getMetaPathsDict();
+        assertEquals(8, read.size());
+        assertEquals(7L, (long) read.get("0 | 0 | 1 | 0 | 2"));
+
+        HashMap<String, Long> filtered = new FilterMetaPaths(indexFile.toString()).filter("2", "0").getFilteredMetaPathsDict();
+        assertEquals(1, filtered.size());
+        assertEquals(5L, (long) filtered.get("2 | 0 | 0"));
+    }
+
+    @Test
+    public void testFilterSeesRewrittenIndex() throws Exception {
+        FilterMetaPaths filter = new FilterMetaPaths(indexFile.toString());
+        assertEquals(5L, (long) filter.filter("2", "0").getFilteredMetaPathsDict().get("2 | 0 | 0"));
+
+        Map<ComputeAllMetaPaths.MetaPath, Long> metaPaths = new HashMap<>();
+        metaPaths.put(path(2, 1, 0), 9L);
+        metaPaths.put(path(2, 0, 1, 1, 0), 1L);
+        MetaPathIndexWriter.write(metaPaths, indexFile);
+
+        HashMap<String, Long> filtered = filter.filter("2", "0").getFilteredMetaPathsDict();
+        assertEquals(2, filtered.size());
+        assertEquals(9L, (long) filtered.get("2 | 1 | 0"));
+    }
+
+    @Test
+    public void testFilterRejectsInvalidLabels() throws Exception {
+        FilterMetaPaths filter = new FilterMetaPaths(indexFile.toString());
+        for (String[] labels : new String[][]{{"a", "0"}, {"0", "70000"}, {"-1", "0"}, {"0", null}}) {
+            try {
+                filter.filter(labels[0], labels[1]);
+                fail("expected an IllegalArgumentException for " + Arrays.toString(labels));
+            } catch (IllegalArgumentException e) {
+                assertTrue(e.getMessage().contains("label id"));
+            }
+        }
+    }
+
+    private static ComputeAllMetaPaths.MetaPath path(int... ids) {
+        ComputeAllMetaPaths.MetaPath path = new ComputeAllMetaPaths.MetaPath((short) ids[0]);
+        for (int i = 1; i < ids.length; i++) {
+            path.add((short) ids[i]);
+        }
+        return path;
+    }
+}
@@ -1,20 +1,33 @@
 package org.neo4j.graphalgo.impl.metaPathComputationTests;
 
 import org.junit.*;
-import org.neo4j.graphalgo.TestDatabaseCreator;
 import org.neo4j.graphalgo.core.GraphLoader;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
 import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.AlgoDirectory;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPaths;
+import org.neo4j.graphalgo.impl.metapath.ComputeAllMetaPathsBetweenInstances;
+import org.neo4j.graphalgo.impl.metapath.HighDegreeMetaPathIndex;
 import org.neo4j.graphalgo.impl.metapath.MetaPathPrecomputeHighDegreeNodes;
+import org.neo4j.graphalgo.impl.metapath.TypedAdjacency;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphalgo.metaPathComputationProcs.ComputeAllMetaPathsForInstancesProc;
+import org.neo4j.graphalgo.metaPathComputationProcs.MetaPathPrecomputeHighDegreeNodesProc;
 import org.neo4j.graphdb.*;
 import org.neo4j.kernel.api.exceptions.KernelException;
 import org.neo4j.kernel.impl.proc.Procedures;
 import org.neo4j.graphalgo.metaPathComputationProcs.GettingStartedProc;
 import org.neo4j.kernel.internal.GraphDatabaseAPI;
+import org.junit.rules.TemporaryFolder;
+import org.neo4j.test.TestGraphDatabaseFactory;
 
+import java.io.File;
+import java.nio.file.Path;
 import java.util.*;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 
 /**         5     5      5
@@ -29,8 +42,13 @@ import static org.junit.Assert.assertEquals;
 
 public class MetaPathPrecomputeHighDegreeNodesTest {
 
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
     private static GraphDatabaseAPI api;
     private MetaPathPrecomputeHighDegreeNodes algo;
+    private TypedAdjacency adjacency;
+    private LabelMapping labelMapping;
 
     @BeforeClass
     public static void setup() throws KernelException, Exception {
@@ -57,11 +75,15 @@ public class MetaPathPrecomputeHighDegreeNodesTest {
                         "  (t)-[:TYPE2]->(o),\n" +
                         "  (k)-[:TYPE2]->(s)\n";
 
-        api = TestDatabaseCreator.createTestDatabase();
+        api = (GraphDatabaseAPI) new TestGraphDatabaseFactory()
+                .newImpermanentDatabaseBuilder(new File(UUID.randomUUID().toString()))
+                .setConfig(AlgoDirectory.SETTING, folder.getRoot().getAbsolutePath())
+                .newGraphDatabase();
 
-        api.getDependencyResolver()
-                .resolveDependency(Procedures.class)
-                .registerProcedure(GettingStartedProc.class);
+        Procedures procedures = api.getDependencyResolver().resolveDependency(Procedures.class);
+        procedures.registerProcedure(GettingStartedProc.class);
+        procedures.registerProcedure(MetaPathPrecomputeHighDegreeNodesProc.class);
+        procedures.registerProcedure(ComputeAllMetaPathsForInstancesProc.class);
 
         try (Transaction tx = api.beginTx()) {
             api.execute(cypher);
@@ -81,16 +103,91 @@ public class MetaPathPrecomputeHighDegreeNodesTest {
         graph = (HeavyGraph) new GraphLoader(api)
                 .asUndirected(true)
                 .withLabelAsProperty(true)
+                .withRelationshipTypes()
                 .load(HeavyGraphFactory.class);
+        labelMapping = LabelImporter.loadMetaData(graph, api);
+        adjacency = TypedAdjacency.of(graph, labelMapping);
+
+        algo = new MetaPathPrecomputeHighDegreeNodes(adjacency, labelMapping, 3, 0.5f);
+    }
 
-        algo = null; // TODO new MetaPathPrecomputeHighDegreeNodes(graph, graph, graph, 3, 0.5f);
+    @Test
+    public void testEndNodesOfTheHighDegreeNodes() throws Exception {
+        HighDegreeMetaPathIndex index = algo.compute(folder.newFile().toPath()).getIndex();
+        assertEquals(4, index.nodeCount());
+        int minIndexedDegree = Integer.MAX_VALUE;
+        for (int i = 0; i < index.nodeCount(); i++) {
+            minIndexedDegree = Math.min(minIndexedDegree, degree(index.nodeId(i)));
+        }
+        for (int node = 0; node < adjacency.nodeCount(); node++) {
+            if (!index.contains(node)) {
+                assertTrue(degree(node) <= minIndexedDegree);
+            }
+        }
 
+        for (int i = 0; i < index.nodeCount(); i++) {
+            int node = index.nodeId(i);
+            Map<String, Set<Integer>> expected = new HashMap<>();
+            walk(node, new ComputeAllMetaPaths.MetaPath(labelMapping.getLabel(node)), 2, expected);
+            Map<String, Set<Integer>> actual = new HashMap<>();
+            index.forEach(node, (packedMetaPath, endNodes) -> {
+                Set<Integer> ends = new HashSet<>();
+                for (int end = endNodes.next(); end != -1; end = endNodes.next()) {
+                    ends.add(end);
+                }
+                actual.put(index.codec().decode(packedMetaPath).toString(), ends);
+                return true;
+            });
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testProcedure() throws Exception {
+        api.execute("CALL algo.metaPathPrecomputeHighDegreeNodes('3', '0.5')").accept(row -> {
+            assertEquals(4L, row.getNumber("nodes").longValue());
+            assertTrue(row.getNumber("metaPaths").longValue() > 0L);
+            return true;
+        });
+        Path indexFile = folder.getRoot().toPath().resolve(HighDegreeMetaPathIndex.DEFAULT_INDEX_FILE);
+        assertTrue(HighDegreeMetaPathIndex.isIndex(indexFile));
+
+        // the instance search reads the paths of the high degree nodes from the index
+        HashSet<String> expected = new ComputeAllMetaPathsBetweenInstances(adjacency, labelMapping, 5)
+                .compute(Arrays.asList(0, 4), Arrays.asList(1, 5));
+        Set<String> actual = new HashSet<>();
+        api.execute("CALL algo.computeAllMetaPathsForInstances('{0, 4}', '{1, 5}', '5') YIELD metaPaths").accept(row -> {
+            String json = row.getString("metaPaths");
+            for (String path : json.substring(1, json.length() - 1).split(",")) {
+                actual.add(path.substring(1, path.length() - 1));
+            }
+            return true;
+        });
+        assertEquals(expected, actual);
+    }
+
+    private int degree(int node) {
+        return adjacency.end(node) - adjacency.start(node);
+    }
+
+    private void walk(int node, ComputeAllMetaPaths.MetaPath path, int remaining, Map<String, Set<Integer>> endNodes) {
+        if (remaining == 0) {
+            return;
+        }
+        for (int i = adjacency.start(node); i < adjacency.end(node); i++) {
+            int key = adjacency.key(i);
+            ComputeAllMetaPaths.MetaPath next = path.copy();
+            next.add(TypedAdjacency.type(key));
+            next.add(TypedAdjacency.label(key));
+            endNodes.computeIfAbsent(next.toString(), k -> new HashSet<>()).add(adjacency.target(i));
+            walk(adjacency.target(i), next, remaining - 1, endNodes);
+        }
     }
 
     @Ignore //TODO ignored because now we delete entrys out of duplic... to save ram space //TODO: add test for edgeTypes
     @Test
-    public void testCalculationOfMetaPaths() throws InterruptedException {
-        MetaPathPrecomputeHighDegreeNodes.Result result = algo.compute();
+    public void testCalculationOfMetaPaths() throws Exception {
+        MetaPathPrecomputeHighDegreeNodes.Result result = algo.compute(folder.newFile().toPath());
         HashMap<Integer, HashMap<String, HashSet<Integer>>> actualIndexStructure = result.getFinalMetaPaths();
         HashMap<Integer, HashMap<String, HashSet<Integer>>> expectedIndexStructure = new HashMap<>();
         expectedIndexStructure.put(0, new HashMap<>());
@@ -0,0 +1,102 @@
+package org.neo4j.graphalgo.impl.metaPathComputationTests;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.neo4j.graphalgo.TestDatabaseCreator;
+import org.neo4j.graphalgo.core.GraphLoader;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraph;
+import org.neo4j.graphalgo.core.heavyweight.HeavyGraphFactory;
+import org.neo4j.graphalgo.core.utils.Pools;
+import org.neo4j.graphalgo.impl.metapath.SchemaStatistics;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelImporter;
+import org.neo4j.graphalgo.impl.metapath.labels.LabelMapping;
+import org.neo4j.graphdb.Transaction;
+import org.neo4j.kernel.internal.GraphDatabaseAPI;
+
+import static org.junit.Assert.assertEquals;
+
+public class SchemaStatisticsTest {
+
+    private static final String[] LABELS = {"A", "B", "C"};
+    private static final String[] TYPES = {"TYPE1", "TYPE2"};
+
+    private static GraphDatabaseAPI api;
+
+    @BeforeClass
+    public static void setup() throws Exception {
+        final String cypher =
+                "CREATE (a:A {name:\"a\"})\n" +
+                        "CREATE (b:B {name:\"b\"})\n" +
+                        "CREATE (c:A:B {name:\"c\"})\n" +
+                        "CREATE (d:C {name:\"d\"})\n" +
+                        "CREATE (e {name:\"e\"})\n" +
+                        "CREATE (f:C {name:\"f\"})\n" +
+                        "CREATE (g:A {name:\"g\"})\n" +
+                        "CREATE\n" +
+                        "  (a)-[:TYPE1]->(b),\n" +
+                        "  (a)-[:TYPE2]->(g),\n" +
+                        "  (a)-[:TYPE1]->(c),\n" +
+                        "  (c)-[:TYPE1]->(d),\n" +
+                        "  (f)-[:TYPE2]->(a),\n" +
+                        "  (e)-[:TYPE1]->(g),\n" +
+                        "  (g)-[:TYPE1]->(b),\n" +
+                        "  (d)-[:TYPE2]->(f)\n";
+
+        api = TestDatabaseCreator.createTestDatabase();
+        try (Transaction tx = api.beginTx()) {
+            api.execute(cypher);
+            tx.success();
+        }
+    }
+
+    @AfterClass
+    public static void shutdownGraph() throws Exception {
+        api.shutdown();
+    }
+
+    @Test
+    public void testSameCountsAsCypher() throws Exception {
+        assertSameCountsAsCypher(SchemaStatistics.load(api, 2, Pools.DEFAULT));
+    }
+
+    @Test
+    public void testUntypedGraph() throws Exception {
+        HeavyGraph graph = (HeavyGraph) new GraphLoader(api)
+                .asUndirected(true)
+                .withLabelAsProperty(true)
+                .load(HeavyGraphFactory.class);
+        LabelMapping labelMapping = LabelImporter.loadMetaData(graph, api);
+        assertSameCountsAsCypher(SchemaStatistics.of(graph, labelMapping, 1));
+    }
+
+    @Test
+    public void testTotal() throws Exception {
+        SchemaStatistics statistics = SchemaStatistics.load(api, 2, Pools.DEFAULT);
+        long[] sum = {0L};
+        statistics.forEach((startLabel, type, endLabel, count) -> sum[0] += count);
+        assertEquals(sum[0], statistics.total());
+        assertEquals(0L, statistics.count("A", "UNKNOWN", "B"));
+        assertEquals(0L, statistics.count("X", "TYPE1", "B"));
+    }
+
+    private static void assertSameCountsAsCypher(SchemaStatistics statistics) {
+        for (String start : LABELS) {
+            for (String type : TYPES) {
+                for (String end : LABELS) {
+                    String triple = start + "-" + type + "-" + end;
+                    assertEquals(triple, cypherCount(start, type, end), statistics.count(start, type, end));
+                }
+            }
+        }
+    }
+
+    private static long cypherCount(String start, String type, String end) {
+        try (Transaction tx = api.beginTx()) {
+            long count = (long) api.execute("MATCH (:`" + start + "`)-[:`" + type + "`]-(:`" + end + "`) RETURN count(*) AS count")
+                    .next().get("count");
+            tx.success();
+            return count;
+        }
+    }
+}